@@ -51,6 +51,7 @@ open module rapaio {
     exports rapaio.math.linear;
     exports rapaio.math.linear.dense;
     exports rapaio.math.linear.decomposition;
+    exports rapaio.math.linear.sparse;
     exports rapaio.math.optimization;
     exports rapaio.math.optimization.linesearch;
     exports rapaio.math.optimization.scalar;
@@ -185,13 +185,13 @@ public class BoundFrame extends AbstractFrame {
     @Serial
     private static final long serialVersionUID = -445349340356580788L;
     private final int rowCount;
-    private final List<Var> vars;
+    private final Var[] vars;
     private final String[] names;
     private final Map<String, Integer> indexes;
 
     private BoundFrame(int rowCount, List<Var> vars, String[] names, Map<String, Integer> indexes) {
         this.rowCount = rowCount;
-        this.vars = vars;
+        this.vars = vars.toArray(Var[]::new);
         this.names = Arrays.copyOf(names, names.length);
         this.indexes = indexes;
     }
@@ -203,7 +203,7 @@ public class BoundFrame extends AbstractFrame {
 
     @Override
     public int varCount() {
-        return vars.size();
+        return vars.length;
     }
 
     @Override
@@ -218,28 +218,24 @@ public class BoundFrame extends AbstractFrame {
 
     @Override
     public int varIndex(String name) {
-        if (!indexes.containsKey(name)) {
-            return -1;
-        }
-        return indexes.get(name);
+        Integer index = indexes.get(name);
+        return index == null ? -1 : index;
     }
 
     @Override
     public Var rvar(int pos) {
-        return vars.get(pos);
+        return vars[pos];
     }
 
     @Override
     public Var rvar(String name) {
-        if (!indexes.containsKey(name)) {
-            return null;
-        }
-        return vars.get(indexes.get(name));
+        Integer index = indexes.get(name);
+        return index == null ? null : vars[index];
     }
 
     @Override
     public VarType type(String varName) {
-        return vars.get(indexes.get(varName)).type();
+        return vars[indexes.get(varName)].type();
     }
 
     @Override
@@ -281,6 +277,16 @@ public class BoundFrame extends AbstractFrame {
         return BoundFrame.byRows(this, df);
     }
 
+    /**
+     * Builds a solid frame with the same content. This is useful after binding rows of many frames,
+     * since the solid frame does not pay the cost of locating a row in one of the bound frames.
+     *
+     * @return new solid frame with a copy of the values
+     */
+    public SolidFrame compact() {
+        return copy();
+    }
+
     @Override
     public Frame mapRows(Mapping mapping) {
         return MappedFrame.byRow(this, mapping);
@@ -288,106 +294,106 @@ public class BoundFrame extends AbstractFrame {
 
     @Override
     public double getDouble(int row, int varIndex) {
-        return vars.get(varIndex).getDouble(row);
+        return vars[varIndex].getDouble(row);
     }
 
     @Override
     public double getDouble(int row, String varName) {
-        return vars.get(varIndex(varName)).getDouble(row);
+        return vars[varIndex(varName)].getDouble(row);
     }
 
     @Override
     public void setDouble(int row, int col, double value) {
-        vars.get(col).setDouble(row, value);
+        vars[col].setDouble(row, value);
     }
 
     @Override
     public void setDouble(int row, String varName, double value) {
-        vars.get(varIndex(varName)).setDouble(row, value);
+        vars[varIndex(varName)].setDouble(row, value);
     }
 
     @Override
     public int getInt(int row, int varIndex) {
-        return vars.get(varIndex).getInt(row);
+        return vars[varIndex].getInt(row);
     }
 
     @Override
     public int getInt(int row, String varName) {
-        return vars.get(varIndex(varName)).getInt(row);
+        return vars[varIndex(varName)].getInt(row);
     }
 
     @Override
     public void setInt(int row, int col, int value) {
-        vars.get(col).setInt(row, value);
+        vars[col].setInt(row, value);
     }
 
     @Override
     public void setInt(int row, String varName, int value) {
-        vars.get(varIndex(varName)).setInt(row, value);
+        vars[varIndex(varName)].setInt(row, value);
     }
 
     @Override
     public long getLong(int row, int varIndex) {
-        return vars.get(varIndex).getLong(row);
+        return vars[varIndex].getLong(row);
     }
 
     @Override
     public long getLong(int row, String varName) {
-        return vars.get(varIndex(varName)).getLong(row);
+        return vars[varIndex(varName)].getLong(row);
     }
 
     @Override
     public void setLong(int row, int col, long value) {
-        vars.get(col).setLong(row, value);
+        vars[col].setLong(row, value);
     }
 
     @Override
     public void setLong(int row, String varName, long value) {
-        vars.get(varIndex(varName)).setLong(row, value);
+        vars[varIndex(varName)].setLong(row, value);
     }
 
     @Override
     public String getLabel(int row, int col) {
-        return vars.get(col).getLabel(row);
+        return vars[col].getLabel(row);
     }
 
     @Override
     public String getLabel(int row, String varName) {
-        return vars.get(varIndex(varName)).getLabel(row);
+        return vars[varIndex(varName)].getLabel(row);
     }
 
     @Override
     public void setLabel(int row, int col, String value) {
-        vars.get(col).setLabel(row, value);
+        vars[col].setLabel(row, value);
     }
 
     @Override
     public void setLabel(int row, String varName, String value) {
-        vars.get(varIndex(varName)).setLabel(row, value);
+        vars[varIndex(varName)].setLabel(row, value);
     }
 
     @Override
     public List<String> levels(String varName) {
-        return vars.get(varIndex(varName)).levels();
+        return vars[varIndex(varName)].levels();
     }
 
     @Override
     public boolean isMissing(int row, int col) {
-        return vars.get(col).isMissing(row);
+        return vars[col].isMissing(row);
     }
 
     @Override
     public boolean isMissing(int row, String varName) {
-        return vars.get(varIndex(varName)).isMissing(row);
+        return vars[varIndex(varName)].isMissing(row);
     }
 
     @Override
     public void setMissing(int row, int col) {
-        vars.get(col).setMissing(row);
+        vars[col].setMissing(row);
     }
 
     @Override
     public void setMissing(int row, String varName) {
-        vars.get(varIndex(varName)).setMissing(row);
+        vars[varIndex(varName)].setMissing(row);
     }
 }
@@ -23,12 +23,14 @@ package rapaio.data;
 
 import java.io.Serial;
 import java.time.Instant;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
 
+import rapaio.math.linear.DVector;
+import rapaio.math.linear.dense.DVectorDense;
 import rapaio.printer.Printer;
 import rapaio.printer.TextTable;
 import rapaio.printer.opt.POption;
@@ -57,11 +59,12 @@ public class BoundVar extends AbstractVar {
     }
 
     @Serial
-    private static final long serialVersionUID = 5449912906816640189L;
+    private static final long serialVersionUID = -3023103444164501376L;
     private final int rowCount;
     private final VarType varType;
-    private final List<Integer> counts;
-    private final List<Var> vars;
+    // segment i contains rows from offsets[i] inclusive to offsets[i+1] exclusive, taken from vars[i]
+    private final int[] offsets;
+    private final Var[] vars;
 
     private BoundVar(List<Integer> counts, List<Var> vars) {
         if (vars.isEmpty())
@@ -75,35 +78,120 @@ public class BoundVar extends AbstractVar {
 
         this.rowCount = counts.stream().mapToInt(i -> i).sum();
         this.varType = vars.get(0).type();
-        this.counts = new ArrayList<>();
-        this.vars = new ArrayList<>();
 
+        int len = 0;
+        for (Var var : vars) {
+            len += (var instanceof BoundVar boundVar) ? boundVar.vars.length : 1;
+        }
+        this.offsets = new int[len + 1];
+        this.vars = new Var[len];
+
+        // nested bound variables are flattened, thus lookups do not depend on the depth of a bind chain
+        int pos = 0;
         int last = 0;
         for (int i = 0; i < counts.size(); i++) {
+            int count = counts.get(i);
             if (vars.get(i) instanceof BoundVar boundVar) {
-                for (int j = 0; j < boundVar.counts.size(); j++) {
-                    this.counts.add(boundVar.counts.get(j) + last);
-                    this.vars.add(boundVar.vars.get(j));
+                for (int j = 0; j < boundVar.vars.length; j++) {
+                    offsets[pos] = last + Math.min(boundVar.offsets[j], count);
+                    this.vars[pos++] = boundVar.vars[j];
                 }
-                last += boundVar.rowCount;
             } else {
-                this.counts.add(counts.get(i) + last);
-                this.vars.add(vars.get(i));
-                last += vars.get(i).size();
+                offsets[pos] = last;
+                this.vars[pos++] = vars.get(i);
             }
+            last += count;
         }
+        offsets[len] = last;
         this.name(vars.get(0).name());
     }
 
     private int findIndex(int row) {
         if (row >= rowCount || row < 0)
             throw new IllegalArgumentException("Row index is not valid: " + row);
-        int pos = Collections.binarySearch(counts, row);
-        return pos >= 0 ? (counts.get(pos) == row ? pos + 1 : pos) : -pos - 1;
+        // search the last segment which starts before or at row, it is not empty since it contains the row;
+        // no lookup state is kept, thus concurrent readers are safe
+        int lo = 0;
+        int hi = vars.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (offsets[mid] <= row) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
     }
 
     private int localRow(int pos, int row) {
-        return pos > 0 ? row - counts.get(pos - 1) : row;
+        return row - offsets[pos];
+    }
+
+    /**
+     * Builds a solid variable with the same content. This is useful after binding many variables,
+     * since the solid variable does not pay the cost of locating a row in one of the bound variables.
+     *
+     * @return new solid variable with a copy of the values
+     */
+    public Var compact() {
+        return copy();
+    }
+
+    @Override
+    public Var copy() {
+        switch (varType) {
+            case DOUBLE -> {
+                double[] values = new double[rowCount];
+                for (int i = 0; i < vars.length; i++) {
+                    for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                        values[j] = vars[i].getDouble(j - offsets[i]);
+                    }
+                }
+                return VarDouble.wrapArray(rowCount, values).name(name());
+            }
+            case INT -> {
+                int[] values = new int[rowCount];
+                for (int i = 0; i < vars.length; i++) {
+                    for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                        values[j] = vars[i].getInt(j - offsets[i]);
+                    }
+                }
+                return VarInt.wrap(values).name(name());
+            }
+            default -> {
+                return super.copy();
+            }
+        }
+    }
+
+    @Override
+    public DVector dvNew() {
+        double[] values = new double[rowCount];
+        for (int i = 0; i < vars.length; i++) {
+            for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                values[j] = vars[i].getDouble(j - offsets[i]);
+            }
+        }
+        return new DVectorDense(0, rowCount, values);
+    }
+
+    @Override
+    public void forEachInt(IntConsumer consumer) {
+        for (int i = 0; i < vars.length; i++) {
+            for (int j = 0; j < offsets[i + 1] - offsets[i]; j++) {
+                consumer.accept(vars[i].getInt(j));
+            }
+        }
+    }
+
+    @Override
+    public void forEachDouble(DoubleConsumer consumer) {
+        for (int i = 0; i < vars.length; i++) {
+            for (int j = 0; j < offsets[i + 1] - offsets[i]; j++) {
+                consumer.accept(vars[i].getDouble(j));
+            }
+        }
     }
 
     @Override
@@ -118,25 +206,7 @@ public class BoundVar extends AbstractVar {
 
     @Override
     public Var bindRows(Var var) {
-        if (var instanceof BoundVar boundVar) {
-            List<Integer> newCounts = new ArrayList<>();
-            List<Var> newVars = new ArrayList<>();
-            int last = 0;
-            for (int i = 0; i < counts.size(); i++) {
-                newCounts.add(counts.get(i) - last);
-                newVars.add(vars.get(i));
-                last = counts.get(i);
-            }
-            last = 0;
-            for (int i = 0; i < boundVar.counts.size(); i++) {
-                newCounts.add(boundVar.counts.get(i) - last);
-                newVars.add(boundVar.vars.get(i));
-                last = boundVar.counts.get(i);
-            }
-            return BoundVar.from(newCounts, newVars);
-        } else {
-            return BoundVar.from(this, var);
-        }
+        return BoundVar.from(this, var);
     }
 
     @Override
@@ -157,13 +227,13 @@ public class BoundVar extends AbstractVar {
     @Override
     public double getDouble(int row) {
         int pos = findIndex(row);
-        return vars.get(pos).getDouble(localRow(pos, row));
+        return vars[pos].getDouble(localRow(pos, row));
     }
 
     @Override
     public void setDouble(int row, double value) {
         int pos = findIndex(row);
-        vars.get(pos).setDouble(localRow(pos, row), value);
+        vars[pos].setDouble(localRow(pos, row), value);
     }
 
     @Override
@@ -174,13 +244,13 @@ public class BoundVar extends AbstractVar {
     @Override
     public int getInt(int row) {
         int pos = findIndex(row);
-        return vars.get(pos).getInt(localRow(pos, row));
+        return vars[pos].getInt(localRow(pos, row));
     }
 
     @Override
     public void setInt(int row, int value) {
         int pos = findIndex(row);
-        vars.get(pos).setInt(localRow(pos, row), value);
+        vars[pos].setInt(localRow(pos, row), value);
     }
 
     @Override
@@ -191,13 +261,13 @@ public class BoundVar extends AbstractVar {
     @Override
     public String getLabel(int row) {
         int pos = findIndex(row);
-        return vars.get(pos).getLabel(localRow(pos, row));
+        return vars[pos].getLabel(localRow(pos, row));
     }
 
     @Override
     public void setLabel(int row, String value) {
         int pos = findIndex(row);
-        vars.get(pos).setLabel(localRow(pos, row), value);
+        vars[pos].setLabel(localRow(pos, row), value);
     }
 
     @Override
@@ -207,7 +277,7 @@ public class BoundVar extends AbstractVar {
 
     @Override
     public List<String> levels() {
-        return vars.get(0).levels();
+        return vars[0].levels();
     }
 
     @Override
@@ -218,13 +288,13 @@ public class BoundVar extends AbstractVar {
     @Override
     public long getLong(int row) {
         int pos = findIndex(row);
-        return vars.get(pos).getLong(localRow(pos, row));
+        return vars[pos].getLong(localRow(pos, row));
     }
 
     @Override
     public void setLong(int row, long value) {
         int pos = findIndex(row);
-        vars.get(pos).setLong(localRow(pos, row), value);
+        vars[pos].setLong(localRow(pos, row), value);
     }
 
     @Override
@@ -240,26 +310,26 @@ public class BoundVar extends AbstractVar {
     @Override
     public void setInstant(int row, Instant value) {
         int pos = findIndex(row);
-        vars.get(pos).setInstant(localRow(pos, row), value);
+        vars[pos].setInstant(localRow(pos, row), value);
     }
 
     @Override
     public Instant getInstant(int row) {
         int pos = findIndex(row);
-        return vars.get(pos).getInstant(localRow(pos, row));
+        return vars[pos].getInstant(localRow(pos, row));
     }
 
     @Override
     public boolean isMissing(int row) {
         int pos = findIndex(row);
         int localRow = localRow(pos, row);
-        return vars.get(pos).isMissing(localRow);
+        return vars[pos].isMissing(localRow);
     }
 
     @Override
     public void setMissing(int row) {
         int pos = findIndex(row);
-        vars.get(pos).setMissing(localRow(pos, row));
+        vars[pos].setMissing(localRow(pos, row));
     }
 
     @Override
@@ -269,26 +339,26 @@ public class BoundVar extends AbstractVar {
 
     @Override
     public Var newInstance(int rows) {
-        return vars.get(0).newInstance(rows);
+        return vars[0].newInstance(rows);
     }
 
     @Override
     protected String toStringClassName() {
-        return "BoundVar(type=" + vars.get(0).type().code() + ")";
+        return "BoundVar(type=" + vars[0].type().code() + ")";
     }
 
     @Override
     protected int toStringDisplayValueCount() {
-        if (vars.get(0) instanceof AbstractVar) {
-            return ((AbstractVar) vars.get(0)).toStringDisplayValueCount();
+        if (vars[0] instanceof AbstractVar) {
+            return ((AbstractVar) vars[0]).toStringDisplayValueCount();
         }
         return 10;
     }
 
     @Override
     protected void textTablePutValue(TextTable tt, int i, int j, int row, Printer printer, POption<?>[] options) {
-        if (vars.get(0) instanceof AbstractVar) {
-            ((AbstractVar) vars.get(0)).textTablePutValue(tt, i, j, row, printer, options);
+        if (vars[0] instanceof AbstractVar) {
+            ((AbstractVar) vars[0]).textTablePutValue(tt, i, j, row, printer, options);
         } else {
             tt.textCenter(i, j, getLabel(row));
         }
@@ -27,9 +27,12 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 import rapaio.data.group.GroupFun;
+import rapaio.data.group.GroupKeys;
 import rapaio.data.group.function.GroupFunCount;
 import rapaio.data.group.function.GroupFunKurtosis;
 import rapaio.data.group.function.GroupFunMax;
@@ -39,12 +42,11 @@ import rapaio.data.group.function.GroupFunNUnique;
 import rapaio.data.group.function.GroupFunSkewness;
 import rapaio.data.group.function.GroupFunStd;
 import rapaio.data.group.function.GroupFunSum;
-import rapaio.data.preprocessing.VarRefSort;
 import rapaio.printer.Printable;
 import rapaio.printer.Printer;
 import rapaio.printer.TextTable;
 import rapaio.printer.opt.POption;
-import rapaio.util.collection.Int2IntOpenHashMap;
+import rapaio.util.collection.IntArrays;
 
 /**
  * GroupBy index structure which indexes rows from a data frame using unique
@@ -146,6 +148,18 @@ public class Group implements Printable {
         return new Aggregate(this, Arrays.asList(functions));
     }
 
+    /**
+     * Aggregates using multiple threads. Rows are split into chunks which are accumulated
+     * in parallel into partial per group states and merged afterwards.
+     *
+     * @param poolSize  number of threads, negative for all available processors and zero for sequential execution
+     * @param functions group functions
+     * @return aggregate data structure
+     */
+    public Aggregate aggregate(int poolSize, GroupFun... functions) {
+        return new Aggregate(this, Arrays.asList(functions), poolSize);
+    }
+
 
     /**
      * IMPLEMENTATION
@@ -160,14 +174,21 @@ public class Group implements Printable {
     // other than pk var names from source frame
     private final List<String> featureNames;
 
-    // maps rows to group ids
-    private final Int2IntOpenHashMap rowToGroupId = new Int2IntOpenHashMap();
+    // number of groups
+    private final int groupCount;
+
+    // maps rows to group ids, group ids are assigned in sorted order of keys
+    private final int[] groupIds;
 
-    // map group ids to indexes from the last level of the tree
-    private final HashMap<Integer, IndexNode> groupIdToLastLevelIndex = new HashMap<>();
+    // rows of each group are stored in groupRows between groupOffsets[id] and groupOffsets[id+1]
+    private final int[] groupOffsets;
+    private final int[] groupRows;
 
     // sorted group ids
-    private VarInt sortedGroupIds = VarInt.empty();
+    private final VarInt sortedGroupIds;
+
+    // prefix tree of groups, built only on demand for compatibility
+    private HashMap<Integer, IndexNode> groupIdToLastLevelIndex;
 
     private Group(Frame df, List<String> groupVarNames) {
 
@@ -181,10 +202,6 @@ public class Group implements Printable {
             throw new IllegalArgumentException("Group var names contains duplicates.");
         }
 
-        // unique values for each primary key
-        List<Unique> groupByUniques = this.pkNames.stream().map(varName -> Unique.of(df.rvar(varName), true)).toList();
-
-
         this.featureNames = new ArrayList<>();
         for (String varName : df.varNames()) {
             if (pkVarNamesSet.contains(varName)) {
@@ -193,56 +210,26 @@ public class Group implements Printable {
             featureNames.add(varName);
         }
 
-        IndexNode root = new IndexNode(null, "", "", -1, -1);
+        // encode keys into group ids
+        int n = df.rowCount();
+        groupIds = new int[n];
+        groupCount = n == 0 ? 0 : GroupKeys.pack(pkNames.stream().map(df::rvar).toList(), groupIds);
 
-        //populate rows
-        int groupId = 0;
-        for (int i = 0; i < df.rowCount(); i++) {
-            IndexNode node = root;
-            for (int j = 0; j < pkNames.size(); j++) {
-                String levelName = pkNames.get(j);
-                String levelValue = df.getLabel(i, levelName);
-                int levelUniqueId = groupByUniques.get(j).idByRow(i);
-                IndexNode child = node.getChildNode(levelUniqueId);
-                if (child == null) {
-                    if (j != pkNames.size() - 1) {
-                        child = new IndexNode(node, levelName, levelValue, levelUniqueId, -1);
-                    } else {
-                        child = new IndexNode(node, levelName, levelValue, levelUniqueId, groupId);
-                        child.addRow(i);
-                        rowToGroupId.put(i, groupId);
-                        groupIdToLastLevelIndex.put(groupId, child);
-                        groupId++;
-                    }
-                    node.addNode(child);
-                    node = child;
-                } else {
-                    node = child;
-                    if (j == pkNames.size() - 1) {
-                        child.addRow(i);
-                        rowToGroupId.put(i, child.getGroupId());
-                    }
-                }
-            }
+        // bucket rows by group id, keeping the original order of rows inside groups
+        groupOffsets = new int[groupCount + 1];
+        for (int groupId : groupIds) {
+            groupOffsets[groupId + 1]++;
         }
-
-        // sort group ids
-        List<int[]> groupUniqueIds = new ArrayList<>();
-        for (int i = 0; i < getNumberOfGroups(); i++) {
-            groupUniqueIds.add(groupIdToLastLevelIndex.get(i).getLevelIds(new int[pkNames.size()+1]));
-            sortedGroupIds.addInt(i);
+        for (int i = 0; i < groupCount; i++) {
+            groupOffsets[i + 1] += groupOffsets[i];
         }
-        sortedGroupIds = (VarInt) sortedGroupIds.fapply(VarRefSort.from((i1, i2) -> {
-            int[] gui1 = groupUniqueIds.get(i1);
-            int[] gui2 = groupUniqueIds.get(i2);
-            for (int i = 0; i < gui1.length; i++) {
-                int comp = Integer.compare(gui1[i], gui2[i]);
-                if (comp != 0) {
-                    return comp;
-                }
-            }
-            return 0;
-        })).copy();
+        groupRows = new int[n];
+        int[] positions = Arrays.copyOf(groupOffsets, groupCount);
+        for (int i = 0; i < n; i++) {
+            groupRows[positions[groupIds[i]]++] = i;
+        }
+
+        sortedGroupIds = VarInt.seq(groupCount);
     }
 
     /**
@@ -259,10 +246,49 @@ public class Group implements Printable {
         return featureNames;
     }
 
+    /**
+     * Builds on first call a prefix tree of the groups and returns the nodes from the last level
+     * of the tree, indexed by group id.
+     *
+     * @return map from group ids to nodes from the last level of the tree
+     * @deprecated groups are not stored as a prefix tree anymore, use {@link #getGroupIds()},
+     * {@link #getRowsForGroupId(int)} and {@link #getGroupLevelValues(int)} instead
+     */
+    @Deprecated
     public HashMap<Integer, IndexNode> getGroupIdToLastLevelIndex() {
+        if (groupIdToLastLevelIndex == null) {
+            groupIdToLastLevelIndex = buildIndexNodes();
+        }
         return groupIdToLastLevelIndex;
     }
 
+    @SuppressWarnings("deprecation")
+    private HashMap<Integer, IndexNode> buildIndexNodes() {
+        List<Unique> uniques = pkNames.stream().map(varName -> Unique.of(df.rvar(varName), true)).toList();
+        IndexNode root = new IndexNode(null, "", "", -1, -1);
+        HashMap<Integer, IndexNode> nodes = new HashMap<>();
+        for (int groupId = 0; groupId < groupCount; groupId++) {
+            int row = groupRows[groupOffsets[groupId]];
+            IndexNode node = root;
+            for (int j = 0; j < pkNames.size(); j++) {
+                String levelName = pkNames.get(j);
+                int levelId = uniques.get(j).idByRow(row);
+                IndexNode child = node.getChildNode(levelId);
+                if (child == null) {
+                    child = new IndexNode(node, levelName, df.getLabel(row, levelName), levelId,
+                            j == pkNames.size() - 1 ? groupId : -1);
+                    node.addNode(child);
+                }
+                node = child;
+            }
+            for (int i = groupOffsets[groupId]; i < groupOffsets[groupId + 1]; i++) {
+                node.addRow(groupRows[i]);
+            }
+            nodes.put(groupId, node);
+        }
+        return nodes;
+    }
+
     /**
      * @return source frame on which group by is realized
      */
@@ -270,19 +296,78 @@ public class Group implements Printable {
         return df;
     }
 
+    /**
+     * Group ids for all rows of the source frame. The returned array is
+     * the internal storage and must not be modified.
+     *
+     * @return array with group id for each row
+     */
+    public int[] getGroupIds() {
+        return groupIds;
+    }
+
+    /**
+     * @param row row number from the source frame
+     * @return group identifier of the row
+     */
+    public int getGroupId(int row) {
+        return groupIds[row];
+    }
+
     /**
      * @param groupId group identifier
      * @return list of rows from that group
      */
     public Mapping getRowsForGroupId(int groupId) {
-        return groupIdToLastLevelIndex.get(groupId).rows;
+        return Mapping.wrap(Arrays.copyOfRange(groupRows, groupOffsets[groupId], groupOffsets[groupId + 1]));
+    }
+
+    /**
+     * @param groupId group identifier
+     * @return number of rows from that group
+     */
+    public int getGroupSize(int groupId) {
+        return groupOffsets[groupId + 1] - groupOffsets[groupId];
+    }
+
+    /**
+     * @param groupId group identifier
+     * @return labels of the key values of the group
+     */
+    public List<String> getGroupLevelValues(int groupId) {
+        int row = groupRows[groupOffsets[groupId]];
+        return pkNames.stream().map(name -> df.getLabel(row, name)).toList();
+    }
+
+    /**
+     * Computes for each group the id of the enclosing group obtained by removing the
+     * last {@code level} keys. Ids of enclosing groups are in sorted order of their keys.
+     * If the level is equal or greater than the number of keys, all groups are enclosed
+     * in a single group with id 0.
+     *
+     * @param level number of trailing keys to remove
+     * @return array with enclosing group id for each group id
+     */
+    public int[] getParentGroupIds(int level) {
+        if (level <= 0) {
+            return IntArrays.newSeq(groupCount);
+        }
+        int[] parentIds = new int[groupCount];
+        if (level >= pkNames.size() || groupCount == 0) {
+            return parentIds;
+        }
+        Mapping firstRows = Mapping.from(sortedGroupIds, groupId -> groupRows[groupOffsets[groupId]]);
+        List<Var> keys = pkNames.subList(0, pkNames.size() - level).stream()
+                .<Var>map(name -> df.rvar(name).mapRows(firstRows)).toList();
+        GroupKeys.pack(keys, parentIds);
+        return parentIds;
     }
 
     /**
      * @return count of groups
      */
     public int getNumberOfGroups() {
-        return groupIdToLastLevelIndex.size();
+        return groupCount;
     }
 
     /**
@@ -294,7 +379,11 @@ public class Group implements Printable {
 
     /**
      * Node of the prefix tree for groups
+     *
+     * @deprecated groups are not stored as a prefix tree anymore, nodes are built only
+     * by {@link #getGroupIdToLastLevelIndex()}
      */
+    @Deprecated
     public static class IndexNode {
 
         // group unique id
@@ -385,7 +474,7 @@ public class Group implements Printable {
         StringBuilder sb = new StringBuilder();
         sb.append("GroupBy{");
         sb.append("keys:[").append(String.join(",", pkNames)).append("], ");
-        sb.append("group count:").append(groupIdToLastLevelIndex.size()).append(", ");
+        sb.append("group count:").append(groupCount).append(", ");
         sb.append("row count:").append(df.rowCount());
         sb.append("}");
         return sb.toString();
@@ -399,7 +488,7 @@ public class Group implements Printable {
         StringBuilder sb = new StringBuilder();
 
         sb.append("group by: ").append(String.join(", ", pkNames)).append("\n");
-        sb.append("group count: ").append(groupIdToLastLevelIndex.size()).append("\n\n");
+        sb.append("group count: ").append(groupCount).append("\n\n");
 
         TextTable tt = TextTable.empty(40 + 1, pkNames.size() + featureNames.size() + 2, 1, pkNames.size() + 2);
 
@@ -420,36 +509,25 @@ public class Group implements Printable {
         for (int i = 31; i < 40; i++) {
             tt.intRow(i + 1, 0, df.rowCount() - 40 + i);
         }
-        // populate rows
-        Mapping rows = Mapping.empty();
-        for (int groupId : sortedGroupIds) {
-            rows.addAll(groupIdToLastLevelIndex.get(groupId).rows.iterator());
-        }
-
+        // populate rows, group rows are already stored in sorted order of groups
         for (int i = 0; i < 30; i++) {
-            int r = rows.get(i);
-            fillRowData(tt, i, r);
+            fillRowData(tt, i, groupRows[i]);
         }
-        IndexNode _node = groupIdToLastLevelIndex.get(0);
-        List<String> _groupValues = _node.getLevelValues();
-        for (int j = 0; j < _groupValues.size(); j++) {
+        for (int j = 0; j < pkNames.size(); j++) {
             tt.textLeft(31, j + 1, "...");
         }
         for (int j = 0; j < featureNames.size(); j++) {
-            tt.textLeft(31, j + _groupValues.size() + 2, "...");
+            tt.textLeft(31, j + pkNames.size() + 2, "...");
         }
         for (int i = 31; i < 40; i++) {
-            int r = rows.get(df.rowCount() - 40 + i);
-            fillRowData(tt, i, r);
+            fillRowData(tt, i, groupRows[df.rowCount() - 40 + i]);
         }
         sb.append(tt.getDynamicText(printer, options));
         return sb.toString();
     }
 
     private void fillRowData(TextTable tt, int i, int r) {
-        int groupId = rowToGroupId.get(r);
-        IndexNode node = groupIdToLastLevelIndex.get(groupId);
-        List<String> groupValues = node.getLevelValues();
+        List<String> groupValues = getGroupLevelValues(groupIds[r]);
         for (int j = 0; j < groupValues.size(); j++) {
             tt.textLeft(i + 1, j + 1, groupValues.get(j));
         }
@@ -464,7 +542,7 @@ public class Group implements Printable {
         StringBuilder sb = new StringBuilder();
 
         sb.append("group by: ").append(String.join(", ", pkNames)).append("\n");
-        sb.append("group count: ").append(groupIdToLastLevelIndex.size()).append("\n\n");
+        sb.append("group count: ").append(groupCount).append("\n\n");
 
         TextTable tt = TextTable.empty(df.rowCount() + 1, pkNames.size() + featureNames.size() + 2, 1, pkNames.size() + 2);
 
@@ -485,9 +563,9 @@ public class Group implements Printable {
         int pos = 1;
         for (int groupId : sortedGroupIds) {
 
-            IndexNode node = groupIdToLastLevelIndex.get(groupId);
-            List<String> groupValues = node.getLevelValues();
-            for (int row : node.rows) {
+            List<String> groupValues = getGroupLevelValues(groupId);
+            for (int j = groupOffsets[groupId]; j < groupOffsets[groupId + 1]; j++) {
+                int row = groupRows[j];
 
                 // write group values
                 for (int i = 0; i < groupValues.size(); i++) {
@@ -529,12 +607,25 @@ public class Group implements Printable {
         private final Frame aggregateDf;
 
         public Aggregate(Group group, List<GroupFun> funs) {
+            this(group, funs, 0);
+        }
+
+        public Aggregate(Group group, List<GroupFun> funs, int poolSize) {
             this.group = group;
             this.funs = funs;
 
+            // a single pool of threads is shared by all functions and variables
+            int threads = poolSize < 0 ? Runtime.getRuntime().availableProcessors() : poolSize;
+            ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
             List<Var> allVarList = new ArrayList<>();
-            for (GroupFun fun : funs) {
-                allVarList.addAll(fun.compute(group));
+            try {
+                for (GroupFun fun : funs) {
+                    allVarList.addAll(fun.compute(group, executor, threads));
+                }
+            } finally {
+                if (executor != null) {
+                    executor.shutdownNow();
+                }
             }
             aggregateDf = SolidFrame.byVars(allVarList);
         }
@@ -545,12 +636,8 @@ public class Group implements Printable {
 
         public Frame toFrame(int unstackLevel) {
             Frame df = group.getFrame();
-            Mapping rows = Mapping.empty();
             VarInt sortedGroupIds = group.getSortedGroupIds();
-            var groupIndex = group.getGroupIdToLastLevelIndex();
-            for (int sortedGroupId : sortedGroupIds) {
-                rows.add(groupIndex.get(sortedGroupId).getRows().get(0));
-            }
+            Mapping rows = Mapping.from(sortedGroupIds, groupId -> group.groupRows[group.groupOffsets[groupId]]);
             Frame result = df.mapRows(rows).mapVars(group.getGroupByNameList()).copy();
             result = result.bindVars(aggregateDf.mapRows(Mapping.wrap(sortedGroupIds))).copy();
             if (unstackLevel <= 0) {
@@ -732,8 +819,7 @@ public class Group implements Printable {
             int pos = 1;
             for (int groupId : selectedGroupIds) {
 
-                IndexNode node = group.getGroupIdToLastLevelIndex().get(groupId);
-                List<String> groupValues = node.getLevelValues();
+                List<String> groupValues = group.getGroupLevelValues(groupId);
 
                 // write group values
                 for (int i = 0; i < groupValues.size(); i++) {
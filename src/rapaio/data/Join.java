@@ -0,0 +1,567 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package rapaio.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import rapaio.util.collection.Long2IntOpenHashMap;
+
+/**
+ * Hash join of two data frames on one or more key variables.
+ * <p>
+ * Key variables are paired by position and must have the same types. Key values of one side,
+ * called the build side, are encoded into dense primitive codes and the key values of the other side,
+ * called the probe side, are looked up into the same codes. Numeric keys are hashed as primitive values,
+ * nominal keys are translated through their levels and only string keys are hashed as strings.
+ * Missing key values match missing key values. Multiple key variables are packed into long keys
+ * using mixed radix arithmetic. Build rows are bucketed by key with a counting sort and probe rows
+ * are matched in chunks, in parallel when a pool size is given.
+ * <p>
+ * The resulting frame contains the variables of the left frame followed by the non key variables of
+ * the right frame. Right variables with names which exist also in the left frame receive the suffix
+ * {@link #RIGHT_SUFFIX}. Key variables keep the left names and, for right and outer joins, they are
+ * filled with right values for rows without a left match. Rows are produced in the order of the left
+ * rows, each followed by its matches in order of right rows; right joins use the order of right rows instead
+ * and outer joins append the unmatched right rows at the end. When all output rows of a side are present,
+ * the variables of that side are mapped views of the source frame instead of copies.
+ */
+public final class Join {
+
+    public enum Type {
+        /**
+         * Rows with keys found on both sides.
+         */
+        INNER,
+        /**
+         * All left rows, right variables have missing values when keys are not found on the right side.
+         */
+        LEFT,
+        /**
+         * All right rows, left variables have missing values when keys are not found on the left side.
+         */
+        RIGHT,
+        /**
+         * All rows from both sides, with missing values when keys are not found on the other side.
+         */
+        OUTER,
+        /**
+         * Left rows with keys found on the right side, with left variables only.
+         */
+        SEMI,
+        /**
+         * Left rows with keys not found on the right side, with left variables only.
+         */
+        ANTI
+    }
+
+    public static final String RIGHT_SUFFIX = "_right";
+
+    // minimum number of probe rows processed by a single task
+    private static final int MIN_CHUNK_ROWS = 16_384;
+
+    /**
+     * Joins two frames on key variables with the same names. If no key names are given,
+     * the variables with names present in both frames are used as keys.
+     */
+    public static Frame inner(Frame left, Frame right, String... keys) {
+        return from(left, right, Type.INNER, keys);
+    }
+
+    public static Frame left(Frame left, Frame right, String... keys) {
+        return from(left, right, Type.LEFT, keys);
+    }
+
+    public static Frame right(Frame left, Frame right, String... keys) {
+        return from(left, right, Type.RIGHT, keys);
+    }
+
+    public static Frame outer(Frame left, Frame right, String... keys) {
+        return from(left, right, Type.OUTER, keys);
+    }
+
+    public static Frame semi(Frame left, Frame right, String... keys) {
+        return from(left, right, Type.SEMI, keys);
+    }
+
+    public static Frame anti(Frame left, Frame right, String... keys) {
+        return from(left, right, Type.ANTI, keys);
+    }
+
+    private static Frame from(Frame left, Frame right, Type type, String... keys) {
+        VarRange range = keys.length > 0 ? VarRange.of(keys) : VarRange.of(commonVarNames(left, right));
+        return from(left, right, range, range, type, 0);
+    }
+
+    public static Frame from(Frame left, Frame right, VarRange leftKeys, VarRange rightKeys, Type type) {
+        return from(left, right, leftKeys, rightKeys, type, 0);
+    }
+
+    /**
+     * Joins two frames.
+     *
+     * @param left      left frame
+     * @param right     right frame
+     * @param leftKeys  key variables from the left frame
+     * @param rightKeys key variables from the right frame, paired by position with left keys
+     * @param type      join type
+     * @param poolSize  number of threads, negative for all available processors and zero for sequential execution
+     * @return joined frame
+     */
+    public static Frame from(Frame left, Frame right, VarRange leftKeys, VarRange rightKeys, Type type, int poolSize) {
+        return new Join(left, right, leftKeys, rightKeys, type, poolSize).join();
+    }
+
+    private static List<String> commonVarNames(Frame left, Frame right) {
+        Set<String> rightNames = new HashSet<>(Arrays.asList(right.varNames()));
+        return Arrays.stream(left.varNames()).filter(rightNames::contains).toList();
+    }
+
+    private final Frame left;
+    private final Frame right;
+    private final List<String> leftKeyNames;
+    private final List<String> rightKeyNames;
+    private final Type type;
+    private final int threads;
+    private ExecutorService executor;
+
+    private Join(Frame left, Frame right, VarRange leftKeys, VarRange rightKeys, Type type, int poolSize) {
+        this.left = left;
+        this.right = right;
+        this.leftKeyNames = leftKeys.parseVarNames(left);
+        this.rightKeyNames = rightKeys.parseVarNames(right);
+        this.type = type;
+        this.threads = poolSize < 0 ? Runtime.getRuntime().availableProcessors() : Math.max(1, poolSize);
+    }
+
+    private Frame join() {
+        validateKeys();
+
+        // right joins probe with right rows to produce rows in right order
+        boolean swap = type == Type.RIGHT;
+        Frame build = swap ? left : right;
+        Frame probe = swap ? right : left;
+        List<String> buildKeyNames = swap ? leftKeyNames : rightKeyNames;
+        List<String> probeKeyNames = swap ? rightKeyNames : leftKeyNames;
+
+        if (threads > 1) {
+            executor = Executors.newFixedThreadPool(threads);
+        }
+        try {
+            int[] buildIds = new int[build.rowCount()];
+            int[] probeIds = new int[probe.rowCount()];
+            int count = encodeKeys(build, buildKeyNames, probe, probeKeyNames, buildIds, probeIds);
+
+            // bucket build rows by key id
+            int[] offsets = new int[count + 1];
+            for (int id : buildIds) {
+                offsets[id + 1]++;
+            }
+            for (int i = 0; i < count; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            int[] bucketRows = new int[buildIds.length];
+            int[] positions = Arrays.copyOf(offsets, count);
+            for (int i = 0; i < buildIds.length; i++) {
+                bucketRows[positions[buildIds[i]]++] = i;
+            }
+
+            int[][] rows = probe(probeIds, offsets, bucketRows, buildIds, count);
+            int[] leftRows = swap ? rows[1] : rows[0];
+            int[] rightRows = swap ? rows[0] : rows[1];
+            if (type == Type.SEMI || type == Type.ANTI) {
+                return left.mapRows(Mapping.wrap(leftRows));
+            }
+            return output(leftRows, rightRows);
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Matches probe rows with build rows.
+     *
+     * @return pairs of probe and build rows, -1 stands for a missing match
+     */
+    private int[][] probe(int[] probeIds, int[] offsets, int[] bucketRows, int[] buildIds, int count) {
+        int n = probeIds.length;
+        int chunks = chunks(n);
+
+        // count output rows for each chunk of probe rows
+        long[] chunkOffsets = new long[chunks + 1];
+        forEachChunk(n, chunks, (chunk, start, end) -> {
+            long size = 0;
+            for (int i = start; i < end; i++) {
+                size += outputSize(probeIds[i] < 0 ? 0 : offsets[probeIds[i] + 1] - offsets[probeIds[i]]);
+            }
+            chunkOffsets[chunk + 1] = size;
+        });
+        for (int i = 0; i < chunks; i++) {
+            chunkOffsets[i + 1] += chunkOffsets[i];
+        }
+
+        // build rows not matched by any probe row are appended for outer joins
+        boolean[] matched = type == Type.OUTER ? new boolean[count] : null;
+        int[] unmatched = new int[0];
+        if (matched != null) {
+            forEachChunk(n, chunks, (chunk, start, end) -> {
+                for (int i = start; i < end; i++) {
+                    if (probeIds[i] >= 0) {
+                        matched[probeIds[i]] = true;
+                    }
+                }
+            });
+            unmatched = IntStream.range(0, buildIds.length).filter(row -> !matched[buildIds[row]]).toArray();
+        }
+
+        long total = chunkOffsets[chunks] + unmatched.length;
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Join result has too many rows: %d.".formatted(total));
+        }
+        int[] probeRows = new int[(int) total];
+        int[] buildRows = (type == Type.SEMI || type == Type.ANTI) ? null : new int[(int) total];
+        forEachChunk(n, chunks, (chunk, start, end) -> {
+            int pos = (int) chunkOffsets[chunk];
+            for (int i = start; i < end; i++) {
+                int id = probeIds[i];
+                int from = id < 0 ? 0 : offsets[id];
+                int to = id < 0 ? 0 : offsets[id + 1];
+                switch (type) {
+                    case SEMI -> {
+                        if (to > from) {
+                            probeRows[pos++] = i;
+                        }
+                    }
+                    case ANTI -> {
+                        if (to == from) {
+                            probeRows[pos++] = i;
+                        }
+                    }
+                    default -> {
+                        for (int j = from; j < to; j++) {
+                            probeRows[pos] = i;
+                            buildRows[pos++] = bucketRows[j];
+                        }
+                        if (to == from && type != Type.INNER) {
+                            probeRows[pos] = i;
+                            buildRows[pos++] = -1;
+                        }
+                    }
+                }
+            }
+        });
+        int pos = (int) chunkOffsets[chunks];
+        for (int row : unmatched) {
+            probeRows[pos] = -1;
+            buildRows[pos++] = row;
+        }
+        return new int[][] {probeRows, buildRows};
+    }
+
+    private long outputSize(int matches) {
+        return switch (type) {
+            case INNER -> matches;
+            case SEMI -> matches > 0 ? 1 : 0;
+            case ANTI -> matches > 0 ? 0 : 1;
+            default -> Math.max(matches, 1);
+        };
+    }
+
+    private Frame output(int[] leftRows, int[] rightRows) {
+        Frame result;
+        if (complete(leftRows)) {
+            result = left.mapRows(Mapping.wrap(leftRows));
+        } else {
+            List<Var> vars = new ArrayList<>();
+            for (String varName : left.varNames()) {
+                int key = leftKeyNames.indexOf(varName);
+                Var var = left.rvar(varName).newInstance(leftRows.length).name(varName);
+                copyRows(left.rvar(varName), leftRows, var);
+                if (key >= 0) {
+                    // key values of rows without a left match are taken from the right side
+                    copyRows(right.rvar(rightKeyNames.get(key)), rightRows, var, leftRows);
+                }
+                vars.add(var);
+            }
+            result = SolidFrame.byVars(vars);
+        }
+
+        Set<String> leftNames = new HashSet<>(Arrays.asList(left.varNames()));
+        boolean rightComplete = complete(rightRows);
+        Mapping rightMapping = rightComplete ? Mapping.wrap(rightRows) : null;
+        List<Var> rightVars = new ArrayList<>();
+        for (String varName : right.varNames()) {
+            if (rightKeyNames.contains(varName)) {
+                continue;
+            }
+            String name = leftNames.contains(varName) ? varName + RIGHT_SUFFIX : varName;
+            Var source = right.rvar(varName);
+            if (rightComplete) {
+                rightVars.add(source.mapRows(rightMapping).name(name));
+            } else {
+                Var var = source.newInstance(rightRows.length).name(name);
+                copyRows(source, rightRows, var);
+                rightVars.add(var);
+            }
+        }
+        return rightVars.isEmpty() ? result : result.bindVars(rightVars.toArray(Var[]::new));
+    }
+
+    private static boolean complete(int[] rows) {
+        for (int row : rows) {
+            if (row < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void copyRows(Var src, int[] rows, Var dst) {
+        copyRows(src, rows, dst, null);
+    }
+
+    /**
+     * Copies values from the given source rows, skipping negative rows and positions where
+     * the other side has a row, if other rows are given.
+     */
+    private static void copyRows(Var src, int[] rows, Var dst, int[] otherRows) {
+        for (int i = 0; i < rows.length; i++) {
+            int row = rows[i];
+            if (row < 0 || (otherRows != null && otherRows[i] >= 0) || src.isMissing(row)) {
+                continue;
+            }
+            switch (dst.type()) {
+                case DOUBLE -> dst.setDouble(i, src.getDouble(row));
+                case INT, BINARY -> dst.setInt(i, src.getInt(row));
+                case LONG -> dst.setLong(i, src.getLong(row));
+                case INSTANT -> dst.setInstant(i, src.getInstant(row));
+                default -> dst.setLabel(i, src.getLabel(row));
+            }
+        }
+    }
+
+    private void validateKeys() {
+        if (leftKeyNames.isEmpty()) {
+            throw new IllegalArgumentException("No key variables were specified.");
+        }
+        if (leftKeyNames.size() != rightKeyNames.size()) {
+            throw new IllegalArgumentException("Number of keys differ; left: %d, right: %d."
+                    .formatted(leftKeyNames.size(), rightKeyNames.size()));
+        }
+        for (int i = 0; i < leftKeyNames.size(); i++) {
+            VarType leftType = left.type(leftKeyNames.get(i));
+            VarType rightType = right.type(rightKeyNames.get(i));
+            if (leftType != rightType) {
+                throw new IllegalArgumentException("Variable types differ; left: %s [ %s ], right: %s [ %s ]"
+                        .formatted(leftKeyNames.get(i), leftType, rightKeyNames.get(i), rightType));
+            }
+        }
+    }
+
+    /**
+     * Encodes keys into dense ids of build keys. Probe rows with keys not found in build rows receive -1.
+     *
+     * @return number of distinct build keys
+     */
+    private int encodeKeys(Frame build, List<String> buildKeyNames, Frame probe, List<String> probeKeyNames,
+            int[] buildIds, int[] probeIds) {
+        if (buildKeyNames.size() == 1) {
+            return encodeColumn(build.rvar(buildKeyNames.get(0)), probe.rvar(probeKeyNames.get(0)), buildIds, probeIds);
+        }
+        int nb = buildIds.length;
+        int np = probeIds.length;
+        long[] buildKeys = new long[nb];
+        long[] probeKeys = new long[np];
+        int[] buildCodes = new int[nb];
+        int[] probeCodes = new int[np];
+        long radix = 1;
+        for (int j = 0; j < buildKeyNames.size(); j++) {
+            int bound = encodeColumn(build.rvar(buildKeyNames.get(j)), probe.rvar(probeKeyNames.get(j)), buildCodes, probeCodes);
+            if (radix > Long.MAX_VALUE / bound) {
+                radix = compact(buildKeys, probeKeys, buildIds, probeIds);
+            }
+            for (int i = 0; i < nb; i++) {
+                buildKeys[i] = buildKeys[i] * bound + buildCodes[i];
+            }
+            forEachChunk(np, chunks(np), (chunk, start, end) -> {
+                for (int i = start; i < end; i++) {
+                    probeKeys[i] = (probeKeys[i] < 0 || probeCodes[i] < 0) ? -1 : probeKeys[i] * bound + probeCodes[i];
+                }
+            });
+            radix *= bound;
+        }
+        return compact(buildKeys, probeKeys, buildIds, probeIds);
+    }
+
+    /**
+     * Replaces long keys with dense ids of build keys, probe keys which are not found receive -1.
+     *
+     * @return number of distinct build keys
+     */
+    private int compact(long[] buildKeys, long[] probeKeys, int[] buildIds, int[] probeIds) {
+        Long2IntOpenHashMap ids = new Long2IntOpenHashMap();
+        int count = 0;
+        for (int i = 0; i < buildKeys.length; i++) {
+            int id = ids.putIfAbsent(buildKeys[i], count);
+            if (id == Long2IntOpenHashMap.MISSING) {
+                id = count++;
+            }
+            buildIds[i] = id;
+            buildKeys[i] = id;
+        }
+        forEachChunk(probeKeys.length, chunks(probeKeys.length), (chunk, start, end) -> {
+            for (int i = start; i < end; i++) {
+                int id = probeKeys[i] < 0 ? Long2IntOpenHashMap.MISSING : ids.get(probeKeys[i]);
+                probeIds[i] = id == Long2IntOpenHashMap.MISSING ? -1 : id;
+                probeKeys[i] = probeIds[i];
+            }
+        });
+        return Math.max(1, count);
+    }
+
+    /**
+     * Encodes values of a build key variable into dense codes and looks up the values of the probe key variable.
+     *
+     * @return upper bound of build codes
+     */
+    private int encodeColumn(Var build, Var probe, int[] buildCodes, int[] probeCodes) {
+        int np = probe.size();
+        switch (build.type()) {
+            case NOMINAL -> {
+                List<String> levels = build.levels();
+                HashMap<String, Integer> index = new HashMap<>();
+                for (int i = 0; i < levels.size(); i++) {
+                    index.put(levels.get(i), i);
+                }
+                for (int i = 0; i < buildCodes.length; i++) {
+                    buildCodes[i] = build.getInt(i);
+                }
+                int[] translate = probe.levels().stream().mapToInt(level -> index.getOrDefault(level, -1)).toArray();
+                forEachChunk(np, chunks(np), (chunk, start, end) -> {
+                    for (int i = start; i < end; i++) {
+                        probeCodes[i] = translate[probe.getInt(i)];
+                    }
+                });
+                return Math.max(1, levels.size());
+            }
+            case STRING -> {
+                HashMap<String, Integer> index = new HashMap<>();
+                for (int i = 0; i < buildCodes.length; i++) {
+                    Integer code = index.putIfAbsent(build.getLabel(i), index.size());
+                    buildCodes[i] = code == null ? index.size() - 1 : code;
+                }
+                forEachChunk(np, chunks(np), (chunk, start, end) -> {
+                    for (int i = start; i < end; i++) {
+                        probeCodes[i] = index.getOrDefault(probe.getLabel(i), -1);
+                    }
+                });
+                return Math.max(1, index.size());
+            }
+            case INT, BINARY -> {
+                return encodePrimitives(build, probe, buildCodes, probeCodes, Var::getInt);
+            }
+            case LONG -> {
+                return encodePrimitives(build, probe, buildCodes, probeCodes, Var::getLong);
+            }
+            case DOUBLE -> {
+                // adding 0.0 turns -0.0 into 0.0, thus zeros of both signs are the same key, as with ==
+                return encodePrimitives(build, probe, buildCodes, probeCodes,
+                        (var, row) -> Double.doubleToLongBits(var.getDouble(row) + 0.0));
+            }
+            default -> throw new IllegalArgumentException(
+                    "Cannot join on variable %s of type %s.".formatted(build.name(), build.type().code()));
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowKey {
+        long key(Var var, int row);
+    }
+
+    private int encodePrimitives(Var build, Var probe, int[] buildCodes, int[] probeCodes, RowKey rowKey) {
+        Long2IntOpenHashMap ids = new Long2IntOpenHashMap();
+        int count = 0;
+        for (int i = 0; i < buildCodes.length; i++) {
+            int id = ids.putIfAbsent(rowKey.key(build, i), count);
+            if (id == Long2IntOpenHashMap.MISSING) {
+                id = count++;
+            }
+            buildCodes[i] = id;
+        }
+        forEachChunk(probe.size(), chunks(probe.size()), (chunk, start, end) -> {
+            for (int i = start; i < end; i++) {
+                int id = ids.get(rowKey.key(probe, i));
+                probeCodes[i] = id == Long2IntOpenHashMap.MISSING ? -1 : id;
+            }
+        });
+        return Math.max(1, count);
+    }
+
+    @FunctionalInterface
+    private interface ChunkTask {
+        void run(int chunk, int start, int end);
+    }
+
+    private int chunks(int n) {
+        return Math.max(1, Math.min(threads, n / MIN_CHUNK_ROWS));
+    }
+
+    private void forEachChunk(int n, int chunks, ChunkTask task) {
+        if (chunks == 1 || executor == null) {
+            for (int i = 0; i < chunks; i++) {
+                task.run(i, (int) ((long) n * i / chunks), (int) ((long) n * (i + 1) / chunks));
+            }
+            return;
+        }
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < chunks; i++) {
+            int chunk = i;
+            int start = (int) ((long) n * i / chunks);
+            int end = (int) ((long) n * (i + 1) / chunks);
+            futures.add(executor.submit(() -> task.run(chunk, start, end)));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Join was interrupted.", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException("Join failed.", ex.getCause());
+        }
+    }
+}
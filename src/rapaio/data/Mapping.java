@@ -34,6 +34,7 @@ import java.util.stream.IntStream;
 
 import rapaio.data.mapping.ArrayMapping;
 import rapaio.data.mapping.IntervalMapping;
+import rapaio.data.mapping.SliceMapping;
 import rapaio.util.IntIterator;
 import rapaio.util.function.Int2IntFunction;
 
@@ -108,6 +109,19 @@ public interface Mapping extends Iterable<Integer>, Serializable {
         return new ArrayMapping(mapping.elements(), 0, mapping.size(), fun);
     }
 
+    /**
+     * Builds a mapping as a view over a range of an array, the values are not copied.
+     * Changes of the array are visible through the mapping.
+     *
+     * @param array array of values
+     * @param start start position in array, inclusive
+     * @param end   end position in array, exclusive
+     * @return new mapping which is a view over the range of the array
+     */
+    static Mapping slice(int[] array, int start, int end) {
+        return new SliceMapping(array, start, end);
+    }
+
     static Mapping range(int end) {
         return range(0, end);
     }
@@ -22,6 +22,7 @@
 package rapaio.data.group;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import rapaio.data.Group;
 import rapaio.data.Var;
@@ -52,4 +53,18 @@ public interface GroupFun {
      * @return aggregated variable instance
      */
     List<Var> compute(Group group);
+
+    /**
+     * Computes the aggregated variables using a pool of threads, which is shared by all functions
+     * of an aggregation. Functions which support it split rows into chunks, build partial per group
+     * accumulators in parallel and merge them. The default implementation computes sequentially.
+     *
+     * @param group    group by data structure
+     * @param executor pool of threads, null for sequential execution
+     * @param threads  number of threads of the pool
+     * @return aggregated variable instance
+     */
+    default List<Var> compute(Group group, ExecutorService executor, int threads) {
+        return compute(group);
+    }
 }
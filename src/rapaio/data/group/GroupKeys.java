@@ -0,0 +1,236 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package rapaio.data.group;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import rapaio.data.Var;
+import rapaio.util.IntComparator;
+import rapaio.util.collection.IntArrays;
+import rapaio.util.collection.Long2IntOpenHashMap;
+import rapaio.util.collection.LongArrays;
+
+/**
+ * Encodes the values of key variables into dense primitive codes.
+ * <p>
+ * The codes of a single variable are assigned in increasing order of values, missing values
+ * being the first for integer and label values and the last for double values, in the same way
+ * as the sorted {@link rapaio.data.Unique} does. The codes of multiple variables are packed
+ * into long keys using mixed radix arithmetic, which preserves lexicographic order.
+ * If the packed keys would overflow, they are compacted to dense ids before continuing.
+ * Distinct keys are identified with direct tables when the key range is small
+ * and with an open addressing hash table otherwise.
+ */
+public final class GroupKeys {
+
+    // key ranges up to this size are compacted with a direct lookup table
+    private static final int DIRECT_TABLE_SIZE = 1 << 16;
+
+    private GroupKeys() {
+    }
+
+    /**
+     * Encodes the values of a variable into dense codes in increasing order of values.
+     *
+     * @param var   variable with values to encode
+     * @param codes array which receives the code for each row, it must have at least {@code var.size()} elements
+     * @return upper bound of codes, all codes are in interval {@code [0, bound)}
+     */
+    public static int encode(Var var, int[] codes) {
+        int n = var.size();
+        return switch (var.type()) {
+            case NOMINAL -> {
+                List<String> levels = var.levels();
+                int[] rank = rank(levels.size(), (i, j) -> compareLabels(levels.get(i), levels.get(j)));
+                for (int i = 0; i < n; i++) {
+                    codes[i] = rank[var.getInt(i)];
+                }
+                yield Math.max(1, levels.size());
+            }
+            case STRING -> {
+                HashMap<String, Integer> ids = new HashMap<>();
+                List<String> values = new ArrayList<>();
+                for (int i = 0; i < n; i++) {
+                    String label = var.getLabel(i);
+                    Integer id = ids.get(label);
+                    if (id == null) {
+                        id = values.size();
+                        ids.put(label, id);
+                        values.add(label);
+                    }
+                    codes[i] = id;
+                }
+                int[] rank = rank(values.size(), (i, j) -> compareLabels(values.get(i), values.get(j)));
+                yield remap(codes, n, rank);
+            }
+            case INT, BINARY -> {
+                for (int i = 0; i < n; i++) {
+                    codes[i] = var.getInt(i);
+                }
+                yield encodeInts(codes, n);
+            }
+            case LONG -> {
+                long[] keys = new long[n];
+                for (int i = 0; i < n; i++) {
+                    keys[i] = var.getLong(i);
+                }
+                yield encodeLongs(keys, codes, n, false);
+            }
+            case DOUBLE -> {
+                // values are grouped by equality: adding 0.0 turns -0.0 into 0.0 and
+                // doubleToLongBits collapses all NaN values into the canonical NaN
+                long[] keys = new long[n];
+                for (int i = 0; i < n; i++) {
+                    keys[i] = Double.doubleToLongBits(var.getDouble(i) + 0.0);
+                }
+                yield encodeLongs(keys, codes, n, true);
+            }
+            default -> throw new IllegalArgumentException(
+                    "Cannot encode keys for variable %s of type %s.".formatted(var.name(), var.type().code()));
+        };
+    }
+
+    /**
+     * Builds dense ids for the distinct combinations of values from multiple variables of the same size.
+     * Ids are assigned in lexicographic order of the values.
+     *
+     * @param vars variables with key values
+     * @param ids  array which receives the id for each row
+     * @return number of distinct combinations of values
+     */
+    public static int pack(List<? extends Var> vars, int[] ids) {
+        int n = ids.length;
+        long[] keys = new long[n];
+        long radix = 1;
+        for (Var var : vars) {
+            int bound = encode(var, ids);
+            if (radix > Long.MAX_VALUE / bound) {
+                radix = compact(keys, radix);
+            }
+            for (int i = 0; i < n; i++) {
+                keys[i] = keys[i] * bound + ids[i];
+            }
+            radix *= bound;
+        }
+        int count = compact(keys, radix);
+        for (int i = 0; i < n; i++) {
+            ids[i] = (int) keys[i];
+        }
+        return count;
+    }
+
+    /**
+     * Replaces keys with dense ids in increasing order of keys.
+     *
+     * @param keys  non-negative keys smaller than radix
+     * @param radix upper bound of keys
+     * @return number of distinct keys
+     */
+    private static int compact(long[] keys, long radix) {
+        int n = keys.length;
+        if (radix <= Math.max(DIRECT_TABLE_SIZE, n)) {
+            int[] table = new int[(int) radix];
+            for (long key : keys) {
+                table[(int) key] = 1;
+            }
+            int count = 0;
+            for (int i = 0; i < table.length; i++) {
+                table[i] = table[i] == 0 ? -1 : count++;
+            }
+            for (int i = 0; i < n; i++) {
+                keys[i] = table[(int) keys[i]];
+            }
+            return count;
+        }
+        int[] codes = new int[n];
+        int count = encodeLongs(keys, codes, n, false);
+        for (int i = 0; i < n; i++) {
+            keys[i] = codes[i];
+        }
+        return count;
+    }
+
+    private static int encodeInts(int[] codes, int n) {
+        Long2IntOpenHashMap ids = new Long2IntOpenHashMap();
+        int[] values = new int[16];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            int id = ids.putIfAbsent(codes[i], count);
+            if (id == Long2IntOpenHashMap.MISSING) {
+                values = IntArrays.grow(values, count + 1);
+                values[count] = codes[i];
+                id = count++;
+            }
+            codes[i] = id;
+        }
+        int[] sorted = values;
+        return remap(codes, n, rank(count, (i, j) -> Integer.compare(sorted[i], sorted[j])));
+    }
+
+    private static int encodeLongs(long[] keys, int[] codes, int n, boolean doubles) {
+        Long2IntOpenHashMap ids = new Long2IntOpenHashMap();
+        long[] values = new long[16];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            int id = ids.putIfAbsent(keys[i], count);
+            if (id == Long2IntOpenHashMap.MISSING) {
+                values = LongArrays.ensureCapacity(values, count);
+                values[count] = keys[i];
+                id = count++;
+            }
+            codes[i] = id;
+        }
+        long[] sorted = values;
+        int[] rank = doubles
+                ? rank(count, (i, j) -> Double.compare(Double.longBitsToDouble(sorted[i]), Double.longBitsToDouble(sorted[j])))
+                : rank(count, (i, j) -> Long.compare(sorted[i], sorted[j]));
+        return remap(codes, n, rank);
+    }
+
+    private static int remap(int[] codes, int n, int[] rank) {
+        for (int i = 0; i < n; i++) {
+            codes[i] = rank[codes[i]];
+        }
+        return Math.max(1, rank.length);
+    }
+
+    private static int[] rank(int count, IntComparator comparator) {
+        int[] order = IntArrays.newSeq(count);
+        IntArrays.quickSort(order, 0, count, comparator);
+        int[] rank = new int[count];
+        for (int i = 0; i < count; i++) {
+            rank[order[i]] = i;
+        }
+        return rank;
+    }
+
+    private static int compareLabels(String v1, String v2) {
+        boolean nan1 = "?".equals(v1);
+        boolean nan2 = "?".equals(v2);
+        if (!(nan1 || nan2)) {
+            return v1.compareTo(v2);
+        }
+        return nan1 ? (nan2 ? 0 : -1) : 1;
+    }
+}
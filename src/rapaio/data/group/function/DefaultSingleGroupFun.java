@@ -22,8 +22,11 @@
 package rapaio.data.group.function;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BinaryOperator;
 
 import rapaio.data.Frame;
 import rapaio.data.Group;
@@ -40,6 +43,9 @@ public abstract class DefaultSingleGroupFun extends DefaultGroupFun {
 
     protected static final String SEPARATOR = "_";
 
+    // minimum number of rows processed by a single task in parallel aggregation
+    private static final int MIN_CHUNK_ROWS = 8_192;
+
     protected final int normalizeLevel;
 
     public DefaultSingleGroupFun(String name, int normalizeLevel, List<String> varNames) {
@@ -49,19 +55,68 @@ public abstract class DefaultSingleGroupFun extends DefaultGroupFun {
 
     public abstract Var buildVar(Group group, String varName);
 
-    public abstract void updateSingle(Var aggregate, int aggregateRow, Frame df, int varIndex, Mapping rows);
+    /**
+     * Computes the aggregated value of a single group.
+     *
+     * @param aggregate    variable which receives the aggregated value of each group, indexed by group id
+     * @param aggregateRow group id
+     * @param df           group frame
+     * @param varIndex     index of the aggregated variable in the group frame
+     * @param rows         rows of the group
+     * @deprecated functions should override {@link #update(Var, Group, Var)}, which computes all groups
+     * in a single pass over rows; built-in functions do not implement this method
+     */
+    @Deprecated
+    public void updateSingle(Var aggregate, int aggregateRow, Frame df, int varIndex, Mapping rows) {
+        throw new UnsupportedOperationException("Group function %s does not implement updateSingle.".formatted(name));
+    }
+
+    /**
+     * Computes the aggregated values of all groups in a single pass over the rows of a variable.
+     * The default implementation calls {@link #updateSingle(Var, int, Frame, int, Mapping)} for each group,
+     * thus functions written against that method work unchanged.
+     *
+     * @param aggregate variable which receives the aggregated value of each group, indexed by group id
+     * @param group     group by data structure
+     * @param var       variable with values to aggregate
+     */
+    public void update(Var aggregate, Group group, Var var) {
+        int index = group.getFrame().varIndex(var.name());
+        VarInt ids = group.getSortedGroupIds();
+        for (int i = 0; i < ids.size(); i++) {
+            int groupId = ids.getInt(i);
+            updateSingle(aggregate, groupId, group.getFrame(), index, group.getRowsForGroupId(groupId));
+        }
+    }
+
+    /**
+     * Computes the aggregated values of all groups using a pool of threads. Rows are split into chunks
+     * with partial per group accumulators which are merged afterwards, see
+     * {@link #reduce(Group, ExecutorService, int, RangeAccumulator, BinaryOperator)}. Functions which
+     * support parallel execution override this method, the default implementation ignores the pool
+     * and calls {@link #update(Var, Group, Var)}.
+     *
+     * @param aggregate variable which receives the aggregated value of each group, indexed by group id
+     * @param group     group by data structure
+     * @param var       variable with values to aggregate
+     * @param executor  pool of threads shared by all aggregated variables, null for sequential execution
+     * @param threads   number of threads of the pool
+     */
+    public void update(Var aggregate, Group group, Var var, ExecutorService executor, int threads) {
+        update(aggregate, group, var);
+    }
 
     @Override
     public List<Var> compute(Group group) {
+        return compute(group, null, 1);
+    }
+
+    @Override
+    public List<Var> compute(Group group, ExecutorService executor, int threads) {
         List<Var> result = new ArrayList<>();
-        VarInt ids = group.getSortedGroupIds();
         for (String varName : varNames) {
             Var aggregate = buildVar(group, varName);
-            int index = group.getFrame().varIndex(varName);
-            for (int i = 0; i < ids.size(); i++) {
-                int groupId = ids.getInt(i);
-                updateSingle(aggregate, groupId, group.getFrame(), index, group.getRowsForGroupId(groupId));
-            }
+            update(aggregate, group, group.getFrame().rvar(varName), executor, threads);
             if (normalizeLevel < 0) {
                 result.add(aggregate);
                 continue;
@@ -75,43 +130,88 @@ public abstract class DefaultSingleGroupFun extends DefaultGroupFun {
         return result;
     }
 
-    private Var normalize(Group group, Var agg) {
-        int count = group.getNumberOfGroups();
-
-        var groupIndex = group.getGroupIdToLastLevelIndex();
+    /**
+     * Builds partial state from a range of rows.
+     *
+     * @param <T> type of the partial state
+     */
+    @FunctionalInterface
+    protected interface RangeAccumulator<T> {
+
+        /**
+         * @param start first row, inclusive
+         * @param end   last row, exclusive
+         * @return partial state for the given rows
+         */
+        T accumulate(int start, int end);
+    }
 
-        HashMap<Integer, Group.IndexNode> reducedGroup = new HashMap<>();
-        HashMap<Group.IndexNode, Double> sum = new HashMap<>();
-        for (int i = 0; i < count; i++) {
-            Group.IndexNode node = groupIndex.get(i);
-            for (int j = 0; j < normalizeLevel; j++) {
-                node = node.getParent();
+    /**
+     * Accumulates partial states over chunks of rows of the group frame and merges them in order of rows.
+     * If there is no pool or there are not enough rows, a single partial state is built on the calling thread.
+     *
+     * @param group       group by data structure
+     * @param executor    pool of threads, null for sequential execution
+     * @param threads     number of threads of the pool
+     * @param accumulator builds a partial state from a range of rows
+     * @param merger      merges the second state into the first one and returns the result
+     * @param <T>         type of partial state
+     * @return state for all rows
+     */
+    protected static <T> T reduce(Group group, ExecutorService executor, int threads,
+            RangeAccumulator<T> accumulator, BinaryOperator<T> merger) {
+        int n = group.getFrame().rowCount();
+        int chunks = executor == null ? 1 : Math.min(threads, n / MIN_CHUNK_ROWS);
+        if (chunks <= 1) {
+            return accumulator.accumulate(0, n);
+        }
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < chunks; i++) {
+                int start = (int) ((long) n * i / chunks);
+                int end = (int) ((long) n * (i + 1) / chunks);
+                futures.add(executor.submit(() -> accumulator.accumulate(start, end)));
+            }
+            T result = futures.get(0).get();
+            for (int i = 1; i < chunks; i++) {
+                result = merger.apply(result, futures.get(i).get());
+            }
+            return result;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Parallel aggregation was interrupted.", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException re) {
+                throw re;
             }
-            reducedGroup.put(i, node);
-            sum.put(node, 0d);
+            throw new IllegalStateException("Parallel aggregation failed.", ex.getCause());
         }
+    }
+
+    private Var normalize(Group group, Var agg) {
+        int count = group.getNumberOfGroups();
+        int[] parentIds = group.getParentGroupIds(normalizeLevel);
 
         // accumulate at higher group
 
-        for (int i = 0; i < group.getNumberOfGroups(); i++) {
+        double[] sum = new double[count];
+        for (int i = 0; i < count; i++) {
             double value = agg.getDouble(i);
             if (Double.isNaN(value) || Double.isInfinite(value)) {
                 continue;
             }
-            Group.IndexNode node = reducedGroup.get(i);
-            sum.put(node, sum.get(node) + value);
+            sum[parentIds[i]] += value;
         }
 
         // normalize
 
         VarDouble normalized = VarDouble.empty(count).name(agg.name() + "_N" + normalizeLevel);
-        for (int i = 0; i < group.getNumberOfGroups(); i++) {
+        for (int i = 0; i < count; i++) {
             double value = agg.getDouble(i);
             if (Double.isNaN(value) || Double.isInfinite(value)) {
                 continue;
             }
-            Group.IndexNode node = reducedGroup.get(i);
-            double groupSum = sum.get(node);
+            double groupSum = sum[parentIds[i]];
             if (Double.isNaN(groupSum) || Double.isInfinite(groupSum) || groupSum == 0) {
                 continue;
             }
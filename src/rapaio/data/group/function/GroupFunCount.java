@@ -23,9 +23,7 @@ package rapaio.data.group.function;
 
 import java.util.List;
 
-import rapaio.data.Frame;
 import rapaio.data.Group;
-import rapaio.data.Mapping;
 import rapaio.data.Var;
 import rapaio.data.VarInt;
 
@@ -44,7 +42,9 @@ public class GroupFunCount extends DefaultSingleGroupFun {
     }
 
     @Override
-    public void updateSingle(Var aggregate, int aggregateRow, Frame df, int varIndex, Mapping rows) {
-        aggregate.setInt(aggregateRow, rows.size());
+    public void update(Var aggregate, Group group, Var var) {
+        for (int i = 0; i < group.getNumberOfGroups(); i++) {
+            aggregate.setInt(i, group.getGroupSize(i));
+        }
     }
 }
@@ -21,12 +21,14 @@
 
 package rapaio.data.group.function;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
-import rapaio.data.Frame;
 import rapaio.data.Group;
-import rapaio.data.Mapping;
 import rapaio.data.Var;
+import rapaio.util.collection.DoubleArrays;
+import rapaio.util.collection.IntArrays;
 
 /**
  * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a> on 8/10/18.
@@ -43,54 +45,113 @@ public class GroupFunMax extends DefaultSingleGroupFun {
     }
 
     @Override
-    public void updateSingle(Var aggregate, int aggregateRow, Frame df, int varIndex, Mapping rows) {
+    public void update(Var aggregate, Group group, Var var) {
+        update(aggregate, group, var, null, 1);
+    }
+
+    @Override
+    public void update(Var aggregate, Group group, Var var, ExecutorService executor, int threads) {
+        int[] groupIds = group.getGroupIds();
+        int count = group.getNumberOfGroups();
         switch (aggregate.type()) {
             case DOUBLE -> {
-                double max1 = Double.NaN;
-                for (int row : rows) {
-                    if (df.isMissing(row, varIndex)) {
-                        continue;
+                double[] values = reduce(group, executor, threads, (start, end) -> {
+                    double[] partial = DoubleArrays.newFill(count, Double.NaN);
+                    for (int i = start; i < end; i++) {
+                        if (var.isMissing(i)) {
+                            continue;
+                        }
+                        double value = var.getDouble(i);
+                        int g = groupIds[i];
+                        if (Double.isNaN(partial[g]) || partial[g] < value) {
+                            partial[g] = value;
+                        }
                     }
-                    double value1 = df.getDouble(row, varIndex);
-                    if (Double.isNaN(max1) || max1 < value1) {
-                        max1 = value1;
+                    return partial;
+                }, (left, right) -> {
+                    for (int g = 0; g < count; g++) {
+                        if (!Double.isNaN(right[g]) && (Double.isNaN(left[g]) || left[g] < right[g])) {
+                            left[g] = right[g];
+                        }
                     }
+                    return left;
+                });
+                for (int i = 0; i < count; i++) {
+                    aggregate.setDouble(i, values[i]);
                 }
-                aggregate.setDouble(aggregateRow, max1);
             }
             case INT, BINARY -> {
-                int max2 = Integer.MIN_VALUE;
-                for (int row : rows) {
-                    if (df.isMissing(row, varIndex)) continue;
-                    int value2 = df.getInt(row, varIndex);
-                    if (max2 == Integer.MIN_VALUE || max2 < value2) {
-                        max2 = value2;
+                int[] values = reduce(group, executor, threads, (start, end) -> {
+                    int[] partial = IntArrays.newFill(count, Integer.MIN_VALUE);
+                    for (int i = start; i < end; i++) {
+                        if (var.isMissing(i)) continue;
+                        int value = var.getInt(i);
+                        int g = groupIds[i];
+                        if (partial[g] == Integer.MIN_VALUE || partial[g] < value) {
+                            partial[g] = value;
+                        }
+                    }
+                    return partial;
+                }, (left, right) -> {
+                    for (int g = 0; g < count; g++) {
+                        if (right[g] != Integer.MIN_VALUE && (left[g] == Integer.MIN_VALUE || left[g] < right[g])) {
+                            left[g] = right[g];
+                        }
                     }
+                    return left;
+                });
+                for (int i = 0; i < count; i++) {
+                    aggregate.setInt(i, values[i]);
                 }
-                aggregate.setInt(aggregateRow, max2);
             }
             case LONG -> {
-                long max3 = Long.MIN_VALUE;
-                for (int row : rows) {
-                    if (df.isMissing(row, varIndex)) continue;
-                    long value3 = df.getLong(row, varIndex);
-                    if (max3 == Long.MIN_VALUE || max3 < value3) {
-                        max3 = value3;
+                long[] values = reduce(group, executor, threads, (start, end) -> {
+                    long[] partial = new long[count];
+                    Arrays.fill(partial, Long.MIN_VALUE);
+                    for (int i = start; i < end; i++) {
+                        if (var.isMissing(i)) continue;
+                        long value = var.getLong(i);
+                        int g = groupIds[i];
+                        if (partial[g] == Long.MIN_VALUE || partial[g] < value) {
+                            partial[g] = value;
+                        }
                     }
+                    return partial;
+                }, (left, right) -> {
+                    for (int g = 0; g < count; g++) {
+                        if (right[g] != Long.MIN_VALUE && (left[g] == Long.MIN_VALUE || left[g] < right[g])) {
+                            left[g] = right[g];
+                        }
+                    }
+                    return left;
+                });
+                for (int i = 0; i < count; i++) {
+                    aggregate.setLong(i, values[i]);
                 }
-                aggregate.setLong(aggregateRow, max3);
             }
             default -> {
-                String max4 = null;
-                for (int row : rows) {
-                    String value4 = df.getLabel(row, varIndex);
-                    if (max4 == null || max4.compareTo(value4) < 0) {
-                        max4 = value4;
+                String[] values = reduce(group, executor, threads, (start, end) -> {
+                    String[] partial = new String[count];
+                    for (int i = start; i < end; i++) {
+                        String value = var.getLabel(i);
+                        int g = groupIds[i];
+                        if (partial[g] == null || partial[g].compareTo(value) < 0) {
+                            partial[g] = value;
+                        }
+                    }
+                    return partial;
+                }, (left, right) -> {
+                    for (int g = 0; g < count; g++) {
+                        if (right[g] != null && (left[g] == null || left[g].compareTo(right[g]) < 0)) {
+                            left[g] = right[g];
+                        }
                     }
+                    return left;
+                });
+                for (int i = 0; i < count; i++) {
+                    aggregate.setLabel(i, values[i]);
                 }
-                aggregate.setLabel(aggregateRow, max4);
             }
         }
     }
 }
-
@@ -22,11 +22,9 @@
 package rapaio.data.group.function;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
-import rapaio.core.stat.OnlineStat;
-import rapaio.data.Frame;
 import rapaio.data.Group;
-import rapaio.data.Mapping;
 import rapaio.data.Var;
 import rapaio.data.VarDouble;
 
@@ -45,17 +43,17 @@ public class GroupFunMean extends DefaultSingleGroupFun {
     }
 
     @Override
-    public void updateSingle(Var aggregate, int aggregateRow, Frame src, int varIndex, Mapping rows) {
-        OnlineStat os = OnlineStat.empty();
-        for (int row : rows) {
-            if (src.isMissing(row, varIndex)) {
-                continue;
+    public void update(Var aggregate, Group group, Var var) {
+        update(aggregate, group, var, null, 1);
+    }
+
+    @Override
+    public void update(Var aggregate, Group group, Var var, ExecutorService executor, int threads) {
+        GroupMoments moments = GroupMoments.from(group, var, 1, executor, threads);
+        for (int i = 0; i < group.getNumberOfGroups(); i++) {
+            if (moments.n(i) > 0) {
+                aggregate.setDouble(i, moments.mean(i));
             }
-            os.update(src.getDouble(row, varIndex));
-        }
-        if (os.n() > 0) {
-            aggregate.setDouble(aggregateRow, os.mean());
         }
     }
 }
-
@@ -23,12 +23,11 @@ package rapaio.data.group.function;
 
 import java.util.List;
 
-import rapaio.data.Frame;
 import rapaio.data.Group;
-import rapaio.data.Mapping;
-import rapaio.data.Unique;
 import rapaio.data.Var;
 import rapaio.data.VarInt;
+import rapaio.data.group.GroupKeys;
+import rapaio.util.collection.Long2IntOpenHashMap;
 
 /**
  * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a> on 8/10/18.
@@ -45,16 +44,23 @@ public class GroupFunNUnique extends DefaultSingleGroupFun {
     }
 
     @Override
-    public void updateSingle(Var aggregate, int aggregateRow, Frame df, int varIndex, Mapping rows) {
-        int offset = 0;
-        for (int row : rows) {
-            if (df.isMissing(row, varIndex)) {
-                offset = 1;
-                break;
+    public void update(Var aggregate, Group group, Var var) {
+        // distinct values are counted as distinct pairs of group id and value code
+        int[] groupIds = group.getGroupIds();
+        int[] codes = new int[groupIds.length];
+        long bound = GroupKeys.encode(var, codes);
+        int[] counts = new int[group.getNumberOfGroups()];
+        Long2IntOpenHashMap pairs = new Long2IntOpenHashMap();
+        for (int i = 0; i < groupIds.length; i++) {
+            if (var.isMissing(i)) {
+                continue;
             }
+            if (pairs.putIfAbsent(groupIds[i] * bound + codes[i], 0) == Long2IntOpenHashMap.MISSING) {
+                counts[groupIds[i]]++;
+            }
+        }
+        for (int i = 0; i < counts.length; i++) {
+            aggregate.setInt(i, counts[i]);
         }
-        Unique unique = Unique.of(df.rvar(varIndex).mapRows(rows), false);
-        aggregate.setInt(aggregateRow, unique.uniqueCount() - offset);
     }
 }
-
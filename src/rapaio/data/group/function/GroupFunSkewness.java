@@ -22,11 +22,9 @@
 package rapaio.data.group.function;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
-import rapaio.core.stat.OnlineStat;
-import rapaio.data.Frame;
 import rapaio.data.Group;
-import rapaio.data.Mapping;
 import rapaio.data.Var;
 import rapaio.data.VarDouble;
 
@@ -45,15 +43,15 @@ public class GroupFunSkewness extends DefaultSingleGroupFun {
     }
 
     @Override
-    public void updateSingle(Var aggregate, int aggregateRow, Frame df, int varIndex, Mapping rows) {
-        OnlineStat os = OnlineStat.empty();
-        for (int row : rows) {
-            if (df.isMissing(row, varIndex)) {
-                continue;
-            }
-            os.update(df.getDouble(row, varIndex));
+    public void update(Var aggregate, Group group, Var var) {
+        update(aggregate, group, var, null, 1);
+    }
+
+    @Override
+    public void update(Var aggregate, Group group, Var var, ExecutorService executor, int threads) {
+        GroupMoments moments = GroupMoments.from(group, var, 3, executor, threads);
+        for (int i = 0; i < group.getNumberOfGroups(); i++) {
+            aggregate.setDouble(i, moments.skewness(i));
         }
-        aggregate.setDouble(aggregateRow, os.skewness());
     }
 }
-
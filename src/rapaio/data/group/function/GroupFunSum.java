@@ -22,11 +22,9 @@
 package rapaio.data.group.function;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
-import rapaio.core.stat.OnlineStat;
-import rapaio.data.Frame;
 import rapaio.data.Group;
-import rapaio.data.Mapping;
 import rapaio.data.Var;
 import rapaio.data.VarDouble;
 
@@ -45,17 +43,38 @@ public class GroupFunSum extends DefaultSingleGroupFun {
     }
 
     @Override
-    public void updateSingle(Var aggregate, int aggregateRow, Frame df, int varIndex, Mapping rows) {
-        OnlineStat os = OnlineStat.empty();
-        for (int row : rows) {
-            if (df.isMissing(row, varIndex)) {
-                continue;
+    public void update(Var aggregate, Group group, Var var) {
+        update(aggregate, group, var, null, 1);
+    }
+
+    @Override
+    public void update(Var aggregate, Group group, Var var, ExecutorService executor, int threads) {
+        int[] groupIds = group.getGroupIds();
+        int count = group.getNumberOfGroups();
+        Sums sums = reduce(group, executor, threads, (start, end) -> {
+            Sums partial = new Sums(new double[count], new int[count]);
+            for (int i = start; i < end; i++) {
+                if (var.isMissing(i)) {
+                    continue;
+                }
+                partial.values[groupIds[i]] += var.getDouble(i);
+                partial.counts[groupIds[i]]++;
+            }
+            return partial;
+        }, (left, right) -> {
+            for (int i = 0; i < count; i++) {
+                left.values[i] += right.values[i];
+                left.counts[i] += right.counts[i];
+            }
+            return left;
+        });
+        for (int i = 0; i < count; i++) {
+            if (sums.counts[i] > 0) {
+                aggregate.setDouble(i, sums.values[i]);
             }
-            os.update(df.getDouble(row, varIndex));
         }
-        if (os.n() == 0)
-            return;
-        aggregate.setDouble(aggregateRow, os.sum());
     }
-}
 
+    private record Sums(double[] values, int[] counts) {
+    }
+}
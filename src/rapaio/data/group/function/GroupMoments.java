@@ -0,0 +1,150 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package rapaio.data.group.function;
+
+import static java.lang.Math.sqrt;
+
+import java.util.concurrent.ExecutorService;
+
+import rapaio.data.Group;
+import rapaio.data.Var;
+
+/**
+ * Central moments accumulated for all groups in a single pass over the rows of a variable.
+ * <p>
+ * The update and merge follow the same online formulas as {@link rapaio.core.stat.OnlineStat}, but the
+ * accumulators are primitive arrays indexed by group id. Only the moments up to the requested
+ * order are updated, since lower moments do not depend on higher ones. Moments built on
+ * separate chunks of rows can be merged, which allows parallel accumulation.
+ */
+final class GroupMoments {
+
+    static GroupMoments from(Group group, Var var, int order, ExecutorService executor, int threads) {
+        int[] groupIds = group.getGroupIds();
+        return DefaultSingleGroupFun.reduce(group, executor, threads, (start, end) -> {
+            GroupMoments moments = new GroupMoments(group.getNumberOfGroups(), order);
+            for (int i = start; i < end; i++) {
+                if (var.isMissing(i)) {
+                    continue;
+                }
+                moments.update(groupIds[i], var.getDouble(i));
+            }
+            return moments;
+        }, GroupMoments::merge);
+    }
+
+    private final int order;
+    private final double[] n;
+    private final double[] m1;
+    private final double[] m2;
+    private final double[] m3;
+    private final double[] m4;
+
+    private GroupMoments(int groups, int order) {
+        this.order = order;
+        this.n = new double[groups];
+        this.m1 = new double[groups];
+        this.m2 = order >= 2 ? new double[groups] : null;
+        this.m3 = order >= 3 ? new double[groups] : null;
+        this.m4 = order >= 4 ? new double[groups] : null;
+    }
+
+    private void update(int g, double x) {
+        double n1 = n[g];
+        double nn = ++n[g];
+        double delta = x - m1[g];
+        double delta_n = delta / nn;
+        m1[g] += delta_n;
+        if (order < 2) {
+            return;
+        }
+        double delta_n2 = delta_n * delta_n;
+        double term1 = delta * delta_n * n1;
+        if (order >= 4) {
+            m4[g] += term1 * delta_n2 * (nn * nn - 3 * nn + 3) + 6 * delta_n2 * m2[g] - 4 * delta_n * m3[g];
+        }
+        if (order >= 3) {
+            m3[g] += term1 * delta_n * (nn - 2) - 3 * delta_n * m2[g];
+        }
+        m2[g] += term1;
+    }
+
+    /**
+     * Merges moments accumulated on other rows into this instance.
+     *
+     * @param other moments with the same number of groups and order
+     * @return this instance
+     */
+    private GroupMoments merge(GroupMoments other) {
+        for (int g = 0; g < n.length; g++) {
+            double na = other.n[g];
+            if (na == 0) {
+                continue;
+            }
+            double nb = n[g];
+            double nn = na + nb;
+            double delta = m1[g] - other.m1[g];
+            double delta2 = delta * delta;
+
+            m1[g] = (na * other.m1[g] + nb * m1[g]) / nn;
+            n[g] = nn;
+            if (order < 2) {
+                continue;
+            }
+            double m2a = other.m2[g];
+            double m2b = m2[g];
+            if (order >= 4) {
+                double m3a = other.m3[g];
+                double m3b = m3[g];
+                m4[g] = other.m4[g] + m4[g] + delta2 * delta2 * na * nb * (na * na - na * nb + nb * nb) / (nn * nn * nn)
+                        + 6.0 * delta2 * (na * na * m2b + nb * nb * m2a) / (nn * nn)
+                        + 4.0 * delta * (na * m3b - nb * m3a) / nn;
+            }
+            if (order >= 3) {
+                m3[g] = other.m3[g] + m3[g] + delta * delta2 * na * nb * (na - nb) / (nn * nn)
+                        + 3.0 * delta * (na * m2b - nb * m2a) / nn;
+            }
+            m2[g] = m2a + m2b + delta2 * na * nb / nn;
+        }
+        return this;
+    }
+
+    double n(int g) {
+        return n[g];
+    }
+
+    double mean(int g) {
+        return m1[g];
+    }
+
+    double sd(int g) {
+        return sqrt(m2[g] / n[g]);
+    }
+
+    double skewness(int g) {
+        return sqrt(n[g]) * m3[g] / Math.pow(m2[g], 1.5);
+    }
+
+    double kurtosis(int g) {
+        return n[g] * m4[g] / (m2[g] * m2[g]) - 3.0;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package rapaio.data.mapping;
+
+import java.io.Serial;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import rapaio.data.Mapping;
+import rapaio.util.IntIterator;
+import rapaio.util.collection.IntArrays;
+
+/**
+ * Mapping which is a view over a range of an array, the values are not copied.
+ * Changes of the array are visible through the mapping. If the mapping is modified,
+ * the values from the range are copied first and the array is not touched.
+ */
+public final class SliceMapping implements Mapping {
+
+    @Serial
+    private static final long serialVersionUID = 3165520127402718641L;
+
+    private final int[] array;
+    private final int start;
+    private final int end;
+    private boolean onList = false;
+    private ArrayMapping listMapping;
+
+    public SliceMapping(int[] array, int start, int end) {
+        this.array = array;
+        this.start = start;
+        this.end = end;
+    }
+
+    private ArrayMapping list() {
+        if (!onList) {
+            onList = true;
+            listMapping = new ArrayMapping(array, start, end);
+        }
+        return listMapping;
+    }
+
+    @Override
+    public int size() {
+        if (onList)
+            return listMapping.size();
+        return end - start;
+    }
+
+    @Override
+    public int get(int pos) {
+        if (onList)
+            return listMapping.get(pos);
+        return array[start + pos];
+    }
+
+    @Override
+    public void add(int row) {
+        list().add(row);
+    }
+
+    @Override
+    public void addAll(IntIterator rows) {
+        list().addAll(rows);
+    }
+
+    @Override
+    public void remove(int pos) {
+        list().remove(pos);
+    }
+
+    @Override
+    public void removeAll(IntIterator positions) {
+        list().removeAll(positions);
+    }
+
+    @Override
+    public void clear() {
+        list().clear();
+    }
+
+    @Override
+    public IntIterator iterator() {
+        return onList ? listMapping.iterator() : IntArrays.iterator(array, start, end);
+    }
+
+    @Override
+    public int[] elements() {
+        return onList ? listMapping.elements() : Arrays.copyOfRange(array, start, end);
+    }
+
+    @Override
+    public void shuffle(Random random) {
+        list().shuffle(random);
+    }
+
+    @Override
+    public IntStream stream() {
+        return onList ? listMapping.stream() : Arrays.stream(array, start, end);
+    }
+}
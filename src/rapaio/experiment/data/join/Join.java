@@ -39,6 +39,8 @@ import rapaio.data.VarRange;
 
 /**
  * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a> on 8/17/18.
+ *
+ * @deprecated replaced by {@link rapaio.data.Join}
  */
 @Deprecated
 public class Join {
@@ -0,0 +1,566 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package rapaio.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serial;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import rapaio.data.Frame;
+import rapaio.data.SolidFrame;
+import rapaio.data.Var;
+import rapaio.data.VarBinary;
+import rapaio.data.VarDouble;
+import rapaio.data.VarInstant;
+import rapaio.data.VarInt;
+import rapaio.data.VarLong;
+import rapaio.data.VarNominal;
+import rapaio.data.VarString;
+import rapaio.data.VarType;
+import rapaio.ml.common.param.ListParam;
+import rapaio.ml.common.param.ParamSet;
+import rapaio.ml.common.param.ValueParam;
+
+/**
+ * Binary columnar file format for data frames.
+ * <p>
+ * The values of each variable are stored in chunks of consecutive rows, with all the chunks of a variable
+ * stored contiguously. Values are stored in primitive binary form, nominal variables store only the level
+ * indexes, while the levels are stored once in the footer. Chunks can be optionally compressed.
+ * <p>
+ * The footer placed at the end of the file contains the number of rows, the schema of the variables and the
+ * position of each chunk. Reading maps into memory only the chunks of the selected variables which contain
+ * the selected rows, thus a subset of variables or a range of rows can be read without scanning the whole file.
+ * <p>
+ * File layout: magic, chunks, footer, footer position (8 bytes), footer length (4 bytes), magic.
+ */
+public class Columnar extends ParamSet<Columnar> {
+
+    @Serial
+    private static final long serialVersionUID = 6126384581873061905L;
+
+    private static final int MAGIC = 0x52434631;
+    private static final int TRAILER_SIZE = 16;
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /**
+     * @return new instance of columnar persistence utility with default parameters values
+     */
+    public static Columnar instance() {
+        return new Columnar();
+    }
+
+    private Columnar() {
+    }
+
+    /**
+     * Number of rows stored in a chunk, used at write time.
+     */
+    public final ValueParam<Integer, Columnar> chunkSize = new ValueParam<>(this, 65_536, "chunkSize", x -> x > 0);
+
+    /**
+     * Specifies if the chunks are compressed at write time.
+     */
+    public final ValueParam<Boolean, Columnar> compress = new ValueParam<>(this, false, "compress");
+
+    /**
+     * Names of the variables to be read, in the given order. If empty, all variables are read.
+     */
+    public final ListParam<String, Columnar> varNames = new ListParam<>(this, List.of(), "varNames", (in, out) -> true);
+
+    /**
+     * First row to be read, inclusive.
+     */
+    public final ValueParam<Integer, Columnar> startRow = new ValueParam<>(this, 0, "startRow", x -> x >= 0);
+
+    /**
+     * Last row to be read, exclusive. By default, this value is {@code Integer.MAX_VALUE}, which means all rows.
+     */
+    public final ValueParam<Integer, Columnar> endRow = new ValueParam<>(this, Integer.MAX_VALUE, "endRow", x -> x >= 0);
+
+    public void write(Frame df, String fileName) throws IOException {
+        write(df, new File(fileName));
+    }
+
+    public void write(Frame df, File file) throws IOException {
+        int rows = df.rowCount();
+        int chunkRows = chunkSize.get();
+        int chunks = (rows + chunkRows - 1) / chunkRows;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            writeFully(channel, ByteBuffer.allocate(4).order(ORDER).putInt(MAGIC).flip());
+
+            ByteArrayOutputStream footerBytes = new ByteArrayOutputStream();
+            DataOutputStream footer = new DataOutputStream(footerBytes);
+            footer.writeInt(rows);
+            footer.writeInt(chunkRows);
+            footer.writeBoolean(compress.get());
+            footer.writeInt(df.varCount());
+
+            for (int i = 0; i < df.varCount(); i++) {
+                Var var = df.rvar(i);
+                VarType type = var.type();
+                footer.writeUTF(var.name());
+                footer.writeUTF(type.name());
+                if (type == VarType.NOMINAL) {
+                    List<String> levels = var.levels();
+                    footer.writeInt(levels.size());
+                    for (String level : levels) {
+                        footer.writeUTF(level);
+                    }
+                    footer.writeByte(indexBytes(levels.size()));
+                }
+                for (int c = 0; c < chunks; c++) {
+                    int from = c * chunkRows;
+                    int to = Math.min(rows, from + chunkRows);
+                    ByteBuffer raw = encode(var, from, to);
+                    int rawLength = raw.remaining();
+                    ByteBuffer stored = compress.get() ? deflate(raw) : raw;
+                    footer.writeLong(channel.position());
+                    footer.writeInt(stored.remaining());
+                    footer.writeInt(rawLength);
+                    writeFully(channel, stored);
+                }
+            }
+            footer.flush();
+
+            long footerPosition = channel.position();
+            writeFully(channel, ByteBuffer.wrap(footerBytes.toByteArray()));
+            writeFully(channel, ByteBuffer.allocate(TRAILER_SIZE).order(ORDER)
+                    .putLong(footerPosition)
+                    .putInt(footerBytes.size())
+                    .putInt(MAGIC)
+                    .flip());
+        }
+    }
+
+    public Frame read(String fileName) throws IOException {
+        return read(new File(fileName));
+    }
+
+    public Frame read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 4 + TRAILER_SIZE) {
+                throw new IOException("File is not a columnar frame file: " + file.getAbsolutePath());
+            }
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE).order(ORDER);
+            readFully(channel, trailer, size - TRAILER_SIZE);
+            trailer.flip();
+            long footerPosition = trailer.getLong();
+            int footerLength = trailer.getInt();
+            if (trailer.getInt() != MAGIC) {
+                throw new IOException("File is not a columnar frame file: " + file.getAbsolutePath());
+            }
+            ByteBuffer footerBuffer = ByteBuffer.allocate(footerLength);
+            readFully(channel, footerBuffer, footerPosition);
+            Schema schema = Schema.read(new DataInputStream(new ByteArrayInputStream(footerBuffer.array())));
+
+            int start = Math.min(startRow.get(), schema.rows);
+            int end = Math.min(endRow.get(), schema.rows);
+            if (start > end) {
+                throw new IllegalArgumentException("Start row %d is greater than end row %d.".formatted(start, end));
+            }
+
+            List<Column> columns = new ArrayList<>();
+            if (varNames.get().isEmpty()) {
+                columns.addAll(schema.columns);
+            } else {
+                for (String name : varNames.get()) {
+                    columns.add(schema.column(name));
+                }
+            }
+
+            List<Var> vars = new ArrayList<>();
+            for (Column column : columns) {
+                vars.add(readColumn(channel, schema, column, start, end).name(column.name));
+            }
+            return SolidFrame.byVars(end - start, vars);
+        }
+    }
+
+    private Var readColumn(FileChannel channel, Schema schema, Column column, int start, int end) throws IOException {
+        int len = end - start;
+        ColumnReader reader = ColumnReader.of(column, len);
+        if (len == 0) {
+            return reader.var();
+        }
+        int firstChunk = start / schema.chunkRows;
+        int lastChunk = (end - 1) / schema.chunkRows;
+        for (int c = firstChunk; c <= lastChunk; c++) {
+            int chunkStart = c * schema.chunkRows;
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, column.positions[c], column.storedLengths[c]);
+            if (schema.compressed) {
+                buffer = inflate(buffer, column.rawLengths[c]);
+            }
+            buffer.order(ORDER);
+            int from = Math.max(start, chunkStart) - chunkStart;
+            int to = Math.min(end, chunkStart + schema.chunkRows) - chunkStart;
+            reader.read(buffer, from, to, chunkStart + from - start);
+        }
+        return reader.var();
+    }
+
+    private static ByteBuffer encode(Var var, int from, int to) {
+        int n = to - from;
+        ByteBuffer buffer;
+        switch (var.type()) {
+            case DOUBLE -> {
+                buffer = ByteBuffer.allocate(n * Double.BYTES).order(ORDER);
+                for (int i = from; i < to; i++) {
+                    buffer.putDouble(var.getDouble(i));
+                }
+            }
+            case INT -> {
+                buffer = ByteBuffer.allocate(n * Integer.BYTES).order(ORDER);
+                for (int i = from; i < to; i++) {
+                    buffer.putInt(var.isMissing(i) ? VarInt.MISSING_VALUE : var.getInt(i));
+                }
+            }
+            case LONG -> {
+                buffer = ByteBuffer.allocate(n * Long.BYTES).order(ORDER);
+                for (int i = from; i < to; i++) {
+                    buffer.putLong(var.isMissing(i) ? VarLong.MISSING_VALUE : var.getLong(i));
+                }
+            }
+            case BINARY -> {
+                buffer = ByteBuffer.allocate(n).order(ORDER);
+                for (int i = from; i < to; i++) {
+                    buffer.put(var.isMissing(i) ? -1 : (byte) var.getInt(i));
+                }
+            }
+            case NOMINAL -> {
+                int width = indexBytes(var.levels().size());
+                buffer = ByteBuffer.allocate(n * width).order(ORDER);
+                for (int i = from; i < to; i++) {
+                    if (width == Short.BYTES) {
+                        buffer.putShort((short) var.getInt(i));
+                    } else {
+                        buffer.putInt(var.getInt(i));
+                    }
+                }
+            }
+            case INSTANT -> {
+                buffer = ByteBuffer.allocate(n * (Long.BYTES + Integer.BYTES)).order(ORDER);
+                for (int i = from; i < to; i++) {
+                    Instant instant = var.isMissing(i) ? null : var.getInstant(i);
+                    buffer.putLong(instant == null ? Long.MIN_VALUE : instant.getEpochSecond());
+                    buffer.putInt(instant == null ? 0 : instant.getNano());
+                }
+            }
+            case STRING -> {
+                byte[][] bytes = new byte[n][];
+                int size = n * Integer.BYTES;
+                for (int i = from; i < to; i++) {
+                    if (!var.isMissing(i)) {
+                        bytes[i - from] = var.getLabel(i).getBytes(StandardCharsets.UTF_8);
+                        size += bytes[i - from].length;
+                    }
+                }
+                buffer = ByteBuffer.allocate(size).order(ORDER);
+                for (byte[] value : bytes) {
+                    if (value == null) {
+                        buffer.putInt(-1);
+                    } else {
+                        buffer.putInt(value.length);
+                        buffer.put(value);
+                    }
+                }
+            }
+            default -> throw new IllegalArgumentException("Variable type %s is not supported.".formatted(var.type().name()));
+        }
+        return buffer.flip();
+    }
+
+    private static ByteBuffer deflate(ByteBuffer raw) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                int len = deflater.deflate(buffer);
+                out.write(buffer, 0, len);
+            }
+            return ByteBuffer.wrap(out.toByteArray());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static ByteBuffer inflate(ByteBuffer stored, int rawLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(stored);
+            ByteBuffer raw = ByteBuffer.allocate(rawLength);
+            while (raw.hasRemaining() && !inflater.finished()) {
+                if (inflater.inflate(raw) == 0 && inflater.needsInput()) {
+                    break;
+                }
+            }
+            if (raw.hasRemaining()) {
+                throw new IOException("Corrupted compressed chunk.");
+            }
+            return raw.flip();
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted compressed chunk.", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Number of bytes used to store a nominal level index. Short indexes are used while
+     * the dictionary fits, otherwise indexes are stored as ints.
+     */
+    private static int indexBytes(int levelCount) {
+        return levelCount <= Short.MAX_VALUE ? Short.BYTES : Integer.BYTES;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int len = channel.read(buffer, position);
+            if (len < 0) {
+                throw new IOException("Unexpected end of file.");
+            }
+            position += len;
+        }
+    }
+
+    private record Schema(int rows, int chunkRows, boolean compressed, List<Column> columns) {
+
+        static Schema read(DataInputStream in) throws IOException {
+            int rows = in.readInt();
+            int chunkRows = in.readInt();
+            boolean compressed = in.readBoolean();
+            int varCount = in.readInt();
+            int chunks = (rows + chunkRows - 1) / chunkRows;
+            List<Column> columns = new ArrayList<>(varCount);
+            for (int i = 0; i < varCount; i++) {
+                String name = in.readUTF();
+                VarType type = VarType.valueOf(in.readUTF());
+                List<String> levels = null;
+                int indexBytes = 0;
+                if (type == VarType.NOMINAL) {
+                    int size = in.readInt();
+                    levels = new ArrayList<>(size);
+                    for (int j = 0; j < size; j++) {
+                        levels.add(in.readUTF());
+                    }
+                    indexBytes = in.readByte();
+                }
+                long[] positions = new long[chunks];
+                int[] storedLengths = new int[chunks];
+                int[] rawLengths = new int[chunks];
+                for (int c = 0; c < chunks; c++) {
+                    positions[c] = in.readLong();
+                    storedLengths[c] = in.readInt();
+                    rawLengths[c] = in.readInt();
+                }
+                columns.add(new Column(name, type, levels, indexBytes, positions, storedLengths, rawLengths));
+            }
+            return new Schema(rows, chunkRows, compressed, columns);
+        }
+
+        Column column(String name) {
+            for (Column column : columns) {
+                if (column.name.equals(name)) {
+                    return column;
+                }
+            }
+            throw new IllegalArgumentException("Variable %s not found.".formatted(name));
+        }
+    }
+
+    private record Column(String name, VarType type, List<String> levels, int indexBytes, long[] positions, int[] storedLengths, int[] rawLengths) {
+    }
+
+    /**
+     * Decodes chunk values into the storage of a variable. Numeric values are copied in bulk
+     * directly into the primitive arrays wrapped by the variable.
+     */
+    private interface ColumnReader {
+
+        static ColumnReader of(Column column, int len) {
+            return switch (column.type) {
+                case DOUBLE -> new ColumnReader() {
+                    private final double[] values = new double[len];
+
+                    @Override
+                    public void read(ByteBuffer buffer, int from, int to, int pos) {
+                        buffer.asDoubleBuffer().get(from, values, pos, to - from);
+                    }
+
+                    @Override
+                    public Var var() {
+                        return VarDouble.wrap(values);
+                    }
+                };
+                case INT -> new ColumnReader() {
+                    private final int[] values = new int[len];
+
+                    @Override
+                    public void read(ByteBuffer buffer, int from, int to, int pos) {
+                        buffer.asIntBuffer().get(from, values, pos, to - from);
+                    }
+
+                    @Override
+                    public Var var() {
+                        return VarInt.wrap(values);
+                    }
+                };
+                case LONG -> new ColumnReader() {
+                    private final long[] values = new long[len];
+
+                    @Override
+                    public void read(ByteBuffer buffer, int from, int to, int pos) {
+                        buffer.asLongBuffer().get(from, values, pos, to - from);
+                    }
+
+                    @Override
+                    public Var var() {
+                        return VarLong.wrap(values);
+                    }
+                };
+                case BINARY -> new ColumnReader() {
+                    private final VarBinary var = VarBinary.empty(len);
+
+                    @Override
+                    public void read(ByteBuffer buffer, int from, int to, int pos) {
+                        for (int i = from; i < to; i++) {
+                            byte value = buffer.get(i);
+                            if (value < 0) {
+                                var.setMissing(pos++);
+                            } else {
+                                var.setInt(pos++, value);
+                            }
+                        }
+                    }
+
+                    @Override
+                    public Var var() {
+                        return var;
+                    }
+                };
+                case NOMINAL -> new ColumnReader() {
+                    private final VarNominal var = VarNominal.empty(len, column.levels);
+
+                    @Override
+                    public void read(ByteBuffer buffer, int from, int to, int pos) {
+                        if (column.indexBytes == Short.BYTES) {
+                            for (int i = from; i < to; i++) {
+                                var.setInt(pos++, buffer.getShort(i * Short.BYTES));
+                            }
+                        } else {
+                            for (int i = from; i < to; i++) {
+                                var.setInt(pos++, buffer.getInt(i * Integer.BYTES));
+                            }
+                        }
+                    }
+
+                    @Override
+                    public Var var() {
+                        return var;
+                    }
+                };
+                case INSTANT -> new ColumnReader() {
+                    private final VarInstant var = VarInstant.empty(len);
+
+                    @Override
+                    public void read(ByteBuffer buffer, int from, int to, int pos) {
+                        int size = Long.BYTES + Integer.BYTES;
+                        for (int i = from; i < to; i++) {
+                            long seconds = buffer.getLong(i * size);
+                            if (seconds == Long.MIN_VALUE) {
+                                var.setMissing(pos++);
+                            } else {
+                                var.setInstant(pos++, Instant.ofEpochSecond(seconds, buffer.getInt(i * size + Long.BYTES)));
+                            }
+                        }
+                    }
+
+                    @Override
+                    public Var var() {
+                        return var;
+                    }
+                };
+                case STRING -> new ColumnReader() {
+                    private final VarString var = VarString.empty(len);
+
+                    @Override
+                    public void read(ByteBuffer buffer, int from, int to, int pos) {
+                        // values have variable length, thus the chunk is scanned from the beginning
+                        int offset = 0;
+                        for (int i = 0; i < to; i++) {
+                            int size = buffer.getInt(offset);
+                            offset += Integer.BYTES;
+                            if (i >= from) {
+                                if (size < 0) {
+                                    var.setMissing(pos++);
+                                } else {
+                                    byte[] bytes = new byte[size];
+                                    buffer.get(offset, bytes);
+                                    var.setLabel(pos++, new String(bytes, StandardCharsets.UTF_8));
+                                }
+                            }
+                            offset += Math.max(size, 0);
+                        }
+                    }
+
+                    @Override
+                    public Var var() {
+                        return var;
+                    }
+                };
+                default -> throw new IllegalArgumentException("Variable type %s is not supported.".formatted(column.type.name()));
+            };
+        }
+
+        void read(ByteBuffer buffer, int from, int to, int pos);
+
+        Var var();
+    }
+}
@@ -35,17 +35,31 @@ import java.io.PrintWriter;
 import java.io.Serial;
 import java.net.URL;
 import java.text.DecimalFormat;
+import java.text.ParsePosition;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.zip.GZIPInputStream;
 
 import rapaio.data.Frame;
 import rapaio.data.SolidFrame;
 import rapaio.data.Var;
-import rapaio.data.VarString;
+import rapaio.data.VarBinary;
+import rapaio.data.VarDouble;
+import rapaio.data.VarInt;
+import rapaio.data.VarLong;
+import rapaio.data.VarNominal;
 import rapaio.data.VarType;
 import rapaio.ml.common.param.ListParam;
 import rapaio.ml.common.param.MultiListParam;
@@ -149,6 +163,27 @@ public class Csv extends ParamSet<Csv> {
      */
     public final ValueParam<Frame, Csv> template = new ValueParam<>(this, null, "template", obj -> true);
 
+    /**
+     * Number of threads used to parse the rows. Negative values are considered automatically as
+     * the number of available CPUs, zero means rows are parsed on the calling thread and positive
+     * values means parsing chunks of rows concurrently with the specified number of threads.
+     */
+    public final ValueParam<Integer, Csv> poolSize = new ValueParam<>(this, 0, "poolSize", x -> true);
+
+    /**
+     * Number of rows in a chunk parsed by a single thread, used only when {@link #poolSize} is not zero.
+     */
+    public final ValueParam<Integer, Csv> chunkSize = new ValueParam<>(this, 65_536, "chunkSize", x -> x > 0);
+
+    /**
+     * Number of rows used to detect the types of the fields with default types. The types are detected
+     * with cheap checks on the text values before any value is parsed. If a value from later rows does not
+     * fit the detected type, the variable is upgraded to the next default type by converting the values
+     * already parsed. The converted values keep their original text, for example {@code 007} remains
+     * {@code 007} if the variable is upgraded to nominal.
+     */
+    public final ValueParam<Integer, Csv> typeInferenceRows = new ValueParam<>(this, 10_000, "typeInferenceRows", x -> x > 0);
+
     public Frame read(File file) {
         try {
             return read(new FileInputStream(file));
@@ -194,6 +229,9 @@ public class Csv extends ParamSet<Csv> {
     }
 
     public Frame read(InputStream inputStream) throws IOException {
+        if (poolSize.get() != 0) {
+            return readChunks(inputStream);
+        }
         int rows = 0;
         int allRowsNum = 0;
         List<String> names = new ArrayList<>();
@@ -215,6 +253,7 @@ public class Csv extends ParamSet<Csv> {
             }
 
             boolean first = true;
+            List<List<String>> sample = new ArrayList<>();
             while (true) {
                 String line = reader.readLine();
                 if (line == null) {
@@ -235,27 +274,7 @@ public class Csv extends ParamSet<Csv> {
                         names.add("V" + (i + 1));
                     }
                     for (String colName : names) {
-                        if (template.get() != null) {
-                            String[] vn = template.get().varNames();
-                            boolean found = false;
-                            for (String name : vn) {
-                                if (name.equals(colName)) {
-                                    found = true;
-                                    break;
-                                }
-                            }
-                            if (found) {
-                                varSlots.add(new VarSlot(this, template.get().rvar(colName), 0));
-                                continue;
-                            }
-                        }
-                        VarType type = types.getReverseKey(colName);
-                        if (type != null) {
-                            varSlots.add(new VarSlot(this, type, 0));
-                        } else {
-                            // default type
-                            varSlots.add(new VarSlot(this, 0));
-                        }
+                        varSlots.add(newSlot(colName));
                     }
                 }
 
@@ -268,34 +287,495 @@ public class Csv extends ParamSet<Csv> {
                 }
                 List<String> row = parseLine(line);
                 rows++;
-                int len = Math.max(row.size(), names.size());
-                for (int i = 0; i < len; i++) {
-                    // we have a value in row for which we did not defined a var slot
-                    if (i >= varSlots.size()) {
-                        names.add("V" + (i + 1));
-                        varSlots.add(new VarSlot(this, varSlots.get(0).var.size()));
-                        continue;
+                if (sample != null) {
+                    // rows are kept until field types are detected
+                    sample.add(row);
+                    if (sample.size() == typeInferenceRows.get()) {
+                        addSample(names, varSlots, sample);
+                        sample = null;
                     }
-                    // we have missing values at the end of the row
-                    if (i >= row.size()) {
-                        varSlots.get(i).addValue("?");
-                        continue;
-                    }
-                    // gaussian behavior
-                    varSlots.get(i).addValue(row.get(i));
+                    continue;
                 }
+                addRow(names, varSlots, row);
+            }
+            if (sample != null) {
+                addSample(names, varSlots, sample);
             }
         }
         List<Var> variables = new ArrayList<>();
         for (int i = 0; i < varSlots.size(); i++) {
             String name = names.size() > i ? names.get(i) : "V" + (i + 1);
-            variables.add(varSlots.get(i).var.name(name));
+            variables.add(varSlots.get(i).var().name(name));
         }
         return SolidFrame.byVars(rows - startRow.get(), variables);
     }
 
+    /**
+     * Detects the types of the fields from sample rows and adds the sample rows to variables.
+     */
+    private void addSample(List<String> names, List<VarSlot> varSlots, List<List<String>> sample) {
+        for (List<String> row : sample) {
+            for (int i = 0; i < varSlots.size(); i++) {
+                varSlots.get(i).infer(i < row.size() ? row.get(i) : "?");
+            }
+        }
+        for (VarSlot slot : varSlots) {
+            slot.start();
+        }
+        for (List<String> row : sample) {
+            addRow(names, varSlots, row);
+        }
+    }
+
+    private void addRow(List<String> names, List<VarSlot> varSlots, List<String> row) {
+        int len = Math.max(row.size(), names.size());
+        for (int i = 0; i < len; i++) {
+            // we have a value in row for which we did not defined a var slot
+            if (i >= varSlots.size()) {
+                names.add("V" + (i + 1));
+                varSlots.add(new VarSlot(this, names.get(i), varSlots.get(0).size()));
+                continue;
+            }
+            // we have missing values at the end of the row
+            if (i >= row.size()) {
+                varSlots.get(i).addValue("?");
+                continue;
+            }
+            varSlots.get(i).addValue(row.get(i));
+        }
+    }
+
+    /**
+     * Reads lines on the calling thread and groups them in chunks of {@link #chunkSize} rows.
+     * Chunks are parsed concurrently into separate variables, which are concatenated at the end in the
+     * order of the chunks. Field types are detected from the first rows before any chunk is parsed.
+     * Since a chunk can still upgrade a field type, the final type of a field with default type is the
+     * last default type used by any chunk.
+     * <p>
+     * The number of chunks submitted and not yet parsed is limited to twice the number of threads, the
+     * reader waits for parsing before reading more lines. This way only a few chunks of lines are kept in
+     * memory, besides the parsed values.
+     */
+    private Frame readChunks(InputStream inputStream) throws IOException {
+        int threads = poolSize.get() < 0 ? Runtime.getRuntime().availableProcessors() : poolSize.get();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Semaphore inFlight = new Semaphore(2 * threads);
+        try {
+            int rows = 0;
+            int allRowsNum = 0;
+            List<String> names = new ArrayList<>();
+            List<Future<Chunk>> futures = new ArrayList<>();
+
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
+                if (header.get()) {
+                    String line = reader.readLine();
+                    if (line == null) {
+                        return null;
+                    }
+                    names = parseLine(line);
+                }
+
+                while (skipRows.get().test(allRowsNum)) {
+                    reader.readLine();
+                    allRowsNum += 1;
+                }
+
+                boolean first = true;
+                int[] positions = null;
+                List<List<String>> pending = new ArrayList<>();
+                int pendingRows = 0;
+                List<String> lines = new ArrayList<>();
+                while (true) {
+                    String line = reader.readLine();
+                    if (line == null) {
+                        break;
+                    }
+                    allRowsNum += 1;
+                    if (skipRows.get().test(allRowsNum - 1)) {
+                        continue;
+                    }
+                    if (first) {
+                        first = false;
+                        int size = parseLine(line).size();
+                        for (int i = names.size(); i < size; i++) {
+                            names.add("V" + (i + 1));
+                        }
+                    }
+                    if (rows < startRow.get()) {
+                        rows++;
+                        continue;
+                    }
+                    if (rows == endRow.get()) {
+                        break;
+                    }
+                    rows++;
+                    lines.add(line);
+                    if (lines.size() == chunkSize.get()) {
+                        pending.add(lines);
+                        pendingRows += lines.size();
+                        lines = new ArrayList<>();
+                        if (positions == null && pendingRows < typeInferenceRows.get()) {
+                            // wait until there are enough rows to detect field types
+                            continue;
+                        }
+                        if (positions == null) {
+                            positions = inferPositions(names, pending);
+                        }
+                        submitChunks(executor, inFlight, futures, pending, names, positions);
+                    }
+                }
+                if (!lines.isEmpty()) {
+                    pending.add(lines);
+                }
+                if (positions == null) {
+                    positions = inferPositions(names, pending);
+                }
+                submitChunks(executor, inFlight, futures, pending, names, positions);
+            }
+
+            List<Chunk> chunks = new ArrayList<>();
+            for (Future<Chunk> future : futures) {
+                chunks.add(future.get());
+            }
+            return mergeChunks(names, chunks, rows - startRow.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while reading csv", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException("error at parsing csv", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private record Chunk(int rows, List<VarSlot> slots) {
+    }
+
+    private void submitChunks(ExecutorService executor, Semaphore inFlight, List<Future<Chunk>> futures,
+            List<List<String>> pending, List<String> names, int[] positions) throws InterruptedException {
+        List<String> chunkNames = List.copyOf(names);
+        for (List<String> chunkLines : pending) {
+            inFlight.acquire();
+            futures.add(executor.submit(() -> {
+                try {
+                    return parseChunk(chunkLines, chunkNames, positions);
+                } finally {
+                    inFlight.release();
+                }
+            }));
+        }
+        pending.clear();
+    }
+
+    /**
+     * Detects the positions in default types of the fields from the first rows.
+     */
+    private int[] inferPositions(List<String> names, List<List<String>> chunks) {
+        List<VarSlot> slots = new ArrayList<>();
+        for (String name : names) {
+            slots.add(newSlot(name));
+        }
+        List<String> row = new ArrayList<>();
+        int count = 0;
+        for (List<String> lines : chunks) {
+            for (int r = 0; r < lines.size() && count < typeInferenceRows.get(); r++, count++) {
+                row.clear();
+                parseLine(lines.get(r), row);
+                for (int i = 0; i < slots.size(); i++) {
+                    slots.get(i).infer(i < row.size() ? row.get(i) : "?");
+                }
+            }
+        }
+        int[] positions = new int[slots.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = slots.get(i).pos;
+        }
+        return positions;
+    }
+
+    private Chunk parseChunk(List<String> lines, List<String> names, int[] positions) {
+        List<VarSlot> slots = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            VarSlot slot = newSlot(names.get(i));
+            slot.pos = i < positions.length ? positions[i] : 0;
+            slot.start();
+            slots.add(slot);
+        }
+        List<String> row = new ArrayList<>();
+        for (int r = 0; r < lines.size(); r++) {
+            row.clear();
+            parseLine(lines.get(r), row);
+            int len = Math.max(row.size(), slots.size());
+            for (int i = 0; i < len; i++) {
+                if (i >= slots.size()) {
+                    // a value for which we do not have a slot, previous rows are missing
+                    slots.add(new VarSlot(this, "V" + (i + 1), r));
+                }
+                slots.get(i).addValue(i < row.size() ? row.get(i) : "?");
+            }
+        }
+        return new Chunk(lines.size(), slots);
+    }
+
+    private Frame mergeChunks(List<String> names, List<Chunk> chunks, int rows) {
+        int cols = names.size();
+        for (Chunk chunk : chunks) {
+            cols = Math.max(cols, chunk.slots.size());
+        }
+        List<Var> variables = new ArrayList<>();
+        for (int i = 0; i < cols; i++) {
+            String name = i < names.size() ? names.get(i) : "V" + (i + 1);
+
+            // the last default type used by any chunk, or the slot type if it was specified
+            VarSlot slot = i < names.size() ? newSlot(name) : new VarSlot(this, name, 0);
+            Column column = slot.column;
+            if (slot.type == null) {
+                int pos = 0;
+                for (Chunk chunk : chunks) {
+                    if (i < chunk.slots.size()) {
+                        pos = Math.max(pos, chunk.slots.get(i).pos);
+                    }
+                }
+                while (pos < defaultTypes.get().size() - 1 && !convertibleChunks(chunks, i, defaultTypes.get().get(pos))) {
+                    pos++;
+                }
+                column = new Column(defaultTypes.get().get(pos), 0, false);
+            }
+            column.grow(rows);
+            for (Chunk chunk : chunks) {
+                if (i < chunk.slots.size()) {
+                    chunk.slots.get(i).column.appendTo(column);
+                } else {
+                    for (int j = 0; j < chunk.rows; j++) {
+                        column.add(VarNominal.MISSING_VALUE);
+                    }
+                }
+            }
+            variables.add(column.var().name(name));
+        }
+        return SolidFrame.byVars(rows, variables);
+    }
+
+    private static boolean convertibleChunks(List<Chunk> chunks, int col, VarType type) {
+        for (Chunk chunk : chunks) {
+            if (col < chunk.slots.size() && !chunk.slots.get(col).column.convertible(type)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks without parsing if a text value can be added to a variable of the given type.
+     * The checks are conservative, a value which passes the check can be parsed for sure.
+     */
+    private static boolean accepts(VarType type, String value) {
+        if (VarNominal.MISSING_VALUE.equals(value)) {
+            return true;
+        }
+        return switch (type) {
+            case BINARY -> "0".equals(value) || "1".equals(value) || "true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value);
+            case INT -> isInteger(value, Integer.MIN_VALUE, Integer.MAX_VALUE);
+            case LONG -> isInteger(value, Long.MIN_VALUE, Long.MAX_VALUE);
+            case DOUBLE -> isDouble(value);
+            case INSTANT -> isInstant(value);
+            case NOMINAL, STRING -> true;
+        };
+    }
+
+    private static boolean isInstant(String value) {
+        // parse without resolving, errors are reported through parse position
+        ParsePosition position = new ParsePosition(0);
+        DateTimeFormatter.ISO_INSTANT.parseUnresolved(value, position);
+        return position.getErrorIndex() < 0 && position.getIndex() == value.length();
+    }
+
+    private static boolean isInteger(String value, long min, long max) {
+        int len = value.length();
+        if (len == 0) {
+            return false;
+        }
+        int i = 0;
+        long limit = -max;
+        char first = value.charAt(0);
+        if (first == '-' || first == '+') {
+            if (len == 1) {
+                return false;
+            }
+            if (first == '-') {
+                limit = min;
+            }
+            i++;
+        }
+        // accumulate negatively to be able to represent the minimum value
+        long multmin = limit / 10;
+        long result = 0;
+        for (; i < len; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || result < multmin) {
+                return false;
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                return false;
+            }
+            result -= digit;
+        }
+        return true;
+    }
+
+    private static boolean isDouble(String value) {
+        if ("Inf".equals(value) || "-Inf".equals(value)) {
+            return true;
+        }
+        // leading and trailing white spaces are ignored when parsing
+        int start = 0;
+        int end = value.length();
+        while (start < end && value.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        int i = start;
+        if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            i++;
+        }
+        if (value.startsWith("NaN", i)) {
+            return i + 3 == end;
+        }
+        if (value.startsWith("Infinity", i)) {
+            return i + 8 == end;
+        }
+        int digits = 0;
+        while (i < end && isDigit(value.charAt(i))) {
+            i++;
+            digits++;
+        }
+        if (i < end && value.charAt(i) == '.') {
+            i++;
+            while (i < end && isDigit(value.charAt(i))) {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+        if (i < end && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+            i++;
+            if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+                i++;
+            }
+            int expDigits = 0;
+            while (i < end && isDigit(value.charAt(i))) {
+                i++;
+                expDigits++;
+            }
+            if (expDigits == 0) {
+                return false;
+            }
+        }
+        if (i < end && "fFdD".indexOf(value.charAt(i)) >= 0) {
+            i++;
+        }
+        return i == end;
+    }
+
+    private static boolean isDigit(char ch) {
+        return ch >= '0' && ch <= '9';
+    }
+
+    /**
+     * Checks if an integer text is the same as the text of the parsed value.
+     */
+    private static boolean isPlainInteger(String value) {
+        int i = value.startsWith("-") ? 1 : 0;
+        if (i == value.length() || value.charAt(i) == '+' || (value.charAt(i) == '0' && value.length() > 1)) {
+            return false;
+        }
+        for (; i < value.length(); i++) {
+            if (!isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a double text is the same as the text of the parsed value. The check is conservative,
+     * it accepts only values with plain notation, at most 15 significant digits and no trailing zeros,
+     * in the range where {@link Double#toString(double)} uses plain notation.
+     */
+    private static boolean isPlainDouble(String value) {
+        if ("Infinity".equals(value) || "-Infinity".equals(value)) {
+            return true;
+        }
+        int len = value.length();
+        int start = value.startsWith("-") ? 1 : 0;
+        int dot = value.indexOf('.', start);
+        if (dot <= start || dot > start + 7 || dot == len - 1) {
+            return false;
+        }
+        if (value.charAt(start) == '0' && dot > start + 1) {
+            return false;
+        }
+        if (value.charAt(len - 1) == '0' && len - 1 != dot + 1) {
+            return false;
+        }
+        for (int i = start; i < len; i++) {
+            if (i != dot && !isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        int lead = start;
+        while (lead < len && (value.charAt(lead) == '0' || value.charAt(lead) == '.')) {
+            lead++;
+        }
+        if (lead == len) {
+            // zero value
+            return true;
+        }
+        if (lead > dot && lead - dot - 1 > 2) {
+            // values below 1e-3 have scientific notation
+            return false;
+        }
+        return len - lead - (lead < dot ? 1 : 0) <= 15;
+    }
+
+    private static boolean isIntegral(VarType type) {
+        return type == VarType.BINARY || type == VarType.INT || type == VarType.LONG;
+    }
+
+    private VarSlot newSlot(String colName) {
+        if (template.get() != null) {
+            for (String name : template.get().varNames()) {
+                if (name.equals(colName)) {
+                    return new VarSlot(this, colName, template.get().rvar(colName), 0);
+                }
+            }
+        }
+        VarType type = types.getReverseKey(colName);
+        if (type != null) {
+            return new VarSlot(this, colName, type, 0);
+        }
+        // default type
+        return new VarSlot(this, colName, 0);
+    }
+
     public List<String> parseLine(String line) {
         List<String> data = new ArrayList<>();
+        parseLine(line, data);
+        return data;
+    }
+
+    /**
+     * Parses a line and appends the field values to a given list. This allows the list to be reused between lines.
+     */
+    public void parseLine(String line, List<String> data) {
         int start = 0;
         int colNum = 0;
         int end;
@@ -333,7 +813,6 @@ public class Csv extends ParamSet<Csv> {
             start = end + 1;
             colNum += 1;
         }
-        return data;
     }
 
     /**
@@ -443,105 +922,388 @@ public class Csv extends ParamSet<Csv> {
 
     private static class VarSlot {
 
-        private final Csv parent;
+        private final String name;
+        private final Set<String> naValues;
+        private final List<VarType> defaults;
         private final VarType type;
-        private Var var;
-        public VarString text;
+        private int pos;
+        private Column column;
 
         /**
          * Constructor for slot which does not have a predefined type, it tries the best by using default types
          */
-        public VarSlot(Csv parent, int rows) {
-            this.parent = parent;
+        public VarSlot(Csv parent, String name, int rows) {
+            this.name = name;
+            this.naValues = new HashSet<>(parent.naValues.get());
+            this.defaults = parent.defaultTypes.get();
             this.type = null;
-            this.var = parent.defaultTypes.get().get(0).newInstance(rows);
-            this.text = VarString.empty();
+            this.pos = 0;
+            this.column = new Column(defaults.get(0), rows, keepText(0));
         }
 
-        public VarSlot(Csv parent, VarType varType, int rows) {
-            this.parent = parent;
+        public VarSlot(Csv parent, String name, VarType varType, int rows) {
+            this.name = name;
+            this.naValues = new HashSet<>(parent.naValues.get());
+            this.defaults = null;
             this.type = varType;
-            this.var = varType.newInstance(rows);
-            this.text = null;
+            this.column = new Column(varType, rows, false);
         }
 
-        public VarSlot(Csv parent, Var template, int rows) {
-            this.parent = parent;
+        public VarSlot(Csv parent, String name, Var template, int rows) {
+            this.name = name;
+            this.naValues = new HashSet<>(parent.naValues.get());
+            this.defaults = null;
             this.type = template.type();
-            this.var = template.newInstance(rows);
-            this.text = null;
+            this.column = new Column(template, rows);
         }
 
-        public void addValue(String value) {
-            if (parent.naValues.get().contains(value)) {
-                value = "?";
+        private String normalize(String value) {
+            return naValues.contains(value) ? VarNominal.MISSING_VALUE : value;
+        }
+
+        public int size() {
+            return column.size;
+        }
+
+        public Var var() {
+            return column.var();
+        }
+
+        /**
+         * The original text of the values is needed only while the type can still be upgraded.
+         */
+        private boolean keepText(int pos) {
+            VarType next = defaults.get(pos);
+            return pos < defaults.size() - 1 && next != VarType.NOMINAL && next != VarType.STRING;
+        }
+
+        /**
+         * Advances the default type until it accepts the given value. This is called for sample values
+         * before any value is added, thus no variable conversions are needed.
+         */
+        public void infer(String value) {
+            if (type != null) {
+                return;
             }
-            if (type == null) {
+            value = normalize(value);
+            while (pos < defaults.size() - 1 && !accepts(defaults.get(pos), value)) {
+                pos++;
+            }
+        }
 
+        /**
+         * Creates the column with the detected default type, keeping the already added missing values.
+         */
+        public void start() {
+            if (type == null && column.type != defaults.get(pos)) {
+                column = new Column(defaults.get(pos), column.size, keepText(pos));
+            }
+        }
+
+        public void addValue(String value) {
+            value = normalize(value);
+            if (type == null) {
                 // for default values
+                if (!accepts(column.type, value)) {
+                    upgrade(value);
+                }
+                column.add(value);
+                return;
+            }
 
-                while (true) {
+            // for non-default values
 
-                    // try first to add value to the current default type
-                    try {
-                        var.addLabel(value);
-                        if (text != null) {
-                            text.addLabel(value);
-                        }
-                        return;
-                    } catch (IllegalArgumentException th) {
-                        // if it's the last default type, than nothing else could be done
-                        if (var.type() == parent.defaultTypes.get().get(parent.defaultTypes.get().size() - 1)) {
-                            throw new IllegalArgumentException(
-                                    String.format("Could not parse value %s in type %s. Error: %s",
-                                            value, var.type(), th.getMessage()));
-                        }
-                    }
+            try {
+                column.add(value);
+            } catch (IllegalArgumentException th) {
+                throw new IllegalArgumentException(
+                        String.format("Could not parse value %s in type %s for variable with name: %s. Error: %s",
+                                value, type, name, th.getMessage()));
+            }
+        }
 
-                    // have to find an upgrade
-                    // find current default type position
-                    int pos = 0;
-                    for (int i = 0; i < parent.defaultTypes.get().size(); i++) {
-                        if (!parent.defaultTypes.get().get(i).equals(var.type())) {
-                            continue;
-                        }
-                        pos = i + 1;
-                        break;
+        /**
+         * Finds the next default type which accepts the given value and the values already added,
+         * and converts the column to that type.
+         */
+        private void upgrade(String value) {
+            for (int i = pos + 1; i < defaults.size(); i++) {
+                VarType next = defaults.get(i);
+                if (accepts(next, value) && column.convertible(next)) {
+                    Column converted = new Column(next, 0, keepText(i));
+                    converted.grow(column.size);
+                    column.appendTo(converted);
+                    column = converted;
+                    pos = i;
+                    return;
+                }
+            }
+            throw new IllegalArgumentException(String.format("Could not parse value %s in type %s.", value, column.type));
+        }
+    }
+
+    /**
+     * Values of a field. Binary, int, long and double values are parsed directly into primitive buffers,
+     * which are wrapped into variables at the end. Values of other types are added to a variable
+     * through labels.
+     * <p>
+     * If the original text is kept, the text of the values which cannot be restored from the parsed
+     * values is stored aside. Conversions to other types use the original text, thus a value like
+     * {@code 007} is not changed into {@code 7} if the field becomes nominal.
+     */
+    private static final class Column {
+
+        private final VarType type;
+        private final boolean keepText;
+        private int size;
+        private int[] ints;
+        private long[] longs;
+        private double[] doubles;
+        private Var var;
+        // rows with an alternative text form: true or false for binary values and integers for double values
+        private BitSet alternative;
+        private int textSize;
+        private int[] textRows;
+        private String[] texts;
+
+        Column(VarType type, int rows, boolean keepText) {
+            this.type = type;
+            this.keepText = keepText;
+            if (keepText) {
+                alternative = new BitSet();
+                textRows = new int[16];
+                texts = new String[16];
+            }
+            int capacity = Math.max(rows, 16);
+            switch (type) {
+                case BINARY -> Arrays.fill(ints = new int[capacity], 0, rows, -1);
+                case INT -> Arrays.fill(ints = new int[capacity], 0, rows, VarInt.MISSING_VALUE);
+                case LONG -> Arrays.fill(longs = new long[capacity], 0, rows, VarLong.MISSING_VALUE);
+                case DOUBLE -> Arrays.fill(doubles = new double[capacity], 0, rows, Double.NaN);
+                default -> var = type.newInstance(rows);
+            }
+            size = rows;
+        }
+
+        Column(Var template, int rows) {
+            this.type = template.type();
+            this.keepText = false;
+            this.var = template.newInstance(rows);
+            this.size = rows;
+        }
+
+        void grow(int minCapacity) {
+            if (var != null) {
+                return;
+            }
+            int capacity = type == VarType.LONG ? longs.length : type == VarType.DOUBLE ? doubles.length : ints.length;
+            if (minCapacity <= capacity) {
+                return;
+            }
+            capacity = Math.max(minCapacity, capacity + (capacity >> 1));
+            switch (type) {
+                case LONG -> longs = Arrays.copyOf(longs, capacity);
+                case DOUBLE -> doubles = Arrays.copyOf(doubles, capacity);
+                default -> ints = Arrays.copyOf(ints, capacity);
+            }
+        }
+
+        /**
+         * Adds a value to the column. Values of default types are checked for acceptance before,
+         * while values of predefined types fail with {@link IllegalArgumentException} if they cannot be parsed.
+         */
+        void add(String value) {
+            boolean missing = VarNominal.MISSING_VALUE.equals(value);
+            if (var != null) {
+                var.addLabel(value);
+                if (keepText && !missing) {
+                    addText(value);
+                }
+                size++;
+                return;
+            }
+            grow(size + 1);
+            if (missing) {
+                setMissing(size++);
+                return;
+            }
+            boolean restored;
+            switch (type) {
+                case BINARY -> {
+                    if ("1".equals(value) || "true".equalsIgnoreCase(value)) {
+                        ints[size] = 1;
+                    } else if ("0".equals(value) || "false".equalsIgnoreCase(value)) {
+                        ints[size] = 0;
+                    } else {
+                        throw new IllegalArgumentException(
+                                String.format("The value %s could not be converted to a binary value", value));
+                    }
+                    restored = value.length() == 1;
+                    if (keepText && ("true".equals(value) || "false".equals(value))) {
+                        alternative.set(size);
+                        restored = true;
+                    }
+                }
+                case INT -> {
+                    ints[size] = Integer.parseInt(value);
+                    restored = isPlainInteger(value);
+                }
+                case LONG -> {
+                    longs[size] = Long.parseLong(value);
+                    restored = isPlainInteger(value);
+                }
+                default -> {
+                    doubles[size] = switch (value) {
+                        case "Inf" -> Double.POSITIVE_INFINITY;
+                        case "-Inf" -> Double.NEGATIVE_INFINITY;
+                        default -> Double.parseDouble(value);
+                    };
+                    restored = isPlainDouble(value);
+                    if (keepText && !restored && value.length() <= 15 && isPlainInteger(value)) {
+                        alternative.set(size);
+                        restored = true;
                     }
+                }
+            }
+            if (keepText && !restored) {
+                addText(value);
+            }
+            size++;
+        }
 
-                    // try successive default type upgrades, if the last available fails also than throw an exception
-                    for (int i = pos; i < parent.defaultTypes.get().size(); i++) {
-                        try {
-                            var = parent.defaultTypes.get().get(i).newInstance();
-                            if (text != null && text.size() > 0) {
-                                text.stream().forEach(s -> var.addLabel(s.getLabel()));
-                            }
-                            if (i == parent.defaultTypes.get().size() - 1) {
-                                text = null;
-                            }
-                            break;
-                        } catch (Exception th) {
-                            if (i == parent.defaultTypes.get().size() - 1) {
-                                throw new IllegalArgumentException(
-                                        String.format("Could not parse value %s in type %s. Error: %s",
-                                                value, var.type(), th.getMessage()));
-                            }
-                        }
+        private void addText(String value) {
+            if (textSize == texts.length) {
+                textRows = Arrays.copyOf(textRows, textSize * 2);
+                texts = Arrays.copyOf(texts, textSize * 2);
+            }
+            textRows[textSize] = size;
+            texts[textSize++] = value;
+        }
+
+        private void setMissing(int row) {
+            switch (type) {
+                case BINARY -> ints[row] = -1;
+                case INT -> ints[row] = VarInt.MISSING_VALUE;
+                case LONG -> longs[row] = VarLong.MISSING_VALUE;
+                default -> doubles[row] = Double.NaN;
+            }
+        }
+
+        private boolean isMissing(int row) {
+            if (var != null) {
+                return var.isMissing(row);
+            }
+            return switch (type) {
+                case BINARY -> ints[row] < 0;
+                case INT -> ints[row] == VarInt.MISSING_VALUE;
+                case LONG -> longs[row] == VarLong.MISSING_VALUE;
+                default -> Double.isNaN(doubles[row]);
+            };
+        }
+
+        private String label(int row) {
+            if (var != null) {
+                return var.getLabel(row);
+            }
+            if (isMissing(row)) {
+                return VarNominal.MISSING_VALUE;
+            }
+            boolean alt = alternative != null && alternative.get(row);
+            return switch (type) {
+                case BINARY -> alt ? (ints[row] == 1 ? "true" : "false") : (ints[row] == 1 ? "1" : "0");
+                case INT -> Integer.toString(ints[row]);
+                case LONG -> Long.toString(longs[row]);
+                default -> alt ? Long.toString((long) doubles[row]) : Double.toString(doubles[row]);
+            };
+        }
+
+        /**
+         * Checks if all values can be converted to a given type.
+         */
+        boolean convertible(VarType to) {
+            if (type == to || to == VarType.NOMINAL || to == VarType.STRING) {
+                return true;
+            }
+            // parsed values which are not stored as text are converted without loss between integral types
+            boolean integral = isIntegral(type) && (to == VarType.DOUBLE || to == VarType.LONG || (to == VarType.INT && type != VarType.LONG));
+            int t = 0;
+            for (int i = 0; i < size; i++) {
+                if (t < textSize && textRows[t] == i) {
+                    if (!accepts(to, texts[t++])) {
+                        return false;
                     }
+                    continue;
+                }
+                boolean alt = alternative != null && alternative.get(i);
+                if ((!integral || alt) && !accepts(to, label(i))) {
+                    return false;
                 }
-            } else {
+            }
+            return true;
+        }
 
-                // for non-default values
+        /**
+         * Appends the values to another column, possibly of another type. Numeric values are
+         * copied directly, otherwise values are converted through their original text.
+         */
+        void appendTo(Column dst) {
+            if (var == null && dst.var == null && !dst.keepText && copyNumeric(dst)) {
+                return;
+            }
+            int t = 0;
+            for (int i = 0; i < size; i++) {
+                dst.add(t < textSize && textRows[t] == i ? texts[t++] : label(i));
+            }
+        }
 
-                try {
-                    var.addLabel(value);
-                } catch (IllegalArgumentException th) {
-                    throw new IllegalArgumentException(
-                            String.format("Could not parse value %s in type %s for variable with name: %s. Error: %s",
-                                    value, var.type(), var.name(), th.getMessage()));
+        private boolean copyNumeric(Column dst) {
+            dst.grow(dst.size + size);
+            if (dst.type == type) {
+                switch (type) {
+                    case LONG -> System.arraycopy(longs, 0, dst.longs, dst.size, size);
+                    case DOUBLE -> System.arraycopy(doubles, 0, dst.doubles, dst.size, size);
+                    default -> System.arraycopy(ints, 0, dst.ints, dst.size, size);
+                }
+                dst.size += size;
+                return true;
+            }
+            if (!isIntegral(type) || !(dst.type == VarType.DOUBLE || dst.type == VarType.LONG
+                    || (dst.type == VarType.INT && type == VarType.BINARY))) {
+                return false;
+            }
+            for (int i = 0; i < size; i++, dst.size++) {
+                if (isMissing(i)) {
+                    dst.setMissing(dst.size);
+                    continue;
+                }
+                long value = type == VarType.LONG ? longs[i] : ints[i];
+                switch (dst.type) {
+                    case INT -> dst.ints[dst.size] = (int) value;
+                    case LONG -> dst.longs[dst.size] = value;
+                    default -> dst.doubles[dst.size] = value;
                 }
             }
+            return true;
+        }
+
+        Var var() {
+            if (var != null) {
+                return var;
+            }
+            return switch (type) {
+                case BINARY -> {
+                    VarBinary binary = VarBinary.empty(size);
+                    for (int i = 0; i < size; i++) {
+                        if (ints[i] >= 0) {
+                            binary.setInt(i, ints[i]);
+                        }
+                    }
+                    yield binary;
+                }
+                case INT -> VarInt.wrap(ints.length == size ? ints : Arrays.copyOf(ints, size));
+                case LONG -> VarLong.wrap(longs.length == size ? longs : Arrays.copyOf(longs, size));
+                default -> VarDouble.wrapArray(size, doubles);
+            };
         }
     }
 }
-
@@ -37,6 +37,8 @@ import rapaio.math.linear.decomposition.DoubleLUDecomposition;
 import rapaio.math.linear.decomposition.DoubleQRDecomposition;
 import rapaio.math.linear.decomposition.DoubleSVDecomposition;
 import rapaio.math.linear.dense.DMatrixDenseC;
+import rapaio.math.linear.dense.DMatrixExpr;
+import rapaio.math.linear.dense.DMatrixGemm;
 import rapaio.math.linear.dense.DVectorDense;
 import rapaio.printer.Printable;
 import rapaio.util.collection.IntArrays;
@@ -1001,6 +1003,21 @@ public interface DMatrix extends Serializable, Printable {
      */
     DMatrix dot(DMatrix b);
 
+    /**
+     * Computes in place the general matrix product {@code this = alpha * a * b + beta * this}.
+     * When {@code beta} is zero the current values are not read. The current matrix must not
+     * share storage with {@code a} or {@code b}.
+     *
+     * @param alpha scalar factor of the product
+     * @param a     left matrix
+     * @param b     right matrix
+     * @param beta  scalar factor of the current values
+     * @return same instance matrix
+     */
+    default DMatrix gemm(double alpha, DMatrix a, DMatrix b, double beta) {
+        return DMatrixGemm.gemm(alpha, a, b, beta, this);
+    }
+
     /**
      * Trace of the matrix, if the matrix is square. The trace of a squared
      * matrix is the sum of the elements from the main diagonal.
@@ -1182,6 +1199,16 @@ public interface DMatrix extends Serializable, Printable {
      */
     DMatrix copy();
 
+    /**
+     * Builds a lazy expression which starts with the values of this matrix. A chain of element-wise
+     * operations on the expression is computed in a single fused pass when the expression is evaluated or reduced.
+     *
+     * @return new lazy expression
+     */
+    default DMatrixExpr expr() {
+        return DMatrixExpr.of(this);
+    }
+
     default DoubleCholeskyDecomposition cholesky() {
         return cholesky(false);
     }
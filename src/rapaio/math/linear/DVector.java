@@ -34,6 +34,7 @@ import rapaio.core.distributions.Normal;
 import rapaio.data.VarDouble;
 import rapaio.math.linear.dense.DMatrixDenseC;
 import rapaio.math.linear.dense.DVectorDense;
+import rapaio.math.linear.dense.DVectorExpr;
 import rapaio.printer.Printable;
 import rapaio.util.DoubleComparator;
 import rapaio.util.DoubleComparators;
@@ -254,6 +255,16 @@ public interface DVector extends Serializable, Printable, Iterable<Double> {
      */
     DVectorDense denseCopy(int len);
 
+    /**
+     * Builds a lazy expression which starts with the values of this vector. A chain of element-wise
+     * operations on the expression is computed in a single fused pass when the expression is evaluated or reduced.
+     *
+     * @return new lazy expression
+     */
+    default DVectorExpr expr() {
+        return DVectorExpr.of(this);
+    }
+
     /**
      * Gets value from zero-based position index.
      *
@@ -0,0 +1,196 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package rapaio.math.linear;
+
+import java.io.Serializable;
+
+import rapaio.data.Frame;
+import rapaio.data.SolidFrame;
+import rapaio.data.Var;
+import rapaio.data.VarDouble;
+import rapaio.math.linear.dense.DMatrixDenseC;
+import rapaio.math.linear.dense.FMatrixDenseR;
+import rapaio.math.linear.dense.FVectorDense;
+
+/**
+ * Matrix of values in single floating precision.
+ * <p>
+ * Single precision matrices use half of the memory of {@link DMatrix}. They are intended for
+ * memory bound workloads like distances between instances and centroids or kernel matrices,
+ * where rows are instances. For this reason the default storage is row major.
+ * Sums and dot products are accumulated in single precision.
+ */
+public interface FMatrix extends Serializable {
+
+    /**
+     * Builds a new row major matrix filled with zeros.
+     *
+     * @param rows number of rows
+     * @param cols number of columns
+     * @return new matrix
+     */
+    static FMatrixDenseR empty(int rows, int cols) {
+        return FMatrixDenseR.empty(rows, cols);
+    }
+
+    /**
+     * Copies the values of a double matrix into a row major matrix, rounding each value to single precision.
+     *
+     * @param m double matrix
+     * @return new matrix
+     */
+    static FMatrixDenseR copy(DMatrix m) {
+        FMatrixDenseR copy = FMatrixDenseR.empty(m.rows(), m.cols());
+        for (int i = 0; i < m.rows(); i++) {
+            for (int j = 0; j < m.cols(); j++) {
+                copy.set(i, j, (float) m.get(i, j));
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Copies the values of a data frame into a row major matrix, rounding each value to single precision.
+     * Data is collected from frame using {@link Frame#getDouble(int, int)} calls.
+     *
+     * @param df data frame
+     * @return new matrix
+     */
+    static FMatrixDenseR copy(Frame df) {
+        FMatrixDenseR copy = FMatrixDenseR.empty(df.rowCount(), df.varCount());
+        for (int j = 0; j < df.varCount(); j++) {
+            Var var = df.rvar(j);
+            for (int i = 0; i < df.rowCount(); i++) {
+                copy.set(i, j, (float) var.getDouble(i));
+            }
+        }
+        return copy;
+    }
+
+    int rows();
+
+    int cols();
+
+    float get(int row, int col);
+
+    void set(int row, int col, float value);
+
+    void inc(int row, int col, float value);
+
+    /**
+     * @return new solid copy of the matrix with the same storage layout
+     */
+    FMatrix copy();
+
+    /**
+     * Transposed view of the matrix, the values are not copied.
+     *
+     * @return transposed matrix
+     */
+    FMatrix t();
+
+    /**
+     * @param row row index
+     * @return new vector with a copy of the values from the row
+     */
+    FVectorDense mapRowNew(int row);
+
+    /**
+     * @param col column index
+     * @return new vector with a copy of the values from the column
+     */
+    FVectorDense mapColNew(int col);
+
+    /**
+     * Matrix vector product.
+     *
+     * @param v vector with size equal with the number of columns
+     * @return new vector with size equal with the number of rows
+     */
+    FVectorDense dot(FVector v);
+
+    /**
+     * Computes the squared euclidean distances between rows of this matrix and rows of the given matrix.
+     * This is the kernel used for distances from instances to centroids or to reference points.
+     *
+     * @param y matrix with the same number of columns
+     * @return matrix where position {@code (i,j)} contains the squared distance between row {@code i} and row {@code j} of {@code y}
+     */
+    FMatrix sqDistances(FMatrix y);
+
+    /**
+     * Computes the dot products between rows of this matrix and rows of the given matrix,
+     * in other words the matrix product {@code this * y^T}.
+     *
+     * @param y matrix with the same number of columns
+     * @return matrix where position {@code (i,j)} contains the dot product between row {@code i} and row {@code j} of {@code y}
+     */
+    FMatrix dotT(FMatrix y);
+
+    /**
+     * @return new double matrix with a copy of the values
+     */
+    default DMatrixDenseC dm() {
+        DMatrixDenseC m = DMatrixDenseC.empty(rows(), cols());
+        for (int i = 0; i < rows(); i++) {
+            for (int j = 0; j < cols(); j++) {
+                m.set(i, j, get(i, j));
+            }
+        }
+        return m;
+    }
+
+    /**
+     * Builds a data frame with double variables which contain the values of the columns.
+     *
+     * @param names names of the variables, if not specified the names are {@code V1, V2, ...}
+     * @return new data frame
+     */
+    default Frame toFrame(String... names) {
+        if (names.length > 0 && names.length != cols()) {
+            throw new IllegalArgumentException("Number of names %d is not equal with number of columns %d."
+                    .formatted(names.length, cols()));
+        }
+        Var[] vars = new Var[cols()];
+        for (int j = 0; j < cols(); j++) {
+            int col = j;
+            vars[j] = VarDouble.from(rows(), row -> (double) get(row, col))
+                    .name(names.length == 0 ? "V" + (j + 1) : names[j]);
+        }
+        return SolidFrame.byVars(vars);
+    }
+
+    default boolean deepEquals(FMatrix m, float eps) {
+        if (rows() != m.rows() || cols() != m.cols()) {
+            return false;
+        }
+        for (int i = 0; i < rows(); i++) {
+            for (int j = 0; j < cols(); j++) {
+                if (Math.abs(get(i, j) - m.get(i, j)) > eps) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package rapaio.math.linear;
+
+import java.io.Serializable;
+
+import rapaio.math.linear.dense.DVectorDense;
+import rapaio.math.linear.dense.FVectorDense;
+
+/**
+ * Vector of values in single floating precision.
+ * <p>
+ * Single precision vectors use half of the memory of {@link DVector} and, for memory bound
+ * workloads like distance computations on embeddings, they are processed roughly twice as fast.
+ * Sums and dot products are accumulated in single precision.
+ */
+public interface FVector extends Serializable {
+
+    /**
+     * Builds a new dense vector of size {@param n} filled with 0.
+     *
+     * @param n the size of the vector
+     * @return dense vector instance
+     */
+    static FVectorDense zeros(int n) {
+        return new FVectorDense(n);
+    }
+
+    /**
+     * Builds a new dense vector filled with a given value.
+     *
+     * @param n    the size of the vector
+     * @param fill fill value
+     * @return dense vector instance
+     */
+    static FVectorDense fill(int n, float fill) {
+        return new FVectorDense(n).fill(fill);
+    }
+
+    /**
+     * Wraps an array of values into a dense vector, values are not copied.
+     *
+     * @param values array of values
+     * @return dense vector instance
+     */
+    static FVectorDense wrap(float... values) {
+        return new FVectorDense(0, values.length, values);
+    }
+
+    /**
+     * Copies the values of a double vector, rounding each value to single precision.
+     *
+     * @param v double vector
+     * @return new dense vector instance
+     */
+    static FVectorDense copy(DVector v) {
+        float[] values = new float[v.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (float) v.get(i);
+        }
+        return wrap(values);
+    }
+
+    /**
+     * @return number of elements from the vector
+     */
+    int size();
+
+    float get(int i);
+
+    void set(int i, float value);
+
+    void inc(int i, float value);
+
+    FVector fill(float value);
+
+    /**
+     * @return a new solid copy of the vector
+     */
+    FVector copy();
+
+    /**
+     * @return new double vector with a copy of the values
+     */
+    default DVectorDense dv() {
+        double[] values = new double[size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = get(i);
+        }
+        return DVector.wrap(values);
+    }
+
+    FVector add(float x);
+
+    FVector add(FVector y);
+
+    FVector sub(float x);
+
+    FVector sub(FVector y);
+
+    FVector mul(float x);
+
+    FVector mul(FVector y);
+
+    /**
+     * Adds to this vector the given vector multiplied with a scalar: {@code this = this + a * y}.
+     *
+     * @param a scalar
+     * @param y vector
+     * @return this vector
+     */
+    FVector fma(float a, FVector y);
+
+    float dot(FVector y);
+
+    float sum();
+
+    /**
+     * @return euclidean norm of the vector
+     */
+    float norm2();
+
+    /**
+     * Computes the squared euclidean distance to another vector.
+     *
+     * @param y the other vector
+     * @return sum of squared differences
+     */
+    float sqDistance(FVector y);
+
+    /**
+     * Computes the manhattan distance to another vector.
+     *
+     * @param y the other vector
+     * @return sum of absolute differences
+     */
+    float l1Distance(FVector y);
+
+    default boolean deepEquals(FVector v, float eps) {
+        if (size() != v.size()) {
+            return false;
+        }
+        for (int i = 0; i < size(); i++) {
+            if (Math.abs(get(i) - v.get(i)) > eps) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -432,7 +432,7 @@ public abstract class AbstractDMatrix implements DMatrix {
                     String.format("Matrices not conformant for multiplication: (%d,%d) x (%d,%d)",
                             rows(), cols(), b.rows(), b.cols()));
         }
-        return MatrixMultiplication.copyParallel(this, b);
+        return DMatrixGemm.dot(this, b);
     }
 
     @Override
@@ -0,0 +1,124 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package rapaio.math.linear.dense;
+
+import java.io.Serial;
+
+import rapaio.math.linear.FMatrix;
+import rapaio.math.linear.FVector;
+
+/**
+ * Common implementation for dense single precision matrices. Row oriented kernels work on
+ * a row major layout, matrices with other layout are copied to row major before.
+ */
+abstract class AbstractFMatrix implements FMatrix {
+
+    @Serial
+    private static final long serialVersionUID = 6011485279113540718L;
+
+    protected abstract FMatrixDenseR rowMajor();
+
+    @Override
+    public FVectorDense mapRowNew(int row) {
+        FVectorDense v = new FVectorDense(cols());
+        for (int j = 0; j < cols(); j++) {
+            v.set(j, get(row, j));
+        }
+        return v;
+    }
+
+    @Override
+    public FVectorDense mapColNew(int col) {
+        FVectorDense v = new FVectorDense(rows());
+        for (int i = 0; i < rows(); i++) {
+            v.set(i, get(i, col));
+        }
+        return v;
+    }
+
+    @Override
+    public FVectorDense dot(FVector v) {
+        if (v.size() != cols()) {
+            throw new IllegalArgumentException("Matrix (%d,%d) is not conform with vector (%d).".formatted(rows(), cols(), v.size()));
+        }
+        FMatrixDenseR a = rowMajor();
+        FVectorDense b = v instanceof FVectorDense vd ? vd : FVector.wrap(toArray(v));
+        FVectorDense result = new FVectorDense(rows());
+        for (int i = 0; i < rows(); i++) {
+            result.set(i, FVectorDense.dot(a.array(), a.rowOffset(i), b.array(), b.offset(), cols()));
+        }
+        return result;
+    }
+
+    @Override
+    public FMatrixDenseR sqDistances(FMatrix y) {
+        checkRowsConformance(y);
+        FMatrixDenseR a = rowMajor();
+        FMatrixDenseR b = ((AbstractFMatrix) y).rowMajor();
+        FMatrixDenseR result = FMatrixDenseR.empty(rows(), y.rows());
+        for (int i = 0; i < rows(); i++) {
+            int ai = a.rowOffset(i);
+            for (int j = 0; j < y.rows(); j++) {
+                result.set(i, j, FVectorDense.sqDistance(a.array(), ai, b.array(), b.rowOffset(j), cols()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public FMatrixDenseR dotT(FMatrix y) {
+        checkRowsConformance(y);
+        FMatrixDenseR a = rowMajor();
+        FMatrixDenseR b = ((AbstractFMatrix) y).rowMajor();
+        FMatrixDenseR result = FMatrixDenseR.empty(rows(), y.rows());
+        for (int i = 0; i < rows(); i++) {
+            int ai = a.rowOffset(i);
+            for (int j = 0; j < y.rows(); j++) {
+                result.set(i, j, FVectorDense.dot(a.array(), ai, b.array(), b.rowOffset(j), cols()));
+            }
+        }
+        return result;
+    }
+
+    private void checkRowsConformance(FMatrix y) {
+        if (y.cols() != cols()) {
+            throw new IllegalArgumentException("Matrices are not conform with this operation.");
+        }
+        if (!(y instanceof AbstractFMatrix)) {
+            throw new IllegalArgumentException("Matrix implementation is not supported: " + y.getClass().getSimpleName());
+        }
+    }
+
+    private static float[] toArray(FVector v) {
+        float[] values = new float[v.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = v.get(i);
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{rows:" + rows() + ", cols:" + cols() + "}";
+    }
+}
@@ -335,6 +335,18 @@ public class DMatrixDenseC extends AbstractDMatrix implements DMatrixStore {
         }
     }
 
+    public double[] array() {
+        return array;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    public int colStride() {
+        return colStride;
+    }
+
     @Override
     public double[] solidArrayCopy() {
         if (rows == colStride) {
@@ -573,56 +585,9 @@ public class DMatrixDenseC extends AbstractDMatrix implements DMatrixStore {
             throw new IllegalArgumentException("Matrices not conform to multiplication: [%d,%d] [%d,%d]."
                     .formatted(rows, cols, b.rows(), b.cols()));
         }
-        if (b instanceof DMatrixDenseC bc) {
-            return dotC(bc);
-        }
-        if (b instanceof DMatrixDenseR br) {
-            return dotR(br);
-        }
-        return super.dot(b);
-    }
-
-    private DMatrix dotC(DMatrixDenseC b) {
-        // in right we are good, in left we build dense rows and share them
-        DMatrixDenseC result = new DMatrixDenseC(rows, b.cols());
-        int chunk = 32;
-        int threads = rows / chunk;
-
-        IntStream.range(0, threads + 1).parallel().forEach(c -> {
-            for (int row = c * chunk; row < Math.min(rows, (c + 1) * chunk); row++) {
-                DVector rowVector = mapRowNew(row);
-                for (int i = 0; i < b.cols; i++) {
-                    result.set(row, i, rowVector.dot(b.mapCol(i)));
-                }
-            }
-        });
-        return result;
-    }
-
-    private DMatrix dotR(DMatrixDenseR b) {
-        // worst situation
-        DMatrixDenseC result = new DMatrixDenseC(rows, b.cols());
-
-        DVector[] colVectors = new DVector[b.cols()];
-        for (int i = 0; i < b.cols(); i++) {
-            colVectors[i] = b.mapColNew(i);
-        }
-
-        int chunk = 32;
-        int threads = rows / chunk;
-
-        IntStream.range(0, threads + 1).parallel().forEach(c -> {
-            for (int row = c * chunk; row < Math.min(rows, (c + 1) * chunk); row++) {
-                DVector rowVector = mapRowNew(row);
-                for (int i = 0; i < b.cols(); i++) {
-                    result.set(row, i, rowVector.dot(colVectors[i]));
-                }
-            }
-        });
-        return result;
+        return DMatrixGemm.dot(this, b);
     }
 
-
     @Override
     public DMatrixDenseR t() {
         return new DMatrixDenseR(offset, cols, rows, colStride, array);
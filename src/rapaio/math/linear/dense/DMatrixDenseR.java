@@ -323,6 +323,18 @@ public class DMatrixDenseR extends AbstractDMatrix implements DMatrixStore {
         }
     }
 
+    public double[] array() {
+        return array;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    public int rowStride() {
+        return rowStride;
+    }
+
     @Override
     public double[] solidArrayCopy() {
         if (cols == rowStride) {
@@ -556,50 +568,7 @@ public class DMatrixDenseR extends AbstractDMatrix implements DMatrixStore {
             throw new IllegalArgumentException("Matrices not conform to multiplication: [%d,%d] [%d,%d]."
                     .formatted(rows, cols, b.rows(), b.cols()));
         }
-        if (b instanceof DMatrixDenseC bc) {
-            return dotC(bc);
-        }
-        if (b instanceof DMatrixDenseR br) {
-            return dotR(br);
-        }
-        return super.dot(b);
-    }
-
-    private DMatrix dotC(DMatrixDenseC bc) {
-        // we are in the best case
-        DMatrixDenseC result = new DMatrixDenseC(rows, bc.cols());
-
-        int chunk = 32;
-        int threads = bc.cols() / chunk;
-
-        IntStream.range(0, threads + 1).parallel().forEach(c -> {
-            for (int col = c * chunk; col < Math.min(bc.cols(), (c + 1) * chunk); col++) {
-                DVector colVector = bc.mapCol(col);
-                for (int i = 0; i < rows; i++) {
-                    result.set(i, col, mapRow(i).dot(colVector));
-                }
-            }
-        });
-        return result;
-    }
-
-    private DMatrix dotR(DMatrixDenseR b) {
-        // in left we are good, we have rows, in right we have also rows
-        // we build solid right cols and share them for each thread
-        DMatrixDenseC result = new DMatrixDenseC(rows, b.cols);
-
-        int chunk = 32;
-        int threads = b.cols() / chunk;
-
-        IntStream.range(0, threads + 1).parallel().forEach(c -> {
-            for (int col = c * chunk; col < Math.min(b.cols, (c + 1) * chunk); col++) {
-                DVector colVector = b.mapColNew(col);
-                for (int i = 0; i < rows; i++) {
-                    result.set(i, col, mapRow(i).dot(colVector));
-                }
-            }
-        });
-        return result;
+        return DMatrixGemm.dot(this, b);
     }
 
     @Override
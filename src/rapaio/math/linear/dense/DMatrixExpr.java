@@ -0,0 +1,216 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package rapaio.math.linear.dense;
+
+import java.util.function.IntFunction;
+import java.util.function.UnaryOperator;
+
+import rapaio.math.linear.DMatrix;
+import rapaio.util.function.Double2DoubleFunction;
+
+/**
+ * Lazy expression over matrices which fuses a chain of element-wise operations and a final reduction.
+ * <p>
+ * The expression is evaluated column by column, each column being a fused {@link DVectorExpr}
+ * over the corresponding columns of the operand matrices. See {@link DVectorExpr} for details.
+ */
+public final class DMatrixExpr {
+
+    /**
+     * Builds an expression which starts with the values of a matrix.
+     *
+     * @param m matrix of values
+     * @return new expression
+     */
+    public static DMatrixExpr of(DMatrix m) {
+        return new DMatrixExpr(m.rows(), m.cols(), col -> DVectorExpr.of(m.mapCol(col)));
+    }
+
+    private final int rows;
+    private final int cols;
+    private final IntFunction<DVectorExpr> column;
+
+    private DMatrixExpr(int rows, int cols, IntFunction<DVectorExpr> column) {
+        this.rows = rows;
+        this.cols = cols;
+        this.column = column;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    public DMatrixExpr log() {
+        return map(DVectorExpr::log);
+    }
+
+    public DMatrixExpr log1p() {
+        return map(DVectorExpr::log1p);
+    }
+
+    public DMatrixExpr abs() {
+        return map(DVectorExpr::abs);
+    }
+
+    public DMatrixExpr neg() {
+        return map(DVectorExpr::neg);
+    }
+
+    public DMatrixExpr exp() {
+        return map(DVectorExpr::exp);
+    }
+
+    public DMatrixExpr expm1() {
+        return map(DVectorExpr::expm1);
+    }
+
+    public DMatrixExpr sqr() {
+        return map(DVectorExpr::sqr);
+    }
+
+    public DMatrixExpr sqrt() {
+        return map(DVectorExpr::sqrt);
+    }
+
+    public DMatrixExpr tanh() {
+        return map(DVectorExpr::tanh);
+    }
+
+    public DMatrixExpr add(double x) {
+        return map(e -> e.add(x));
+    }
+
+    public DMatrixExpr add(DMatrix m) {
+        return add(of(m));
+    }
+
+    public DMatrixExpr add(DMatrixExpr m) {
+        checkConformance(m);
+        return new DMatrixExpr(rows, cols, col -> column.apply(col).add(m.column.apply(col)));
+    }
+
+    public DMatrixExpr sub(double x) {
+        return map(e -> e.sub(x));
+    }
+
+    public DMatrixExpr sub(DMatrix m) {
+        return sub(of(m));
+    }
+
+    public DMatrixExpr sub(DMatrixExpr m) {
+        checkConformance(m);
+        return new DMatrixExpr(rows, cols, col -> column.apply(col).sub(m.column.apply(col)));
+    }
+
+    public DMatrixExpr mul(double x) {
+        return map(e -> e.mul(x));
+    }
+
+    public DMatrixExpr mul(DMatrix m) {
+        return mul(of(m));
+    }
+
+    public DMatrixExpr mul(DMatrixExpr m) {
+        checkConformance(m);
+        return new DMatrixExpr(rows, cols, col -> column.apply(col).mul(m.column.apply(col)));
+    }
+
+    public DMatrixExpr div(double x) {
+        return map(e -> e.div(x));
+    }
+
+    public DMatrixExpr div(DMatrix m) {
+        return div(of(m));
+    }
+
+    public DMatrixExpr div(DMatrixExpr m) {
+        checkConformance(m);
+        return new DMatrixExpr(rows, cols, col -> column.apply(col).div(m.column.apply(col)));
+    }
+
+    public DMatrixExpr cut(double low, double high) {
+        return map(e -> e.cut(low, high));
+    }
+
+    public DMatrixExpr apply(Double2DoubleFunction f) {
+        return map(e -> e.apply(f));
+    }
+
+    /**
+     * Materializes the expression into a new dense matrix.
+     *
+     * @return new matrix with the values of the expression
+     */
+    public DMatrix eval() {
+        return evalTo(DMatrix.empty(rows, cols));
+    }
+
+    /**
+     * Materializes the expression into the given matrix. The destination matrix can be
+     * one of the operands of the expression.
+     *
+     * @param to destination matrix
+     * @return destination matrix
+     */
+    public DMatrix evalTo(DMatrix to) {
+        if (to.rows() != rows || to.cols() != cols) {
+            throw new IllegalArgumentException("Matrices are not conform with this operation.");
+        }
+        for (int j = 0; j < cols; j++) {
+            column.apply(j).evalTo(to.mapCol(j));
+        }
+        return to;
+    }
+
+    /**
+     * @return sum of the values of the expression
+     */
+    public double sum() {
+        double sum = 0;
+        for (int j = 0; j < cols; j++) {
+            sum += column.apply(j).sum();
+        }
+        return sum;
+    }
+
+    /**
+     * @return mean of the values of the expression
+     */
+    public double mean() {
+        return sum() / ((double) rows * cols);
+    }
+
+    private DMatrixExpr map(UnaryOperator<DVectorExpr> op) {
+        return new DMatrixExpr(rows, cols, col -> op.apply(column.apply(col)));
+    }
+
+    private void checkConformance(DMatrixExpr m) {
+        if (m.rows != rows || m.cols != cols) {
+            throw new IllegalArgumentException("Matrices are not conform with this operation.");
+        }
+    }
+}
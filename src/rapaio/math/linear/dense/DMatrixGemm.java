@@ -0,0 +1,325 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package rapaio.math.linear.dense;
+
+import java.util.stream.IntStream;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+import rapaio.math.linear.DMatrix;
+import rapaio.math.linear.sparse.AbstractDMatrixSparse;
+
+/**
+ * Packed and register blocked general matrix multiplication which computes
+ * {@code C = alpha * A * B + beta * C}.
+ * <p>
+ * The implementation follows the usual GotoBLAS / BLIS decomposition. The inner dimension
+ * is split in panels of {@link #KC} values. For each panel, the values of {@code B} are packed
+ * in contiguous micro-panels of {@link #NR} columns and the values of {@code A} are packed in
+ * contiguous micro-panels of {@link #MR} rows. A micro-kernel keeps a block of {@code MR x NR}
+ * values of {@code C} in vector registers and updates it with fused multiply-add operations.
+ * Output tiles of {@code MC x NT} values are distributed over the common fork join pool.
+ * <p>
+ * Dense matrices ({@link DMatrixDenseC} and {@link DMatrixDenseR}) are packed directly from their
+ * backing arrays, any other implementation is packed through {@link DMatrix#get(int, int)}.
+ * The result matrix must not share storage with any of the operands.
+ */
+public final class DMatrixGemm {
+
+    private static final VectorSpecies<Double> species = DoubleVector.SPECIES_PREFERRED;
+    private static final int speciesLen = species.length();
+
+    /**
+     * Number of rows of a micro-panel from {@code A}
+     */
+    private static final int MR = 4;
+    /**
+     * Number of columns of a micro-panel from {@code B}, two vector registers wide
+     */
+    private static final int NR = 2 * speciesLen;
+    /**
+     * Size of a panel from the inner dimension
+     */
+    private static final int KC = 256;
+    /**
+     * Number of rows of an output tile, a multiple of {@link #MR}
+     */
+    private static final int MC = 128;
+    /**
+     * Number of columns of an output tile, a multiple of {@link #NR}
+     */
+    private static final int NT = 256;
+    /**
+     * Number of columns of a packed panel from {@code B}, a multiple of {@link #NT}
+     */
+    private static final int NC = 4096;
+    /**
+     * Minimum number of multiply-add operations which justifies parallel execution
+     */
+    private static final long PARALLEL_THRESHOLD = 64 * 64 * 64;
+
+    private DMatrixGemm() {
+    }
+
+    /**
+     * Computes the matrix product {@code A * B} into a new column major dense matrix. If {@code B} is
+     * a sparse matrix, the product is delegated to the sparse implementation.
+     *
+     * @param a left matrix
+     * @param b right matrix
+     * @return new matrix with the product
+     */
+    public static DMatrix dot(DMatrix a, DMatrix b) {
+        if (b instanceof AbstractDMatrixSparse bs) {
+            // with a sparse right matrix the product is computed as the transpose of b^T a^T
+            return bs.t().dot(a.t()).t();
+        }
+        DMatrixDenseC c = new DMatrixDenseC(a.rows(), b.cols());
+        gemm(1, a, b, 0, c);
+        return c;
+    }
+
+    /**
+     * Computes in place {@code C = alpha * A * B + beta * C}. When {@code beta} is zero the previous
+     * values of {@code C} are not read, thus they can be anything, including {@code NaN}.
+     *
+     * @param alpha scalar factor of the product
+     * @param a     left matrix
+     * @param b     right matrix
+     * @param beta  scalar factor of the previous values from result matrix
+     * @param c     result matrix
+     * @return result matrix
+     */
+    public static DMatrix gemm(double alpha, DMatrix a, DMatrix b, double beta, DMatrix c) {
+        if (a.cols() != b.rows() || a.rows() != c.rows() || b.cols() != c.cols()) {
+            throw new IllegalArgumentException("Matrices not conform to multiplication: [%d,%d] x [%d,%d] -> [%d,%d]."
+                    .formatted(a.rows(), a.cols(), b.rows(), b.cols(), c.rows(), c.cols()));
+        }
+        if (!(c instanceof DMatrixDenseC) && !(c instanceof DMatrixDenseR)) {
+            // compute into a dense matrix and transfer the values
+            DMatrixDenseC tmp = new DMatrixDenseC(c.rows(), c.cols());
+            gemm(alpha, a, b, 0, tmp);
+            for (int j = 0; j < c.cols(); j++) {
+                for (int i = 0; i < c.rows(); i++) {
+                    c.set(i, j, beta == 0 ? tmp.get(i, j) : beta * c.get(i, j) + tmp.get(i, j));
+                }
+            }
+            return c;
+        }
+
+        View va = View.of(a);
+        View vb = View.of(b);
+        View vc = View.of(c);
+
+        int m = a.rows();
+        int n = b.cols();
+        int k = a.cols();
+
+        scale(vc, m, n, beta);
+        if (m == 0 || n == 0 || k == 0 || alpha == 0) {
+            return c;
+        }
+
+        boolean parallel = (long) m * n * k >= PARALLEL_THRESHOLD;
+
+        int kcMax = Math.min(KC, k);
+        double[] pa = new double[roundUp(m, MR) * kcMax];
+        double[] pb = new double[roundUp(Math.min(NC, n), NR) * kcMax];
+
+        for (int jc = 0; jc < n; jc += NC) {
+            int nc = Math.min(NC, n - jc);
+            for (int pc = 0; pc < k; pc += KC) {
+                int kc = Math.min(KC, k - pc);
+
+                packB(vb, pc, kc, jc, nc, pb, parallel);
+                packA(va, m, pc, kc, pa, parallel);
+
+                int mTiles = (m + MC - 1) / MC;
+                int nTiles = (nc + NT - 1) / NT;
+                int fjc = jc;
+                IntStream tiles = IntStream.range(0, mTiles * nTiles);
+                if (parallel) {
+                    tiles = tiles.parallel();
+                }
+                tiles.forEach(t -> {
+                    int ic = (t / nTiles) * MC;
+                    int jt = (t % nTiles) * NT;
+                    macroKernel(alpha, pa, pb, kc, ic, Math.min(ic + MC, m), fjc, jt, Math.min(jt + NT, nc), vc);
+                });
+            }
+        }
+        return c;
+    }
+
+    private static void macroKernel(double alpha, double[] pa, double[] pb, int kc,
+            int ic, int icEnd, int jc, int jt, int jtEnd, View c) {
+        double[] buff = new double[MR * NR];
+        for (int jr = jt; jr < jtEnd; jr += NR) {
+            int nr = Math.min(NR, jtEnd - jr);
+            int pbOff = jr * kc;
+            for (int ir = ic; ir < icEnd; ir += MR) {
+                int mr = Math.min(MR, icEnd - ir);
+                microKernel(kc, pa, ir * kc, pb, pbOff, buff);
+                for (int r = 0; r < mr; r++) {
+                    int pos = c.offset + (ir + r) * c.rowStride + (jc + jr) * c.colStride;
+                    for (int q = 0; q < nr; q++) {
+                        c.array[pos] += alpha * buff[r * NR + q];
+                        pos += c.colStride;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void microKernel(int kc, double[] pa, int paOff, double[] pb, int pbOff, double[] buff) {
+        DoubleVector c00 = DoubleVector.zero(species);
+        DoubleVector c01 = DoubleVector.zero(species);
+        DoubleVector c10 = DoubleVector.zero(species);
+        DoubleVector c11 = DoubleVector.zero(species);
+        DoubleVector c20 = DoubleVector.zero(species);
+        DoubleVector c21 = DoubleVector.zero(species);
+        DoubleVector c30 = DoubleVector.zero(species);
+        DoubleVector c31 = DoubleVector.zero(species);
+
+        int ai = paOff;
+        int bi = pbOff;
+        for (int p = 0; p < kc; p++) {
+            DoubleVector b0 = DoubleVector.fromArray(species, pb, bi);
+            DoubleVector b1 = DoubleVector.fromArray(species, pb, bi + speciesLen);
+
+            DoubleVector a0 = DoubleVector.broadcast(species, pa[ai]);
+            c00 = a0.fma(b0, c00);
+            c01 = a0.fma(b1, c01);
+            DoubleVector a1 = DoubleVector.broadcast(species, pa[ai + 1]);
+            c10 = a1.fma(b0, c10);
+            c11 = a1.fma(b1, c11);
+            DoubleVector a2 = DoubleVector.broadcast(species, pa[ai + 2]);
+            c20 = a2.fma(b0, c20);
+            c21 = a2.fma(b1, c21);
+            DoubleVector a3 = DoubleVector.broadcast(species, pa[ai + 3]);
+            c30 = a3.fma(b0, c30);
+            c31 = a3.fma(b1, c31);
+
+            ai += MR;
+            bi += NR;
+        }
+
+        c00.intoArray(buff, 0);
+        c01.intoArray(buff, speciesLen);
+        c10.intoArray(buff, NR);
+        c11.intoArray(buff, NR + speciesLen);
+        c20.intoArray(buff, 2 * NR);
+        c21.intoArray(buff, 2 * NR + speciesLen);
+        c30.intoArray(buff, 3 * NR);
+        c31.intoArray(buff, 3 * NR + speciesLen);
+    }
+
+    /**
+     * Packs rows {@code [0,m)} and columns {@code [pc,pc+kc)} of {@code A} in micro-panels of {@link #MR} rows.
+     * Inside a micro-panel the values are stored column by column, and the rows
+     * outside the matrix are filled with zeros.
+     */
+    private static void packA(View a, int m, int pc, int kc, double[] pa, boolean parallel) {
+        IntStream panels = IntStream.range(0, (m + MR - 1) / MR);
+        if (parallel) {
+            panels = panels.parallel();
+        }
+        panels.forEach(s -> {
+            int ir = s * MR;
+            int mr = Math.min(MR, m - ir);
+            int pos = ir * kc;
+            for (int p = 0; p < kc; p++) {
+                for (int r = 0; r < mr; r++) {
+                    pa[pos + r] = a.get(ir + r, pc + p);
+                }
+                for (int r = mr; r < MR; r++) {
+                    pa[pos + r] = 0;
+                }
+                pos += MR;
+            }
+        });
+    }
+
+    /**
+     * Packs rows {@code [pc,pc+kc)} and columns {@code [jc,jc+nc)} of {@code B} in micro-panels of {@link #NR} columns.
+     * Inside a micro-panel the values are stored row by row, and the columns
+     * outside the matrix are filled with zeros.
+     */
+    private static void packB(View b, int pc, int kc, int jc, int nc, double[] pb, boolean parallel) {
+        IntStream panels = IntStream.range(0, (nc + NR - 1) / NR);
+        if (parallel) {
+            panels = panels.parallel();
+        }
+        panels.forEach(s -> {
+            int jr = s * NR;
+            int nr = Math.min(NR, nc - jr);
+            int pos = jr * kc;
+            for (int p = 0; p < kc; p++) {
+                for (int q = 0; q < nr; q++) {
+                    pb[pos + q] = b.get(pc + p, jc + jr + q);
+                }
+                for (int q = nr; q < NR; q++) {
+                    pb[pos + q] = 0;
+                }
+                pos += NR;
+            }
+        });
+    }
+
+    private static void scale(View c, int m, int n, double beta) {
+        if (beta == 1) {
+            return;
+        }
+        for (int i = 0; i < m; i++) {
+            int pos = c.offset + i * c.rowStride;
+            for (int j = 0; j < n; j++) {
+                c.array[pos] = (beta == 0) ? 0 : beta * c.array[pos];
+                pos += c.colStride;
+            }
+        }
+    }
+
+    private static int roundUp(int value, int multiple) {
+        return ((value + multiple - 1) / multiple) * multiple;
+    }
+
+    /**
+     * Strided view over the storage of a matrix. When the matrix is not a dense one,
+     * the array is null and the values are read through the matrix interface.
+     */
+    private record View(DMatrix matrix, double[] array, int offset, int rowStride, int colStride) {
+
+        static View of(DMatrix m) {
+            if (m instanceof DMatrixDenseC mc) {
+                return new View(m, mc.array(), mc.offset(), 1, mc.colStride());
+            }
+            if (m instanceof DMatrixDenseR mr) {
+                return new View(m, mr.array(), mr.offset(), mr.rowStride(), 1);
+            }
+            return new View(m, null, 0, 0, 0);
+        }
+
+        double get(int row, int col) {
+            return array != null ? array[offset + row * rowStride + col * colStride] : matrix.get(row, col);
+        }
+    }
+}
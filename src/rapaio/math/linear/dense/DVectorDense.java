@@ -36,6 +36,7 @@ import rapaio.core.distributions.Normal;
 import rapaio.data.VarDouble;
 import rapaio.math.linear.DMatrix;
 import rapaio.math.linear.DVector;
+import rapaio.math.linear.sparse.DVectorSparse;
 import rapaio.util.DoubleComparator;
 import rapaio.util.collection.DoubleArrays;
 import rapaio.util.collection.IntArrays;
@@ -685,6 +686,9 @@ public final class DVectorDense extends AbstractDVectorStore {
     @Override
     public double dot(DVector b) {
         checkConformance(b);
+        if (b instanceof DVectorSparse) {
+            return b.dot(this);
+        }
         if (b instanceof DVectorDense bd) {
             int i = 0;
             DoubleVector sum = DoubleVector.zero(species);
@@ -0,0 +1,570 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package rapaio.math.linear.dense;
+
+import java.util.function.DoubleUnaryOperator;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import rapaio.math.linear.DVector;
+import rapaio.util.function.Double2DoubleFunction;
+
+/**
+ * Lazy expression over vectors which fuses a chain of element-wise operations and a final reduction.
+ * <p>
+ * Operations on the expression do not compute anything, they only record the operation. The values are
+ * computed when the expression is materialized with {@link #eval()} or {@link #evalTo(DVector)}, or when
+ * it is reduced with {@link #sum()}, {@link #mean()} or {@link #dot(DVector)}.
+ * <p>
+ * Evaluation is done in blocks of consecutive positions which are small enough to stay in cache.
+ * For each block every operation runs a vectorized loop over the results of its operands, thus the operand
+ * vectors are read only once and no intermediate vectors of full size are allocated. For example
+ * {@code p.expr().mul(np).cut(1e-6, Double.NaN).eval()} does a single pass over {@code p} and {@code np}.
+ * <p>
+ * An expression keeps buffers used for evaluation, thus the same expression instance
+ * should not be evaluated concurrently.
+ */
+public final class DVectorExpr {
+
+    /**
+     * Builds an expression which starts with the values of a vector.
+     *
+     * @param x vector of values
+     * @return new expression
+     */
+    public static DVectorExpr of(DVector x) {
+        return new DVectorExpr(new Leaf(x), x.size());
+    }
+
+    private static final VectorSpecies<Double> species = AbstractDVectorStore.species;
+    private static final int speciesLen = AbstractDVectorStore.speciesLen;
+    private static final int BLOCK = 1024;
+
+    private final Node root;
+    private final int size;
+
+    private DVectorExpr(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @return number of elements of the expression
+     */
+    public int size() {
+        return size;
+    }
+
+    public DVectorExpr log() {
+        return unary(Unary.LOG);
+    }
+
+    public DVectorExpr log1p() {
+        return unary(Unary.LOG1P);
+    }
+
+    public DVectorExpr log10() {
+        return unary(Unary.LOG10);
+    }
+
+    public DVectorExpr abs() {
+        return unary(Unary.ABS);
+    }
+
+    public DVectorExpr neg() {
+        return unary(Unary.NEG);
+    }
+
+    public DVectorExpr cos() {
+        return unary(Unary.COS);
+    }
+
+    public DVectorExpr cosh() {
+        return unary(Unary.COSH);
+    }
+
+    public DVectorExpr acos() {
+        return unary(Unary.ACOS);
+    }
+
+    public DVectorExpr sin() {
+        return unary(Unary.SIN);
+    }
+
+    public DVectorExpr sinh() {
+        return unary(Unary.SINH);
+    }
+
+    public DVectorExpr asin() {
+        return unary(Unary.ASIN);
+    }
+
+    public DVectorExpr tan() {
+        return unary(Unary.TAN);
+    }
+
+    public DVectorExpr tanh() {
+        return unary(Unary.TANH);
+    }
+
+    public DVectorExpr atan() {
+        return unary(Unary.ATAN);
+    }
+
+    public DVectorExpr exp() {
+        return unary(Unary.EXP);
+    }
+
+    public DVectorExpr expm1() {
+        return unary(Unary.EXPM1);
+    }
+
+    public DVectorExpr sqr() {
+        return unary(Unary.SQR);
+    }
+
+    public DVectorExpr sqrt() {
+        return unary(Unary.SQRT);
+    }
+
+    public DVectorExpr cbrt() {
+        return unary(Unary.CBRT);
+    }
+
+    public DVectorExpr add(double x) {
+        return new DVectorExpr(new ScalarOp(Binary.ADD, root, x), size);
+    }
+
+    public DVectorExpr add(DVector y) {
+        return binary(Binary.ADD, of(y));
+    }
+
+    public DVectorExpr add(DVectorExpr y) {
+        return binary(Binary.ADD, y);
+    }
+
+    public DVectorExpr sub(double x) {
+        return new DVectorExpr(new ScalarOp(Binary.SUB, root, x), size);
+    }
+
+    public DVectorExpr sub(DVector y) {
+        return binary(Binary.SUB, of(y));
+    }
+
+    public DVectorExpr sub(DVectorExpr y) {
+        return binary(Binary.SUB, y);
+    }
+
+    public DVectorExpr mul(double x) {
+        return new DVectorExpr(new ScalarOp(Binary.MUL, root, x), size);
+    }
+
+    public DVectorExpr mul(DVector y) {
+        return binary(Binary.MUL, of(y));
+    }
+
+    public DVectorExpr mul(DVectorExpr y) {
+        return binary(Binary.MUL, y);
+    }
+
+    public DVectorExpr div(double x) {
+        return new DVectorExpr(new ScalarOp(Binary.DIV, root, x), size);
+    }
+
+    public DVectorExpr div(DVector y) {
+        return binary(Binary.DIV, of(y));
+    }
+
+    public DVectorExpr div(DVectorExpr y) {
+        return binary(Binary.DIV, y);
+    }
+
+    /**
+     * Cuts the values in interval [low,high], with the same semantic as {@link DVector#cut(double, double)}.
+     *
+     * @param low  minimum value after cut operation, if {@link Double#NaN} minimum is not applied.
+     * @param high maximum value after cut operation, if {@link Double#NaN} maximum is not applied.
+     * @return new expression
+     */
+    public DVectorExpr cut(double low, double high) {
+        return new DVectorExpr(new Cut(root, low, high), size);
+    }
+
+    /**
+     * Applies a function on each element. Since the function is arbitrary, this operation is not vectorized,
+     * but it is still fused with the other operations.
+     *
+     * @param f function applied on each element
+     * @return new expression
+     */
+    public DVectorExpr apply(Double2DoubleFunction f) {
+        return new DVectorExpr(new Apply(root, f), size);
+    }
+
+    /**
+     * Materializes the expression into a new dense vector.
+     *
+     * @return new vector with the values of the expression
+     */
+    public DVectorDense eval() {
+        return (DVectorDense) evalTo(new DVectorDense(size));
+    }
+
+    /**
+     * Materializes the expression into the given vector. The destination vector can be
+     * one of the operands of the expression.
+     *
+     * @param to destination vector
+     * @return destination vector
+     */
+    public DVector evalTo(DVector to) {
+        if (to.size() != size) {
+            throw new IllegalArgumentException("Vectors are not conform for operation: [%d] vs [%d]".formatted(size, to.size()));
+        }
+        for (int start = 0; start < size; start += BLOCK) {
+            int len = Math.min(BLOCK, size - start);
+            double[] values = root.eval(start, len);
+            int off = root.off;
+            if (to instanceof DVectorDense tod) {
+                System.arraycopy(values, off, tod.array(), tod.offset() + start, len);
+            } else {
+                for (int i = 0; i < len; i++) {
+                    to.set(start + i, values[off + i]);
+                }
+            }
+        }
+        return to;
+    }
+
+    /**
+     * @return sum of the values of the expression
+     */
+    public double sum() {
+        DoubleVector aggr = DoubleVector.zero(species);
+        double sum = 0;
+        for (int start = 0; start < size; start += BLOCK) {
+            int len = Math.min(BLOCK, size - start);
+            double[] values = root.eval(start, len);
+            int off = root.off;
+            int bound = species.loopBound(len);
+            int i = 0;
+            for (; i < bound; i += speciesLen) {
+                aggr = aggr.add(DoubleVector.fromArray(species, values, off + i));
+            }
+            for (; i < len; i++) {
+                sum += values[off + i];
+            }
+        }
+        return sum + aggr.reduceLanes(VectorOperators.ADD);
+    }
+
+    /**
+     * @return mean of the values of the expression
+     */
+    public double mean() {
+        return sum() / size;
+    }
+
+    /**
+     * Computes the dot product between the values of the expression and a vector.
+     *
+     * @param y the other vector
+     * @return dot product
+     */
+    public double dot(DVector y) {
+        return mul(y).sum();
+    }
+
+    private DVectorExpr unary(Unary op) {
+        return new DVectorExpr(new UnaryOp(op, root), size);
+    }
+
+    private DVectorExpr binary(Binary op, DVectorExpr y) {
+        if (y.size != size) {
+            throw new IllegalArgumentException("Vectors are not conform for operation: [%d] vs [%d]".formatted(size, y.size));
+        }
+        return new DVectorExpr(new BinaryOp(op, root, y.root), size);
+    }
+
+    private enum Unary {
+        LOG(VectorOperators.LOG, Math::log),
+        LOG1P(VectorOperators.LOG1P, Math::log1p),
+        LOG10(VectorOperators.LOG10, Math::log10),
+        ABS(VectorOperators.ABS, Math::abs),
+        NEG(VectorOperators.NEG, x -> -x),
+        COS(VectorOperators.COS, Math::cos),
+        COSH(VectorOperators.COSH, Math::cosh),
+        ACOS(VectorOperators.ACOS, Math::acos),
+        SIN(VectorOperators.SIN, Math::sin),
+        SINH(VectorOperators.SINH, Math::sinh),
+        ASIN(VectorOperators.ASIN, Math::asin),
+        TAN(VectorOperators.TAN, Math::tan),
+        TANH(VectorOperators.TANH, Math::tanh),
+        ATAN(VectorOperators.ATAN, Math::atan),
+        EXP(VectorOperators.EXP, Math::exp),
+        EXPM1(VectorOperators.EXPM1, Math::expm1),
+        SQR(null, x -> x * x),
+        SQRT(VectorOperators.SQRT, Math::sqrt),
+        CBRT(VectorOperators.CBRT, Math::cbrt);
+
+        private final VectorOperators.Unary vop;
+        private final DoubleUnaryOperator sop;
+
+        Unary(VectorOperators.Unary vop, DoubleUnaryOperator sop) {
+            this.vop = vop;
+            this.sop = sop;
+        }
+
+        DoubleVector apply(DoubleVector v) {
+            return vop == null ? v.mul(v) : v.lanewise(vop);
+        }
+    }
+
+    private enum Binary {
+        ADD(VectorOperators.ADD),
+        SUB(VectorOperators.SUB),
+        MUL(VectorOperators.MUL),
+        DIV(VectorOperators.DIV);
+
+        private final VectorOperators.Binary vop;
+
+        Binary(VectorOperators.Binary vop) {
+            this.vop = vop;
+        }
+
+        double apply(double x, double y) {
+            return switch (this) {
+                case ADD -> x + y;
+                case SUB -> x - y;
+                case MUL -> x * y;
+                case DIV -> x / y;
+            };
+        }
+    }
+
+    /**
+     * Node of the expression tree. Evaluation of a block returns an array which contains the values of the block
+     * starting with position {@link #off}. Inner nodes store the values in their own buffer.
+     */
+    private abstract static class Node {
+
+        int off;
+        double[] buf;
+
+        abstract double[] eval(int start, int len);
+
+        double[] buffer(int len) {
+            // the first block is the largest one
+            if (buf == null || buf.length < len) {
+                buf = new double[len];
+            }
+            off = 0;
+            return buf;
+        }
+    }
+
+    private static final class Leaf extends Node {
+
+        private final DVector x;
+
+        Leaf(DVector x) {
+            this.x = x;
+        }
+
+        @Override
+        double[] eval(int start, int len) {
+            if (x instanceof DVectorDense xd) {
+                off = xd.offset() + start;
+                return xd.array();
+            }
+            double[] out = buffer(len);
+            for (int i = 0; i < len; i++) {
+                out[i] = x.get(start + i);
+            }
+            return out;
+        }
+    }
+
+    private static final class UnaryOp extends Node {
+
+        private final Unary op;
+        private final Node a;
+
+        UnaryOp(Unary op, Node a) {
+            this.op = op;
+            this.a = a;
+        }
+
+        @Override
+        double[] eval(int start, int len) {
+            double[] av = a.eval(start, len);
+            int aoff = a.off;
+            double[] out = buffer(len);
+            int bound = species.loopBound(len);
+            int i = 0;
+            for (; i < bound; i += speciesLen) {
+                op.apply(DoubleVector.fromArray(species, av, aoff + i)).intoArray(out, i);
+            }
+            for (; i < len; i++) {
+                out[i] = op.sop.applyAsDouble(av[aoff + i]);
+            }
+            return out;
+        }
+    }
+
+    private static final class ScalarOp extends Node {
+
+        private final Binary op;
+        private final Node a;
+        private final double x;
+
+        ScalarOp(Binary op, Node a, double x) {
+            this.op = op;
+            this.a = a;
+            this.x = x;
+        }
+
+        @Override
+        double[] eval(int start, int len) {
+            double[] av = a.eval(start, len);
+            int aoff = a.off;
+            double[] out = buffer(len);
+            DoubleVector vx = DoubleVector.broadcast(species, x);
+            int bound = species.loopBound(len);
+            int i = 0;
+            for (; i < bound; i += speciesLen) {
+                DoubleVector.fromArray(species, av, aoff + i).lanewise(op.vop, vx).intoArray(out, i);
+            }
+            for (; i < len; i++) {
+                out[i] = op.apply(av[aoff + i], x);
+            }
+            return out;
+        }
+    }
+
+    private static final class BinaryOp extends Node {
+
+        private final Binary op;
+        private final Node a;
+        private final Node b;
+
+        BinaryOp(Binary op, Node a, Node b) {
+            this.op = op;
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        double[] eval(int start, int len) {
+            double[] av = a.eval(start, len);
+            int aoff = a.off;
+            double[] bv = b.eval(start, len);
+            int boff = b.off;
+            double[] out = buffer(len);
+            int bound = species.loopBound(len);
+            int i = 0;
+            for (; i < bound; i += speciesLen) {
+                DoubleVector va = DoubleVector.fromArray(species, av, aoff + i);
+                DoubleVector vb = DoubleVector.fromArray(species, bv, boff + i);
+                va.lanewise(op.vop, vb).intoArray(out, i);
+            }
+            for (; i < len; i++) {
+                out[i] = op.apply(av[aoff + i], bv[boff + i]);
+            }
+            return out;
+        }
+    }
+
+    private static final class Cut extends Node {
+
+        private final Node a;
+        private final double low;
+        private final double high;
+
+        Cut(Node a, double low, double high) {
+            this.a = a;
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        double[] eval(int start, int len) {
+            double[] av = a.eval(start, len);
+            int aoff = a.off;
+            double[] out = buffer(len);
+            boolean hasLow = !Double.isNaN(low);
+            boolean hasHigh = !Double.isNaN(high);
+            DoubleVector vlow = DoubleVector.broadcast(species, low);
+            DoubleVector vhigh = DoubleVector.broadcast(species, high);
+            int bound = species.loopBound(len);
+            int i = 0;
+            for (; i < bound; i += speciesLen) {
+                DoubleVector va = DoubleVector.fromArray(species, av, aoff + i);
+                if (hasLow) {
+                    VectorMask<Double> m = va.lt(vlow);
+                    va = va.blend(vlow, m);
+                }
+                if (hasHigh) {
+                    VectorMask<Double> m = vhigh.lt(va);
+                    va = va.blend(vhigh, m);
+                }
+                va.intoArray(out, i);
+            }
+            for (; i < len; i++) {
+                double value = av[aoff + i];
+                if (hasLow && value < low) {
+                    value = low;
+                }
+                if (hasHigh && value > high) {
+                    value = high;
+                }
+                out[i] = value;
+            }
+            return out;
+        }
+    }
+
+    private static final class Apply extends Node {
+
+        private final Node a;
+        private final Double2DoubleFunction f;
+
+        Apply(Node a, Double2DoubleFunction f) {
+            this.a = a;
+            this.f = f;
+        }
+
+        @Override
+        double[] eval(int start, int len) {
+            double[] av = a.eval(start, len);
+            int aoff = a.off;
+            double[] out = buffer(len);
+            for (int i = 0; i < len; i++) {
+                out[i] = f.applyAsDouble(av[aoff + i]);
+            }
+            return out;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package rapaio.math.linear.dense;
+
+import java.io.Serial;
+
+/**
+ * Dense single precision matrix with values stored in column major order.
+ */
+public final class FMatrixDenseC extends AbstractFMatrix {
+
+    public static FMatrixDenseC empty(int rows, int cols) {
+        return new FMatrixDenseC(0, rows, cols, rows, new float[rows * cols]);
+    }
+
+    public static FMatrixDenseC wrap(int rows, int cols, float... values) {
+        return new FMatrixDenseC(0, rows, cols, rows, values);
+    }
+
+    @Serial
+    private static final long serialVersionUID = -2879150123641398572L;
+
+    private final int offset;
+    private final int rows;
+    private final int cols;
+    private final int colStride;
+    private final float[] array;
+
+    public FMatrixDenseC(int offset, int rows, int cols, int colStride, float[] array) {
+        this.offset = offset;
+        this.rows = rows;
+        this.cols = cols;
+        this.colStride = colStride;
+        this.array = array;
+    }
+
+    public float[] array() {
+        return array;
+    }
+
+    /**
+     * @param col column index
+     * @return position in array of the first value from the column
+     */
+    public int colOffset(int col) {
+        return offset + col * colStride;
+    }
+
+    @Override
+    public int rows() {
+        return rows;
+    }
+
+    @Override
+    public int cols() {
+        return cols;
+    }
+
+    @Override
+    public float get(int row, int col) {
+        return array[offset + col * colStride + row];
+    }
+
+    @Override
+    public void set(int row, int col, float value) {
+        array[offset + col * colStride + row] = value;
+    }
+
+    @Override
+    public void inc(int row, int col, float value) {
+        array[offset + col * colStride + row] += value;
+    }
+
+    /**
+     * @param col column index
+     * @return vector view over the values of the column
+     */
+    public FVectorDense mapCol(int col) {
+        return new FVectorDense(colOffset(col), rows, array);
+    }
+
+    @Override
+    public FMatrixDenseC copy() {
+        FMatrixDenseC copy = empty(rows, cols);
+        for (int j = 0; j < cols; j++) {
+            System.arraycopy(array, colOffset(j), copy.array, j * rows, rows);
+        }
+        return copy;
+    }
+
+    @Override
+    public FMatrixDenseR t() {
+        return new FMatrixDenseR(offset, cols, rows, colStride, array);
+    }
+
+    @Override
+    protected FMatrixDenseR rowMajor() {
+        FMatrixDenseR m = FMatrixDenseR.empty(rows, cols);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                m.set(i, j, get(i, j));
+            }
+        }
+        return m;
+    }
+}
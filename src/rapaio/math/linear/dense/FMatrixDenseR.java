@@ -0,0 +1,120 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package rapaio.math.linear.dense;
+
+import java.io.Serial;
+
+/**
+ * Dense single precision matrix with values stored in row major order.
+ */
+public final class FMatrixDenseR extends AbstractFMatrix {
+
+    public static FMatrixDenseR empty(int rows, int cols) {
+        return new FMatrixDenseR(0, rows, cols, cols, new float[rows * cols]);
+    }
+
+    public static FMatrixDenseR wrap(int rows, int cols, float... values) {
+        return new FMatrixDenseR(0, rows, cols, cols, values);
+    }
+
+    @Serial
+    private static final long serialVersionUID = 4375214926392347613L;
+
+    private final int offset;
+    private final int rows;
+    private final int cols;
+    private final int rowStride;
+    private final float[] array;
+
+    public FMatrixDenseR(int offset, int rows, int cols, int rowStride, float[] array) {
+        this.offset = offset;
+        this.rows = rows;
+        this.cols = cols;
+        this.rowStride = rowStride;
+        this.array = array;
+    }
+
+    public float[] array() {
+        return array;
+    }
+
+    /**
+     * @param row row index
+     * @return position in array of the first value from the row
+     */
+    public int rowOffset(int row) {
+        return offset + row * rowStride;
+    }
+
+    @Override
+    public int rows() {
+        return rows;
+    }
+
+    @Override
+    public int cols() {
+        return cols;
+    }
+
+    @Override
+    public float get(int row, int col) {
+        return array[offset + row * rowStride + col];
+    }
+
+    @Override
+    public void set(int row, int col, float value) {
+        array[offset + row * rowStride + col] = value;
+    }
+
+    @Override
+    public void inc(int row, int col, float value) {
+        array[offset + row * rowStride + col] += value;
+    }
+
+    /**
+     * @param row row index
+     * @return vector view over the values of the row
+     */
+    public FVectorDense mapRow(int row) {
+        return new FVectorDense(rowOffset(row), cols, array);
+    }
+
+    @Override
+    public FMatrixDenseR copy() {
+        FMatrixDenseR copy = empty(rows, cols);
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(array, rowOffset(i), copy.array, i * cols, cols);
+        }
+        return copy;
+    }
+
+    @Override
+    public FMatrixDenseC t() {
+        return new FMatrixDenseC(offset, cols, rows, rowStride, array);
+    }
+
+    @Override
+    protected FMatrixDenseR rowMajor() {
+        return this;
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package rapaio.math.linear.dense;
+
+import java.io.Serial;
+import java.util.Arrays;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import rapaio.math.linear.FVector;
+
+/**
+ * Dense vector of single precision values stored in a contiguous range of an array.
+ */
+public final class FVectorDense implements FVector {
+
+    @Serial
+    private static final long serialVersionUID = -1386372938375473213L;
+
+    static final VectorSpecies<Float> species = FloatVector.SPECIES_PREFERRED;
+    static final int speciesLen = species.length();
+
+    private final int offset;
+    private final int size;
+    private final float[] array;
+    private final int loopBound;
+
+    public FVectorDense(int size) {
+        this(0, size, new float[size]);
+    }
+
+    public FVectorDense(int offset, int size, float[] array) {
+        this.offset = offset;
+        this.size = size;
+        this.array = array;
+        this.loopBound = species.loopBound(size);
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    public float[] array() {
+        return array;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public float get(int i) {
+        return array[offset + i];
+    }
+
+    @Override
+    public void set(int i, float value) {
+        array[offset + i] = value;
+    }
+
+    @Override
+    public void inc(int i, float value) {
+        array[offset + i] += value;
+    }
+
+    @Override
+    public FVectorDense fill(float value) {
+        Arrays.fill(array, offset, offset + size, value);
+        return this;
+    }
+
+    @Override
+    public FVectorDense copy() {
+        return new FVectorDense(0, size, Arrays.copyOfRange(array, offset, offset + size));
+    }
+
+    private FloatVector load(int i) {
+        return FloatVector.fromArray(species, array, offset + i);
+    }
+
+    private void store(FloatVector v, int i) {
+        v.intoArray(array, offset + i);
+    }
+
+    private FVectorDense dense(FVector y) {
+        if (y.size() != size) {
+            throw new IllegalArgumentException("Vectors are not conform for operation: [%d] vs [%d]".formatted(size, y.size()));
+        }
+        return y instanceof FVectorDense yd ? yd : FVector.wrap(toArray(y));
+    }
+
+    private static float[] toArray(FVector y) {
+        float[] values = new float[y.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = y.get(i);
+        }
+        return values;
+    }
+
+    private FVectorDense lanewise(VectorOperators.Binary op, float x) {
+        FloatVector vx = FloatVector.broadcast(species, x);
+        int i = 0;
+        for (; i < loopBound; i += speciesLen) {
+            store(load(i).lanewise(op, vx), i);
+        }
+        for (; i < size; i++) {
+            set(i, scalar(op, get(i), x));
+        }
+        return this;
+    }
+
+    private FVectorDense lanewise(VectorOperators.Binary op, FVector y) {
+        FVectorDense yd = dense(y);
+        int i = 0;
+        for (; i < loopBound; i += speciesLen) {
+            store(load(i).lanewise(op, yd.load(i)), i);
+        }
+        for (; i < size; i++) {
+            set(i, scalar(op, get(i), yd.get(i)));
+        }
+        return this;
+    }
+
+    private static float scalar(VectorOperators.Binary op, float a, float b) {
+        if (op == VectorOperators.ADD) {
+            return a + b;
+        }
+        if (op == VectorOperators.SUB) {
+            return a - b;
+        }
+        return a * b;
+    }
+
+    @Override
+    public FVectorDense add(float x) {
+        return lanewise(VectorOperators.ADD, x);
+    }
+
+    @Override
+    public FVectorDense add(FVector y) {
+        return lanewise(VectorOperators.ADD, y);
+    }
+
+    @Override
+    public FVectorDense sub(float x) {
+        return lanewise(VectorOperators.SUB, x);
+    }
+
+    @Override
+    public FVectorDense sub(FVector y) {
+        return lanewise(VectorOperators.SUB, y);
+    }
+
+    @Override
+    public FVectorDense mul(float x) {
+        return lanewise(VectorOperators.MUL, x);
+    }
+
+    @Override
+    public FVectorDense mul(FVector y) {
+        return lanewise(VectorOperators.MUL, y);
+    }
+
+    @Override
+    public FVectorDense fma(float a, FVector y) {
+        FVectorDense yd = dense(y);
+        FloatVector va = FloatVector.broadcast(species, a);
+        int i = 0;
+        for (; i < loopBound; i += speciesLen) {
+            store(yd.load(i).fma(va, load(i)), i);
+        }
+        for (; i < size; i++) {
+            inc(i, a * yd.get(i));
+        }
+        return this;
+    }
+
+    @Override
+    public float dot(FVector y) {
+        FVectorDense yd = dense(y);
+        return dot(array, offset, yd.array, yd.offset, size);
+    }
+
+    @Override
+    public float sum() {
+        FloatVector aggr = FloatVector.zero(species);
+        int i = 0;
+        for (; i < loopBound; i += speciesLen) {
+            aggr = aggr.add(load(i));
+        }
+        float sum = aggr.reduceLanes(VectorOperators.ADD);
+        for (; i < size; i++) {
+            sum += get(i);
+        }
+        return sum;
+    }
+
+    @Override
+    public float norm2() {
+        return (float) Math.sqrt(dot(array, offset, array, offset, size));
+    }
+
+    @Override
+    public float sqDistance(FVector y) {
+        FVectorDense yd = dense(y);
+        return sqDistance(array, offset, yd.array, yd.offset, size);
+    }
+
+    @Override
+    public float l1Distance(FVector y) {
+        FVectorDense yd = dense(y);
+        return l1Distance(array, offset, yd.array, yd.offset, size);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("FVectorDense{size:").append(size).append(", values:[");
+        for (int i = 0; i < Math.min(size, 20); i++) {
+            sb.append(get(i)).append(i == size - 1 ? "" : ",");
+        }
+        if (size > 20) {
+            sb.append("...");
+        }
+        return sb.append("]}").toString();
+    }
+
+    // kernels on raw arrays, shared with single precision matrices and row oriented algorithms
+
+    /**
+     * Computes the dot product between two ranges of raw arrays.
+     */
+    public static float dot(float[] a, int aOffset, float[] b, int bOffset, int len) {
+        int bound = species.loopBound(len);
+        FloatVector aggr = FloatVector.zero(species);
+        int i = 0;
+        for (; i < bound; i += speciesLen) {
+            FloatVector va = FloatVector.fromArray(species, a, aOffset + i);
+            FloatVector vb = FloatVector.fromArray(species, b, bOffset + i);
+            aggr = va.fma(vb, aggr);
+        }
+        float sum = aggr.reduceLanes(VectorOperators.ADD);
+        for (; i < len; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    /**
+     * Computes the squared euclidean distance between two ranges of raw arrays.
+     */
+    public static float sqDistance(float[] a, int aOffset, float[] b, int bOffset, int len) {
+        int bound = species.loopBound(len);
+        FloatVector aggr = FloatVector.zero(species);
+        int i = 0;
+        for (; i < bound; i += speciesLen) {
+            FloatVector delta = FloatVector.fromArray(species, a, aOffset + i)
+                    .sub(FloatVector.fromArray(species, b, bOffset + i));
+            aggr = delta.fma(delta, aggr);
+        }
+        float sum = aggr.reduceLanes(VectorOperators.ADD);
+        for (; i < len; i++) {
+            float delta = a[aOffset + i] - b[bOffset + i];
+            sum += delta * delta;
+        }
+        return sum;
+    }
+
+    /**
+     * Computes the sum of absolute differences between two ranges of raw arrays.
+     */
+    public static float l1Distance(float[] a, int aOffset, float[] b, int bOffset, int len) {
+        int bound = species.loopBound(len);
+        FloatVector aggr = FloatVector.zero(species);
+        int i = 0;
+        for (; i < bound; i += speciesLen) {
+            FloatVector delta = FloatVector.fromArray(species, a, aOffset + i)
+                    .sub(FloatVector.fromArray(species, b, bOffset + i));
+            aggr = aggr.add(delta.abs());
+        }
+        float sum = aggr.reduceLanes(VectorOperators.ADD);
+        for (; i < len; i++) {
+            sum += Math.abs(a[aOffset + i] - b[bOffset + i]);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,474 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package rapaio.math.linear.sparse;
+
+import java.io.Serial;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import rapaio.math.linear.DMatrix;
+import rapaio.math.linear.DVector;
+import rapaio.math.linear.dense.AbstractDMatrix;
+import rapaio.util.collection.IntArrays;
+import rapaio.util.function.Double2DoubleFunction;
+
+/**
+ * Base class for sparse matrices stored in compressed format.
+ * <p>
+ * The matrix is seen as a list of slots on the major axis (rows for CSR, columns for CSC).
+ * For each slot, {@code pointers[slot]} and {@code pointers[slot + 1]} delimit the range of
+ * stored values, {@code indexes} contains the sorted positions on the minor axis and
+ * {@code values} the stored values.
+ * <p>
+ * Reading a value is a binary search inside a slot. Setting a value which is not stored
+ * is an insertion, which shifts all the following values, thus sparse matrices should be
+ * built with the static constructors and not cell by cell. Setting a zero on a position
+ * which is not stored does nothing.
+ * <p>
+ * Selections of rows or columns ({@code mapRows}, {@code rangeCols}, etc.) produce sparse copies,
+ * not views. The transposed matrix is also a copy, with the same storage in the other orientation.
+ */
+public abstract class AbstractDMatrixSparse extends AbstractDMatrix {
+
+    @Serial
+    private static final long serialVersionUID = 4721564937856342198L;
+
+    protected static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    protected final int rows;
+    protected final int cols;
+    protected int[] pointers;
+    protected int[] indexes;
+    protected double[] values;
+
+    protected AbstractDMatrixSparse(int rows, int cols, int[] pointers, int[] indexes, double[] values) {
+        this.rows = rows;
+        this.cols = cols;
+        this.pointers = pointers;
+        this.indexes = indexes;
+        this.values = values;
+    }
+
+    /**
+     * @return true if the major axis is the row axis (CSR), false if it is the column axis (CSC)
+     */
+    protected abstract boolean byRows();
+
+    /**
+     * Builds a new sparse matrix with the same orientation over given storage.
+     */
+    protected abstract AbstractDMatrixSparse newInstance(int rows, int cols, int[] pointers, int[] indexes, double[] values);
+
+    @Override
+    public int rows() {
+        return rows;
+    }
+
+    @Override
+    public int cols() {
+        return cols;
+    }
+
+    /**
+     * @return number of stored values
+     */
+    public int nnz() {
+        return pointers[majorDim()];
+    }
+
+    /**
+     * @return number of slots on the major axis
+     */
+    protected final int majorDim() {
+        return byRows() ? rows : cols;
+    }
+
+    /**
+     * @return size of the minor axis
+     */
+    protected final int minorDim() {
+        return byRows() ? cols : rows;
+    }
+
+    private int find(int major, int minor) {
+        return Arrays.binarySearch(indexes, pointers[major], pointers[major + 1], minor);
+    }
+
+    @Override
+    public double get(int row, int col) {
+        int pos = byRows() ? find(row, col) : find(col, row);
+        return pos >= 0 ? values[pos] : 0;
+    }
+
+    @Override
+    public void set(int row, int col, double value) {
+        int major = byRows() ? row : col;
+        int minor = byRows() ? col : row;
+        int pos = find(major, minor);
+        if (pos >= 0) {
+            values[pos] = value;
+        } else if (value != 0) {
+            insert(major, -pos - 1, minor, value);
+        }
+    }
+
+    @Override
+    public void inc(int row, int col, double value) {
+        int major = byRows() ? row : col;
+        int minor = byRows() ? col : row;
+        int pos = find(major, minor);
+        if (pos >= 0) {
+            values[pos] += value;
+        } else if (value != 0) {
+            insert(major, -pos - 1, minor, value);
+        }
+    }
+
+    private void insert(int major, int pos, int minor, double value) {
+        int nnz = nnz();
+        if (nnz == indexes.length) {
+            int capacity = Math.max(8, nnz + (nnz >> 1));
+            indexes = Arrays.copyOf(indexes, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        System.arraycopy(indexes, pos, indexes, pos + 1, nnz - pos);
+        System.arraycopy(values, pos, values, pos + 1, nnz - pos);
+        indexes[pos] = minor;
+        values[pos] = value;
+        for (int i = major + 1; i < pointers.length; i++) {
+            pointers[i]++;
+        }
+    }
+
+    /**
+     * Sparse vector with a copy of the values from a slot of the major axis.
+     */
+    protected DVectorSparse majorVector(int major) {
+        int start = pointers[major];
+        int end = pointers[major + 1];
+        return new DVectorSparse(minorDim(), end - start,
+                Arrays.copyOfRange(indexes, start, end), Arrays.copyOfRange(values, start, end));
+    }
+
+    /**
+     * Sparse vector with a copy of the values from a position of the minor axis.
+     */
+    protected DVectorSparse minorVector(int minor) {
+        DVectorSparse v = DVectorSparse.empty(majorDim());
+        for (int i = 0; i < majorDim(); i++) {
+            int pos = find(i, minor);
+            if (pos >= 0) {
+                v.set(i, values[pos]);
+            }
+        }
+        return v;
+    }
+
+    private DVector vectorTo(DVector to, DVectorSparse v) {
+        to.fill(0);
+        for (int i = 0; i < v.nnz(); i++) {
+            to.set(v.indexes()[i], v.values()[i]);
+        }
+        return to;
+    }
+
+    @Override
+    public DVector mapRow(int row) {
+        return byRows() ? majorVector(row) : minorVector(row);
+    }
+
+    @Override
+    public DVector mapRowTo(DVector to, int row) {
+        return vectorTo(to, (DVectorSparse) mapRow(row));
+    }
+
+    @Override
+    public DVector mapCol(int col) {
+        return byRows() ? minorVector(col) : majorVector(col);
+    }
+
+    @Override
+    public DVector mapColTo(DVector to, int col) {
+        return vectorTo(to, (DVectorSparse) mapCol(col));
+    }
+
+    /**
+     * Builds a copy with the selected slots from the major axis.
+     */
+    private AbstractDMatrixSparse selectMajor(int[] sel) {
+        int[] p = new int[sel.length + 1];
+        for (int i = 0; i < sel.length; i++) {
+            p[i + 1] = p[i] + pointers[sel[i] + 1] - pointers[sel[i]];
+        }
+        int[] idx = new int[p[sel.length]];
+        double[] val = new double[p[sel.length]];
+        for (int i = 0; i < sel.length; i++) {
+            int start = pointers[sel[i]];
+            System.arraycopy(indexes, start, idx, p[i], p[i + 1] - p[i]);
+            System.arraycopy(values, start, val, p[i], p[i + 1] - p[i]);
+        }
+        return byRows()
+                ? newInstance(sel.length, cols, p, idx, val)
+                : newInstance(rows, sel.length, p, idx, val);
+    }
+
+    /**
+     * Builds a copy with the selected positions from the minor axis.
+     */
+    private AbstractDMatrixSparse selectMinor(int[] sel) {
+        int major = majorDim();
+        int[] p = new int[major + 1];
+        int[] idx = new int[Math.min(nnz(), 16)];
+        double[] val = new double[idx.length];
+        int len = 0;
+        for (int i = 0; i < major; i++) {
+            for (int j = 0; j < sel.length; j++) {
+                int pos = find(i, sel[j]);
+                if (pos >= 0) {
+                    if (len == idx.length) {
+                        idx = Arrays.copyOf(idx, Math.max(8, len * 2));
+                        val = Arrays.copyOf(val, idx.length);
+                    }
+                    idx[len] = j;
+                    val[len] = values[pos];
+                    len++;
+                }
+            }
+            p[i + 1] = len;
+        }
+        return byRows()
+                ? newInstance(rows, sel.length, p, idx, val)
+                : newInstance(sel.length, cols, p, idx, val);
+    }
+
+    @Override
+    public DMatrix mapRows(int... indexes) {
+        return byRows() ? selectMajor(indexes) : selectMinor(indexes);
+    }
+
+    @Override
+    public DMatrix mapRowsTo(DMatrix to, int... indexes) {
+        return copyTo(to, mapRows(indexes));
+    }
+
+    @Override
+    public DMatrix mapCols(int... indexes) {
+        return byRows() ? selectMinor(indexes) : selectMajor(indexes);
+    }
+
+    @Override
+    public DMatrix mapColsTo(DMatrix to, int... indexes) {
+        return copyTo(to, mapCols(indexes));
+    }
+
+    @Override
+    public DMatrix rangeRows(int start, int end) {
+        return mapRows(IntArrays.newSeq(start, end));
+    }
+
+    @Override
+    public DMatrix rangeRowsTo(DMatrix to, int start, int end) {
+        return mapRowsTo(to, IntArrays.newSeq(start, end));
+    }
+
+    @Override
+    public DMatrix rangeCols(int start, int end) {
+        return mapCols(IntArrays.newSeq(start, end));
+    }
+
+    @Override
+    public DMatrix rangeColsTo(DMatrix to, int start, int end) {
+        return mapColsTo(to, IntArrays.newSeq(start, end));
+    }
+
+    private static DMatrix copyTo(DMatrix to, DMatrix from) {
+        for (int i = 0; i < from.rows(); i++) {
+            for (int j = 0; j < from.cols(); j++) {
+                to.set(i, j, from.get(i, j));
+            }
+        }
+        return to;
+    }
+
+    @Override
+    public DMatrix mul(double x) {
+        for (int i = 0; i < nnz(); i++) {
+            values[i] *= x;
+        }
+        return this;
+    }
+
+    @Override
+    public DMatrix div(double x) {
+        for (int i = 0; i < nnz(); i++) {
+            values[i] /= x;
+        }
+        return this;
+    }
+
+    /**
+     * Applies the function on all values. If the function maps zero into zero,
+     * only the stored values are transformed.
+     */
+    @Override
+    public DMatrix apply(Double2DoubleFunction fun) {
+        if (fun.applyAsDouble(0) != 0) {
+            return super.apply(fun);
+        }
+        for (int i = 0; i < nnz(); i++) {
+            values[i] = fun.applyAsDouble(values[i]);
+        }
+        return this;
+    }
+
+    @Override
+    public double sum() {
+        double sum = 0;
+        for (int i = 0; i < nnz(); i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public AbstractDMatrixSparse copy() {
+        int nnz = nnz();
+        return newInstance(rows, cols, Arrays.copyOf(pointers, pointers.length),
+                Arrays.copyOf(indexes, nnz), Arrays.copyOf(values, nnz));
+    }
+
+    /**
+     * Transposes the compressed storage: the result has the minor axis as major axis.
+     * This is how a CSR matrix is converted into a CSC one and vice versa.
+     *
+     * @return pointers, indexes and values of the transposed storage
+     */
+    protected Compressed transposeStorage() {
+        int major = majorDim();
+        int minor = minorDim();
+        int nnz = nnz();
+        int[] p = new int[minor + 1];
+        for (int i = 0; i < nnz; i++) {
+            p[indexes[i] + 1]++;
+        }
+        for (int i = 0; i < minor; i++) {
+            p[i + 1] += p[i];
+        }
+        int[] next = Arrays.copyOf(p, minor);
+        int[] idx = new int[nnz];
+        double[] val = new double[nnz];
+        for (int i = 0; i < major; i++) {
+            for (int j = pointers[i]; j < pointers[i + 1]; j++) {
+                int pos = next[indexes[j]]++;
+                idx[pos] = i;
+                val[pos] = values[j];
+            }
+        }
+        return new Compressed(p, idx, val);
+    }
+
+    /**
+     * Compressed storage arrays.
+     */
+    protected record Compressed(int[] pointers, int[] indexes, double[] values) {
+    }
+
+    /**
+     * Multiplies two matrices stored in compressed row format using Gustavson's algorithm.
+     * The left matrix has {@code m} rows and the right matrix has {@code n} columns.
+     * Slots are processed in parallel chunks, each chunk accumulates its rows into a dense
+     * work array with a marker for touched positions.
+     *
+     * @return compressed row storage of the product
+     */
+    protected static Compressed multiply(int m, int n, int[] ap, int[] ai, double[] av, int[] bp, int[] bi, double[] bv) {
+        final int chunk = 256;
+        int chunks = (m + chunk - 1) / chunk;
+        Compressed[] parts = new Compressed[chunks];
+
+        IntStream stream = IntStream.range(0, chunks);
+        if (ap[m] > PARALLEL_THRESHOLD) {
+            stream = stream.parallel();
+        }
+        stream.forEach(c -> {
+            int start = c * chunk;
+            int end = Math.min(m, start + chunk);
+            double[] acc = new double[n];
+            int[] marker = new int[n];
+            Arrays.fill(marker, -1);
+            int[] touched = new int[n];
+
+            int[] p = new int[end - start + 1];
+            int[] idx = new int[16];
+            double[] val = new double[16];
+            int len = 0;
+            for (int i = start; i < end; i++) {
+                int count = 0;
+                for (int pa = ap[i]; pa < ap[i + 1]; pa++) {
+                    int k = ai[pa];
+                    double a = av[pa];
+                    for (int pb = bp[k]; pb < bp[k + 1]; pb++) {
+                        int j = bi[pb];
+                        if (marker[j] != i) {
+                            marker[j] = i;
+                            touched[count++] = j;
+                            acc[j] = 0;
+                        }
+                        acc[j] += a * bv[pb];
+                    }
+                }
+                Arrays.sort(touched, 0, count);
+                if (len + count > idx.length) {
+                    idx = Arrays.copyOf(idx, Math.max(len + count, idx.length * 2));
+                    val = Arrays.copyOf(val, idx.length);
+                }
+                for (int t = 0; t < count; t++) {
+                    idx[len] = touched[t];
+                    val[len] = acc[touched[t]];
+                    len++;
+                }
+                p[i - start + 1] = len;
+            }
+            parts[c] = new Compressed(p, idx, val);
+        });
+
+        int[] p = new int[m + 1];
+        int nnz = 0;
+        for (Compressed part : parts) {
+            nnz += part.pointers[part.pointers.length - 1];
+        }
+        int[] idx = new int[nnz];
+        double[] val = new double[nnz];
+        int pos = 0;
+        for (int c = 0; c < chunks; c++) {
+            Compressed part = parts[c];
+            int len = part.pointers[part.pointers.length - 1];
+            System.arraycopy(part.indexes, 0, idx, pos, len);
+            System.arraycopy(part.values, 0, val, pos, len);
+            for (int i = 1; i < part.pointers.length; i++) {
+                p[c * chunk + i] = pos + part.pointers[i];
+            }
+            pos += len;
+        }
+        return new Compressed(p, idx, val);
+    }
+}
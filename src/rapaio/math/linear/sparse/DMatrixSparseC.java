@@ -0,0 +1,240 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package rapaio.math.linear.sparse;
+
+import java.io.Serial;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import rapaio.data.Frame;
+import rapaio.data.Var;
+import rapaio.math.linear.DMatrix;
+import rapaio.math.linear.DVector;
+import rapaio.math.linear.dense.DMatrixDenseC;
+import rapaio.math.linear.dense.DVectorDense;
+
+/**
+ * Sparse matrix stored in compressed sparse column format (CSC).
+ * <p>
+ * Non-zero values of column {@code j} are stored in {@code values[colPointers[j]]} up to
+ * {@code values[colPointers[j+1]]} (exclusive) and their rows in {@code rowIndexes}
+ * on the same positions, in increasing order.
+ * <p>
+ * Iteration over the non-zero values of a column is cheap, iteration over the non-zero values of a
+ * row requires a binary search for each column. {@link #t()} builds a {@link DMatrixSparseR} from
+ * copies of the storage arrays. The copy is linear in the number of non-zero values and needs no
+ * reordering, and later changes of one matrix are not seen by the other.
+ */
+public class DMatrixSparseC extends AbstractDMatrixSparse {
+
+    @Serial
+    private static final long serialVersionUID = -3385476937616403227L;
+
+    private static final int SLICE_SIZE = 512;
+
+    /**
+     * Builds a sparse matrix which contains only zero values.
+     *
+     * @param rows number of rows
+     * @param cols number of columns
+     * @return new sparse matrix
+     */
+    public static DMatrixSparseC empty(int rows, int cols) {
+        return new DMatrixSparseC(rows, cols, new int[cols + 1], new int[0], new double[0]);
+    }
+
+    /**
+     * Builds a sparse matrix over given compressed column storage.
+     *
+     * @param rows        number of rows
+     * @param cols        number of columns
+     * @param colPointers column pointers, of size {@code cols + 1}
+     * @param rowIndexes  row indexes of stored values
+     * @param values      stored values
+     * @return new sparse matrix
+     */
+    public static DMatrixSparseC wrap(int rows, int cols, int[] colPointers, int[] rowIndexes, double[] values) {
+        return new DMatrixSparseC(rows, cols, colPointers, rowIndexes, values);
+    }
+
+    /**
+     * Copies the non-zero values of a matrix into a new compressed column sparse matrix.
+     *
+     * @param m source matrix
+     * @return new sparse matrix
+     */
+    public static DMatrixSparseC copy(DMatrix m) {
+        if (m instanceof DMatrixSparseC mc) {
+            return (DMatrixSparseC) mc.copy();
+        }
+        if (m instanceof DMatrixSparseR mr) {
+            Compressed c = mr.transposeStorage();
+            return new DMatrixSparseC(m.rows(), m.cols(), c.pointers(), c.indexes(), c.values());
+        }
+        // a column of this matrix is a row in the transposed matrix
+        return DMatrixSparseR.copy(m.t()).t();
+    }
+
+    /**
+     * Copies the non-zero values from a data frame into a new compressed column sparse matrix.
+     * Data is collected from frame using {@link Var#getDouble(int)} calls, no dense
+     * storage is allocated.
+     *
+     * @param df data frame
+     * @return new sparse matrix
+     */
+    public static DMatrixSparseC copy(Frame df) {
+        return copy(df.varStream().toArray(Var[]::new));
+    }
+
+    /**
+     * Copies the non-zero values from a list of variables into a new compressed column sparse matrix.
+     *
+     * @param vars array of variables
+     * @return new sparse matrix
+     */
+    public static DMatrixSparseC copy(Var... vars) {
+        int rows = vars[0].size();
+        DMatrixSparseR.Builder builder = new DMatrixSparseR.Builder(vars.length, rows);
+        for (Var var : vars) {
+            for (int i = 0; i < rows; i++) {
+                builder.add(i, var.getDouble(i));
+            }
+            builder.endRow();
+        }
+        return builder.build().t();
+    }
+
+    public DMatrixSparseC(int rows, int cols, int[] colPointers, int[] rowIndexes, double[] values) {
+        super(rows, cols, colPointers, rowIndexes, values);
+    }
+
+    @Override
+    protected boolean byRows() {
+        return false;
+    }
+
+    @Override
+    protected AbstractDMatrixSparse newInstance(int rows, int cols, int[] pointers, int[] indexes, double[] values) {
+        return new DMatrixSparseC(rows, cols, pointers, indexes, values);
+    }
+
+    public int[] colPointers() {
+        return pointers;
+    }
+
+    public int[] rowIndexes() {
+        return indexes;
+    }
+
+    public double[] values() {
+        return values;
+    }
+
+    @Override
+    public DVectorSparse mapCol(int col) {
+        return majorVector(col);
+    }
+
+    @Override
+    public DVector dot(DVector b) {
+        if (cols != b.size()) {
+            throw new IllegalArgumentException(
+                    "Matrix (%d x %d) and vector ( %d ) are not conform for multiplication.".formatted(rows, cols, b.size()));
+        }
+        // result is a linear combination of columns, slices of columns are accumulated separately
+        int slices = cols / SLICE_SIZE;
+        double[][] cslices = new double[slices + 1][];
+        IntStream stream = IntStream.range(0, slices + 1);
+        if (slices > 0 && nnz() > PARALLEL_THRESHOLD) {
+            stream = stream.parallel();
+        }
+        stream.forEach(s -> {
+            double[] slice = new double[rows];
+            for (int j = s * SLICE_SIZE; j < Math.min(cols, (s + 1) * SLICE_SIZE); j++) {
+                double x = b.get(j);
+                if (x == 0) {
+                    continue;
+                }
+                for (int p = pointers[j]; p < pointers[j + 1]; p++) {
+                    slice[indexes[p]] += values[p] * x;
+                }
+            }
+            cslices[s] = slice;
+        });
+        double[] c = cslices[0];
+        for (int s = 1; s < cslices.length; s++) {
+            for (int i = 0; i < rows; i++) {
+                c[i] += cslices[s][i];
+            }
+        }
+        return new DVectorDense(0, rows, c);
+    }
+
+    @Override
+    public DMatrix dot(DMatrix b) {
+        if (cols != b.rows()) {
+            throw new IllegalArgumentException("Matrices not conform to multiplication: [%d,%d] [%d,%d]."
+                    .formatted(rows, cols, b.rows(), b.cols()));
+        }
+        if (b instanceof AbstractDMatrixSparse bs) {
+            // the product is computed as the transpose of b^T a^T, where both transposes are
+            // compressed row matrices over the existing compressed column storage
+            DMatrixSparseC bc = (bs instanceof DMatrixSparseC bsc) ? bsc : copy(bs);
+            Compressed c = multiply(b.cols(), rows, bc.pointers, bc.indexes, bc.values, pointers, indexes, values);
+            return new DMatrixSparseC(rows, b.cols(), c.pointers(), c.indexes(), c.values());
+        }
+
+        // each column of the result is a linear combination of columns of this matrix
+        int n = b.cols();
+        double[] c = new double[rows * n];
+        IntStream stream = IntStream.range(0, n);
+        if ((long) nnz() * n > PARALLEL_THRESHOLD) {
+            stream = stream.parallel();
+        }
+        stream.forEach(j -> {
+            int cpos = j * rows;
+            for (int k = 0; k < cols; k++) {
+                double x = b.get(k, j);
+                if (x == 0) {
+                    continue;
+                }
+                for (int p = pointers[k]; p < pointers[k + 1]; p++) {
+                    c[cpos + indexes[p]] += values[p] * x;
+                }
+            }
+        });
+        return new DMatrixDenseC(0, rows, n, c);
+    }
+
+    /**
+     * The transposed matrix has the same storage with the other orientation, which needs no
+     * reordering of the values. The storage arrays are copied, since inserting values changes
+     * them in place.
+     */
+    @Override
+    public DMatrixSparseR t() {
+        int nnz = nnz();
+        return new DMatrixSparseR(cols, rows, Arrays.copyOf(pointers, pointers.length),
+                Arrays.copyOf(indexes, nnz), Arrays.copyOf(values, nnz));
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package rapaio.math.linear.sparse;
+
+import java.io.Serial;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import rapaio.data.Frame;
+import rapaio.data.Var;
+import rapaio.math.linear.DMatrix;
+import rapaio.math.linear.DVector;
+import rapaio.math.linear.dense.DMatrixDenseR;
+import rapaio.math.linear.dense.DVectorDense;
+
+/**
+ * Sparse matrix stored in compressed sparse row format (CSR).
+ * <p>
+ * Non-zero values of row {@code i} are stored in {@code values[rowPointers[i]]} up to
+ * {@code values[rowPointers[i+1]]} (exclusive) and their columns in {@code colIndexes}
+ * on the same positions, in increasing order.
+ * <p>
+ * Iteration over the non-zero values of a row is cheap, iteration over the non-zero values of a
+ * column requires a binary search for each row. The transposed matrix is a {@link DMatrixSparseC}
+ * with a copy of the storage arrays in the same order, thus {@link #t()} costs one array copy of
+ * the non-zero values and their indexes, without any reordering, and the two matrices can be
+ * changed independently.
+ */
+public class DMatrixSparseR extends AbstractDMatrixSparse {
+
+    @Serial
+    private static final long serialVersionUID = 2946093516823702631L;
+
+    /**
+     * Builds a sparse matrix which contains only zero values.
+     *
+     * @param rows number of rows
+     * @param cols number of columns
+     * @return new sparse matrix
+     */
+    public static DMatrixSparseR empty(int rows, int cols) {
+        return new DMatrixSparseR(rows, cols, new int[rows + 1], new int[0], new double[0]);
+    }
+
+    /**
+     * Builds a sparse matrix over given compressed row storage.
+     *
+     * @param rows        number of rows
+     * @param cols        number of columns
+     * @param rowPointers row pointers, of size {@code rows + 1}
+     * @param colIndexes  column indexes of stored values
+     * @param values      stored values
+     * @return new sparse matrix
+     */
+    public static DMatrixSparseR wrap(int rows, int cols, int[] rowPointers, int[] colIndexes, double[] values) {
+        return new DMatrixSparseR(rows, cols, rowPointers, colIndexes, values);
+    }
+
+    /**
+     * Copies the non-zero values of a matrix into a new compressed row sparse matrix.
+     *
+     * @param m source matrix
+     * @return new sparse matrix
+     */
+    public static DMatrixSparseR copy(DMatrix m) {
+        if (m instanceof DMatrixSparseR mr) {
+            return (DMatrixSparseR) mr.copy();
+        }
+        if (m instanceof DMatrixSparseC mc) {
+            Compressed c = mc.transposeStorage();
+            return new DMatrixSparseR(m.rows(), m.cols(), c.pointers(), c.indexes(), c.values());
+        }
+        Builder builder = new Builder(m.rows(), m.cols());
+        for (int i = 0; i < m.rows(); i++) {
+            for (int j = 0; j < m.cols(); j++) {
+                builder.add(j, m.get(i, j));
+            }
+            builder.endRow();
+        }
+        return builder.build();
+    }
+
+    /**
+     * Copies the non-zero values from a data frame into a new compressed row sparse matrix.
+     * Data is collected from frame using {@link Var#getDouble(int)} calls, no dense
+     * storage is allocated.
+     *
+     * @param df data frame
+     * @return new sparse matrix
+     */
+    public static DMatrixSparseR copy(Frame df) {
+        return copy(df.varStream().toArray(Var[]::new));
+    }
+
+    /**
+     * Copies the non-zero values from a list of variables into a new compressed row sparse matrix.
+     *
+     * @param vars array of variables
+     * @return new sparse matrix
+     */
+    public static DMatrixSparseR copy(Var... vars) {
+        int rows = vars[0].size();
+        Builder builder = new Builder(rows, vars.length);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < vars.length; j++) {
+                builder.add(j, vars[j].getDouble(i));
+            }
+            builder.endRow();
+        }
+        return builder.build();
+    }
+
+    public DMatrixSparseR(int rows, int cols, int[] rowPointers, int[] colIndexes, double[] values) {
+        super(rows, cols, rowPointers, colIndexes, values);
+    }
+
+    @Override
+    protected boolean byRows() {
+        return true;
+    }
+
+    @Override
+    protected AbstractDMatrixSparse newInstance(int rows, int cols, int[] pointers, int[] indexes, double[] values) {
+        return new DMatrixSparseR(rows, cols, pointers, indexes, values);
+    }
+
+    public int[] rowPointers() {
+        return pointers;
+    }
+
+    public int[] colIndexes() {
+        return indexes;
+    }
+
+    public double[] values() {
+        return values;
+    }
+
+    @Override
+    public DVectorSparse mapRow(int row) {
+        return majorVector(row);
+    }
+
+    @Override
+    public DVector dot(DVector b) {
+        if (cols != b.size()) {
+            throw new IllegalArgumentException(
+                    "Matrix (%d x %d) and vector ( %d ) are not conform for multiplication.".formatted(rows, cols, b.size()));
+        }
+        double[] x = b.valueStream().toArray();
+        double[] c = new double[rows];
+        IntStream stream = IntStream.range(0, rows);
+        if (nnz() > PARALLEL_THRESHOLD) {
+            stream = stream.parallel();
+        }
+        stream.forEach(i -> {
+            double s = 0;
+            for (int p = pointers[i]; p < pointers[i + 1]; p++) {
+                s = Math.fma(values[p], x[indexes[p]], s);
+            }
+            c[i] = s;
+        });
+        return new DVectorDense(0, rows, c);
+    }
+
+    @Override
+    public DMatrix dot(DMatrix b) {
+        if (cols != b.rows()) {
+            throw new IllegalArgumentException("Matrices not conform to multiplication: [%d,%d] [%d,%d]."
+                    .formatted(rows, cols, b.rows(), b.cols()));
+        }
+        if (b instanceof AbstractDMatrixSparse bs) {
+            DMatrixSparseR br = copyIfNeeded(bs);
+            Compressed c = multiply(rows, b.cols(), pointers, indexes, values, br.pointers, br.indexes, br.values);
+            return new DMatrixSparseR(rows, b.cols(), c.pointers(), c.indexes(), c.values());
+        }
+
+        // each row of the result is a linear combination of rows from the dense right matrix
+        int n = b.cols();
+        DMatrixDenseR br = (b instanceof DMatrixDenseR bd) ? bd : denseRowCopy(b);
+        double[] barray = br.array();
+        int boffset = br.offset();
+        int bstride = br.rowStride();
+        double[] c = new double[rows * n];
+        IntStream stream = IntStream.range(0, rows);
+        if ((long) nnz() * n > PARALLEL_THRESHOLD) {
+            stream = stream.parallel();
+        }
+        stream.forEach(i -> {
+            int cpos = i * n;
+            for (int p = pointers[i]; p < pointers[i + 1]; p++) {
+                double a = values[p];
+                int bpos = boffset + indexes[p] * bstride;
+                for (int j = 0; j < n; j++) {
+                    c[cpos + j] += a * barray[bpos + j];
+                }
+            }
+        });
+        return new DMatrixDenseR(0, rows, n, c);
+    }
+
+    private static DMatrixDenseR denseRowCopy(DMatrix m) {
+        DMatrixDenseR copy = new DMatrixDenseR(m.rows(), m.cols());
+        for (int i = 0; i < m.rows(); i++) {
+            for (int j = 0; j < m.cols(); j++) {
+                copy.set(i, j, m.get(i, j));
+            }
+        }
+        return copy;
+    }
+
+    private static DMatrixSparseR copyIfNeeded(AbstractDMatrixSparse m) {
+        return (m instanceof DMatrixSparseR mr) ? mr : copy(m);
+    }
+
+    /**
+     * The transposed matrix has the same storage with the other orientation, which needs no
+     * reordering of the values. The storage arrays are copied, since inserting values changes
+     * them in place.
+     */
+    @Override
+    public DMatrixSparseC t() {
+        int nnz = nnz();
+        return new DMatrixSparseC(cols, rows, Arrays.copyOf(pointers, pointers.length),
+                Arrays.copyOf(indexes, nnz), Arrays.copyOf(values, nnz));
+    }
+
+    /**
+     * Incremental builder which appends rows one after another.
+     */
+    static final class Builder {
+
+        private final int rows;
+        private final int cols;
+        private final int[] pointers;
+        private int[] indexes = new int[16];
+        private double[] values = new double[16];
+        private int row = 0;
+        private int len = 0;
+
+        Builder(int rows, int cols) {
+            this.rows = rows;
+            this.cols = cols;
+            this.pointers = new int[rows + 1];
+        }
+
+        void add(int col, double value) {
+            if (value == 0) {
+                return;
+            }
+            if (len == indexes.length) {
+                indexes = Arrays.copyOf(indexes, len * 2);
+                values = Arrays.copyOf(values, len * 2);
+            }
+            indexes[len] = col;
+            values[len] = value;
+            len++;
+        }
+
+        void endRow() {
+            pointers[++row] = len;
+        }
+
+        DMatrixSparseR build() {
+            return new DMatrixSparseR(rows, cols, pointers,
+                    Arrays.copyOf(indexes, len), Arrays.copyOf(values, len));
+        }
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package rapaio.math.linear.sparse;
+
+import java.io.Serial;
+import java.util.Arrays;
+import java.util.stream.DoubleStream;
+
+import rapaio.data.VarDouble;
+import rapaio.math.linear.DVector;
+import rapaio.math.linear.dense.AbstractDVector;
+import rapaio.math.linear.dense.DVectorDense;
+
+/**
+ * Sparse vector which stores only the non-zero values, together with their positions.
+ * <p>
+ * Positions are kept sorted in increasing order, thus reading a value is a binary search
+ * over the positions. Setting a value on a position which is not stored is an insertion
+ * and requires shifting the stored values, setting zero on a position which is not stored
+ * does nothing. Operations which preserve zeros are applied only on stored values.
+ */
+public class DVectorSparse extends AbstractDVector {
+
+    @Serial
+    private static final long serialVersionUID = -2406853062232843451L;
+
+    /**
+     * Builds an empty sparse vector, which contains only zero values.
+     *
+     * @param size size of the vector
+     * @return new sparse vector
+     */
+    public static DVectorSparse empty(int size) {
+        return new DVectorSparse(size, 0, new int[0], new double[0]);
+    }
+
+    /**
+     * Builds a sparse vector with the non-zero values from a given vector.
+     *
+     * @param v source vector
+     * @return new sparse vector
+     */
+    public static DVectorSparse copy(DVector v) {
+        if (v instanceof DVectorSparse vs) {
+            return vs.copy();
+        }
+        int nnz = 0;
+        for (int i = 0; i < v.size(); i++) {
+            if (v.get(i) != 0) {
+                nnz++;
+            }
+        }
+        int[] indexes = new int[nnz];
+        double[] values = new double[nnz];
+        int pos = 0;
+        for (int i = 0; i < v.size(); i++) {
+            double value = v.get(i);
+            if (value != 0) {
+                indexes[pos] = i;
+                values[pos] = value;
+                pos++;
+            }
+        }
+        return new DVectorSparse(v.size(), nnz, indexes, values);
+    }
+
+    /**
+     * Builds a sparse vector over given arrays. The first {@code nnz} positions from {@code indexes}
+     * must be sorted increasingly and have corresponding values in {@code values}.
+     *
+     * @param size    size of the vector
+     * @param nnz     number of stored values
+     * @param indexes positions of stored values
+     * @param values  stored values
+     * @return new sparse vector
+     */
+    public static DVectorSparse wrap(int size, int nnz, int[] indexes, double[] values) {
+        return new DVectorSparse(size, nnz, indexes, values);
+    }
+
+    private final int size;
+    private int nnz;
+    private int[] indexes;
+    private double[] values;
+
+    public DVectorSparse(int size, int nnz, int[] indexes, double[] values) {
+        this.size = size;
+        this.nnz = nnz;
+        this.indexes = indexes;
+        this.values = values;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of stored values
+     */
+    public int nnz() {
+        return nnz;
+    }
+
+    /**
+     * @return array with positions of stored values, only the first {@link #nnz()} are used
+     */
+    public int[] indexes() {
+        return indexes;
+    }
+
+    /**
+     * @return array with stored values, only the first {@link #nnz()} are used
+     */
+    public double[] values() {
+        return values;
+    }
+
+    @Override
+    public DVector map(int... sel) {
+        return mapTo(empty(sel.length), sel);
+    }
+
+    @Override
+    public DVector mapTo(DVector to, int[] sel) {
+        for (int i = 0; i < sel.length; i++) {
+            to.set(i, get(sel[i]));
+        }
+        return to;
+    }
+
+    @Override
+    public DVectorSparse copy() {
+        return new DVectorSparse(size, nnz, Arrays.copyOf(indexes, nnz), Arrays.copyOf(values, nnz));
+    }
+
+    @Override
+    public DVectorDense denseCopy(int len) {
+        double[] copy = new double[len];
+        for (int i = 0; i < nnz && indexes[i] < len; i++) {
+            copy[indexes[i]] = values[i];
+        }
+        return new DVectorDense(0, len, copy);
+    }
+
+    @Override
+    public double get(int i) {
+        int pos = Arrays.binarySearch(indexes, 0, nnz, i);
+        return pos >= 0 ? values[pos] : 0;
+    }
+
+    @Override
+    public void set(int i, double value) {
+        int pos = Arrays.binarySearch(indexes, 0, nnz, i);
+        if (pos >= 0) {
+            values[pos] = value;
+        } else if (value != 0) {
+            insert(-pos - 1, i, value);
+        }
+    }
+
+    @Override
+    public void inc(int i, double value) {
+        int pos = Arrays.binarySearch(indexes, 0, nnz, i);
+        if (pos >= 0) {
+            values[pos] += value;
+        } else if (value != 0) {
+            insert(-pos - 1, i, value);
+        }
+    }
+
+    private void insert(int pos, int index, double value) {
+        if (nnz == indexes.length) {
+            int capacity = Math.max(8, nnz + (nnz >> 1));
+            indexes = Arrays.copyOf(indexes, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        System.arraycopy(indexes, pos, indexes, pos + 1, nnz - pos);
+        System.arraycopy(values, pos, values, pos + 1, nnz - pos);
+        indexes[pos] = index;
+        values[pos] = value;
+        nnz++;
+    }
+
+    @Override
+    public DVector fill(double value) {
+        if (value == 0) {
+            nnz = 0;
+            return this;
+        }
+        indexes = new int[size];
+        values = new double[size];
+        for (int i = 0; i < size; i++) {
+            indexes[i] = i;
+            values[i] = value;
+        }
+        nnz = size;
+        return this;
+    }
+
+    @Override
+    public DVector mul(double x) {
+        for (int i = 0; i < nnz; i++) {
+            values[i] *= x;
+        }
+        return this;
+    }
+
+    @Override
+    public DVector div(double x) {
+        for (int i = 0; i < nnz; i++) {
+            values[i] /= x;
+        }
+        return this;
+    }
+
+    @Override
+    public double dot(DVector b) {
+        checkConformance(b);
+        double s = 0;
+        if (b instanceof DVectorSparse bs) {
+            // merge the two sorted lists of positions
+            int i = 0;
+            int j = 0;
+            while (i < nnz && j < bs.nnz) {
+                if (indexes[i] == bs.indexes[j]) {
+                    s = Math.fma(values[i++], bs.values[j++], s);
+                } else if (indexes[i] < bs.indexes[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return s;
+        }
+        if (b instanceof DVectorDense bd) {
+            double[] array = bd.array();
+            int offset = bd.offset();
+            for (int i = 0; i < nnz; i++) {
+                s = Math.fma(values[i], array[offset + indexes[i]], s);
+            }
+            return s;
+        }
+        for (int i = 0; i < nnz; i++) {
+            s = Math.fma(values[i], b.get(indexes[i]), s);
+        }
+        return s;
+    }
+
+    @Override
+    public double sum() {
+        double sum = 0;
+        for (int i = 0; i < nnz; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public DoubleStream valueStream() {
+        return DoubleStream.of(denseCopy().array());
+    }
+
+    @Override
+    public VarDouble dv() {
+        return VarDouble.wrap(denseCopy().array());
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package rapaio.math.optimization;
+
+import java.io.Serializable;
+
+/**
+ * Learning rate schedule used by stochastic solvers. A schedule gives the step size used
+ * for each update, as a function of the number of updates performed so far.
+ */
+@FunctionalInterface
+public interface LearningRateSchedule extends Serializable {
+
+    /**
+     * Constant learning rate.
+     *
+     * @param rate learning rate value
+     * @return schedule with constant learning rate
+     */
+    static LearningRateSchedule constant(double rate) {
+        checkRate(rate);
+        return step -> rate;
+    }
+
+    /**
+     * Learning rate which decays polynomially: {@code rate / (1 + step)^power}.
+     * A power of {@code 0.5} is a common choice for convex problems, a power of {@code 1}
+     * satisfies the Robbins-Monro conditions.
+     *
+     * @param rate  initial learning rate
+     * @param power decay power
+     * @return schedule with inverse scaling learning rate
+     */
+    static LearningRateSchedule inverseScaling(double rate, double power) {
+        checkRate(rate);
+        if (!(power >= 0) || !Double.isFinite(power)) {
+            throw new IllegalArgumentException("Power must have a finite non negative value, power: %s.".formatted(power));
+        }
+        return step -> rate / Math.pow(1 + step, power);
+    }
+
+    /**
+     * Learning rate which decays exponentially: {@code rate * decay^step}.
+     *
+     * @param rate  initial learning rate
+     * @param decay decay factor for each update, in the interval (0,1]
+     * @return schedule with exponentially decaying learning rate
+     */
+    static LearningRateSchedule exponential(double rate, double decay) {
+        checkRate(rate);
+        if (!(decay > 0 && decay <= 1)) {
+            throw new IllegalArgumentException("Decay must have a value in interval (0,1], decay: %s.".formatted(decay));
+        }
+        return step -> rate * Math.pow(decay, step);
+    }
+
+    private static void checkRate(double rate) {
+        if (!(rate > 0) || !Double.isFinite(rate)) {
+            throw new IllegalArgumentException("Learning rate must have a finite positive value, rate: %s.".formatted(rate));
+        }
+    }
+
+    /**
+     * @param step number of updates performed so far
+     * @return learning rate for the next update
+     */
+    double rate(long step);
+}
@@ -0,0 +1,265 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package rapaio.math.optimization;
+
+import static java.lang.Math.abs;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import rapaio.data.VarDouble;
+import rapaio.math.functions.RDerivative;
+import rapaio.math.functions.RFunction;
+import rapaio.math.linear.DVector;
+import rapaio.math.optimization.linesearch.LineSearch;
+import rapaio.ml.common.param.ParamSet;
+import rapaio.ml.common.param.ValueParam;
+
+/**
+ * Stochastic first order solver which minimizes a function given as a sequence of mini batches.
+ * <p>
+ * Each mini batch provides its own objective function and derivative, usually the average loss over
+ * the instances from the batch. An epoch is a complete pass over the batches, which are obtained each time
+ * from {@link #batches}, thus batches can be produced lazily, for example from a stream or a chunked file reader,
+ * and only one batch at a time has to be kept in memory.
+ * <p>
+ * The weights are updated after each batch using plain stochastic gradient descent, gradient descent with
+ * momentum or Adam, with step sizes given by a {@link LearningRateSchedule}. Optionally, for plain and momentum
+ * updates, the step size from schedule is used as initial step for a {@link LineSearch} on the batch objective.
+ * <p>
+ * The error of an epoch is the average of batch objective values, each evaluated before the batch update.
+ * The solver converges when the absolute difference between the errors of two consecutive epochs is
+ * less than the tolerance.
+ */
+public class StochasticSolver extends ParamSet<StochasticSolver> implements Solver {
+
+    public static StochasticSolver newSolver() {
+        return new StochasticSolver();
+    }
+
+    @Serial
+    private static final long serialVersionUID = -4163524468452745166L;
+
+    /**
+     * Mini batch objective.
+     *
+     * @param f   objective function evaluated on the batch
+     * @param d1f derivative of the objective function evaluated on the batch
+     */
+    public record Batch(RFunction f, RDerivative d1f) implements Serializable {
+    }
+
+    public enum Method {
+        /**
+         * Plain stochastic gradient descent.
+         */
+        SGD,
+        /**
+         * Stochastic gradient descent with classical momentum.
+         */
+        MOMENTUM,
+        /**
+         * Adam method as described by Kingma and Ba in "Adam: A Method for Stochastic Optimization".
+         */
+        ADAM
+    }
+
+    /**
+     * Update method.
+     */
+    public final ValueParam<Method, StochasticSolver> method = new ValueParam<>(this, Method.ADAM, "method");
+
+    /**
+     * Learning rate schedule.
+     */
+    public final ValueParam<LearningRateSchedule, StochasticSolver> schedule =
+            new ValueParam<>(this, LearningRateSchedule.constant(0.01), "schedule");
+
+    /**
+     * Optional line search used with step size from schedule as initial value, ignored for Adam.
+     */
+    public final ValueParam<LineSearch, StochasticSolver> lineSearch = new ValueParam<>(this, null, "lineSearch", x -> true);
+
+    /**
+     * Momentum factor used by momentum method.
+     */
+    public final ValueParam<Double, StochasticSolver> momentum = new ValueParam<>(this, 0.9, "momentum",
+            v -> Double.isFinite(v) && v >= 0 && v < 1);
+
+    /**
+     * Exponential decay rate for the first moment estimates used by Adam.
+     */
+    public final ValueParam<Double, StochasticSolver> beta1 = new ValueParam<>(this, 0.9, "beta1",
+            v -> Double.isFinite(v) && v >= 0 && v < 1);
+
+    /**
+     * Exponential decay rate for the second moment estimates used by Adam.
+     */
+    public final ValueParam<Double, StochasticSolver> beta2 = new ValueParam<>(this, 0.999, "beta2",
+            v -> Double.isFinite(v) && v >= 0 && v < 1);
+
+    /**
+     * Small constant used by Adam for numerical stability.
+     */
+    public final ValueParam<Double, StochasticSolver> epsilon = new ValueParam<>(this, 1e-8, "epsilon",
+            v -> Double.isFinite(v) && v > 0);
+
+    /**
+     * Tolerance error admissible for accepting a convergent solution.
+     */
+    public final ValueParam<Double, StochasticSolver> tol = new ValueParam<>(this, 1e-10, "tol");
+
+    /**
+     * Maximum number of epochs.
+     */
+    public final ValueParam<Integer, StochasticSolver> maxIt = new ValueParam<>(this, 100, "maxIt");
+
+    /**
+     * Source of mini batches, a new iterator is requested for each epoch.
+     */
+    public final ValueParam<Iterable<Batch>, StochasticSolver> batches = new ValueParam<>(this, null, "batches", x -> true);
+
+    /**
+     * Initial value
+     */
+    public final ValueParam<DVector, StochasticSolver> x0 = new ValueParam<>(this, null, "x0", x -> true);
+
+    private DVector sol;
+
+    private List<DVector> solutions;
+    private VarDouble errors;
+    private boolean converged = false;
+
+    /**
+     * Builds a new solver with the same parameter values.
+     */
+    public StochasticSolver copy() {
+        return new StochasticSolver().copyParameterValues(this);
+    }
+
+    public String fullName() {
+        return "StochasticSolver{" + getStringParameterValues(true) + "}";
+    }
+
+    @Override
+    public StochasticSolver compute() {
+        converged = false;
+        errors = VarDouble.empty().name("errors");
+        solutions = new ArrayList<>();
+        sol = x0.get().copy();
+        solutions.add(sol.copy());
+
+        int len = sol.size();
+        double[] velocity = new double[len];
+        double[] m = new double[len];
+        double[] v = new double[len];
+        long step = 0;
+
+        for (int epoch = 0; epoch < maxIt.get(); epoch++) {
+            double sum = 0;
+            int count = 0;
+            for (Batch batch : batches.get()) {
+                sum += batch.f().apply(sol);
+                count++;
+
+                DVector g = batch.d1f().apply(sol);
+                double rate = schedule.get().rate(step++);
+                switch (method.get()) {
+                    case SGD -> {
+                        DVector p = g.mul(-1);
+                        sol.fma(searchStep(batch, p, rate), p);
+                    }
+                    case MOMENTUM -> {
+                        double mu = momentum.get();
+                        DVector p = g.mul(-1);
+                        double t = searchStep(batch, p, rate);
+                        for (int i = 0; i < len; i++) {
+                            velocity[i] = mu * velocity[i] + t * p.get(i);
+                            sol.inc(i, velocity[i]);
+                        }
+                    }
+                    case ADAM -> {
+                        double b1 = beta1.get();
+                        double b2 = beta2.get();
+                        double eps = epsilon.get();
+                        double c1 = 1 - Math.pow(b1, step);
+                        double c2 = 1 - Math.pow(b2, step);
+                        for (int i = 0; i < len; i++) {
+                            double gi = g.get(i);
+                            m[i] = b1 * m[i] + (1 - b1) * gi;
+                            v[i] = b2 * v[i] + (1 - b2) * gi * gi;
+                            sol.inc(i, -rate * (m[i] / c1) / (Math.sqrt(v[i] / c2) + eps));
+                        }
+                    }
+                }
+            }
+            if (count == 0) {
+                throw new IllegalArgumentException("Stochastic solver requires at least one batch.");
+            }
+            double error = sum / count;
+            errors.addDouble(error);
+            solutions.add(sol.copy());
+            if (epoch > 0 && abs(errors.getDouble(epoch - 1) - error) < tol.get()) {
+                converged = true;
+                break;
+            }
+        }
+        return this;
+    }
+
+    private double searchStep(Batch batch, DVector p, double rate) {
+        if (lineSearch.get() == null) {
+            return rate;
+        }
+        return lineSearch.get().search(batch.f(), batch.d1f(), sol, p, rate);
+    }
+
+    @Override
+    public String toString() {
+        return "solution: " + sol + ","
+                + "converged: " + converged + ","
+                + "iterations: " + (solutions == null ? 0 : solutions.size());
+    }
+
+    @Override
+    public List<DVector> solutions() {
+        return solutions;
+    }
+
+    @Override
+    public DVector solution() {
+        return sol;
+    }
+
+    @Override
+    public VarDouble errors() {
+        return errors;
+    }
+
+    @Override
+    public boolean hasConverged() {
+        return converged;
+    }
+}
@@ -45,7 +45,12 @@ public class EuclideanDistance implements Distance {
 
     @Override
     public double reduced(DVector x, DVector y) {
-        return x.subNew(y).apply(v -> v * v).sum();
+        double sum = 0;
+        for (int i = 0; i < x.size(); i++) {
+            double delta = x.get(i) - y.get(i);
+            sum += delta * delta;
+        }
+        return sum;
     }
 
     @Override
@@ -24,11 +24,17 @@ package rapaio.ml.common.kernel;
 import java.io.Serial;
 import java.util.Arrays;
 
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
 import rapaio.data.Frame;
+import rapaio.data.Var;
 import rapaio.math.linear.DVector;
+import rapaio.math.linear.FMatrix;
+import rapaio.math.linear.dense.AbstractDVectorStore;
+import rapaio.math.linear.dense.DMatrixDenseR;
+import rapaio.math.linear.dense.DVectorDense;
 import rapaio.ml.common.kernel.cache.KernelCache;
-import rapaio.ml.common.kernel.cache.MapKernelCache;
-import rapaio.ml.common.kernel.cache.SolidKernelCache;
+import rapaio.ml.common.kernel.cache.LRUKernelCache;
 
 /**
  * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a> at 1/16/15.
@@ -39,16 +45,33 @@ public abstract class AbstractKernel implements Kernel {
     private static final long serialVersionUID = -2216556261751685749L;
 
     protected String[] varNames;
-    private KernelCache cache;
+    private transient KernelCache cache;
+
+    // frame used to build the cache, its rows copied into a row major matrix and their squared norms
+    private transient Frame df;
+    private transient DMatrixDenseR x;
+    private transient double[] sqNorms;
 
     @Override
     public void buildKernelCache(String[] varNames, Frame df) {
         this.varNames = Arrays.copyOf(varNames, varNames.length);
-        if (df.rowCount() <= 10_000) {
-            cache = new SolidKernelCache(df);
-        } else {
-            cache = new MapKernelCache();
+        this.df = df;
+        int[] indexes = varIndexes(df);
+        int n = df.rowCount();
+        double[] array = new double[n * indexes.length];
+        for (int j = 0; j < indexes.length; j++) {
+            Var var = df.rvar(indexes[j]);
+            for (int i = 0; i < n; i++) {
+                array[i * indexes.length + j] = var.getDouble(i);
+            }
+        }
+        this.x = DMatrixDenseR.wrap(n, indexes.length, array);
+        this.sqNorms = new double[n];
+        for (int i = 0; i < n; i++) {
+            DVector row = x.mapRow(i);
+            sqNorms[i] = row.dot(row);
         }
+        cache = new LRUKernelCache(df);
     }
 
     @Override
@@ -56,48 +79,181 @@ public abstract class AbstractKernel implements Kernel {
         return false;
     }
 
-    protected double dotProd(Frame df1, int row1, Frame df2, int row2) {
+    /**
+     * Computes the squared euclidean distance between two vectors. Dense vectors are
+     * processed with vector instructions over their storage arrays.
+     */
+    protected double deltaSumSquares(DVector u, DVector v) {
+        if (u instanceof DVectorDense ud && v instanceof DVectorDense vd) {
+            double[] a = ud.array();
+            double[] b = vd.array();
+            int aOff = ud.offset();
+            int bOff = vd.offset();
+            int len = u.size();
+            int bound = AbstractDVectorStore.species.loopBound(len);
+            DoubleVector sum = DoubleVector.zero(AbstractDVectorStore.species);
+            int i = 0;
+            for (; i < bound; i += AbstractDVectorStore.speciesLen) {
+                DoubleVector delta = DoubleVector.fromArray(AbstractDVectorStore.species, a, aOff + i)
+                        .sub(DoubleVector.fromArray(AbstractDVectorStore.species, b, bOff + i));
+                sum = delta.fma(delta, sum);
+            }
+            double result = sum.reduceLanes(VectorOperators.ADD);
+            for (; i < len; i++) {
+                double delta = a[aOff + i] - b[bOff + i];
+                result += delta * delta;
+            }
+            return result;
+        }
         double result = 0;
-        for (String varName : varNames) {
-            result += df1.getDouble(row1, varName) * df2.getDouble(row2, varName);
+        for (int i = 0; i < u.size(); i++) {
+            double delta = u.get(i) - v.get(i);
+            result += delta * delta;
         }
         return result;
     }
 
-    protected double deltaSumSquares(Frame df1, int row1, Frame df2, int row2) {
-        double result = 0;
-        for (String varName : varNames) {
-            double delta = df1.getDouble(row1, varName) - df2.getDouble(row2, varName);
-            result += delta * delta;
+    /**
+     * Computes the kernel value between two vectors, given also their squared norms. Kernels which
+     * can be expressed through dot products and norms override this method together with
+     * {@link #usesSqNorms()}. The default implementation ignores the norms.
+     */
+    protected double compute(DVector u, double uSqNorm, DVector v, double vSqNorm) {
+        return compute(u, v);
+    }
+
+    /**
+     * @return true if the kernel uses the squared norms of the vectors, otherwise the norms are not computed
+     */
+    protected boolean usesSqNorms() {
+        return false;
+    }
+
+    /**
+     * @return true if the kernel is a function of the squared euclidean distance between vectors,
+     * computed by {@link #radial(double)}
+     */
+    protected boolean isRadial() {
+        return false;
+    }
+
+    /**
+     * Computes the kernel value from the squared euclidean distance between vectors. Radial kernels
+     * override this method together with {@link #isRadial()}, which allows computing kernel matrices
+     * in single precision from the squared distances between float rows.
+     */
+    protected double radial(double sqDistance) {
+        throw new UnsupportedOperationException("Kernel " + name() + " is not a function of squared distances.");
+    }
+
+    /**
+     * Radial kernels are computed from the squared distances between float rows, the other
+     * kernels use the default implementation.
+     */
+    @Override
+    public FMatrix compute(FMatrix x, FMatrix y) {
+        if (!isRadial()) {
+            return Kernel.super.compute(x, y);
+        }
+        FMatrix result = x.sqDistances(y);
+        for (int i = 0; i < result.rows(); i++) {
+            for (int j = 0; j < result.cols(); j++) {
+                result.set(i, j, (float) radial(result.get(i, j)));
+            }
         }
         return result;
     }
 
-    protected double deltaSumSquares(DVector u, DVector v) {
-        double result = 0;
-        for (int i = 0; i < u.size(); i++) {
-            double delta = u.get(i) - v.get(i);
-            result += delta * delta;
+    /**
+     * Resolves the positions of the kernel variables in a given frame.
+     */
+    private int[] varIndexes(Frame frame) {
+        if (varNames == null) {
+            throw new IllegalArgumentException("This kernel is not build with var names");
         }
-        return result;
+        int[] indexes = new int[varNames.length];
+        for (int i = 0; i < varNames.length; i++) {
+            indexes[i] = frame.varIndex(varNames[i]);
+        }
+        return indexes;
+    }
+
+    private static DVector extractRow(Frame frame, int row, int[] indexes) {
+        double[] values = new double[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            values[i] = frame.getDouble(row, indexes[i]);
+        }
+        return DVector.wrap(values);
+    }
+
+    /**
+     * Builds the vector of kernel variables for a given row. Rows of the frame used
+     * to build the kernel cache are views over the row major matrix, the other are extracted on demand.
+     */
+    protected DVector row(Frame frame, int row) {
+        if (frame == df && x != null) {
+            return x.mapRow(row);
+        }
+        return extractRow(frame, row, varIndexes(frame));
+    }
+
+    private double sqNorm(Frame frame, int row, DVector v) {
+        if (!usesSqNorms()) {
+            return Double.NaN;
+        }
+        return (frame == df && x != null) ? sqNorms[row] : v.dot(v);
     }
 
     @Override
     public double compute(Frame df1, int row1, Frame df2, int row2) {
-        Double value = cache.retrieve(df1, row1, df2, row2);
-        if (value == null) {
+        if (cache == null) {
+            return eval(df1, row1, df2, row2);
+        }
+        double value = cache.retrieve(df1, row1, df2, row2);
+        if (Double.isNaN(value)) {
             value = eval(df1, row1, df2, row2);
             cache.store(df1, row1, df2, row2, value);
         }
         return value;
     }
 
+    @Override
+    public void computeRow(Frame df1, int row1, Frame df2, int[] rows2, double[] values) {
+        DVector u = row(df1, row1);
+        double uSqNorm = sqNorm(df1, row1, u);
+        int[] indexes = (df2 == df && x != null) ? null : varIndexes(df2);
+        for (int i = 0; i < rows2.length; i++) {
+            int row2 = rows2[i];
+            double value = cache == null ? Double.NaN : cache.retrieve(df1, row1, df2, row2);
+            if (Double.isNaN(value)) {
+                if (indexes == null) {
+                    value = compute(u, uSqNorm, x.mapRow(row2), usesSqNorms() ? sqNorms[row2] : Double.NaN);
+                } else {
+                    DVector v = extractRow(df2, row2, indexes);
+                    value = compute(u, uSqNorm, v, sqNorm(df2, row2, v));
+                }
+                if (cache != null) {
+                    cache.store(df1, row1, df2, row2, value);
+                }
+            }
+            values[i] = value;
+        }
+    }
 
-    public abstract double eval(Frame df1, int row1, Frame df2, int row2);
+    /**
+     * Evaluates the kernel function without using the cache.
+     */
+    public double eval(Frame df1, int row1, Frame df2, int row2) {
+        DVector u = row(df1, row1);
+        DVector v = row(df2, row2);
+        return compute(u, sqNorm(df1, row1, u), v, sqNorm(df2, row2, v));
+    }
 
     @Override
     public void clean() {
-        cache.clear();
+        if (cache != null) {
+            cache.clear();
+        }
     }
 }
 
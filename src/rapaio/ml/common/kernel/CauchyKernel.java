@@ -23,7 +23,6 @@ package rapaio.ml.common.kernel;
 
 import java.io.Serial;
 
-import rapaio.data.Frame;
 import rapaio.math.linear.DVector;
 import rapaio.printer.Format;
 
@@ -57,14 +56,18 @@ public class CauchyKernel extends AbstractKernel {
     }
 
     @Override
-    public double eval(Frame df1, int row1, Frame df2, int row2) {
-        double value = deltaSumSquares(df1, row1, df2, row2) / sigma;
-        return 1.0 / (1.0 + value * value);
+    public double compute(DVector v, DVector u) {
+        return radial(deltaSumSquares(u, v));
     }
 
     @Override
-    public double compute(DVector v, DVector u) {
-        double value = deltaSumSquares(u, v) / sigma;
+    protected boolean isRadial() {
+        return true;
+    }
+
+    @Override
+    protected double radial(double dot) {
+        double value = dot / sigma;
         return 1.0 / (1.0 + value * value);
     }
 
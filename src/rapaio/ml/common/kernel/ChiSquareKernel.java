@@ -23,7 +23,6 @@ package rapaio.ml.common.kernel;
 
 import java.io.Serial;
 
-import rapaio.data.Frame;
 import rapaio.math.linear.DVector;
 
 /**
@@ -38,17 +37,6 @@ public class ChiSquareKernel extends AbstractKernel {
     @Serial
     private static final long serialVersionUID = -3301596992870913061L;
 
-    @Override
-    public double eval(Frame df1, int row1, Frame df2, int row2) {
-        double result = 0;
-        for (String varName : varNames) {
-            double sum = df1.getDouble(row1, varName) + df2.getDouble(row2, varName);
-            double diff = df1.getDouble(row1, varName) - df2.getDouble(row2, varName);
-            result = 2 * diff * diff / sum;
-        }
-        return 1 - result;
-    }
-
     @Override
     public double compute(DVector v, DVector u) {
         double result = 0;
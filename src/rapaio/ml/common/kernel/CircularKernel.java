@@ -23,7 +23,6 @@ package rapaio.ml.common.kernel;
 
 import java.io.Serial;
 
-import rapaio.data.Frame;
 import rapaio.math.linear.DVector;
 import rapaio.printer.Format;
 
@@ -52,18 +51,17 @@ public class CircularKernel extends AbstractKernel {
     }
 
     @Override
-    public double eval(Frame df1, int row1, Frame df2, int row2) {
-        double dot = deltaSumSquares(df1, row1, df2, row2);
-        if (dot < sigma) {
-            return 0;
-        }
-        double f = dot / sigma;
-        return 2 * (Math.acos(-f) - f * Math.sqrt(1 - f * f)) / Math.PI;
+    public double compute(DVector v, DVector u) {
+        return radial(deltaSumSquares(u, v));
     }
 
     @Override
-    public double compute(DVector v, DVector u) {
-        double dot = deltaSumSquares(u, v);
+    protected boolean isRadial() {
+        return true;
+    }
+
+    @Override
+    protected double radial(double dot) {
         if (dot < sigma) {
             return 0;
         }
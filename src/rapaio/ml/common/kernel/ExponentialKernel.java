@@ -23,7 +23,6 @@ package rapaio.ml.common.kernel;
 
 import java.io.Serial;
 
-import rapaio.data.Frame;
 import rapaio.math.linear.DVector;
 import rapaio.printer.Format;
 
@@ -53,14 +52,17 @@ public class ExponentialKernel extends AbstractKernel {
     }
 
     @Override
-    public double eval(Frame df1, int row1, Frame df2, int row2) {
-        double value = deltaSumSquares(df1, row1, df2, row2);
-        return Math.exp(factor * value);
+    public double compute(DVector v, DVector u) {
+        return radial(deltaSumSquares(v, u));
     }
 
     @Override
-    public double compute(DVector v, DVector u) {
-        double value = deltaSumSquares(v, u);
+    protected boolean isRadial() {
+        return true;
+    }
+
+    @Override
+    protected double radial(double value) {
         return Math.exp(factor * value);
     }
 
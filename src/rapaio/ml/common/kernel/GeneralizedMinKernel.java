@@ -23,7 +23,6 @@ package rapaio.ml.common.kernel;
 
 import java.io.Serial;
 
-import rapaio.data.Frame;
 import rapaio.math.linear.DVector;
 import rapaio.printer.Format;
 
@@ -50,18 +49,6 @@ public class GeneralizedMinKernel extends AbstractKernel {
         this.beta = beta;
     }
 
-    @Override
-    public double eval(Frame df1, int row1, Frame df2, int row2) {
-        double sum = 0;
-        for (String varName : varNames) {
-            sum += Math.min(
-                    Math.pow(Math.abs(df1.getDouble(row1, varName)), alpha),
-                    Math.pow(Math.abs(df2.getDouble(row2, varName)), beta)
-            );
-        }
-        return sum;
-    }
-
     @Override
     public double compute(DVector v, DVector u) {
         double sum = 0;
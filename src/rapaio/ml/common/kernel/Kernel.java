@@ -25,6 +25,7 @@ import java.io.Serializable;
 
 import rapaio.data.Frame;
 import rapaio.math.linear.DVector;
+import rapaio.math.linear.FMatrix;
 
 /**
  * Kernel function interface
@@ -43,8 +44,54 @@ public interface Kernel extends Serializable {
 
     double compute(Frame df1, int row1, Frame df2, int row2);
 
+    /**
+     * Computes kernel values between a single row and a batch of rows from another frame.
+     * The i-th computed value is {@code compute(df1, row1, df2, rows2[i])}.
+     *
+     * @param df1    frame which contains the single row
+     * @param row1   index of the single row
+     * @param df2    frame which contains the batch of rows
+     * @param rows2  indexes of the rows from the batch
+     * @param values array where the computed values are stored, it should have at least the size of the batch
+     */
+    default void computeRow(Frame df1, int row1, Frame df2, int[] rows2, double[] values) {
+        for (int i = 0; i < rows2.length; i++) {
+            values[i] = compute(df1, row1, df2, rows2[i]);
+        }
+    }
+
     double compute(DVector v, DVector u);
 
+    /**
+     * Computes the kernel matrix in single precision between rows of two matrices.
+     * The value at position {@code (i,j)} is the kernel value between row {@code i} of {@code x}
+     * and row {@code j} of {@code y}. Kernels which are functions of squared distances or dot products
+     * are computed from the single precision kernels of the matrices. The default implementation
+     * evaluates {@link #compute(DVector, DVector)} on rows widened into two reused vectors.
+     *
+     * @param x matrix with instances on rows
+     * @param y matrix with instances on rows
+     * @return kernel matrix
+     */
+    default FMatrix compute(FMatrix x, FMatrix y) {
+        // rows are read into two reused vectors, no double precision copy of the matrices is built
+        DVector u = DVector.zeros(x.cols());
+        DVector v = DVector.zeros(y.cols());
+        FMatrix result = FMatrix.empty(x.rows(), y.rows());
+        for (int i = 0; i < x.rows(); i++) {
+            for (int k = 0; k < u.size(); k++) {
+                u.set(k, x.get(i, k));
+            }
+            for (int j = 0; j < y.rows(); j++) {
+                for (int k = 0; k < v.size(); k++) {
+                    v.set(k, y.get(j, k));
+                }
+                result.set(i, j, (float) compute(u, v));
+            }
+        }
+        return result;
+    }
+
     default void clean() {
     }
 }
@@ -23,8 +23,8 @@ package rapaio.ml.common.kernel;
 
 import java.io.Serial;
 
-import rapaio.data.Frame;
 import rapaio.math.linear.DVector;
+import rapaio.math.linear.FMatrix;
 import rapaio.printer.Format;
 
 /**
@@ -60,12 +60,20 @@ public class LinearKernel extends AbstractKernel {
     }
 
     @Override
-    public double eval(Frame df1, int row1, Frame df2, int row2) {
-        return dotProd(df1, row1, df2, row2) + c;
+    public double compute(DVector v, DVector u) {
+        return v.dot(u) + c;
     }
 
     @Override
-    public double compute(DVector v, DVector u) {
-        return v.dot(u) + c;
+    public FMatrix compute(FMatrix x, FMatrix y) {
+        FMatrix result = x.dotT(y);
+        if (c != 0) {
+            for (int i = 0; i < result.rows(); i++) {
+                for (int j = 0; j < result.cols(); j++) {
+                    result.inc(i, j, (float) c);
+                }
+            }
+        }
+        return result;
     }
 }
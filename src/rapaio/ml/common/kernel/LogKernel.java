@@ -23,7 +23,6 @@ package rapaio.ml.common.kernel;
 
 import java.io.Serial;
 
-import rapaio.data.Frame;
 import rapaio.math.linear.DVector;
 import rapaio.printer.Format;
 
@@ -49,13 +48,18 @@ public class LogKernel extends AbstractKernel {
     }
 
     @Override
-    public double eval(Frame df1, int row1, Frame df2, int row2) {
-        return -Math.log1p(Math.pow(deltaSumSquares(df1, row1, df2, row2), degree));
+    public double compute(DVector v, DVector u) {
+        return radial(deltaSumSquares(v, u));
     }
 
     @Override
-    public double compute(DVector v, DVector u) {
-        return -Math.log1p(Math.pow(deltaSumSquares(v, u), degree));
+    protected boolean isRadial() {
+        return true;
+    }
+
+    @Override
+    protected double radial(double dot) {
+        return -Math.log1p(Math.pow(dot, degree));
     }
 
     @Override
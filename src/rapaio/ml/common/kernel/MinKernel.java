@@ -23,7 +23,6 @@ package rapaio.ml.common.kernel;
 
 import java.io.Serial;
 
-import rapaio.data.Frame;
 import rapaio.math.linear.DVector;
 
 /**
@@ -39,15 +38,6 @@ public class MinKernel extends AbstractKernel {
     @Serial
     private static final long serialVersionUID = -2388704255494979581L;
 
-    @Override
-    public double eval(Frame df1, int row1, Frame df2, int row2) {
-        double sum = 0;
-        for (String varName : varNames) {
-            sum += Math.min(df1.getDouble(row1, varName), df2.getDouble(row2, varName));
-        }
-        return sum;
-    }
-
     @Override
     public double compute(DVector v, DVector u) {
         double sum = 0;
@@ -23,7 +23,6 @@ package rapaio.ml.common.kernel;
 
 import java.io.Serial;
 
-import rapaio.data.Frame;
 import rapaio.math.linear.DVector;
 import rapaio.printer.Format;
 
@@ -50,14 +49,17 @@ public class MultiQuadricKernel extends AbstractKernel {
     }
 
     @Override
-    public double eval(Frame df1, int row1, Frame df2, int row2) {
-        double dot = deltaSumSquares(df1, row1, df2, row2);
-        return Math.sqrt(dot * dot + c_square);
+    public double compute(DVector v, DVector u) {
+        return radial(deltaSumSquares(u, v));
     }
 
     @Override
-    public double compute(DVector v, DVector u) {
-        double dot = deltaSumSquares(u, v);
+    protected boolean isRadial() {
+        return true;
+    }
+
+    @Override
+    protected double radial(double dot) {
         return Math.sqrt(dot * dot + c_square);
     }
 
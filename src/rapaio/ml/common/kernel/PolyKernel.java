@@ -25,9 +25,9 @@ import static rapaio.printer.Format.floatFlex;
 
 import java.io.Serial;
 
-import rapaio.data.Frame;
 import rapaio.math.MathTools;
 import rapaio.math.linear.DVector;
+import rapaio.math.linear.FMatrix;
 
 /**
  * The Polynomial kernel is a non-stationary kernel. Polynomial kernels
@@ -90,22 +90,22 @@ public class PolyKernel extends AbstractKernel {
     }
 
     @Override
-    public double eval(Frame df1, int row1, Frame df2, int row2) {
-
-        if (varNames == null) {
-            throw new IllegalArgumentException("This kernel is not build with var names");
-        }
+    public double compute(DVector v, DVector u) {
         if (isLinear()) {
-            return slope * dotProd(df1, row1, df2, row2) + bias;
+            return slope * v.dot(u) + bias;
         }
-        return Math.pow(slope * dotProd(df1, row1, df2, row2) + bias, exponent);
+        return Math.pow(slope * v.dot(u) + bias, exponent);
     }
 
     @Override
-    public double compute(DVector v, DVector u) {
-        if (isLinear()) {
-            return slope * v.dot(u) + bias;
+    public FMatrix compute(FMatrix x, FMatrix y) {
+        FMatrix result = x.dotT(y);
+        for (int i = 0; i < result.rows(); i++) {
+            for (int j = 0; j < result.cols(); j++) {
+                double value = slope * result.get(i, j) + bias;
+                result.set(i, j, (float) (isLinear() ? value : Math.pow(value, exponent)));
+            }
         }
-        return Math.pow(slope * v.dot(u) + bias, exponent);
+        return result;
     }
 }
\ No newline at end of file
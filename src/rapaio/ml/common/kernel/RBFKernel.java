@@ -25,7 +25,6 @@ import static rapaio.printer.Format.floatFlex;
 
 import java.io.Serial;
 
-import rapaio.data.Frame;
 import rapaio.math.linear.DVector;
 
 /**
@@ -67,17 +66,33 @@ public class RBFKernel extends AbstractKernel {
     }
 
     @Override
-    public double eval(Frame df1, int row1, Frame df2, int row2) {
-        double value = deltaSumSquares(df1, row1, df2, row2);
-        return Math.exp(-gamma * value);
+    public double compute(DVector v, DVector u) {
+        return radial(deltaSumSquares(v, u));
     }
 
     @Override
-    public double compute(DVector v, DVector u) {
-        double value = deltaSumSquares(v, u);
+    protected boolean isRadial() {
+        return true;
+    }
+
+    @Override
+    protected double radial(double value) {
         return Math.exp(-gamma * value);
     }
 
+    /**
+     * Uses {@code ||u-v||^2 = ||u||^2 + ||v||^2 - 2<u,v>}, thus only a dot product is computed for each pair.
+     */
+    @Override
+    protected double compute(DVector u, double uSqNorm, DVector v, double vSqNorm) {
+        return radial(Math.max(0, uSqNorm + vSqNorm - 2 * u.dot(v)));
+    }
+
+    @Override
+    protected boolean usesSqNorms() {
+        return true;
+    }
+
     @Override
     public Kernel newInstance() {
         return new RBFKernel(gamma);
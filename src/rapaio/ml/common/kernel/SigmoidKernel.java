@@ -23,8 +23,8 @@ package rapaio.ml.common.kernel;
 
 import java.io.Serial;
 
-import rapaio.data.Frame;
 import rapaio.math.linear.DVector;
+import rapaio.math.linear.FMatrix;
 import rapaio.printer.Format;
 
 /**
@@ -64,13 +64,19 @@ public class SigmoidKernel extends AbstractKernel {
     }
 
     @Override
-    public double eval(Frame df1, int row1, Frame df2, int row2) {
-        return Math.atan(alpha * dotProd(df1, row1, df2, row2) + c);
+    public double compute(DVector v, DVector u) {
+        return Math.atan(alpha * u.dot(v) + c);
     }
 
     @Override
-    public double compute(DVector v, DVector u) {
-        return Math.atan(alpha * u.dot(v) + c);
+    public FMatrix compute(FMatrix x, FMatrix y) {
+        FMatrix result = x.dotT(y);
+        for (int i = 0; i < result.rows(); i++) {
+            for (int j = 0; j < result.cols(); j++) {
+                result.set(i, j, (float) Math.atan(alpha * result.get(i, j) + c));
+            }
+        }
+        return result;
     }
 
     @Override
@@ -24,7 +24,6 @@ package rapaio.ml.common.kernel;
 import java.io.Serial;
 import java.util.function.Function;
 
-import rapaio.data.Frame;
 import rapaio.math.linear.DVector;
 import rapaio.printer.Format;
 
@@ -75,21 +74,6 @@ public class WaveletKernel extends AbstractKernel {
         this.wavelet = wavelet;
     }
 
-    @Override
-    public double eval(Frame df1, int row1, Frame df2, int row2) {
-        double result = 1;
-        for (String varName : varNames) {
-            if (invariant) {
-                double diff = df1.getDouble(row1, varName) - df2.getDouble(row2, varName);
-                result *= wavelet.apply(diff / dilation);
-            } else {
-                result *= wavelet.apply((df1.getDouble(row1, varName) - translation) / dilation);
-                result *= wavelet.apply((df2.getDouble(row2, varName) - translation) / dilation);
-            }
-        }
-        return result;
-    }
-
     @Override
     public double compute(DVector v, DVector u) {
         double result = 1;
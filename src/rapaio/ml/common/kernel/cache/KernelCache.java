@@ -34,8 +34,16 @@ import rapaio.data.Frame;
  */
 public interface KernelCache extends Serializable {
 
-    Double retrieve(Frame df1, int row1, Frame df2, int row2);
+    /**
+     * Retrieves a cached kernel value.
+     *
+     * @return cached value or {@link Double#NaN} if the value is not in cache
+     */
+    double retrieve(Frame df1, int row1, Frame df2, int row2);
 
+    /**
+     * Stores a kernel value in cache. An implementation can decide to not store the value.
+     */
     void store(Frame df1, int row1, Frame df2, int row2, double value);
 
     void clear();
@@ -0,0 +1,157 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package rapaio.ml.common.kernel.cache;
+
+import java.io.Serial;
+import java.util.Arrays;
+
+import rapaio.data.Frame;
+
+/**
+ * Kernel cache for the values computed between rows of a single data frame.
+ * <p>
+ * Values are stored in primitive rows of size equal with the number of rows of the data frame.
+ * A row is allocated when the first value from it is stored. The number of allocated rows is
+ * bounded by a memory budget, when the budget is exceeded the least recently used row is evicted,
+ * similar with the row cache from libsvm. Since kernels are symmetric, a value is looked up in both rows.
+ * <p>
+ * All operations are synchronized, thus the cache can be used concurrently.
+ */
+public class LRUKernelCache implements KernelCache {
+
+    @Serial
+    private static final long serialVersionUID = 3867061585938151265L;
+
+    /**
+     * Default memory budget of 100 MB, the same as default cache size in libsvm.
+     */
+    public static final long DEFAULT_MAX_BYTES = 100L << 20;
+
+    private final Frame df;
+    private final int n;
+    private final int maxRows;
+    private final double[][] rows;
+
+    // double linked list over row indexes, in order of usage, sentinel has index n
+    private final int[] prev;
+    private final int[] next;
+    private int len;
+
+    public LRUKernelCache(Frame df) {
+        this(df, DEFAULT_MAX_BYTES);
+    }
+
+    public LRUKernelCache(Frame df, long maxBytes) {
+        this.df = df;
+        this.n = df.rowCount();
+        this.maxRows = (int) Math.max(2, Math.min(n, maxBytes / (8L * Math.max(1, n))));
+        this.rows = new double[n][];
+        this.prev = new int[n + 1];
+        this.next = new int[n + 1];
+        clear();
+    }
+
+    /**
+     * @return maximum number of rows which can be stored under the memory budget
+     */
+    public int maxRows() {
+        return maxRows;
+    }
+
+    /**
+     * @return number of rows currently stored
+     */
+    public synchronized int size() {
+        return len;
+    }
+
+    @Override
+    public synchronized double retrieve(Frame df1, int row1, Frame df2, int row2) {
+        if (df1 != df || df2 != df) {
+            return Double.NaN;
+        }
+        double[] row = rows[row1];
+        if (row != null && !Double.isNaN(row[row2])) {
+            moveLast(row1);
+            return row[row2];
+        }
+        row = rows[row2];
+        if (row != null && !Double.isNaN(row[row1])) {
+            moveLast(row2);
+            return row[row1];
+        }
+        return Double.NaN;
+    }
+
+    @Override
+    public synchronized void store(Frame df1, int row1, Frame df2, int row2, double value) {
+        if (df1 != df || df2 != df) {
+            return;
+        }
+        double[] row = rows[row1];
+        if (row == null) {
+            if (len == maxRows) {
+                // evict the least recently used row
+                int old = next[n];
+                unlink(old);
+                rows[old] = null;
+                len--;
+            }
+            row = new double[n];
+            Arrays.fill(row, Double.NaN);
+            rows[row1] = row;
+            len++;
+        } else {
+            unlink(row1);
+        }
+        link(row1);
+        row[row2] = value;
+        if (rows[row2] != null) {
+            rows[row2][row1] = value;
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        Arrays.fill(rows, null);
+        prev[n] = n;
+        next[n] = n;
+        len = 0;
+    }
+
+    private void moveLast(int index) {
+        unlink(index);
+        link(index);
+    }
+
+    private void unlink(int index) {
+        next[prev[index]] = next[index];
+        prev[next[index]] = prev[index];
+    }
+
+    private void link(int index) {
+        prev[index] = prev[n];
+        next[index] = n;
+        next[prev[n]] = index;
+        prev[n] = index;
+    }
+}
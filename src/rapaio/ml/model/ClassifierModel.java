@@ -254,6 +254,37 @@ public abstract class ClassifierModel<M extends ClassifierModel<M, R, H>, R exte
         return targetLevels().get(firstTargetName()).get(pos);
     }
 
+    /**
+     * Maps the labels of the first target variable from a frame to the indexes of the levels used
+     * at learning time. The frame can have its own level order. Missing labels are mapped to 0,
+     * which is the index of the missing level.
+     *
+     * @param df frame which contains the first target variable
+     * @return learned level index for each row
+     * @throws IllegalArgumentException if a label is not a learned level
+     */
+    protected int[] firstTargetIndexes(Frame df) {
+        List<String> levels = firstTargetLevels();
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < levels.size(); i++) {
+            index.put(levels.get(i), i);
+        }
+        Var target = df.rvar(firstTargetName());
+        int[] indexes = new int[df.rowCount()];
+        for (int i = 0; i < indexes.length; i++) {
+            if (target.isMissing(i)) {
+                continue;
+            }
+            Integer pos = index.get(target.getLabel(i));
+            if (pos == null) {
+                throw new IllegalArgumentException("Label %s of target %s is not a level used at learning time."
+                        .formatted(target.getLabel(i), firstTargetName()));
+            }
+            indexes[i] = pos;
+        }
+        return indexes;
+    }
+
     /**
      * @return true if the classifier has learned from a sample
      */
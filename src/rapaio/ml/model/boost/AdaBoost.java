@@ -78,8 +78,22 @@ public class AdaBoost extends ClassifierModel<AdaBoost, ClassifierResult, RunInf
      */
     public final ValueParam<Double, AdaBoost> shrinkage = new ValueParam<>(this, 1.0, "shrinkage", Double::isFinite);
 
+    /**
+     * Data frame used to compute a validation error after each round, it must have the same variables as the training frame.
+     * Target labels are matched by name with the training levels and labels unknown at training are rejected.
+     */
+    public final ValueParam<Frame, AdaBoost> validationDf = new ValueParam<>(this, null, "validationDf", x -> true);
+
+    /**
+     * Number of rounds without improvement of the validation error after which fitting stops, zero disables early stopping.
+     * With early stopping the ensemble is truncated to the rounds up to the best validation error.
+     */
+    public final ValueParam<Integer, AdaBoost> earlyStopRounds = new ValueParam<>(this, 0, "earlyStopRounds",
+            x -> x != null && x >= 0);
+
     private final List<Double> alphas = new ArrayList<>();
     private final List<ClassifierModel<?, ?, ?>> learners = new ArrayList<>();
+    private final List<Double> validationScores = new ArrayList<>();
 
     private AdaBoost() {
     }
@@ -109,6 +123,13 @@ public class AdaBoost extends ClassifierModel<AdaBoost, ClassifierResult, RunInf
         return learners;
     }
 
+    /**
+     * @return misclassification error on validation frame after each kept round, empty if there is no validation frame
+     */
+    public List<Double> getValidationScores() {
+        return validationScores;
+    }
+
     @Override
     protected boolean coreFit(Frame df, Var weights) {
 
@@ -118,15 +139,38 @@ public class AdaBoost extends ClassifierModel<AdaBoost, ClassifierResult, RunInf
 
         learners.clear();
         alphas.clear();
+        validationScores.clear();
+
+        // validation votes are updated incrementally with each added learner
+        Frame vdf = validationDf.get();
+        double[][] votes = vdf == null ? null : new double[vdf.rowCount()][firstTargetLevels().size()];
+        int[] yv = vdf == null ? null : firstTargetIndexes(vdf);
+        int best = -1;
 
         for (int i = 0; i < runs.get(); i++) {
-            if (!learnRound(random, df, w, k)) {
+            int size = learners.size();
+            boolean next = learnRound(random, df, w, k);
+            if (vdf != null && learners.size() > size) {
+                addVotes(vdf, votes, size);
+                validationScores.add(validationError(yv, votes));
+                if (best == -1 || validationScores.get(size) < validationScores.get(best)) {
+                    best = size;
+                } else if (earlyStopRounds.get() > 0 && size - best >= earlyStopRounds.get()) {
+                    break;
+                }
+            }
+            if (!next) {
                 break;
             }
             if (runningHook.get() != null) {
                 runningHook.get().accept(RunInfo.forClassifier(this, i));
             }
         }
+        if (vdf != null && earlyStopRounds.get() > 0 && best >= 0) {
+            learners.subList(best + 1, learners.size()).clear();
+            alphas.subList(best + 1, alphas.size()).clear();
+            validationScores.subList(best + 1, validationScores.size()).clear();
+        }
         return true;
     }
 
@@ -167,34 +211,83 @@ public class AdaBoost extends ClassifierModel<AdaBoost, ClassifierResult, RunInf
         return true;
     }
 
+    private void addVotes(Frame df, double[][] votes, int learner) {
+        var classes = learners.get(learner).predict(df, true, false).firstClasses();
+        double alpha = alphas.get(learner);
+        for (int j = 0; j < df.rowCount(); j++) {
+            votes[j][classes.getInt(j)] += alpha;
+        }
+    }
+
+    private double validationError(int[] targets, double[][] votes) {
+        double err = 0;
+        int count = 0;
+        for (int i = 0; i < targets.length; i++) {
+            if (targets[i] == 0) {
+                continue;
+            }
+            if (vote(votes[i]) != targets[i]) {
+                err++;
+            }
+            count++;
+        }
+        return err / count;
+    }
+
+    private static int vote(double[] votes) {
+        double max = 0;
+        int best = 0;
+        for (int j = 1; j < votes.length; j++) {
+            if (votes[j] > max) {
+                best = j;
+                max = votes[j];
+            }
+        }
+        return best;
+    }
+
     @Override
     protected ClassifierResult corePredict(Frame df, boolean withClasses, boolean withDistributions) {
-        ClassifierResult fit = ClassifierResult.build(this, df, withClasses, true);
+        double[][] votes = new double[df.rowCount()][firstTargetLevels().size()];
         for (int i = 0; i < learners.size(); i++) {
-            ClassifierResult hp = learners.get(i).predict(df, true, false);
-            for (int j = 0; j < df.rowCount(); j++) {
-                int index = hp.firstClasses().getInt(j);
-                fit.firstDensity().setDouble(j, index, fit.firstDensity().getDouble(j, index) + alphas.get(i));
-            }
+            addVotes(df, votes, i);
         }
+        return buildResult(df, votes, withClasses);
+    }
 
-        // simply predict
-        for (int i = 0; i < fit.firstDensity().rowCount(); i++) {
+    /**
+     * Predicts with each prefix of the ensemble, the result at position {@code m} is the prediction
+     * of the model built with the first {@code m+1} weak learners. Each learner predicts the frame only once.
+     *
+     * @param df                frame instances
+     * @param withClasses       generate classes
+     * @param withDistributions generate densities for classes
+     * @return list of predictions, one for each weak learner
+     */
+    public List<ClassifierResult> predictStaged(Frame df, boolean withClasses, boolean withDistributions) {
+        PredSetup setup = preparePredict(df, withClasses, withDistributions);
+        double[][] votes = new double[setup.df.rowCount()][firstTargetLevels().size()];
+        List<ClassifierResult> results = new ArrayList<>();
+        for (int i = 0; i < learners.size(); i++) {
+            addVotes(setup.df, votes, i);
+            results.add(buildResult(setup.df, votes, setup.withClasses));
+        }
+        return results;
+    }
 
-            double max = 0;
-            int best = 0;
+    private ClassifierResult buildResult(Frame df, double[][] votes, boolean withClasses) {
+        ClassifierResult fit = ClassifierResult.build(this, df, withClasses, true);
+
+        // simply predict
+        for (int i = 0; i < df.rowCount(); i++) {
             double total = 0;
-            for (int j = 1; j < fit.firstDensity().varCount(); j++) {
-                total += fit.firstDensity().getDouble(i, j);
-                if (fit.firstDensity().getDouble(i, j) > max) {
-                    best = j;
-                    max = fit.firstDensity().getDouble(i, j);
-                }
+            for (int j = 1; j < votes[i].length; j++) {
+                total += votes[i][j];
             }
-            for (int j = 1; j < fit.firstDensity().varCount(); j++) {
-                fit.firstDensity().setDouble(i, j, fit.firstDensity().getDouble(i, j) / total);
+            for (int j = 1; j < votes[i].length; j++) {
+                fit.firstDensity().setDouble(i, j, votes[i][j] / total);
             }
-            fit.firstClasses().setInt(i, best);
+            fit.firstClasses().setInt(i, vote(votes[i]));
         }
         return fit;
     }
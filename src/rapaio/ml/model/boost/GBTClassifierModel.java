@@ -25,6 +25,11 @@ import java.io.Serial;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -74,12 +79,26 @@ public class GBTClassifierModel extends ClassifierModel<GBTClassifierModel, Clas
     public final ValueParam<RTree, GBTClassifierModel> model = new ValueParam<>(this,
             RTree.newCART().maxDepth.set(2).minCount.set(5).loss.set(new L2Loss()), "model");
 
+    /**
+     * Data frame used to compute a validation score after each round, it must have the same variables as the training frame.
+     * Target labels are matched by name with the training levels and labels unknown at training are rejected.
+     */
+    public final ValueParam<Frame, GBTClassifierModel> validationDf = new ValueParam<>(this, null, "validationDf", x -> true);
+
+    /**
+     * Number of rounds without improvement of the validation score after which fitting stops, zero disables early stopping.
+     * With early stopping the ensemble is truncated to the rounds up to the best validation score.
+     */
+    public final ValueParam<Integer, GBTClassifierModel> earlyStopRounds = new ValueParam<>(this, 0, "earlyStopRounds",
+            x -> x != null && x >= 0);
+
     private int K;
     private DMatrix f;
     private DMatrix p;
     private DMatrix residual;
 
     private List<List<RTree>> trees;
+    private List<Double> validationScores;
 
     private GBTClassifierModel() {
     }
@@ -105,6 +124,13 @@ public class GBTClassifierModel extends ClassifierModel<GBTClassifierModel, Clas
         return trees;
     }
 
+    /**
+     * @return multinomial deviance on validation frame after each kept round, empty if there is no validation frame
+     */
+    public List<Double> getValidationScores() {
+        return validationScores;
+    }
+
     @Override
     public boolean coreFit(Frame df, Var weights) {
 
@@ -126,81 +152,210 @@ public class GBTClassifierModel extends ClassifierModel<GBTClassifierModel, Clas
             yk.set(df.getInt(i, firstTargetName()) - 1, i, 1);
         }
 
-        for (int m = 0; m < runs.get(); m++) {
-            buildAdditionalTree(random, df, weights, yk);
-            if (runningHook.get() != null) {
-                runningHook.get().accept(RunInfo.forClassifier(this, m));
+        // validation scores are maintained incrementally from the predictions of each new tree
+        Frame vdf = validationDf.get();
+        DMatrix fv = vdf == null ? null : DMatrix.empty(K, vdf.rowCount());
+        int[] yv = vdf == null ? null : firstTargetIndexes(vdf);
+        validationScores = new ArrayList<>();
+        int best = -1;
+
+        // class trees of all rounds are built on the same pool of threads
+        ExecutorService executor = poolSize.get() == 0 || K == 1
+                ? null : Executors.newFixedThreadPool(Math.min(computeThreads(), K));
+        try {
+            for (int m = 0; m < runs.get(); m++) {
+                buildAdditionalTree(random, df, weights, yk, executor);
+                if (runningHook.get() != null) {
+                    runningHook.get().accept(RunInfo.forClassifier(this, m));
+                }
+                if (vdf != null) {
+                    addRound(vdf, fv, m);
+                    validationScores.add(deviance(yv, fv));
+                    if (best == -1 || validationScores.get(m) < validationScores.get(best)) {
+                        best = m;
+                    } else if (earlyStopRounds.get() > 0 && m - best >= earlyStopRounds.get()) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+        if (vdf != null && earlyStopRounds.get() > 0 && best >= 0) {
+            for (List<RTree> classTrees : trees) {
+                classTrees.subList(best + 1, classTrees.size()).clear();
             }
+            validationScores.subList(best + 1, validationScores.size()).clear();
         }
         return true;
     }
 
-    private void buildAdditionalTree(Random random, Frame df, Var w, DMatrix yk) {
+    /**
+     * Adds to scores the contribution of the trees from a given round.
+     */
+    private void addRound(Frame df, DMatrix scores, int m) {
+        for (int k = 0; k < K; k++) {
+            var prediction = trees.get(k).get(m).predict(df, false).firstPrediction();
+            for (int i = 0; i < df.rowCount(); i++) {
+                scores.set(k, i, scores.get(k, i) + shrinkage.get() * prediction.getDouble(i));
+            }
+        }
+    }
 
-        // a) Set p_k(x)
+    private double deviance(int[] targets, DMatrix scores) {
+        double sum = 0;
+        int count = 0;
+        for (int i = 0; i < targets.length; i++) {
+            int y = targets[i] - 1;
+            if (y < 0) {
+                continue;
+            }
+            double max = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < K; k++) {
+                max = Math.max(max, scores.get(k, i));
+            }
+            double t = 0;
+            for (int k = 0; k < K; k++) {
+                t += Math.exp(scores.get(k, i) - max);
+            }
+            sum += max + Math.log(t) - scores.get(y, i);
+            count++;
+        }
+        return sum / count;
+    }
 
-        DVector max = f.t().max(1);
+    private void buildAdditionalTree(Random random, Frame df, Var w, DMatrix yk, ExecutorService executor) {
 
-        for (int i = 0; i < df.rowCount(); i++) {
+        // a) Set p_k(x) and residuals in place
+
+        int n = df.rowCount();
+        for (int i = 0; i < n; i++) {
+            double max = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < K; k++) {
+                max = Math.max(max, f.get(k, i));
+            }
             double sum = 0;
             for (int k = 0; k < K; k++) {
-                sum += Math.exp(f.get(k, i) - max.get(i));
+                double e = Math.exp(f.get(k, i) - max);
+                p.set(k, i, e);
+                sum += e;
             }
             for (int k = 0; k < K; k++) {
-                p.set(k, i, Math.exp(f.get(k, i) - max.get(i)) / sum);
+                double pki = p.get(k, i) / sum;
+                p.set(k, i, pki);
+                residual.set(k, i, yk.get(k, i) - pki);
             }
         }
-        residual = yk.copy().sub(p);
 
-        // b)
+        // b) fit a tree for each class, trees use their own random, thus they can be built concurrently
 
         Frame x = df.removeVars(targetNames);
         RowSampler.Sample sample = rowSampler.get().nextSample(random, x, w);
 
+        List<Callable<RTree>> tasks = new ArrayList<>();
+        for (int k = 0; k < K; k++) {
+            int kk = k;
+            tasks.add(() -> buildClassTree(df, yk, sample, kk));
+        }
+        List<RTree> built = runTasks(executor, tasks);
         for (int k = 0; k < K; k++) {
+            trees.get(k).add(built.get(k));
+        }
+    }
 
-            Var residual_k = residual.mapRow(k).dv().mapRows(sample.mapping()).name("##tt##");
+    private RTree buildClassTree(Frame df, DMatrix yk, RowSampler.Sample sample, int k) {
+        Var residual_k = residual.mapRow(k).dv().mapRows(sample.mapping()).name("##tt##");
 
-            var tree = model.get().newInstance();
-            tree.fit(sample.df().bindVars(residual_k), sample.weights(), "##tt##");
-            tree.boostUpdate(df, yk.mapRow(k).dv(), p.mapRow(k).dv(), new KDevianceLoss(K));
+        var tree = model.get().newInstance();
+        tree.fit(sample.df().bindVars(residual_k), sample.weights(), "##tt##");
 
-            trees.get(k).add(tree);
+        // scores are updated from the leaves reached by rows during boost update
+        double[] fitted = tree.boostUpdateFitted(df, yk.mapRow(k).dv(), p.mapRow(k).dv(), new KDevianceLoss(K));
+        double rate = shrinkage.get();
+        for (int i = 0; i < fitted.length; i++) {
+            f.inc(k, i, rate * fitted[i]);
+        }
+        return tree;
+    }
 
-            var prediction = tree.predict(df, false).firstPrediction();
-            for (int i = 0; i < df.rowCount(); i++) {
-                f.inc(k, i, shrinkage.get() * prediction.getDouble(i));
+    private static <T> List<T> runTasks(ExecutorService executor, List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<>();
+        if (executor == null || tasks.size() == 1) {
+            for (Callable<T> task : tasks) {
+                try {
+                    results.add(task.call());
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
             }
+            return results;
+        }
+        try {
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(e.getCause());
         }
     }
 
     @Override
     public ClassifierResult corePredict(Frame df, boolean withClasses, boolean withDistributions) {
-        ClassifierResult cr = ClassifierResult.build(this, df, withClasses, withDistributions);
-
         DMatrix p_f = DMatrix.empty(K, df.rowCount());
+        for (int m = 0; m < trees.get(0).size(); m++) {
+            addRound(df, p_f, m);
+        }
+        return buildResult(df, p_f, withClasses, withDistributions);
+    }
 
-        for (int k = 0; k < K; k++) {
-            for (RegressionModel<?, ?, ?> tree : trees.get(k)) {
-                var rr = tree.predict(df, false).firstPrediction();
-                for (int i = 0; i < df.rowCount(); i++) {
-                    p_f.set(k, i, p_f.get(k, i) + shrinkage.get() * rr.getDouble(i));
-                }
-            }
+    /**
+     * Predicts with each prefix of the ensemble, the result at position {@code m} is the prediction
+     * of the model built with the first {@code m+1} rounds. Each tree predicts the frame only once.
+     *
+     * @param df                frame instances
+     * @param withClasses       generate classes
+     * @param withDistributions generate densities for classes
+     * @return list of predictions, one for each round
+     */
+    public List<ClassifierResult> predictStaged(Frame df, boolean withClasses, boolean withDistributions) {
+        PredSetup setup = preparePredict(df, withClasses, withDistributions);
+        DMatrix p_f = DMatrix.empty(K, setup.df.rowCount());
+        List<ClassifierResult> results = new ArrayList<>();
+        for (int m = 0; m < trees.get(0).size(); m++) {
+            addRound(setup.df, p_f, m);
+            results.add(buildResult(setup.df, p_f, setup.withClasses, setup.withDistributions));
         }
+        return results;
+    }
 
-        // make probabilities
+    private ClassifierResult buildResult(Frame df, DMatrix p_f, boolean withClasses, boolean withDistributions) {
+        ClassifierResult cr = ClassifierResult.build(this, df, withClasses, withDistributions);
 
-        DVector max = p_f.t().max(1);
+        // make probabilities
 
         for (int i = 0; i < df.rowCount(); i++) {
+            double max = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < K; k++) {
+                max = Math.max(max, p_f.get(k, i));
+            }
             double t = 0.0;
             for (int k = 0; k < K; k++) {
-                t += Math.exp(p_f.get(k, i) - max.get(i));
+                t += Math.exp(p_f.get(k, i) - max);
             }
             if (t != 0) {
                 for (int k = 0; k < K; k++) {
-                    cr.firstDensity().setDouble(i, k + 1, Math.exp(p_f.get(k, i) - max.get(i)) / t);
+                    cr.firstDensity().setDouble(i, k + 1, Math.exp(p_f.get(k, i) - max) / t);
                 }
             }
         }
@@ -88,7 +88,20 @@ public class GBTRegressionModel extends RegressionModel<GBTRegressionModel, Regr
      */
     public final ValueParam<Double, GBTRegressionModel> eps = new ValueParam<>(this, 1e-10, "eps", Double::isFinite);
 
+    /**
+     * Data frame used to compute a validation score after each added tree, it must have the same variables as the training frame
+     */
+    public final ValueParam<Frame, GBTRegressionModel> validationDf = new ValueParam<>(this, null, "validationDf", x -> true);
+
+    /**
+     * Number of added trees without improvement of the validation score after which fitting stops, zero disables early stopping.
+     * With early stopping the ensemble is truncated to the trees up to the best validation score.
+     */
+    public final ValueParam<Integer, GBTRegressionModel> earlyStopRounds = new ValueParam<>(this, 0, "earlyStopRounds",
+            x -> x != null && x >= 0);
+
     private VarDouble fitValues;
+    private List<Double> validationScores;
 
     private List<GBTRtree<? extends RegressionModel<?, ?, ?>, ? extends RegressionResult, ?>> trees;
 
@@ -117,6 +130,13 @@ public class GBTRegressionModel extends RegressionModel<GBTRegressionModel, Regr
         return trees;
     }
 
+    /**
+     * @return loss error score on validation frame after each added tree, empty if there is no validation frame
+     */
+    public List<Double> getValidationScores() {
+        return validationScores;
+    }
+
     @Override
     protected boolean coreFit(Frame df, Var weights) {
 
@@ -129,6 +149,13 @@ public class GBTRegressionModel extends RegressionModel<GBTRegressionModel, Regr
         initModel.get().fit(df, weights, firstTargetName());
         fitValues = initModel.get().predict(df, false).firstPrediction().copy();
 
+        // validation predictions are updated incrementally with each added tree
+        Frame vdf = validationDf.get();
+        Var vy = vdf == null ? null : vdf.rvar(firstTargetName());
+        DVector vfit = vdf == null ? null : initModel.get().predict(vdf, false).firstPrediction().dv().copy();
+        validationScores = new ArrayList<>();
+        int best = -1;
+
         for (int i = 1; i <= runs.get(); i++) {
 
             Var gradient = loss.get().gradient(y, fitValues).name("target");
@@ -165,9 +192,24 @@ public class GBTRegressionModel extends RegressionModel<GBTRegressionModel, Regr
                 fitValues = nextFit;
                 // add tree in the predictors list
                 trees.add(tree);
+
+                if (vdf != null) {
+                    vfit.fma(shrinkage.get(), tree.predict(vdf, false).firstPrediction().dv());
+                    int last = trees.size() - 1;
+                    validationScores.add(loss.get().errorScore(vy, vfit.dv()));
+                    if (best == -1 || validationScores.get(last) < validationScores.get(best)) {
+                        best = last;
+                    } else if (earlyStopRounds.get() > 0 && last - best >= earlyStopRounds.get()) {
+                        break;
+                    }
+                }
             }
             runningHook.get().accept(RunInfo.forRegression(this, i));
         }
+        if (vdf != null && earlyStopRounds.get() > 0 && best >= 0) {
+            trees.subList(best + 1, trees.size()).clear();
+            validationScores.subList(best + 1, validationScores.size()).clear();
+        }
         return true;
     }
 
@@ -185,6 +227,29 @@ public class GBTRegressionModel extends RegressionModel<GBTRegressionModel, Regr
         return result;
     }
 
+    /**
+     * Predicts with each prefix of the ensemble, the result at position {@code m} is the prediction
+     * of the model built with the first {@code m+1} trees. Each tree predicts the frame only once.
+     *
+     * @param df            frame instances
+     * @param withResiduals compute residuals if target variable is present
+     * @param quantiles     quantiles used for prediction intervals
+     * @return list of predictions, one for each tree
+     */
+    public List<RegressionResult> predictStaged(Frame df, boolean withResiduals, double... quantiles) {
+        PredSetup setup = preparePredict(df, withResiduals, quantiles);
+        DVector prediction = initModel.get().predict(setup.df, false).firstPrediction().dv().copy();
+        List<RegressionResult> results = new ArrayList<>();
+        for (var tree : trees) {
+            prediction.fma(shrinkage.get(), tree.predict(setup.df, false).firstPrediction().dv());
+            RegressionResult result = RegressionResult.build(this, setup.df, setup.withResiduals, setup.quantiles);
+            result.firstPrediction().dv().apply(v -> 0).add(prediction);
+            result.buildComplete();
+            results.add(result);
+        }
+        return results;
+    }
+
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append(fullName()).append("; fitted=").append(isFitted());
@@ -0,0 +1,490 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package rapaio.ml.model.km;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+import rapaio.math.linear.DMatrix;
+import rapaio.math.linear.DVector;
+import rapaio.math.linear.dense.FMatrixDenseR;
+import rapaio.math.linear.dense.FVectorDense;
+import rapaio.ml.common.distance.Distance;
+import rapaio.ml.common.distance.EuclideanDistance;
+import rapaio.ml.common.distance.Manhattan;
+import rapaio.util.collection.IntArrays;
+
+/**
+ * Assignment of instances to the closest centroids used by {@link KMCluster}.
+ * <p>
+ * Instances and centroids are stored as primitive rows. Euclidean and Manhattan distances are computed
+ * directly on those rows, other distances are computed on wrapped vectors.
+ * <p>
+ * In accelerated mode, for each instance it is kept a lower bound of the distance to the second closest
+ * centroid, as in Hamerly's algorithm. When centroids move, the bound is decreased with the largest
+ * movement of the other centroids. If the distance to the assigned centroid is smaller than the bound,
+ * or smaller than half of the distance from the assigned centroid to its closest centroid, the triangle
+ * inequality guarantees that the assignment does not change and the distances to the other centroids
+ * are not computed. The distance to the assigned centroid is always computed since it is needed
+ * for the error. The bounds are valid for any metric distance.
+ * <p>
+ * Rows are processed in parallel chunks and the partial errors are summed in the order of rows. The pool
+ * of threads is created once for a fit or a prediction and shared by all assignments and centroid updates.
+ * <p>
+ * With single precision, instances are stored in a row major float matrix for Euclidean and Manhattan
+ * distances, which halves the memory used by instances and the memory traffic of the distance computations.
+ * Centroids are copied into buffers which are reused between assignments.
+ */
+final class KMAssignment {
+
+    static final int MIN_CHUNK_ROWS = 4_096;
+
+    /**
+     * Builds a partial result from a range of rows.
+     *
+     * @param <T> type of the partial result
+     */
+    @FunctionalInterface
+    interface RangeFunction<T> {
+
+        /**
+         * @param start first row, inclusive
+         * @param end   last row, exclusive
+         * @return partial result for the given rows
+         */
+        T apply(int start, int end);
+    }
+
+    private enum Metric {
+        EUCLIDEAN,
+        MANHATTAN,
+        OTHER
+    }
+
+    private final Distance distance;
+    private final Metric metric;
+    private final int n;
+    private final int d;
+    private final double[][] x;
+    private final FMatrixDenseR xf;
+    private final ExecutorService executor;
+    private final int threads;
+    private final int[] assignment;
+    private final double[] lower;
+    private double[][] previous;
+
+    // buffers for centroids reused between assignments, spare rows are not referenced by previous
+    private double[][] spare;
+    private float[] cf;
+
+    /**
+     * Builds an assignment over instances stored in double precision.
+     */
+    KMAssignment(Distance distance, DMatrix m, boolean accelerated, ExecutorService executor, int threads) {
+        this(distance, m.rows(), m.cols(), rows(null, m), null, accelerated, executor, threads);
+    }
+
+    /**
+     * Builds an assignment over instances stored in single precision, which is available only
+     * for Euclidean and Manhattan distances.
+     */
+    KMAssignment(Distance distance, FMatrixDenseR m, boolean accelerated, ExecutorService executor, int threads) {
+        this(distance, m.rows(), m.cols(), null, m, accelerated, executor, threads);
+        if (metric == Metric.OTHER) {
+            throw new IllegalArgumentException("Single precision instances are not available for distance: %s."
+                    .formatted(distance.name()));
+        }
+    }
+
+    private KMAssignment(Distance distance, int n, int d, double[][] x, FMatrixDenseR xf, boolean accelerated,
+            ExecutorService executor, int threads) {
+        this.distance = distance;
+        this.metric = metric(distance);
+        this.n = n;
+        this.d = d;
+        this.x = x;
+        this.xf = xf;
+        this.executor = executor;
+        this.threads = threads;
+        this.assignment = IntArrays.newFill(n, -1);
+        this.lower = accelerated ? new double[n] : null;
+    }
+
+    private static Metric metric(Distance distance) {
+        if (distance.getClass() == EuclideanDistance.class) {
+            return Metric.EUCLIDEAN;
+        }
+        if (distance.getClass() == Manhattan.class) {
+            return Metric.MANHATTAN;
+        }
+        return Metric.OTHER;
+    }
+
+    /**
+     * @return true if instances can be stored in single precision for the given distance
+     */
+    static boolean supportsFloat(Distance distance) {
+        return metric(distance) != Metric.OTHER;
+    }
+
+    int rows() {
+        return n;
+    }
+
+    private double get(int row, int col) {
+        return xf == null ? x[row][col] : xf.get(row, col);
+    }
+
+    /**
+     * @return new matrix with a copy of the given instances
+     */
+    DMatrix copyRows(int[] rows) {
+        DMatrix copy = DMatrix.empty(rows.length, d);
+        for (int i = 0; i < rows.length; i++) {
+            for (int j = 0; j < d; j++) {
+                copy.set(i, j, get(rows[i], j));
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Computes the distance between two instances.
+     */
+    double distance(int a, int b) {
+        if (xf == null) {
+            return distance(x[a], x[b]);
+        }
+        float[] array = xf.array();
+        return metric == Metric.EUCLIDEAN
+                ? StrictMath.sqrt(FVectorDense.sqDistance(array, xf.rowOffset(a), array, xf.rowOffset(b), d))
+                : FVectorDense.l1Distance(array, xf.rowOffset(a), array, xf.rowOffset(b), d);
+    }
+
+    /**
+     * @return index of the assigned centroid for each row, updated by each call of {@link #assign(DMatrix)}
+     */
+    ExecutorService executor() {
+        return executor;
+    }
+
+    int threads() {
+        return threads;
+    }
+
+    int[] assignment() {
+        return assignment;
+    }
+
+    /**
+     * Assigns each row to the closest centroid.
+     *
+     * @param centroids centroids, one on each row
+     * @return sum of reduced distances from rows to the assigned centroids
+     */
+    double assign(DMatrix centroids) {
+        double[][] c = rows(spare, centroids);
+        float[] cf = xf == null ? null : (this.cf = floats(this.cf, centroids));
+        if (lower == null || previous == null || previous.length != c.length) {
+            if (lower == null) {
+                spare = c;
+            } else {
+                spare = previous;
+                previous = c;
+            }
+            return sumChunks((start, end) -> {
+                double error = 0;
+                for (int i = start; i < end; i++) {
+                    error += closest(i, c, cf, true);
+                }
+                return error;
+            });
+        }
+
+        int k = c.length;
+
+        // largest two movements of centroids since previous assignment
+
+        int argMax = -1;
+        double max1 = 0;
+        double max2 = 0;
+        for (int j = 0; j < k; j++) {
+            double shift = distance(previous[j], c[j]);
+            if (Double.isNaN(shift)) {
+                // undefined centroids invalidate all bounds
+                shift = Double.POSITIVE_INFINITY;
+            }
+            if (shift > max1) {
+                max2 = max1;
+                max1 = shift;
+                argMax = j;
+            } else if (shift > max2) {
+                max2 = shift;
+            }
+        }
+
+        // half of the distance from each centroid to its closest centroid
+
+        double[] half = new double[k];
+        Arrays.fill(half, Double.POSITIVE_INFINITY);
+        for (int j = 0; j < k; j++) {
+            for (int l = j + 1; l < k; l++) {
+                double d = distance(c[j], c[l]) / 2;
+                half[j] = Math.min(half[j], d);
+                half[l] = Math.min(half[l], d);
+            }
+        }
+        spare = previous;
+        previous = c;
+
+        final int fArgMax = argMax;
+        final double fMax1 = max1;
+        final double fMax2 = max2;
+        return sumChunks((start, end) -> {
+            double error = 0;
+            for (int i = start; i < end; i++) {
+                int a = assignment[i];
+                double reduced = reduced(i, c, cf, a);
+                double upper = distance(i, c, a, reduced);
+                lower[i] -= (a == fArgMax) ? fMax2 : fMax1;
+                if (upper < Math.max(half[a], lower[i])) {
+                    error += reduced;
+                } else {
+                    error += closest(i, c, cf, true);
+                }
+            }
+            return error;
+        });
+    }
+
+    /**
+     * Computes the error of a set of centroids without changing the assignment. The computation
+     * runs on the calling thread.
+     *
+     * @param centroids centroids, one on each row
+     * @return sum of reduced distances from rows to the closest centroids
+     */
+    double error(DMatrix centroids) {
+        double[][] c = rows(null, centroids);
+        float[] cf = xf == null ? null : floats(null, centroids);
+        double error = 0;
+        for (int i = 0; i < n; i++) {
+            error += closest(i, c, cf, false);
+        }
+        return error;
+    }
+
+    /**
+     * Finds the closest centroid scanning all centroids, ties are resolved towards the smallest index.
+     *
+     * @return reduced distance to the closest centroid
+     */
+    private double closest(int i, double[][] c, float[] cf, boolean store) {
+        int best = 0;
+        double bestReduced = reduced(i, c, cf, 0);
+        double bestDistance = distance(i, c, 0, bestReduced);
+        double second = Double.POSITIVE_INFINITY;
+        for (int j = 1; j < c.length; j++) {
+            double r = reduced(i, c, cf, j);
+            double d = distance(i, c, j, r);
+            if (bestDistance > d) {
+                second = bestDistance;
+                best = j;
+                bestDistance = d;
+                bestReduced = r;
+            } else if (second > d) {
+                second = d;
+            }
+        }
+        if (store) {
+            assignment[i] = best;
+            if (lower != null) {
+                lower[i] = second;
+            }
+        }
+        return bestReduced;
+    }
+
+    /**
+     * Computes the reduced distance between an instance and a centroid.
+     */
+    private double reduced(int i, double[][] c, float[] cf, int j) {
+        if (xf == null) {
+            return reduced(x[i], c[j]);
+        }
+        return metric == Metric.EUCLIDEAN
+                ? FVectorDense.sqDistance(xf.array(), xf.rowOffset(i), cf, j * d, d)
+                : FVectorDense.l1Distance(xf.array(), xf.rowOffset(i), cf, j * d, d);
+    }
+
+    private double reduced(double[] a, double[] b) {
+        double sum = 0;
+        switch (metric) {
+            case EUCLIDEAN -> {
+                for (int j = 0; j < a.length; j++) {
+                    double delta = a[j] - b[j];
+                    sum += delta * delta;
+                }
+            }
+            case MANHATTAN -> {
+                for (int j = 0; j < a.length; j++) {
+                    sum += Math.abs(a[j] - b[j]);
+                }
+            }
+            default -> sum = distance.reduced(DVector.wrap(a), DVector.wrap(b));
+        }
+        return sum;
+    }
+
+    private double distance(double[] a, double[] b) {
+        return distance(a, b, reduced(a, b));
+    }
+
+    /**
+     * Computes the distance between an instance and a centroid, given the reduced distance.
+     * Instance rows are available in double precision for distances other than Euclidean and Manhattan.
+     */
+    private double distance(int i, double[][] c, int j, double reduced) {
+        return distance(x == null ? null : x[i], c[j], reduced);
+    }
+
+    private double distance(double[] a, double[] b, double reduced) {
+        return switch (metric) {
+            case EUCLIDEAN -> StrictMath.sqrt(reduced);
+            case MANHATTAN -> reduced;
+            default -> distance.compute(DVector.wrap(a), DVector.wrap(b));
+        };
+    }
+
+    private double sumChunks(RangeFunction<Double> function) {
+        double sum = 0;
+        for (double partial : mapChunks(n, executor, threads, function)) {
+            sum += partial;
+        }
+        return sum;
+    }
+
+    /**
+     * Copies the rows of a matrix, reusing the given buffer if it has the same shape.
+     */
+    private static double[][] rows(double[][] buffer, DMatrix m) {
+        double[][] rows = (buffer != null && buffer.length == m.rows() && (buffer.length == 0 || buffer[0].length == m.cols()))
+                ? buffer : new double[m.rows()][m.cols()];
+        for (int i = 0; i < rows.length; i++) {
+            for (int j = 0; j < rows[i].length; j++) {
+                rows[i][j] = m.get(i, j);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Copies the values of a matrix in row major order and single precision, reusing the given buffer
+     * if it has the same size.
+     */
+    private static float[] floats(float[] buffer, DMatrix m) {
+        int cols = m.cols();
+        float[] values = (buffer != null && buffer.length == m.rows() * cols) ? buffer : new float[m.rows() * cols];
+        for (int i = 0; i < m.rows(); i++) {
+            for (int j = 0; j < cols; j++) {
+                values[i * cols + j] = (float) m.get(i, j);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Creates the pool of threads used for a fit or a prediction. The caller shuts down the pool.
+     *
+     * @param poolSize number of threads, negative for all available processors and zero for sequential execution
+     * @return pool of threads, or null if execution is sequential
+     */
+    static ExecutorService newPool(int poolSize) {
+        return threads(poolSize) > 1 ? Executors.newFixedThreadPool(threads(poolSize)) : null;
+    }
+
+    /**
+     * Splits rows into consecutive chunks and computes a partial result for each chunk. If there is no
+     * pool or there are not enough rows, a single partial result is computed on the calling thread.
+     *
+     * @param n        number of rows
+     * @param executor pool of threads, null for sequential execution
+     * @param threads  number of threads of the pool
+     * @param function computes a partial result from a range of rows
+     * @param <T>      type of partial result
+     * @return partial results in the order of rows
+     */
+    static <T> List<T> mapChunks(int n, ExecutorService executor, int threads, RangeFunction<T> function) {
+        int chunks = Math.max(1, Math.min(threads, n / MIN_CHUNK_ROWS));
+        return parallel(chunks, executor, chunk -> function.apply(
+                (int) ((long) n * chunk / chunks), (int) ((long) n * (chunk + 1) / chunks)));
+    }
+
+    /**
+     * Runs independent tasks on a pool of threads. Tasks must not submit other tasks to the same pool.
+     *
+     * @param tasks    number of tasks
+     * @param executor pool of threads, null for sequential execution
+     * @param task     computes the result of a task given its index
+     * @param <T>      type of result
+     * @return results in the order of tasks
+     */
+    static <T> List<T> parallel(int tasks, ExecutorService executor, IntFunction<T> task) {
+        List<T> results = new ArrayList<>(tasks);
+        if (executor == null || tasks <= 1) {
+            for (int i = 0; i < tasks; i++) {
+                results.add(task.apply(i));
+            }
+            return results;
+        }
+        try {
+            List<Future<T>> futures = new ArrayList<>(tasks);
+            for (int i = 0; i < tasks; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> task.apply(index)));
+            }
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Parallel clustering was interrupted.", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException("Parallel clustering failed.", ex.getCause());
+        }
+    }
+
+    static int threads(int poolSize) {
+        return poolSize < 0 ? Runtime.getRuntime().availableProcessors() : poolSize;
+    }
+}
@@ -22,13 +22,15 @@
 package rapaio.ml.model.km;
 
 import java.io.Serial;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.IntStream;
 
-import rapaio.core.stat.Mean;
 import rapaio.data.Frame;
 import rapaio.data.SolidFrame;
 import rapaio.data.Unique;
@@ -37,8 +39,10 @@ import rapaio.data.VarDouble;
 import rapaio.data.VarInt;
 import rapaio.data.VarType;
 import rapaio.data.preprocessing.VarSort;
+import rapaio.data.sample.RowSampler;
 import rapaio.math.linear.DMatrix;
-import rapaio.math.linear.DVector;
+import rapaio.math.linear.FMatrix;
+import rapaio.math.linear.dense.FMatrixDenseR;
 import rapaio.ml.common.Capabilities;
 import rapaio.ml.common.distance.Distance;
 import rapaio.ml.common.distance.EuclideanDistance;
@@ -48,7 +52,7 @@ import rapaio.ml.model.ClusteringModel;
 import rapaio.ml.model.RunInfo;
 import rapaio.printer.Printer;
 import rapaio.printer.opt.POption;
-import rapaio.util.collection.IntArrays;
+import rapaio.util.function.IntInt2DoubleBiFunction;
 
 /**
  * KMeans clustering algorithm.
@@ -72,6 +76,29 @@ public class KMCluster extends ClusteringModel<KMCluster, KMClusterResult, RunIn
         Distance distance();
 
         void recomputeCentroids(int k, DMatrix c, DMatrix instances, int[] assignment);
+
+        /**
+         * Recomputes centroids using a pool of threads. The default implementation runs sequentially.
+         *
+         * @param executor pool of threads shared by a fit, null for sequential execution
+         * @param threads  number of threads of the pool
+         */
+        default void recomputeCentroids(int k, DMatrix c, DMatrix instances, int[] assignment,
+                ExecutorService executor, int threads) {
+            recomputeCentroids(k, c, instances, assignment);
+        }
+
+        /**
+         * Recomputes centroids from instances stored in single precision. The default implementation
+         * works on a temporary double precision copy of the instances.
+         *
+         * @param executor pool of threads shared by a fit, null for sequential execution
+         * @param threads  number of threads of the pool
+         */
+        default void recomputeCentroids(int k, DMatrix c, FMatrix instances, int[] assignment,
+                ExecutorService executor, int threads) {
+            recomputeCentroids(k, c, instances.dm(), assignment, executor, threads);
+        }
     }
 
     public static Method KMeans = new Method() {
@@ -81,19 +108,21 @@ public class KMCluster extends ClusteringModel<KMCluster, KMClusterResult, RunIn
             return new EuclideanDistance();
         }
 
+        @Override
         public void recomputeCentroids(int k, DMatrix c, DMatrix instances, int[] assignment) {
+            recomputeCentroids(k, c, instances, assignment, null, 1);
+        }
 
-            // we compute mean for each feature separately
-            for (int j = 0; j < instances.cols(); j++) {
-                // collect values for each cluster in mean, for a given input feature
-                Var[] means = IntStream.range(0, k).mapToObj(i -> VarDouble.empty()).toArray(VarDouble[]::new);
-                for (int i = 0; i < instances.rows(); i++) {
-                    means[assignment[i]].addDouble(instances.get(i, j));
-                }
-                for (int i = 0; i < k; i++) {
-                    c.set(i, j, Mean.of(means[i]).value());
-                }
-            }
+        @Override
+        public void recomputeCentroids(int k, DMatrix c, DMatrix instances, int[] assignment,
+                ExecutorService executor, int threads) {
+            recomputeMeans(k, c, instances.rows(), instances.cols(), instances::get, assignment, executor, threads);
+        }
+
+        @Override
+        public void recomputeCentroids(int k, DMatrix c, FMatrix instances, int[] assignment,
+                ExecutorService executor, int threads) {
+            recomputeMeans(k, c, instances.rows(), instances.cols(), instances::get, assignment, executor, threads);
         }
 
         @Override
@@ -110,19 +139,13 @@ public class KMCluster extends ClusteringModel<KMCluster, KMClusterResult, RunIn
         }
 
         public void recomputeCentroids(int k, DMatrix c, DMatrix instances, int[] assignment) {
+            recomputeMedians(k, c, instances.rows(), instances.cols(), instances::get, assignment);
+        }
 
-            // we compute mean for each feature separately
-            for (int j = 0; j < instances.cols(); j++) {
-                // collect values for each cluster in mean, for a given input feature
-                Var[] means = IntStream.range(0, k).mapToObj(i -> VarDouble.empty()).toArray(VarDouble[]::new);
-                for (int i = 0; i < instances.rows(); i++) {
-                    means[assignment[i]].addDouble(instances.get(i, j));
-                }
-                for (int i = 0; i < k; i++) {
-                    Var sorted = means[i].fapply(VarSort.ascending());
-                    c.set(i, j, sorted.getDouble(sorted.size() / 2));
-                }
-            }
+        @Override
+        public void recomputeCentroids(int k, DMatrix c, FMatrix instances, int[] assignment,
+                ExecutorService executor, int threads) {
+            recomputeMedians(k, c, instances.rows(), instances.cols(), instances::get, assignment);
         }
 
         @Override
@@ -155,13 +178,46 @@ public class KMCluster extends ClusteringModel<KMCluster, KMClusterResult, RunIn
     public final ValueParam<Method, KMCluster> method = new ValueParam<>(this, null, "method", Objects::nonNull);
 
     /**
-     * Tolerance for convergence criteria.
+     * Tolerance for convergence criteria. Full batch iterations stop when the error decreases less than
+     * this value, mini batch updates stop when no centroid moves more than this value.
      */
     public final ValueParam<Double, KMCluster> eps = new ValueParam<>(this, 1e-20, "eps");
 
+    /**
+     * Uses triangle inequality bounds to skip distance computations when assigning instances
+     * to centroids. The assignment is the same as with a full scan over centroids.
+     */
+    public final ValueParam<Boolean, KMCluster> accelerated = new ValueParam<>(this, true, "accelerated", Objects::nonNull);
+
+    /**
+     * Stores instances in single precision with Euclidean or Manhattan distances. Instances are copied
+     * from the frame directly into a float matrix, which halves the memory used and the memory traffic
+     * of the assignment, while centroids are still accumulated in double precision. Assignments can differ
+     * from double precision only for instances which are almost at equal distance from two centroids.
+     */
+    public final ValueParam<Boolean, KMCluster> floatPrecision = new ValueParam<>(this, false, "floatPrecision", Objects::nonNull);
+
+    /**
+     * Number of threads for execution pool size. Negative values are considered
+     * automatically as pool of number of available CPUs, zero means
+     * no pooling and positive values means pooling with a specified
+     * value. Assignment and centroid computation run in parallel over chunks of rows,
+     * initialization restarts run in parallel.
+     */
+    public final ValueParam<Integer, KMCluster> poolSize = new ValueParam<>(this, 0, "poolSize", Objects::nonNull);
+
+    /**
+     * Row sampler used to draw mini batches. If specified, centroids are fitted with mini batch updates,
+     * one batch at each run, and only the sampled rows are copied. Otherwise, centroids are fitted
+     * with full batch iterations. Mini batch updates are available only for KMeans method. Weights of
+     * the sampled rows scale the step of each instance in the centroid updates.
+     */
+    public final ValueParam<RowSampler, KMCluster> batchSampler = new ValueParam<>(this, null, "batchSampler", x -> true);
+
     // clustering artifacts
 
     private DMatrix c;
+    private double[] counts;
     private Frame centroids;
     private VarDouble errors;
 
@@ -200,95 +256,262 @@ public class KMCluster extends ClusteringModel<KMCluster, KMClusterResult, RunIn
 
     @Override
     public KMCluster coreFit(Frame initialDf, Var weights) {
+        if (batchSampler.get() != null) {
+            return miniBatchFit(initialDf, weights);
+        }
 
         Random random = getRandom();
-        DMatrix m = DMatrix.copy(initialDf);
-        c = initializeClusters(random, m);
+        Instances instances = instances(initialDf);
+        ExecutorService executor = KMAssignment.newPool(poolSize.get());
+        int[] assignment;
+        try {
+            KMAssignment assigner = assignment(instances, accelerated.get(), executor);
+            c = initializeClusters(random, instances, assigner);
+
+            assignment = assigner.assignment();
+            errors = VarDouble.empty().name("errors");
+
+            errors.addDouble(assigner.assign(c));
+            repairEmptyClusters(random, instances, assigner);
+
+            int rounds = runs.get();
+            while (rounds-- > 0) {
+                recomputeCentroids(instances, assigner);
+                errors.addDouble(assigner.assign(c));
+                repairEmptyClusters(random, instances, assigner);
+
+                if (runningHook != null) {
+                    learned = true;
+                    runningHook.get().accept(RunInfo.forClustering(this, runs.get() - rounds));
+                }
+                int erc = errors.size();
+                if (erc > 1 && errors.getDouble(erc - 2) - errors.getDouble(erc - 1) < eps.get()
+                        && errors.getDouble(erc - 1) <= errors.getDouble(erc - 2)) {
+                    break;
+                }
+            }
+        } finally {
+            shutdown(executor);
+        }
 
-        int[] assignment = IntArrays.newFill(m.rows(), -1);
-        errors = VarDouble.empty().name("errors");
+        // cluster sizes are the weights of the centroids for further mini batch updates
+        counts = new double[k.get()];
+        for (int cluster : assignment) {
+            counts[cluster]++;
+        }
+        centroids = SolidFrame.matrix(c, inputNames);
+        learned = true;
+        return this;
+    }
 
-        assignToCentroids(m, assignment, true);
-        repairEmptyClusters(random, m, assignment);
+    private KMCluster miniBatchFit(Frame df, Var weights) {
+        checkMiniBatch();
+        Random random = getRandom();
+        c = null;
+        errors = VarDouble.empty().name("errors");
+        DMatrix previous = null;
+        ExecutorService executor = KMAssignment.newPool(poolSize.get());
+        try {
+            for (int run = 1; run <= runs.get(); run++) {
+                RowSampler.Sample sample = batchSampler.get().nextSample(random, df, weights);
+                updateBatch(random, instances(sample.df()), sample.weights(), executor);
+                if (runningHook != null) {
+                    learned = true;
+                    runningHook.get().accept(RunInfo.forClustering(this, run));
+                }
+                if (previous != null && maxShift(previous) < eps.get()) {
+                    break;
+                }
+                previous = c.copy();
+            }
+        } finally {
+            shutdown(executor);
+        }
+        centroids = SolidFrame.matrix(c, inputNames);
+        learned = true;
+        return this;
+    }
 
-        int rounds = runs.get();
-        while (rounds-- > 0) {
-            method.get().recomputeCentroids(k.get(), c, m, assignment);
-            assignToCentroids(m, assignment, true);
-            repairEmptyClusters(random, m, assignment);
+    /**
+     * Updates the centroids with a new batch of instances, which allows fitting over a stream of frames.
+     * If the model was not fitted, the centroids are initialized from the given frame, otherwise the
+     * frame must contain the input variables used at fitting. The update is the same as a mini batch
+     * update, thus it is available only for KMeans method.
+     *
+     * @param df batch of instances
+     * @return fitted model
+     */
+    public KMCluster partialFit(Frame df) {
+        return partialFit(df, VarDouble.fill(df.rowCount(), 1));
+    }
 
-            if (runningHook != null) {
-                learned = true;
-                runningHook.get().accept(RunInfo.forClustering(this, runs.get() - rounds));
-            }
-            int erc = errors.size();
-            if (erc > 1 && errors.getDouble(erc - 2) - errors.getDouble(erc - 1) < eps.get()
-                    && errors.getDouble(erc - 1) <= errors.getDouble(erc - 2)) {
-                break;
-            }
+    /**
+     * Updates the centroids with a new batch of weighted instances, see {@link #partialFit(Frame)}.
+     *
+     * @param df      batch of instances
+     * @param weights weights of instances
+     * @return fitted model
+     */
+    public KMCluster partialFit(Frame df, Var weights) {
+        checkMiniBatch();
+        if (!learned) {
+            inputNames = df.varNames();
+            inputTypes = Arrays.stream(inputNames).map(name -> df.rvar(name).type()).toArray(VarType[]::new);
+            capabilities().checkAtLearnPhase(df, weights);
+            c = null;
+            errors = VarDouble.empty().name("errors");
+        }
+        ExecutorService executor = KMAssignment.newPool(poolSize.get());
+        try {
+            updateBatch(getRandom(), instances(df.mapVars(inputNames)), weights, executor);
+        } finally {
+            shutdown(executor);
         }
         centroids = SolidFrame.matrix(c, inputNames);
         learned = true;
         return this;
     }
 
-    private DMatrix initializeClusters(Random random, DMatrix m) {
-        DMatrix bestCentroids = init.get().init(random, method.get().distance(), m, k.get());
-        double bestError = computeInitError(m, bestCentroids);
+    private void checkMiniBatch() {
+        if (method.get() != KMeans) {
+            throw new IllegalArgumentException("Mini batch updates are available only for KMeans method, method: %s."
+                    .formatted(method.get()));
+        }
+    }
 
-        // compute initial restarts if nstart is greater than 1
-        // the best restart is kept as initial centroids
+    /**
+     * Mini batch update as described by Sculley in "Web-scale k-means clustering". Instances
+     * of the batch are assigned to the current centroids, the assignment error is appended to errors,
+     * then each centroid is moved towards each assigned instance with a learning rate equal with the
+     * weight of the instance divided by the sum of weights of the instances assigned to the centroid
+     * so far. Thus, each centroid is the weighted running mean of all instances assigned to it.
+     * Instances with zero or missing weights do not move centroids.
+     */
+    private void updateBatch(Random random, Instances batch, Var weights, ExecutorService executor) {
+        KMAssignment assigner = assignment(batch, false, executor);
+        if (c == null) {
+            if (batch.rows() < k.get()) {
+                throw new IllegalArgumentException("Cannot initialize %d centroids from a batch of %d instances."
+                        .formatted(k.get(), batch.rows()));
+            }
+            c = initializeClusters(random, batch, assigner);
+            counts = new double[k.get()];
+        }
+        errors.addDouble(assigner.assign(c));
+        int[] assignment = assigner.assignment();
+        for (int i = 0; i < batch.rows(); i++) {
+            double weight = weights.getDouble(i);
+            if (!(weight > 0)) {
+                continue;
+            }
+            int cluster = assignment[i];
+            counts[cluster] += weight;
+            double rate = weight / counts[cluster];
+            for (int j = 0; j < batch.cols(); j++) {
+                double value = batch.get(i, j);
+                if (!Double.isNaN(value)) {
+                    c.set(cluster, j, c.get(cluster, j) + rate * (value - c.get(cluster, j)));
+                }
+            }
+        }
+    }
 
-        for (int i = 1; i < nstart.get(); i++) {
-            DMatrix nextCentroids = init.get().init(random, method.get().distance(), m, k.get());
-            double nextError = computeInitError(m, nextCentroids);
-            if (nextError < bestError) {
-                bestCentroids = nextCentroids;
-                bestError = nextError;
+    /**
+     * Computes the largest Euclidean distance between the current centroids and the given ones.
+     */
+    private double maxShift(DMatrix previous) {
+        double max = 0;
+        for (int i = 0; i < c.rows(); i++) {
+            double sum = 0;
+            for (int j = 0; j < c.cols(); j++) {
+                double delta = c.get(i, j) - previous.get(i, j);
+                sum += delta * delta;
             }
+            max = Math.max(max, Math.sqrt(sum));
         }
-        return bestCentroids;
+        return max;
     }
 
-    private double computeInitError(DMatrix m, DMatrix centroids) {
-        double sum = 0;
-        for (int i = 0; i < m.rows(); i++) {
-            DVector mrow = m.mapRow(i);
-            int cluster = findClosestCentroid(mrow, centroids);
-            sum += method.get().distance().reduced(centroids.mapRow(cluster), mrow);
+    private record Restart(DMatrix centroids, double error) {
+    }
+
+    /**
+     * Instances used for fitting. If single precision is used, instances are copied from the frame
+     * directly into a float matrix and no double precision copy is kept.
+     */
+    private record Instances(DMatrix m, FMatrixDenseR f) {
+
+        int rows() {
+            return m != null ? m.rows() : f.rows();
+        }
+
+        int cols() {
+            return m != null ? m.cols() : f.cols();
+        }
+
+        double get(int row, int col) {
+            return m != null ? m.get(row, col) : f.get(row, col);
+        }
+
+        KMAssignment assignment(Distance distance, boolean accelerated, ExecutorService executor, int threads) {
+            return m != null
+                    ? new KMAssignment(distance, m, accelerated, executor, threads)
+                    : new KMAssignment(distance, f, accelerated, executor, threads);
         }
-        return sum;
     }
 
-    private void assignToCentroids(DMatrix m, int[] assignment, boolean withErrors) {
-        double totalError = 0.0;
-        for (int i = 0; i < m.rows(); i++) {
-            DVector row = m.mapRow(i);
-            int cluster = findClosestCentroid(row, c);
-            if (withErrors) {
-                totalError += method.get().distance().reduced(c.mapRow(cluster), row);
-            }
-            assignment[i] = cluster;
+    private Instances instances(Frame df) {
+        if (floatPrecision.get() && KMAssignment.supportsFloat(method.get().distance())) {
+            return new Instances(null, FMatrix.copy(df));
         }
-        if (withErrors) {
-            errors.addDouble(totalError);
+        return new Instances(DMatrix.copy(df), null);
+    }
+
+    private void recomputeCentroids(Instances instances, KMAssignment assigner) {
+        if (instances.m() != null) {
+            method.get().recomputeCentroids(k.get(), c, instances.m(), assigner.assignment(),
+                    assigner.executor(), assigner.threads());
+        } else {
+            method.get().recomputeCentroids(k.get(), c, instances.f(), assigner.assignment(),
+                    assigner.executor(), assigner.threads());
+        }
+    }
+
+    private KMAssignment assignment(Instances instances, boolean accelerated, ExecutorService executor) {
+        return instances.assignment(method.get().distance(), accelerated, executor, KMAssignment.threads(poolSize.get()));
+    }
+
+    private static void shutdown(ExecutorService executor) {
+        if (executor != null) {
+            executor.shutdownNow();
         }
     }
 
-    private int findClosestCentroid(DVector mrow, DMatrix centroids) {
-        int cluster = 0;
-        double d = method.get().distance().compute(mrow, centroids.mapRow(0));
-        for (int j = 1; j < centroids.rows(); j++) {
-            double dd = method.get().distance().compute(mrow, centroids.mapRow(j));
-            if (d > dd) {
-                d = dd;
-                cluster = j;
+    private DMatrix initializeClusters(Random random, Instances instances, KMAssignment assigner) {
+
+        // initial centroids are drawn in sequence from the main random generator, thus the
+        // result does not depend on pool size; restarts are evaluated in parallel and the
+        // restart with the smallest error is kept as initial centroids
+
+        DMatrix[] candidates = new DMatrix[nstart.get()];
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = instances.m() != null
+                    ? init.get().init(random, method.get().distance(), instances.m(), k.get())
+                    : init.get().init(random, assigner, k.get());
+        }
+        List<Restart> restarts = KMAssignment.parallel(candidates.length, assigner.executor(),
+                i -> new Restart(candidates[i], assigner.error(candidates[i])));
+        Restart best = restarts.get(0);
+        for (int i = 1; i < restarts.size(); i++) {
+            if (restarts.get(i).error < best.error) {
+                best = restarts.get(i);
             }
         }
-        return cluster;
+        return best.centroids;
     }
 
-    private void repairEmptyClusters(Random random, DMatrix df, int[] assignment) {
+    private void repairEmptyClusters(Random random, Instances df, KMAssignment assigner) {
+        int[] assignment = assigner.assignment();
         // check for empty clusters, if any is found then
         // select random points to be new clusters, different than
         // existing clusters
@@ -347,10 +570,91 @@ public class KMCluster extends ClusteringModel<KMCluster, KMClusterResult, RunIn
         // the stopping criterion is given by a bound on error or a
         // maximum iteration
 
-        method.get().recomputeCentroids(k.get(), c, df, assignment);
+        recomputeCentroids(df, assigner);
+    }
+
+    /**
+     * Computes centroids as compensated means of the assigned instances, with the same two passes
+     * as {@link rapaio.core.stat.Mean}. Missing values are ignored. Partial sums are computed over
+     * chunks of rows and merged in the order of rows.
+     */
+    private static void recomputeMeans(int k, DMatrix c, int n, int d, IntInt2DoubleBiFunction instances,
+            int[] assignment, ExecutorService executor, int threads) {
+        int len = k * d;
+
+        // first pass, sums and counts of non missing values
+
+        double[] sums = merge(KMAssignment.mapChunks(n, executor, threads, (start, end) -> {
+            double[] partial = new double[2 * len];
+            for (int i = start; i < end; i++) {
+                int offset = assignment[i] * d;
+                for (int j = 0; j < d; j++) {
+                    double value = instances.applyIntIntAsDouble(i, j);
+                    if (!Double.isNaN(value)) {
+                        partial[offset + j] += value;
+                        partial[len + offset + j]++;
+                    }
+                }
+            }
+            return partial;
+        }));
+        double[] means = new double[len];
+        for (int i = 0; i < len; i++) {
+            means[i] = sums[i] / sums[len + i];
+        }
+
+        // second pass, sums of deviations from mean which corrects the rounding errors
+
+        double[] deviations = merge(KMAssignment.mapChunks(n, executor, threads, (start, end) -> {
+            double[] partial = new double[len];
+            for (int i = start; i < end; i++) {
+                int offset = assignment[i] * d;
+                for (int j = 0; j < d; j++) {
+                    double value = instances.applyIntIntAsDouble(i, j);
+                    if (!Double.isNaN(value)) {
+                        partial[offset + j] += value - means[offset + j];
+                    }
+                }
+            }
+            return partial;
+        }));
+        for (int i = 0; i < k; i++) {
+            for (int j = 0; j < d; j++) {
+                c.set(i, j, means[i * d + j] + deviations[i * d + j] / sums[len + i * d + j]);
+            }
+        }
+    }
+
+    /**
+     * Computes centroids as medians of the assigned instances, for each feature separately.
+     */
+    private static void recomputeMedians(int k, DMatrix c, int n, int d, IntInt2DoubleBiFunction instances,
+            int[] assignment) {
+        for (int j = 0; j < d; j++) {
+            // collect values for each cluster in mean, for a given input feature
+            Var[] means = IntStream.range(0, k).mapToObj(i -> VarDouble.empty()).toArray(VarDouble[]::new);
+            for (int i = 0; i < n; i++) {
+                means[assignment[i]].addDouble(instances.applyIntIntAsDouble(i, j));
+            }
+            for (int i = 0; i < k; i++) {
+                Var sorted = means[i].fapply(VarSort.ascending());
+                c.set(i, j, sorted.getDouble(sorted.size() / 2));
+            }
+        }
     }
 
-    private boolean checkIfEqual(DMatrix centroids, int c, DMatrix df, int i) {
+    private static double[] merge(List<double[]> partials) {
+        double[] result = partials.get(0);
+        for (int i = 1; i < partials.size(); i++) {
+            double[] partial = partials.get(i);
+            for (int j = 0; j < result.length; j++) {
+                result[j] += partial[j];
+            }
+        }
+        return result;
+    }
+
+    private boolean checkIfEqual(DMatrix centroids, int c, Instances df, int i) {
         int count = 0;
         for (int j = 0; j < centroids.cols(); j++) {
             if (centroids.get(c, j) == df.get(i, j)) {
@@ -362,10 +666,14 @@ public class KMCluster extends ClusteringModel<KMCluster, KMClusterResult, RunIn
 
     @Override
     public KMClusterResult corePredict(Frame df, boolean withScores) {
-        int[] assignment = IntArrays.newFill(df.rowCount(), -1);
-        DMatrix m = DMatrix.copy(df);
-        assignToCentroids(m, assignment, false);
-        return KMClusterResult.valueOf(this, df, VarInt.wrap(assignment));
+        ExecutorService executor = KMAssignment.newPool(poolSize.get());
+        KMAssignment assigner = assignment(instances(df), false, executor);
+        try {
+            assigner.assign(c);
+        } finally {
+            shutdown(executor);
+        }
+        return KMClusterResult.valueOf(this, df, VarInt.wrap(assigner.assignment()));
     }
 
     @Override
@@ -32,6 +32,7 @@ import rapaio.math.linear.DMatrix;
 import rapaio.ml.common.distance.Distance;
 import rapaio.util.collection.DoubleArrays;
 import rapaio.util.collection.IntArrays;
+import rapaio.util.function.IntInt2DoubleBiFunction;
 
 /**
  * Function which produces initial centroids for KMeans algorithm
@@ -44,43 +45,67 @@ public enum KMClusterInit implements Serializable {
         public DMatrix init(Random random, Distance distance, DMatrix m, int k) {
             return m.mapRowsNew(SamplingTools.sampleWOR(random, m.rows(), k));
         }
+
+        @Override
+        DMatrix init(Random random, KMAssignment instances, int k) {
+            return instances.copyRows(SamplingTools.sampleWOR(random, instances.rows(), k));
+        }
     },
     PlusPlus {
         @Override
         public DMatrix init(final Random random, Distance distance, DMatrix m, int k) {
+            return m.mapRowsNew(plusPlus(random, m.rows(), k, (a, b) -> distance.compute(m.mapRow(a), m.mapRow(b))));
+        }
+
+        @Override
+        DMatrix init(Random random, KMAssignment instances, int k) {
+            return instances.copyRows(plusPlus(random, instances.rows(), k, instances::distance));
+        }
+    };
 
-            int[] centroids = IntArrays.newFill(k, -1);
+    public abstract DMatrix init(Random random, Distance distance, DMatrix m, int k);
 
-            centroids[0] = random.nextInt(m.rows());
-            Set<Integer> ids = new HashSet<>();
-            ids.add(centroids[0]);
+    /**
+     * Produces initial centroids from the instances stored by an assignment, which does not
+     * require a double precision copy of the instances.
+     */
+    abstract DMatrix init(Random random, KMAssignment instances, int k);
 
-            double[] p = new double[m.rows()];
-            for (int i = 1; i < k; i++) {
-                // fill weights with 0
-                Arrays.fill(p, 0);
-                // assign weights to the minimum distance to center
-                for (int j = 0; j < m.rows(); j++) {
-                    if (ids.contains(j)) {
-                        continue;
-                    }
-                    p[j] = distance.compute(m.mapRow(centroids[0]), m.mapRow(j));
-                    for (int l = 1; l < i; l++) {
-                        p[j] = Math.min(p[j], distance.compute(m.mapRow(centroids[l]), m.mapRow(j)));
-                    }
-                }
-                // normalize the weights
-                double sum = DoubleArrays.sum(p, 0, p.length);
-                DoubleArrays.div(p, 0, sum, p.length);
+    /**
+     * Selects the rows of initial centroids, each new centroid is sampled with probability
+     * proportional to the distance to the closest selected centroid.
+     */
+    private static int[] plusPlus(Random random, int n, int k, IntInt2DoubleBiFunction distance) {
+
+        int[] centroids = IntArrays.newFill(k, -1);
+
+        centroids[0] = random.nextInt(n);
+        Set<Integer> ids = new HashSet<>();
+        ids.add(centroids[0]);
 
-                int next = SamplingTools.sampleWeightedWR(random, 1, p)[0];
-                centroids[i] = next;
-                ids.add(next);
+        // minimum distance to the selected centers, updated with the last selected center
+        double[] min = new double[n];
+        double[] p = new double[n];
+        for (int i = 1; i < k; i++) {
+            // fill weights with 0
+            Arrays.fill(p, 0);
+            // assign weights to the minimum distance to center
+            for (int j = 0; j < n; j++) {
+                if (ids.contains(j)) {
+                    continue;
+                }
+                double d = distance.applyIntIntAsDouble(centroids[i - 1], j);
+                min[j] = (i == 1) ? d : Math.min(min[j], d);
+                p[j] = min[j];
             }
+            // normalize the weights
+            double sum = DoubleArrays.sum(p, 0, p.length);
+            DoubleArrays.div(p, 0, sum, p.length);
 
-            return m.mapRowsNew(centroids);
+            int next = SamplingTools.sampleWeightedWR(random, 1, p)[0];
+            centroids[i] = next;
+            ids.add(next);
         }
-    };
-
-    public abstract DMatrix init(Random random, Distance distance, DMatrix m, int k);
+        return centroids;
+    }
 }
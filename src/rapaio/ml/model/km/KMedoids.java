@@ -24,12 +24,18 @@ package rapaio.ml.model.km;
 import static java.lang.StrictMath.max;
 import static java.lang.StrictMath.min;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -50,7 +56,7 @@ import rapaio.util.collection.DoubleArrays;
 import rapaio.util.collection.IntArrays;
 
 /**
- * KMedoids clustering algorithms. Implemented methods are alternate and PAM. Fast PAM has to be implemented.
+ * KMedoids clustering algorithms. Implemented methods are alternate, PAM and fast PAM.
  *
  * <ul>
  * <li>ALTERNATE</li> method implemented according with the description presented in
@@ -59,6 +65,9 @@ import rapaio.util.collection.IntArrays;
  * <li>FAST_PAM</li> method implemented according with description presented in
  * "Fast and eager k-medoids clustering:  runtime improvement of the PAM, CLARA, and CLARANS algorithms"
  * </ul>
+ * <p>
+ * For large data sets CLARA can be used by specifying a sample size. The selected method runs on multiple
+ * samples of instances and the medoids with the smallest error on the whole data set are kept.
  */
 public class KMedoids extends ClusteringModel<KMedoids, ClusteringResult<KMedoids>, RunInfo<KMedoids>> {
 
@@ -70,6 +79,10 @@ public class KMedoids extends ClusteringModel<KMedoids, ClusteringResult<KMedoid
         return new KMedoids().method.set(Method.PAM).k.set(k);
     }
 
+    public static KMedoids newFastPAMModel(int k) {
+        return new KMedoids().method.set(Method.FAST_PAM).k.set(k);
+    }
+
     private static final Logger LOGGER = Logger.getLogger(KMedoids.class.getName());
 
     /**
@@ -77,7 +90,15 @@ public class KMedoids extends ClusteringModel<KMedoids, ClusteringResult<KMedoid
      */
     public enum Method {
         ALTERNATE,
-        PAM
+        PAM,
+        /**
+         * Starts from random medoids and at each iteration applies the best swap between a medoid
+         * and a non medoid. The change of error for a candidate and all medoids is computed in a single
+         * pass over instances, using the distances to the closest and second closest medoids, thus
+         * all swaps are evaluated in {@code O(n^2)} instead of {@code O(k n^2)}. Candidates are evaluated
+         * in parallel.
+         */
+        FAST_PAM
     }
 
     public final ValueParam<Method, KMedoids> method = new ValueParam<>(this, Method.PAM, "method");
@@ -88,6 +109,32 @@ public class KMedoids extends ClusteringModel<KMedoids, ClusteringResult<KMedoid
 
     public final ValueParam<Integer, KMedoids> maxIt = new ValueParam<>(this, 1000, "maxIt");
 
+    /**
+     * Memory budget in bytes for the distance cache. Distances between instances which does not fit
+     * into the budget are computed at each request. At most {@code n(n-1)/2} distances are allocated,
+     * thus small inputs do not use the whole budget.
+     */
+    public final ValueParam<Long, KMedoids> cacheSize = new ValueParam<>(this, 1L << 30, "cacheSize", x -> x != null && x >= 0);
+
+    /**
+     * Number of instances of each CLARA sample. If zero or greater than or equal with the number of instances,
+     * the method runs on all instances.
+     */
+    public final ValueParam<Integer, KMedoids> sampleSize = new ValueParam<>(this, 0, "sampleSize", x -> x != null && x >= 0);
+
+    /**
+     * Number of CLARA samples.
+     */
+    public final ValueParam<Integer, KMedoids> samples = new ValueParam<>(this, 5, "samples", x -> x != null && x > 0);
+
+    /**
+     * Number of threads for execution pool size. Negative values are considered
+     * automatically as pool of number of available CPUs, zero means
+     * no pooling and positive values means pooling with a specified
+     * value.
+     */
+    public final ValueParam<Integer, KMedoids> poolSize = new ValueParam<>(this, 0, "poolSize", Objects::nonNull);
+
     private DMatrix c;
 
     private VarDouble errors;
@@ -117,24 +164,112 @@ public class KMedoids extends ClusteringModel<KMedoids, ClusteringResult<KMedoid
                     "Number of clusters %d bigger than number of instances %d.".formatted(k.get(), x.rows()));
         }
 
-        if (method.get() == Method.ALTERNATE) {
-            coreFitAlternate(x);
-        } else {
-            coreFitPAM(x);
+        Random random = getRandom();
+        ExecutorService executor = KMAssignment.newPool(poolSize.get());
+        try {
+            if (sampleSize.get() > 0 && sampleSize.get() < x.rows()) {
+                coreFitClara(x, random, executor);
+            } else {
+                fitMedoids(x, random, executor);
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
         }
         return this;
     }
 
-    void coreFitAlternate(DMatrix x) {
+    private int[] fitMedoids(DMatrix x, Random random, ExecutorService executor) {
+        return switch (method.get()) {
+            case ALTERNATE -> coreFitAlternate(x, random);
+            case PAM -> coreFitPAM(x);
+            case FAST_PAM -> coreFitFastPAM(x, random, executor);
+        };
+    }
+
+    /**
+     * Runs the fit method on samples of instances. The medoids of the best sample are included in the
+     * next samples, and the medoids with the smallest error on all instances are kept. The recorded
+     * errors are the errors on all instances of each sample.
+     */
+    void coreFitClara(DMatrix x, Random random, ExecutorService executor) {
+        if (sampleSize.get() < k.get()) {
+            throw new IllegalArgumentException(
+                    "Sample size %d is smaller than number of clusters %d.".formatted(sampleSize.get(), k.get()));
+        }
+        VarDouble claraErrors = VarDouble.empty().name("errors");
+        int[] best = null;
+        double bestError = Double.NaN;
+        for (int s = 0; s < samples.get(); s++) {
+            Set<Integer> selection = new LinkedHashSet<>();
+            if (best != null) {
+                Arrays.stream(best).forEach(selection::add);
+            }
+            for (int row : SamplingTools.sampleWOR(random, x.rows(), sampleSize.get())) {
+                if (selection.size() == sampleSize.get()) {
+                    break;
+                }
+                selection.add(row);
+            }
+            int[] rows = selection.stream().mapToInt(Integer::intValue).toArray();
+
+            int[] medoids = fitMedoids(x.mapRowsNew(rows), random, executor);
+            for (int i = 0; i < medoids.length; i++) {
+                medoids[i] = rows[medoids[i]];
+            }
+            double error = evaluate(x, medoids, executor);
+            claraErrors.addDouble(error);
+            LOGGER.finest("CLARA sample %d error: %.6f".formatted(s + 1, error));
+            if (best == null || error < bestError) {
+                best = medoids;
+                bestError = error;
+            }
+        }
+        c = x.mapRowsNew(best);
+        errors = claraErrors;
+    }
+
+    /**
+     * Computes on the calling thread the sum of distances from instances to the closest medoids.
+     */
+    double evaluate(DMatrix x, int[] medoids) {
+        return evaluate(x, medoids, null);
+    }
+
+    /**
+     * Computes the sum of distances from instances to the closest medoids without caching distances.
+     */
+    double evaluate(DMatrix x, int[] medoids, ExecutorService executor) {
+        double error = 0;
+        int threads = KMAssignment.threads(poolSize.get());
+        for (double partial : KMAssignment.mapChunks(x.rows(), executor, threads, (start, end) -> {
+            double sum = 0;
+            for (int i = start; i < end; i++) {
+                DVector xi = x.mapRow(i);
+                double d = Double.POSITIVE_INFINITY;
+                for (int medoid : medoids) {
+                    d = min(d, distance.get().compute(xi, x.mapRow(medoid)));
+                }
+                sum += d;
+            }
+            return sum;
+        })) {
+            error += partial;
+        }
+        return error;
+    }
+
+    int[] coreFitAlternate(DMatrix x, Random random) {
         LOGGER.fine("Starting core fit for alternate method.");
         LOGGER.finest("Initialize centroids as random instances.");
-        int[] centroidIndexes = SamplingTools.sampleWOR(x.rows(), k.get());
+        int[] centroidIndexes = SamplingTools.sampleWOR(random, x.rows(), k.get());
         LOGGER.finest("medoid indexes: " + Arrays.stream(centroidIndexes)
                 .mapToObj(String::valueOf).collect(Collectors.joining(",")));
         c = x.mapRowsNew(centroidIndexes);
 
         LOGGER.finest("Initialize a cache for training purposes");
-        DistanceCache cache = new DistanceCache(x.rows(), distance.get());
+        DistanceCache cache = new DistanceCache(x.rows(), distance.get(), cacheSize.get());
 
         LOGGER.finest("Assign instances to centroids.");
         int[] assign = computeAssignment(x, centroidIndexes, cache);
@@ -168,8 +303,9 @@ public class KMedoids extends ClusteringModel<KMedoids, ClusteringResult<KMedoid
             }
 
             LOGGER.fine("No improvements detected, stop iterations.");
-            return;
+            return centroidIndexes;
         }
+        return centroidIndexes;
     }
 
     /**
@@ -273,11 +409,11 @@ public class KMedoids extends ClusteringModel<KMedoids, ClusteringResult<KMedoid
         return error;
     }
 
-    void coreFitPAM(DMatrix x) {
+    int[] coreFitPAM(DMatrix x) {
         LOGGER.fine("Starting core fit for PAM method.");
 
         LOGGER.finest("Initialize a cache for training purposes");
-        DistanceCache cache = new DistanceCache(x.rows(), distance.get());
+        DistanceCache cache = new DistanceCache(x.rows(), distance.get(), cacheSize.get());
 
         // array which stores the distance to the closest centroid
         double[] dv = DoubleArrays.newFill(x.rows(), Double.NaN);
@@ -339,8 +475,141 @@ public class KMedoids extends ClusteringModel<KMedoids, ClusteringResult<KMedoid
             }
 
             LOGGER.fine("No improvements detected, stop iterations.");
-            return;
+            return centroidIndexes;
+        }
+        return centroidIndexes;
+    }
+
+    private record Swap(int medoid, int candidate, double delta) {
+    }
+
+    int[] coreFitFastPAM(DMatrix x, Random random, ExecutorService executor) {
+        LOGGER.fine("Starting core fit for fast PAM method.");
+        int n = x.rows();
+        DistanceCache cache = new DistanceCache(n, distance.get(), cacheSize.get());
+
+        int[] centroidIndexes = SamplingTools.sampleWOR(random, n, k.get());
+        int[] nearest = new int[n];
+        double[] dv = new double[n];
+        double[] ev = new double[n];
+        double error = updateNearest(x, centroidIndexes, nearest, dv, ev, cache, executor);
+        c = x.mapRowsNew(centroidIndexes);
+        errors = VarDouble.empty().name("errors");
+        errors.addDouble(error);
+
+        for (int it = 0; it < maxIt.get(); it++) {
+            LOGGER.fine("Iteration %d".formatted(it + 1));
+            Swap swap = fastPamSwap(x, centroidIndexes, nearest, dv, ev, cache, executor);
+            if (swap == null || !(swap.delta < 0)) {
+                LOGGER.fine("No improvements detected, stop iterations.");
+                break;
+            }
+            int[] nextCentroidIndexes = Arrays.copyOf(centroidIndexes, centroidIndexes.length);
+            nextCentroidIndexes[swap.medoid] = swap.candidate;
+            double nextError = updateNearest(x, nextCentroidIndexes, nearest, dv, ev, cache, executor);
+            if (!(nextError < error)) {
+                // rounding errors only, restore the previous state
+                updateNearest(x, centroidIndexes, nearest, dv, ev, cache, executor);
+                break;
+            }
+            errors.addDouble(nextError);
+            error = nextError;
+            centroidIndexes = nextCentroidIndexes;
+            c = x.mapRowsNew(centroidIndexes);
+        }
+        return centroidIndexes;
+    }
+
+    /**
+     * Computes for each instance the position of the closest medoid and the distances
+     * to the closest and second closest medoids.
+     *
+     * @return sum of distances to the closest medoids
+     */
+    double updateNearest(DMatrix x, int[] centroidIndexes, int[] nearest, double[] dv, double[] ev, DistanceCache cache,
+            ExecutorService executor) {
+        double error = 0;
+        int threads = KMAssignment.threads(poolSize.get());
+        for (double partial : KMAssignment.mapChunks(x.rows(), executor, threads, (start, end) -> {
+            double sum = 0;
+            for (int i = start; i < end; i++) {
+                DVector xi = x.mapRow(i);
+                nearest[i] = -1;
+                dv[i] = Double.POSITIVE_INFINITY;
+                ev[i] = Double.POSITIVE_INFINITY;
+                for (int j = 0; j < centroidIndexes.length; j++) {
+                    double d = cache.get(i, centroidIndexes[j], xi, x.mapRow(centroidIndexes[j]));
+                    if (d < dv[i]) {
+                        ev[i] = dv[i];
+                        dv[i] = d;
+                        nearest[i] = j;
+                    } else if (d < ev[i]) {
+                        ev[i] = d;
+                    }
+                }
+                sum += dv[i];
+            }
+            return sum;
+        })) {
+            error += partial;
         }
+        return error;
+    }
+
+    /**
+     * Finds the swap which reduces most the error. For a candidate, the change of error when it replaces
+     * a medoid is the sum of the changes for instances which moves to the candidate, which does not depend on the
+     * replaced medoid, and the changes for the instances of the replaced medoid which does not move to the
+     * candidate. Both are accumulated in a single pass over instances. Candidates are split in chunks
+     * evaluated in parallel and ties are resolved towards the smallest candidate index.
+     *
+     * @return best swap or null if there are no candidates
+     */
+    Swap fastPamSwap(DMatrix x, int[] centroidIndexes, int[] nearest, double[] dv, double[] ev, DistanceCache cache,
+            ExecutorService executor) {
+        int n = x.rows();
+        boolean[] medoid = new boolean[n];
+        for (int index : centroidIndexes) {
+            medoid[index] = true;
+        }
+        int tasks = Math.max(1, Math.min(KMAssignment.threads(poolSize.get()), n));
+        List<Swap> swaps = KMAssignment.parallel(tasks, executor, task -> {
+            int start = (int) ((long) n * task / tasks);
+            int end = (int) ((long) n * (task + 1) / tasks);
+            double[] delta = new double[centroidIndexes.length];
+            Swap best = null;
+            for (int h = start; h < end; h++) {
+                if (medoid[h]) {
+                    continue;
+                }
+                Arrays.fill(delta, 0);
+                double shared = 0;
+                DVector xh = x.mapRow(h);
+                for (int j = 0; j < n; j++) {
+                    double djh = cache.get(j, h, x.mapRow(j), xh);
+                    if (djh < dv[j]) {
+                        // instance moves to candidate whatever medoid is replaced
+                        shared += djh - dv[j];
+                    } else {
+                        // instance moves only if its medoid is replaced, to candidate or second closest medoid
+                        delta[nearest[j]] += min(djh, ev[j]) - dv[j];
+                    }
+                }
+                int m = DoubleArrays.argmin(delta, 0, delta.length);
+                double reduction = shared + delta[m];
+                if (best == null || reduction < best.delta) {
+                    best = new Swap(m, h, reduction);
+                }
+            }
+            return best;
+        });
+        Swap best = null;
+        for (Swap swap : swaps) {
+            if (swap != null && (best == null || swap.delta < best.delta)) {
+                best = swap;
+            }
+        }
+        return best;
     }
 
     int[] initializePAM(DMatrix x, double[] dv, double[] ev, DistanceCache cache) {
@@ -511,43 +780,64 @@ public class KMedoids extends ClusteringModel<KMedoids, ClusteringResult<KMedoid
 
     /**
      * Cache implementation for distances.
-     * This cache is not optimal for memory since it uses {@code n^2} memory instead of
-     * {@code n(n+1)/2}. However, it avoids using a hash map or equivalent since that would waste
-     * a lot of additional memory and induce memory fragmentation.
+     * Since distances are symmetric, only the lower triangle without the diagonal is stored, as rows of
+     * increasing lengths, which requires at most {@code n(n-1)/2} values. If a memory budget is specified,
+     * only the distances between the first instances which fit into the budget are stored, thus the allocated
+     * size is the smaller of the budget and the triangle. The other distances are computed at each request.
+     * <p>
+     * Rows are allocated at construction. Values are read and written with opaque access, which is atomic
+     * for doubles, thus concurrent readers see either a missing value or the computed distance, and a
+     * concurrent miss only computes the same distance again.
      */
     static final class DistanceCache {
 
+        private static final VarHandle VALUE = MethodHandles.arrayElementVarHandle(double[].class);
 
-        private final int len;
-        private final double[] values;
+        private final double[][] values;
         private final Distance distance;
 
         public DistanceCache(int len, Distance distance) {
-            this.len = len;
+            this(len, distance, Long.MAX_VALUE);
+        }
+
+        public DistanceCache(int len, Distance distance, long maxBytes) {
             this.distance = distance;
-            this.values = DoubleArrays.newFill(len * len, Double.NaN);
+            this.values = new double[cachedRows(len, maxBytes)][];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = DoubleArrays.newFill(i, Double.NaN);
+            }
+        }
+
+        /**
+         * @return the largest number of rows of the lower triangle which fit into the budget
+         */
+        static int cachedRows(int len, long maxBytes) {
+            long maxValues = maxBytes / Double.BYTES;
+            long rows = (long) ((Math.sqrt(8.0 * maxValues + 1) + 1) / 2);
+            while (rows > 0 && rows * (rows - 1) / 2 > maxValues) {
+                rows--;
+            }
+            return (int) Math.min(len, rows);
+        }
+
+        public int cachedRows() {
+            return values.length;
         }
 
         public double get(int i, int j, DVector vi, DVector vj) {
-            double cached = getCache(i, j);
+            int row = max(i, j);
+            if (row >= values.length || i == j) {
+                return distance.compute(vi, vj);
+            }
+            int col = min(i, j);
+            double cached = (double) VALUE.getOpaque(values[row], col);
             if (!Double.isNaN(cached)) {
                 return cached;
             }
             double d = distance.compute(vi, vj);
-            setCache(i, j, d);
+            VALUE.setOpaque(values[row], col, d);
             return d;
         }
-
-        private double getCache(int i, int j) {
-            if (i > j) {
-                return getCache(j, i);
-            }
-            return values[i * len + j];
-        }
-
-        private void setCache(int i, int j, double value) {
-            values[(i > j) ? (j * len + i) : (i * len + j)] = value;
-        }
     }
 
     @Override
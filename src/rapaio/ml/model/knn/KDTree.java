@@ -0,0 +1,166 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package rapaio.ml.model.knn;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+
+import rapaio.math.linear.DVector;
+import rapaio.ml.common.distance.Distance;
+import rapaio.util.collection.DoubleArrays;
+import rapaio.util.collection.IntArrays;
+
+/**
+ * KD-tree over a set of points used for exact nearest neighbour search.
+ * <p>
+ * Each interior node splits its points at the median of the dimension with the largest spread.
+ * A subtree is visited only if the distance from the query point to the splitting hyperplane
+ * is not larger than the distance to the current k-th closest point. This is a valid
+ * lower bound for any distance which dominates the absolute difference on a single dimension,
+ * like Euclidean or Manhattan distances.
+ */
+final class KDTree implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 2207328513618493127L;
+
+    private static final int LEAF_SIZE = 16;
+
+    private final DVector[] points;
+    private final int[] perm;
+
+    // node storage, children of node i are at left[i] and right[i], leaves have split dimension -1
+    private int[] splitDim;
+    private double[] splitValue;
+    private int[] left;
+    private int[] right;
+    private int[] start;
+    private int[] end;
+    private int len = 0;
+
+    KDTree(DVector[] points) {
+        this.points = points;
+        this.perm = IntArrays.newSeq(0, points.length);
+
+        int capacity = 2 * Math.max(1, points.length / LEAF_SIZE) + 1;
+        splitDim = new int[capacity];
+        splitValue = new double[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        start = new int[capacity];
+        end = new int[capacity];
+
+        int dim = points.length == 0 ? 0 : points[0].size();
+        double[][] coordinates = new double[dim][points.length];
+        for (int i = 0; i < points.length; i++) {
+            for (int j = 0; j < dim; j++) {
+                coordinates[j][i] = points[i].get(j);
+            }
+        }
+        build(coordinates, 0, points.length);
+    }
+
+    private int build(double[][] coordinates, int from, int to) {
+        int node = newNode(from, to);
+        if (to - from <= LEAF_SIZE) {
+            return node;
+        }
+
+        // select dimension with largest spread
+        int bestDim = -1;
+        double bestSpread = 0;
+        for (int j = 0; j < coordinates.length; j++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                double value = coordinates[j][perm[i]];
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            if (max - min > bestSpread) {
+                bestSpread = max - min;
+                bestDim = j;
+            }
+        }
+        if (bestDim == -1) {
+            // all points are identical
+            return node;
+        }
+
+        DoubleArrays.quickSortIndirect(perm, coordinates[bestDim], from, to);
+        int mid = (from + to) >>> 1;
+        splitDim[node] = bestDim;
+        splitValue[node] = coordinates[bestDim][perm[mid]];
+        int leftNode = build(coordinates, from, mid);
+        int rightNode = build(coordinates, mid, to);
+        left[node] = leftNode;
+        right[node] = rightNode;
+        return node;
+    }
+
+    private int newNode(int from, int to) {
+        if (len == splitDim.length) {
+            int capacity = len * 2;
+            splitDim = Arrays.copyOf(splitDim, capacity);
+            splitValue = Arrays.copyOf(splitValue, capacity);
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            start = Arrays.copyOf(start, capacity);
+            end = Arrays.copyOf(end, capacity);
+        }
+        splitDim[len] = -1;
+        start[len] = from;
+        end[len] = to;
+        return len++;
+    }
+
+    /**
+     * Collects the closest points to a given query point into the top.
+     *
+     * @param x        query point
+     * @param distance distance function
+     * @param top      bounded heap of closest points
+     */
+    void search(DVector x, Distance distance, TopK top) {
+        if (len > 0) {
+            search(0, x, distance, top);
+        }
+    }
+
+    private void search(int node, DVector x, Distance distance, TopK top) {
+        if (splitDim[node] == -1) {
+            for (int i = start[node]; i < end[node]; i++) {
+                int index = perm[i];
+                top.add(distance.compute(points[index], x), index);
+            }
+            return;
+        }
+        double diff = x.get(splitDim[node]) - splitValue[node];
+        int near = diff < 0 ? left[node] : right[node];
+        int far = diff < 0 ? right[node] : left[node];
+        search(near, x, distance, top);
+        if (Math.abs(diff) <= top.worst()) {
+            search(far, x, distance, top);
+        }
+    }
+}
@@ -31,7 +31,7 @@ import static rapaio.math.MathTools.*;
 
 import java.util.Arrays;
 import java.util.Objects;
-import java.util.TreeSet;
+import java.util.stream.IntStream;
 
 import rapaio.core.distributions.Normal;
 import rapaio.data.Frame;
@@ -42,6 +42,7 @@ import rapaio.math.linear.DVector;
 import rapaio.ml.common.Capabilities;
 import rapaio.ml.common.distance.Distance;
 import rapaio.ml.common.distance.EuclideanDistance;
+import rapaio.ml.common.distance.Manhattan;
 import rapaio.ml.common.param.ValueParam;
 import rapaio.ml.model.RegressionModel;
 import rapaio.ml.model.RegressionResult;
@@ -63,6 +64,13 @@ public class KnnRegression extends RegressionModel<KnnRegression, RegressionResu
         return new KnnRegression();
     }
 
+    /**
+     * Maximum number of input variables for which a KD-tree index is built.
+     */
+    public static final int KD_TREE_MAX_INPUTS = 16;
+
+    private static final int PARALLEL_THRESHOLD = 256;
+
     /**
      * Number of neighbours to consider
      */
@@ -88,8 +96,17 @@ public class KnnRegression extends RegressionModel<KnnRegression, RegressionResu
      */
     public final ValueParam<Double, KnnRegression> eps = new ValueParam<>(this, 1e-6, "eps");
 
+    /**
+     * If true, a KD-tree index is built at fit time and used to search for neighbours. The index is
+     * built only for Euclidean and Manhattan distances and for at most {@link #KD_TREE_MAX_INPUTS}
+     * inputs, since for many dimensions the search degenerates into visiting almost all the points.
+     * The search is exact, the results are the same with or without index.
+     */
+    public final ValueParam<Boolean, KnnRegression> spatialIndex = new ValueParam<>(this, true, "spatialIndex", Objects::nonNull);
+
     private DVector[] instances;
     private DVector target;
+    private KDTree index;
 
     @Override
     public KnnRegression newInstance() {
@@ -126,35 +143,30 @@ public class KnnRegression extends RegressionModel<KnnRegression, RegressionResu
             instances[i] = buildInstance(df, i);
         }
         this.target = df.rvar(targetNames[0]).dv();
+        boolean indexable = distance.get() instanceof EuclideanDistance || distance.get() instanceof Manhattan;
+        this.index = (spatialIndex.get() && indexable && inputNames.length <= KD_TREE_MAX_INPUTS) ? new KDTree(instances) : null;
         return true;
     }
 
-    private int[] computeTop(DVector[] instances, DVector x, int k) {
-        TreeSet<Integer> top = new TreeSet<>((o1, o2) -> {
-            double d1 = distance.get().compute(instances[o1], x);
-            double d2 = distance.get().compute(instances[o2], x);
-            return Double.compare(d1, d2);
-        });
+    private void computeTop(DVector x, TopK top) {
+        if (index != null) {
+            index.search(x, distance.get(), top);
+            return;
+        }
+        Distance d = distance.get();
         for (int i = 0; i < instances.length; i++) {
-            top.add(i);
-            if (top.size() > k) {
-                top.remove(top.last());
+            double value = d.compute(instances[i], x);
+            if (value <= top.worst()) {
+                top.add(value, i);
             }
         }
-        int[] indexes = new int[k];
-        int pos = 0;
-        for (int i : top) {
-            indexes[pos++] = i;
-        }
-        return indexes;
     }
 
-    private DVector computeWeights(int[] top, int ref, DVector x) {
+    private DVector computeWeights(double[] distances, int len) {
 
-        var d = distance.get();
-        DVector w = DVector.from(top.length, i -> d.compute(x, instances[top[i]]));
+        DVector w = DVector.from(len, i -> distances[i]);
 
-        double wref = d.compute(x, instances[ref]);
+        double wref = distances[len];
         // normalize by k+1 distance
         w.apply(v -> v / wref);
         // cut values to avoid division by zero
@@ -170,14 +182,27 @@ public class KnnRegression extends RegressionModel<KnnRegression, RegressionResu
         RegressionResult result = RegressionResult.build(this, df, withResiduals, quantiles);
 
         VarDouble prediction = result.firstPrediction();
-        for (int i = 0; i < prediction.size(); i++) {
+
+        // the (k+1)-th neighbour is used as reference to normalize distances
+        int len = Math.min(k.get(), instances.length - 1);
+        double[] values = new double[prediction.size()];
+        IntStream stream = IntStream.range(0, prediction.size());
+        if (prediction.size() > PARALLEL_THRESHOLD) {
+            stream = stream.parallel();
+        }
+        stream.forEach(i -> {
             DVector x = buildInstance(df, i);
+            TopK top = new TopK(len + 1);
+            computeTop(x, top);
+            double[] distances = new double[len + 1];
+            int[] topIndexes = new int[len + 1];
+            top.drainSorted(distances, topIndexes);
 
-            int[] topIndexesEx = computeTop(instances, x, k.get() + 1);
-            int[] topIndexes = Arrays.copyOf(topIndexesEx, topIndexesEx.length - 1);
-            int ref = topIndexesEx[topIndexesEx.length - 1];
-            DVector weights = computeWeights(topIndexes, ref, x);
-            prediction.setDouble(i, target.mapNew(topIndexes).mul(weights).sum() / weights.sum());
+            DVector weights = computeWeights(distances, len);
+            values[i] = target.mapNew(Arrays.copyOf(topIndexes, len)).mul(weights).sum() / weights.sum();
+        });
+        for (int i = 0; i < values.length; i++) {
+            prediction.setDouble(i, values[i]);
         }
         result.buildComplete();
         return result;
@@ -0,0 +1,119 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package rapaio.ml.model.knn;
+
+/**
+ * Bounded collection of the closest {@code k} candidates, implemented as a max heap over
+ * primitive arrays of distances and indexes.
+ * <p>
+ * Candidates are ordered by distance, ties are broken by index, thus the selection does not depend
+ * on the order in which the candidates are offered.
+ */
+final class TopK {
+
+    private final int k;
+    private final double[] distances;
+    private final int[] indexes;
+    private int size = 0;
+
+    TopK(int k) {
+        this.k = k;
+        this.distances = new double[k];
+        this.indexes = new int[k];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the largest distance from the heap if it is full, positive infinity otherwise
+     */
+    double worst() {
+        return size < k ? Double.POSITIVE_INFINITY : distances[0];
+    }
+
+    void add(double distance, int index) {
+        if (size < k) {
+            // append and sift up
+            int pos = size++;
+            while (pos > 0) {
+                int parent = (pos - 1) >> 1;
+                if (!greater(distance, index, distances[parent], indexes[parent])) {
+                    break;
+                }
+                distances[pos] = distances[parent];
+                indexes[pos] = indexes[parent];
+                pos = parent;
+            }
+            distances[pos] = distance;
+            indexes[pos] = index;
+            return;
+        }
+        if (!greater(distances[0], indexes[0], distance, index)) {
+            return;
+        }
+        siftDown(distance, index, size);
+    }
+
+    private void siftDown(double distance, int index, int len) {
+        int pos = 0;
+        while (true) {
+            int child = 2 * pos + 1;
+            if (child >= len) {
+                break;
+            }
+            if (child + 1 < len && greater(distances[child + 1], indexes[child + 1], distances[child], indexes[child])) {
+                child++;
+            }
+            if (!greater(distances[child], indexes[child], distance, index)) {
+                break;
+            }
+            distances[pos] = distances[child];
+            indexes[pos] = indexes[child];
+            pos = child;
+        }
+        distances[pos] = distance;
+        indexes[pos] = index;
+    }
+
+    private static boolean greater(double d1, int i1, double d2, int i2) {
+        return d1 > d2 || (d1 == d2 && i1 > i2);
+    }
+
+    /**
+     * Empties the heap and stores its content in ascending order of distances.
+     *
+     * @param outDistances array where distances are stored
+     * @param outIndexes   array where indexes are stored
+     */
+    void drainSorted(double[] outDistances, int[] outIndexes) {
+        for (int len = size; len > 0; len--) {
+            outDistances[len - 1] = distances[0];
+            outIndexes[len - 1] = indexes[0];
+            if (len > 1) {
+                siftDown(distances[len - 1], indexes[len - 1], len - 1);
+            }
+        }
+        size = 0;
+    }
+}
@@ -24,6 +24,7 @@ package rapaio.ml.model.linear;
 import java.io.Serial;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.Function;
@@ -36,13 +37,16 @@ import rapaio.math.MathTools;
 import rapaio.math.linear.DMatrix;
 import rapaio.math.linear.DVector;
 import rapaio.math.linear.dense.DMatrixDenseC;
+import rapaio.math.optimization.StochasticSolver;
 import rapaio.ml.common.Capabilities;
 import rapaio.ml.common.param.ValueParam;
 import rapaio.ml.model.ClassifierModel;
 import rapaio.ml.model.ClassifierResult;
 import rapaio.ml.model.RunInfo;
+import rapaio.ml.model.linear.binarylogistic.BinaryLogisticCD;
 import rapaio.ml.model.linear.binarylogistic.BinaryLogisticIRLS;
 import rapaio.ml.model.linear.binarylogistic.BinaryLogisticNewton;
+import rapaio.ml.model.linear.impl.StochasticLinear;
 import rapaio.printer.Format;
 import rapaio.printer.Printer;
 import rapaio.printer.TextTable;
@@ -86,7 +90,7 @@ public class BinaryLogistic extends ClassifierModel<BinaryLogistic, ClassifierRe
     public final ValueParam<Method, BinaryLogistic> solver = new ValueParam<>(this, Method.IRLS, "solver");
 
     /**
-     * L1 regularization factor
+     * L1 regularization factor, available only for coordinate descent solver
      */
     public final ValueParam<Double, BinaryLogistic> l1penalty = new ValueParam<>(this, 0.0, "l1penalty");
 
@@ -155,6 +159,9 @@ public class BinaryLogistic extends ClassifierModel<BinaryLogistic, ClassifierRe
 
     @Override
     protected boolean coreFit(Frame df, Var weights) {
+        if (l1penalty.get() > 0 && solver.get() != Method.CD) {
+            throw new IllegalArgumentException("L1 penalty is available only for CD solver, solver: %s.".formatted(solver.get()));
+        }
 
         DMatrix x = computeInputMatrix(df, firstTargetName());
         DVector y = computeTargetVector(df.rvar(firstTargetName()));
@@ -189,10 +196,75 @@ public class BinaryLogistic extends ClassifierModel<BinaryLogistic, ClassifierRe
                 iterationWeights = new ArrayList<>(newtonResult.ws());
                 converged = newtonResult.converged();
             }
+            case CD -> {
+                BinaryLogisticCD.Result cdResult = new BinaryLogisticCD()
+                        .eps.set(eps.get())
+                        .maxIter.set(runs.get())
+                        .l1.set(l1penalty.get())
+                        .l2.set(l2penalty.get())
+                        .intercept.set(hasIntercept)
+                        .xp.set(x)
+                        .yp.set(y)
+                        .w0.set(w0)
+                        .fit();
+                w = cdResult.w().dv();
+                // for coordinate descent the iterations are the solutions along the regularization path
+                iterationLoss = new ArrayList<>(cdResult.nlls());
+                iterationWeights = new ArrayList<>(cdResult.ws());
+                converged = cdResult.converged();
+            }
         }
         return true;
     }
 
+    /**
+     * Fits the model with a stochastic solver over a sequence of frames consumed as mini batches.
+     * The frames are requested again for each epoch, thus they can be produced lazily and the whole
+     * data set does not need to fit in memory. Input and target variables are established from the
+     * first frame, all other frames must contain the same variables.
+     * <p>
+     * The objective of a batch is the average negative log likelihood over batch instances plus
+     * the L2 penalty, the intercept is not penalized. Loss values and weights in iteration
+     * artifacts correspond to epochs.
+     *
+     * @param batches    source of mini batches
+     * @param solver     configured stochastic solver
+     * @param targetName target variable name
+     * @return fitted model
+     */
+    public BinaryLogistic fitStream(Iterable<Frame> batches, StochasticSolver solver, String targetName) {
+        if (l1penalty.get() > 0) {
+            throw new IllegalArgumentException("L1 penalty is not available for stochastic fit.");
+        }
+        Iterator<Frame> it = batches.iterator();
+        if (!it.hasNext()) {
+            throw new IllegalArgumentException("Stochastic fit requires at least one batch.");
+        }
+        Frame first = it.next();
+        prepareFit(first, VarDouble.fill(first.rowCount(), 1), targetName);
+
+        hasIntercept = intercept.get() != 0;
+        double l2 = l2penalty.get();
+        int unpenalized = hasIntercept ? 0 : -1;
+        Iterable<StochasticSolver.Batch> source = StochasticLinear.map(batches, df -> StochasticLinear.batch(
+                computeInputMatrix(df.mapVars(inputNames), firstTargetName()),
+                DMatrix.copy(false, computeTargetVector(df.rvar(firstTargetName()))),
+                StochasticLinear.Loss.LOGISTIC, l2, unpenalized));
+
+        DVector y0 = computeTargetVector(first.rvar(firstTargetName()));
+        StochasticSolver fitted = solver.copy()
+                .batches.set(source)
+                .x0.set(DVector.fill(inputNames.length + (hasIntercept ? 1 : 0), init.get().getFunction().apply(y0)))
+                .compute();
+
+        w = fitted.solution().dv();
+        iterationLoss = new ArrayList<>(fitted.errors().dv().valueStream().boxed().toList());
+        iterationWeights = new ArrayList<>(fitted.solutions());
+        converged = fitted.hasConverged();
+        learned = true;
+        return this;
+    }
+
     private DVector computeTargetVector(Var target) {
         switch (target.type()) {
             case BINARY -> {
@@ -263,7 +335,11 @@ public class BinaryLogistic extends ClassifierModel<BinaryLogistic, ClassifierRe
 
     public enum Method {
         IRLS,
-        NEWTON
+        NEWTON,
+        /**
+         * Cyclic coordinate descent with elastic net penalty, see {@link BinaryLogisticCD}.
+         */
+        CD
     }
 
     public enum Initialize implements Serializable {
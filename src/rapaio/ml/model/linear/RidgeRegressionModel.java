@@ -83,6 +83,15 @@ public class RidgeRegressionModel extends BaseLinearRegressionModel<RidgeRegress
         return "RidgeRegression";
     }
 
+    /**
+     * Stochastic fit uses the same penalty, applied to the average loss over a batch.
+     * Centering and scaling are not used by stochastic fit.
+     */
+    @Override
+    protected double stochasticPenalty() {
+        return lambda.get();
+    }
+
     @Override
     protected FitSetup prepareFit(Frame df, Var weights, String... targetVarNames) {
         // add intercept variable
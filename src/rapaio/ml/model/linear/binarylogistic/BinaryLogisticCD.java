@@ -0,0 +1,357 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package rapaio.ml.model.linear.binarylogistic;
+
+import static java.lang.StrictMath.abs;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import rapaio.math.MathTools;
+import rapaio.math.linear.DMatrix;
+import rapaio.math.linear.DVector;
+import rapaio.math.linear.sparse.DMatrixSparseC;
+import rapaio.ml.common.param.ParamSet;
+import rapaio.ml.common.param.ValueParam;
+
+/**
+ * Cyclic coordinate descent solver for binary logistic regression with elastic net penalty,
+ * as described in "Regularization Paths for Generalized Linear Models via Coordinate Descent"
+ * by Friedman, Hastie and Tibshirani.
+ * <p>
+ * The minimized objective is the negative log likelihood plus {@code l1 * |w|_1 + l2 * |w|_2^2 / 2}.
+ * At each outer iteration the log likelihood is approximated by a weighted least squares problem which is
+ * solved by coordinate descent with soft thresholding. Coordinates are updated only for an active set of
+ * features; when the active set converges, a pass over all features adds the ones which violate the
+ * optimality conditions.
+ * <p>
+ * If L1 penalty is positive, the problem is solved for a decreasing sequence of penalties, starting
+ * from the smallest penalty for which all coefficients are zero, each solution being the warm start
+ * for the next one.
+ * <p>
+ * Input matrix is accessed by columns. Sparse matrices stored by columns are used without densifying them.
+ */
+public class BinaryLogisticCD extends ParamSet<BinaryLogisticCD> {
+
+    @Serial
+    private static final long serialVersionUID = 5036126716466347128L;
+
+    private static final double MIN_VARIANCE = 1e-5;
+    private static final int MAX_PASSES = 1_000;
+
+    /**
+     * Threshold value used to assess convergence of a solution
+     */
+    public final ValueParam<Double, BinaryLogisticCD> eps = new ValueParam<>(this, 1e-10, "eps");
+
+    /**
+     * Maximum number of outer iterations for each penalty from the path
+     */
+    public final ValueParam<Integer, BinaryLogisticCD> maxIter = new ValueParam<>(this, 100, "maxIter");
+
+    /**
+     * L1 regularization penalty
+     */
+    public final ValueParam<Double, BinaryLogisticCD> l1 = new ValueParam<>(this, 0.0, "l1", x -> x != null && x >= 0);
+
+    /**
+     * L2 regularization penalty
+     */
+    public final ValueParam<Double, BinaryLogisticCD> l2 = new ValueParam<>(this, 0.0, "l2", x -> x != null && x >= 0);
+
+    /**
+     * Number of L1 penalties from the regularization path
+     */
+    public final ValueParam<Integer, BinaryLogisticCD> pathSize = new ValueParam<>(this, 10, "pathSize", x -> x != null && x > 0);
+
+    /**
+     * True if the first column is the intercept, which is not penalized
+     */
+    public final ValueParam<Boolean, BinaryLogisticCD> intercept = new ValueParam<>(this, false, "intercept");
+
+    public final ValueParam<DMatrix, BinaryLogisticCD> xp = new ValueParam<>(this, null, "x");
+
+    public final ValueParam<DVector, BinaryLogisticCD> yp = new ValueParam<>(this, null, "y");
+
+    /**
+     * Initial weights
+     */
+    public final ValueParam<DVector, BinaryLogisticCD> w0 = new ValueParam<>(this, null, "w0");
+
+    /**
+     * Result of the fit.
+     *
+     * @param nlls      penalized negative log likelihood of the solution for each penalty from the path
+     * @param ws        solution for each penalty from the path
+     * @param lambdas   L1 penalties from the path
+     * @param converged true if solutions for all penalties converged
+     */
+    public record Result(List<Double> nlls, List<DVector> ws, List<Double> lambdas, boolean converged) {
+
+        public DVector w() {
+            if (!ws.isEmpty()) {
+                return ws.get(ws.size() - 1);
+            }
+            return DVector.zeros(0);
+        }
+
+        public double nll() {
+            if (!nlls.isEmpty()) {
+                return nlls.get(nlls.size() - 1);
+            }
+            return Double.NaN;
+        }
+    }
+
+    public Result fit() {
+        DMatrix x = xp.get();
+        int n = x.rows();
+        int p = x.cols();
+        Columns cols = Columns.from(x);
+
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            y[i] = yp.get().get(i);
+        }
+        double[] w = new double[p];
+        double[] eta = new double[n];
+        for (int j = 0; j < p; j++) {
+            w[j] = w0.get().get(j);
+            if (w[j] != 0) {
+                cols.axpy(j, w[j], eta);
+            }
+        }
+
+        int first = intercept.get() ? 1 : 0;
+        boolean[] active = new boolean[p];
+        for (int j = 0; j < p; j++) {
+            active[j] = j < first || w[j] != 0;
+        }
+
+        List<Double> lambdas = path(cols, y, w, eta, active, first);
+        List<Double> nlls = new ArrayList<>();
+        List<DVector> ws = new ArrayList<>();
+        boolean converged = true;
+        for (double lambda : lambdas) {
+            converged &= solve(cols, lambda, y, w, eta, active, first);
+            ws.add(DVector.wrap(w.clone()));
+            nlls.add(objective(lambda, y, w, eta, first));
+        }
+        return new Result(nlls, ws, lambdas, converged);
+    }
+
+    private List<Double> path(Columns cols, double[] y, double[] w, double[] eta, boolean[] active, int first) {
+        double target = l1.get();
+        List<Double> lambdas = new ArrayList<>();
+        if (target <= 0 || pathSize.get() == 1) {
+            lambdas.add(target);
+            return lambdas;
+        }
+
+        // smallest penalty for which all coefficients are zero, computed after
+        // fitting the unpenalized coefficients, which is the warm start for the path
+
+        solve(cols, Double.MAX_VALUE, y, w, eta, active, first);
+        double[] residual = new double[y.length];
+        for (int i = 0; i < y.length; i++) {
+            residual[i] = y[i] - MathTools.logistic(eta[i]);
+        }
+        double max = 0;
+        for (int j = first; j < w.length; j++) {
+            max = Math.max(max, abs(cols.dot(j, residual, null)));
+        }
+        if (max <= target) {
+            lambdas.add(target);
+            return lambdas;
+        }
+        int len = pathSize.get();
+        for (int t = 0; t < len - 1; t++) {
+            lambdas.add(max * Math.pow(target / max, (double) t / (len - 1)));
+        }
+        lambdas.add(target);
+        return lambdas;
+    }
+
+    private boolean solve(Columns cols, double lambda, double[] y, double[] w, double[] eta, boolean[] active, int first) {
+        int n = y.length;
+        int p = w.length;
+        double penalty2 = l2.get();
+        double[] v = new double[n];
+        double[] r = new double[n];
+        double[] h = new double[p];
+        boolean[] hasH = new boolean[p];
+
+        double loss = objective(lambda, y, w, eta, first);
+        for (int it = 0; it < maxIter.get(); it++) {
+
+            // quadratic approximation: weights and working residuals
+
+            for (int i = 0; i < n; i++) {
+                double pi = MathTools.logistic(eta[i]);
+                v[i] = Math.max(pi * (1 - pi), MIN_VARIANCE);
+                r[i] = (y[i] - pi) / v[i];
+            }
+            Arrays.fill(hasH, false);
+
+            while (true) {
+                for (int pass = 0; pass < MAX_PASSES; pass++) {
+                    double maxDelta = 0;
+                    for (int j = 0; j < p; j++) {
+                        if (!active[j]) {
+                            continue;
+                        }
+                        if (!hasH[j]) {
+                            h[j] = cols.dot(j, v, null, true);
+                            hasH[j] = true;
+                        }
+                        double delta = update(cols, j, lambda, penalty2, first, w, v, r, eta, h[j]);
+                        maxDelta = Math.max(maxDelta, h[j] * delta * delta);
+                    }
+                    if (maxDelta <= eps.get()) {
+                        break;
+                    }
+                }
+
+                // add features which violate optimality conditions
+
+                boolean changed = false;
+                for (int j = first; j < p; j++) {
+                    if (!active[j] && abs(cols.dot(j, v, r)) > lambda) {
+                        active[j] = true;
+                        changed = true;
+                    }
+                }
+                if (!changed) {
+                    break;
+                }
+            }
+
+            double next = objective(lambda, y, w, eta, first);
+            if (abs(loss - next) <= eps.get() * Math.max(1, abs(next))) {
+                return true;
+            }
+            loss = next;
+        }
+        return false;
+    }
+
+    /**
+     * Minimizes the quadratic approximation along coordinate {@code j} and updates residuals.
+     *
+     * @return change of the coefficient
+     */
+    private double update(Columns cols, int j, double lambda, double penalty2, int first,
+            double[] w, double[] v, double[] r, double[] eta, double hj) {
+        boolean penalized = j >= first;
+        double g = cols.dot(j, v, r) + hj * w[j];
+        double denominator = hj + (penalized ? penalty2 : 0);
+        double next = 0;
+        if (denominator > 0) {
+            double threshold = penalized ? lambda : 0;
+            next = Math.signum(g) * Math.max(abs(g) - threshold, 0) / denominator;
+        }
+        double delta = next - w[j];
+        if (delta != 0) {
+            w[j] = next;
+            cols.axpy(j, -delta, r);
+            cols.axpy(j, delta, eta);
+        }
+        return delta;
+    }
+
+    private double objective(double lambda, double[] y, double[] w, double[] eta, int first) {
+        double nll = 0;
+        for (int i = 0; i < y.length; i++) {
+            // log(1+exp(eta)) - y*eta computed without overflow
+            nll += Math.max(eta[i], 0) + Math.log1p(Math.exp(-abs(eta[i]))) - y[i] * eta[i];
+        }
+        double penalty = 0;
+        for (int j = first; j < w.length; j++) {
+            penalty += lambda * abs(w[j]) + l2.get() * w[j] * w[j] / 2;
+        }
+        return nll + penalty;
+    }
+
+    /**
+     * Column access to input matrix, either as dense columns or as compressed sparse columns.
+     */
+    private record Columns(double[][] dense, int[] pointers, int[] indexes, double[] values) {
+
+        static Columns from(DMatrix x) {
+            if (x instanceof DMatrixSparseC sparse) {
+                return new Columns(null, sparse.colPointers(), sparse.rowIndexes(), sparse.values());
+            }
+            double[][] dense = new double[x.cols()][x.rows()];
+            for (int j = 0; j < dense.length; j++) {
+                for (int i = 0; i < dense[j].length; i++) {
+                    dense[j][i] = x.get(i, j);
+                }
+            }
+            return new Columns(dense, null, null, null);
+        }
+
+        double dot(int j, double[] a, double[] b) {
+            return dot(j, a, b, false);
+        }
+
+        /**
+         * Computes the sum over rows of {@code x_ij * a_i * b_i}, or {@code x_ij^2 * a_i * b_i} if squared.
+         * A missing {@code b} is considered to be filled with ones.
+         */
+        double dot(int j, double[] a, double[] b, boolean squared) {
+            double sum = 0;
+            if (dense != null) {
+                double[] col = dense[j];
+                for (int i = 0; i < col.length; i++) {
+                    double xij = squared ? col[i] * col[i] : col[i];
+                    sum += xij * a[i] * (b == null ? 1 : b[i]);
+                }
+                return sum;
+            }
+            for (int k = pointers[j]; k < pointers[j + 1]; k++) {
+                int i = indexes[k];
+                double xij = squared ? values[k] * values[k] : values[k];
+                sum += xij * a[i] * (b == null ? 1 : b[i]);
+            }
+            return sum;
+        }
+
+        /**
+         * Adds {@code alpha * x_j} to the given vector.
+         */
+        void axpy(int j, double alpha, double[] a) {
+            if (dense != null) {
+                double[] col = dense[j];
+                for (int i = 0; i < col.length; i++) {
+                    a[i] += alpha * col[i];
+                }
+                return;
+            }
+            for (int k = pointers[j]; k < pointers[j + 1]; k++) {
+                a[indexes[k]] += alpha * values[k];
+            }
+        }
+    }
+}
@@ -25,12 +25,14 @@ import static java.lang.StrictMath.abs;
 
 import java.io.Serial;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import rapaio.math.MathTools;
 import rapaio.math.linear.DMatrix;
 import rapaio.math.linear.DVector;
 import rapaio.math.linear.decomposition.DoubleCholeskyDecomposition;
+import rapaio.math.linear.dense.DMatrixDenseC;
 import rapaio.ml.common.param.ParamSet;
 import rapaio.ml.common.param.ValueParam;
 
@@ -66,6 +68,11 @@ public class BinaryLogisticIRLS extends ParamSet<BinaryLogisticIRLS> {
      */
     public final ValueParam<DVector, BinaryLogisticIRLS> w0 = new ValueParam<>(this, null, "w0");
 
+    /**
+     * If true, the weights from all iterations are kept in result, otherwise only the final weights
+     */
+    public final ValueParam<Boolean, BinaryLogisticIRLS> keepIterations = new ValueParam<>(this, true, "keepIterations");
+
     public record Result(List<Double> nlls, List<DVector> ws, boolean converged) {
 
         public DVector w() {
@@ -87,67 +94,192 @@ public class BinaryLogisticIRLS extends ParamSet<BinaryLogisticIRLS> {
 
         DMatrix x = xp.get();
         DVector y = yp.get();
-        DVector ny = DVector.ones(y.size()).sub(y);
         DVector w = w0.get();
         double lambda = lambdap.get();
-        DVector p = x.dot(w).apply(MathTools::logistic);
-        DVector np = p.applyNew(v -> 1 - v);
+        boolean keep = keepIterations.get();
+
+        Workspace ws = new Workspace(x, y);
+        ws.update(w);
 
         int it = 0;
         // current solution
-        ArrayList<DVector> ws = new ArrayList<>();
-        ws.add(w);
+        ArrayList<DVector> weights = new ArrayList<>();
+        weights.add(w);
         List<Double> nlls = new ArrayList<>();
-        nlls.add(negativeLogLikelihood(y, ny, w, lambda, p, np));
+        nlls.add(ws.negativeLogLikelihood(w, lambda));
 
         while (it++ < maxIter.get()) {
 
-            DVector wnew = iterate(w, x, y, lambda, p, np);
+            DVector wnew = ws.iterate(lambda);
 
-            p = x.dot(wnew).apply(MathTools::logistic);
-            np = p.applyNew(v -> 1 - v);
-            double nll = negativeLogLikelihood(y, ny, wnew, lambda, p, np);
+            ws.update(wnew);
+            double nll = ws.negativeLogLikelihood(wnew, lambda);
 
             double nll_delta = nll - nlls.get(nlls.size() - 1);
             if (it > 1 && (abs(nll_delta / nll) <= eps.get() /*|| nll_delta > 0*/)) {
-                return new BinaryLogisticIRLS.Result(nlls, ws, true);
+                return new BinaryLogisticIRLS.Result(nlls, weights, true);
             }
-            ws.add(wnew);
+            if (!keep) {
+                weights.clear();
+            }
+            weights.add(wnew);
             nlls.add(nll);
-            w = wnew;
         }
-        return new BinaryLogisticIRLS.Result(nlls, ws, false);
+        return new BinaryLogisticIRLS.Result(nlls, weights, false);
     }
 
-    private double negativeLogLikelihood(DVector y, DVector ny, DVector w, double lambda, DVector p, DVector np) {
-        DVector logp = p.cutNew(1e-6, Double.NaN).log();
-        DVector lognp = np.cutNew(1e-6, Double.NaN).log();
+    /**
+     * Work buffers allocated once per fit and reused by all iterations.
+     * <p>
+     * The linear predictor, probabilities, weights and working response are kept in primitive arrays
+     * of the size of the number of instances. The hessian {@code X^T W X} and the right hand side {@code X^T W z}
+     * are computed by a fused kernel in a single pass over the rows of the design matrix. Rows are processed
+     * in blocks copied into a column major buffer, and only the upper triangle of the hessian is accumulated,
+     * the lower triangle being mirrored at the end.
+     */
+    private static final class Workspace {
 
-        return -logp.dot(y) - lognp.dot(ny) + lambda * w.norm(2) / 2;
-    }
+        private static final int BLOCK_ROWS = 256;
 
-    private DVector iterate(DVector w, DMatrix x, DVector y, double lambda, DVector p, DVector np) {
+        private final DMatrix x;
+        private final int n;
+        private final int m;
+        private final double[] y;
 
-        // p(1-p) diag from p diag
-        DVector pvar = p.mulNew(np).cut(1e-6, Double.NaN);
+        // linear predictor and probabilities for the current weights
+        private final double[] eta;
+        private final double[] p;
 
-        // H = X^t * I{p(1-p)} * X + I_lambda
-        DMatrix xta = x.t().mulNew(pvar, 0);
-        DMatrix h = xta.dot(x);
-        if (lambda > 0) {
-            h.add(DMatrix.diagonal(DVector.fill(h.rows(), lambda)));
+        // per instance weights and working response
+        private final double[] v;
+        private final double[] z;
+
+        // hessian stored column major, right hand side and row block buffers
+        private final double[] h;
+        private final double[] b;
+        private final double[] block;
+        private final double[] weighted;
+
+        private Workspace(DMatrix x, DVector y) {
+            this.x = x;
+            this.n = x.rows();
+            this.m = x.cols();
+            this.y = y.valueStream().toArray();
+            this.eta = new double[n];
+            this.p = new double[n];
+            this.v = new double[n];
+            this.z = new double[n];
+            this.h = new double[m * m];
+            this.b = new double[m];
+            this.block = new double[m * Math.min(n, BLOCK_ROWS)];
+            this.weighted = new double[Math.min(n, BLOCK_ROWS)];
         }
 
-        // z = Xw + I{p(1-p)}^{-1} (y-p)
-        DVector z = x.dot(w).add(y.subNew(p).div(pvar));
-        DVector right = xta.dot(z);
+        /**
+         * Computes linear predictor and probabilities for the given weights.
+         */
+        private void update(DVector w) {
+            Arrays.fill(eta, 0);
+            if (x instanceof DMatrixDenseC dx) {
+                double[] array = dx.array();
+                for (int j = 0; j < m; j++) {
+                    double wj = w.get(j);
+                    int pos = dx.offset() + j * dx.colStride();
+                    for (int i = 0; i < n; i++) {
+                        eta[i] += wj * array[pos + i];
+                    }
+                }
+            } else {
+                for (int j = 0; j < m; j++) {
+                    double wj = w.get(j);
+                    for (int i = 0; i < n; i++) {
+                        eta[i] += wj * x.get(i, j);
+                    }
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                p[i] = MathTools.logistic(eta[i]);
+            }
+        }
 
-        // solve IRLS
-        DoubleCholeskyDecomposition chol = h.cholesky();
-        if (chol.isSPD()) {
-            return chol.solve(right);
-        } else {
-            return h.qr().solve(right);
+        private double negativeLogLikelihood(DVector w, double lambda) {
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum -= y[i] * Math.log(Math.max(p[i], 1e-6)) + (1 - y[i]) * Math.log(Math.max(1 - p[i], 1e-6));
+            }
+            return sum + lambda * w.norm(2) / 2;
+        }
+
+        private DVector iterate(double lambda) {
+
+            // p(1-p) diag from p diag and z = Xw + I{p(1-p)}^{-1} (y-p)
+            for (int i = 0; i < n; i++) {
+                v[i] = Math.max(p[i] * (1 - p[i]), 1e-6);
+                z[i] = eta[i] + (y[i] - p[i]) / v[i];
+            }
+
+            // H = X^t * I{p(1-p)} * X + I_lambda
+            weightedGram();
+            if (lambda > 0) {
+                for (int j = 0; j < m; j++) {
+                    h[j * m + j] += lambda;
+                }
+            }
+            DMatrix hm = new DMatrixDenseC(0, m, m, h);
+            DVector right = DVector.wrap(b);
+
+            // solve IRLS
+            DoubleCholeskyDecomposition chol = hm.cholesky();
+            if (chol.isSPD()) {
+                return chol.solve(right);
+            } else {
+                return hm.qr().solve(right);
+            }
+        }
+
+        private void weightedGram() {
+            Arrays.fill(h, 0);
+            Arrays.fill(b, 0);
+            for (int start = 0; start < n; start += BLOCK_ROWS) {
+                int len = Math.min(BLOCK_ROWS, n - start);
+                copyBlock(start, len);
+                for (int j = 0; j < m; j++) {
+                    int jpos = j * len;
+                    double bj = 0;
+                    for (int r = 0; r < len; r++) {
+                        weighted[r] = v[start + r] * block[jpos + r];
+                        bj += weighted[r] * z[start + r];
+                    }
+                    b[j] += bj;
+                    for (int k = j; k < m; k++) {
+                        int kpos = k * len;
+                        double sum = 0;
+                        for (int r = 0; r < len; r++) {
+                            sum += weighted[r] * block[kpos + r];
+                        }
+                        h[k * m + j] += sum;
+                    }
+                }
+            }
+            for (int j = 0; j < m; j++) {
+                for (int k = j + 1; k < m; k++) {
+                    h[j * m + k] = h[k * m + j];
+                }
+            }
+        }
+
+        private void copyBlock(int start, int len) {
+            if (x instanceof DMatrixDenseC dx) {
+                for (int j = 0; j < m; j++) {
+                    System.arraycopy(dx.array(), dx.offset() + j * dx.colStride() + start, block, j * len, len);
+                }
+            } else {
+                for (int j = 0; j < m; j++) {
+                    for (int r = 0; r < len; r++) {
+                        block[j * len + r] = x.get(start + r, j);
+                    }
+                }
+            }
         }
     }
 }
@@ -125,16 +125,17 @@ public class BinaryLogisticNewton extends ParamSet<BinaryLogisticNewton> {
     }
 
     private double negativeLogLikelihood(DVector y, DVector ny, DVector w, double lambda, DVector p, DVector np) {
-        DVector logp = p.cutNew(1e-6, Double.NaN).apply(StrictMath::log);
-        DVector lognp = np.cutNew(1e-6, Double.NaN).apply(StrictMath::log);
+        // fused evaluation, no intermediate vectors are allocated
+        double logp = p.expr().cut(1e-6, Double.NaN).apply(StrictMath::log).dot(y);
+        double lognp = np.expr().cut(1e-6, Double.NaN).apply(StrictMath::log).dot(ny);
 
-        return -logp.dot(y) - lognp.dot(ny) + lambda * w.norm(2) / 2;
+        return -logp - lognp + lambda * w.norm(2) / 2;
     }
 
     private DVector iterate(DVector w, DMatrix x, DVector y, DVector ny, double lambda, DVector p, DVector np) {
 
         // p(1-p) diag from p diag
-        DVector pvar = p.mulNew(np).cut(1e-6, Double.NaN);
+        DVector pvar = p.expr().mul(np).cut(1e-6, Double.NaN).eval();
 
         // H = X^t * I{p(1-p)} * X + I_lambda
         DMatrix xta = x.t().mulNew(pvar, 0);
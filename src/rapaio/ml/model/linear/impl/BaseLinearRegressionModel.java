@@ -22,13 +22,17 @@
 package rapaio.ml.model.linear.impl;
 
 import java.io.Serial;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Objects;
 
 import rapaio.data.Frame;
+import rapaio.data.VarDouble;
 import rapaio.data.VarType;
 import rapaio.data.preprocessing.AddIntercept;
 import rapaio.math.linear.DMatrix;
 import rapaio.math.linear.DVector;
+import rapaio.math.optimization.StochasticSolver;
 import rapaio.ml.common.Capabilities;
 import rapaio.ml.common.param.ValueParam;
 import rapaio.ml.model.RegressionModel;
@@ -67,6 +71,60 @@ public abstract class BaseLinearRegressionModel<M extends BaseLinearRegressionMo
         return beta;
     }
 
+    /**
+     * Fits the model with a stochastic solver over a sequence of frames consumed as mini batches.
+     * The frames are requested again for each epoch, thus they can be produced lazily and the whole
+     * data set does not need to fit in memory. Input and target variables are established from the
+     * first frame, all other frames must contain the same variables.
+     * <p>
+     * The objective of a batch is half of the average squared error over batch instances and targets,
+     * plus the L2 penalty given by {@link #stochasticPenalty()}, the intercept is not penalized.
+     *
+     * @param batches        source of mini batches
+     * @param solver         configured stochastic solver
+     * @param targetVarNames target variable names
+     * @return fitted model
+     */
+    public M fitStream(Iterable<Frame> batches, StochasticSolver solver, String... targetVarNames) {
+        Iterator<Frame> it = batches.iterator();
+        if (!it.hasNext()) {
+            throw new IllegalArgumentException("Stochastic fit requires at least one batch.");
+        }
+        Frame first = it.next();
+        prepareFit(first, VarDouble.fill(first.rowCount(), 1), targetVarNames);
+
+        int unpenalized = Arrays.asList(inputNames).indexOf(AddIntercept.INTERCEPT);
+        double l2 = stochasticPenalty();
+        Iterable<StochasticSolver.Batch> source = StochasticLinear.map(batches, df -> {
+            Frame transformed = intercept.get() ? AddIntercept.transform().fapply(df) : df;
+            return StochasticLinear.batch(DMatrix.copy(transformed.mapVars(inputNames)), DMatrix.copy(transformed.mapVars(targetNames)),
+                    StochasticLinear.Loss.SQUARED, l2, unpenalized);
+        });
+
+        int p = inputNames.length;
+        StochasticSolver fitted = solver.copy()
+                .batches.set(source)
+                .x0.set(DVector.zeros(p * targetNames.length))
+                .compute();
+
+        DVector solution = fitted.solution();
+        beta = DMatrix.empty(p, targetNames.length);
+        for (int i = 0; i < targetNames.length; i++) {
+            for (int j = 0; j < p; j++) {
+                beta.set(j, i, solution.get(i * p + j));
+            }
+        }
+        hasLearned = true;
+        return (M) this;
+    }
+
+    /**
+     * @return L2 penalty factor used by stochastic fit
+     */
+    protected double stochasticPenalty() {
+        return 0;
+    }
+
     @Override
     public Capabilities capabilities() {
         return new Capabilities()
@@ -0,0 +1,179 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package rapaio.ml.model.linear.impl;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.function.Function;
+
+import rapaio.data.Frame;
+import rapaio.math.MathTools;
+import rapaio.math.linear.DMatrix;
+import rapaio.math.linear.DVector;
+import rapaio.math.optimization.StochasticSolver;
+import rapaio.util.collection.IntArrays;
+
+/**
+ * Utilities used to fit linear models with {@link StochasticSolver} over frames consumed as mini batches.
+ * <p>
+ * The weights of a model with {@code p} inputs and {@code t} targets are stored in a single vector of size
+ * {@code p*t}, the coefficients for each target being contiguous. Objectives are averaged over the instances
+ * of a batch, the L2 penalty being added to the average loss.
+ */
+public final class StochasticLinear {
+
+    private StochasticLinear() {
+    }
+
+    public enum Loss {
+        /**
+         * Half of the squared error, used for linear regression.
+         */
+        SQUARED,
+        /**
+         * Negative log likelihood of the logistic model, used for binary logistic regression.
+         */
+        LOGISTIC
+    }
+
+    /**
+     * Builds the objective of a mini batch.
+     *
+     * @param x           input matrix of the batch
+     * @param y           target matrix of the batch, one column for each target
+     * @param loss        loss function
+     * @param l2          L2 penalty factor
+     * @param unpenalized index of the input which is not penalized (usually the intercept), or -1 if all are penalized
+     * @return batch objective
+     */
+    public static StochasticSolver.Batch batch(DMatrix x, DMatrix y, Loss loss, double l2, int unpenalized) {
+        int p = x.cols();
+        int n = x.rows();
+        return new StochasticSolver.Batch(
+                w -> {
+                    double value = 0;
+                    for (int c = 0; c < y.cols(); c++) {
+                        DVector eta = x.dot(w.range(c * p, (c + 1) * p));
+                        for (int i = 0; i < n; i++) {
+                            value += pointLoss(loss, eta.get(i), y.get(i, c));
+                        }
+                    }
+                    return value / n + l2 * penalty(w, p, unpenalized) / 2;
+                },
+                w -> {
+                    DVector grad = DVector.zeros(w.size());
+                    for (int c = 0; c < y.cols(); c++) {
+                        DVector residual = x.dot(w.range(c * p, (c + 1) * p));
+                        for (int i = 0; i < n; i++) {
+                            double eta = residual.get(i);
+                            residual.set(i, (loss == Loss.LOGISTIC ? MathTools.logistic(eta) : eta) - y.get(i, c));
+                        }
+                        DVector gc = x.t().dot(residual);
+                        for (int j = 0; j < p; j++) {
+                            double penalty = j == unpenalized ? 0 : l2 * w.get(c * p + j);
+                            grad.set(c * p + j, gc.get(j) / n + penalty);
+                        }
+                    }
+                    return grad;
+                });
+    }
+
+    private static double pointLoss(Loss loss, double eta, double y) {
+        if (loss == Loss.SQUARED) {
+            return (eta - y) * (eta - y) / 2;
+        }
+        // log(1+exp(eta)) - y*eta, computed without overflow
+        double softplus = eta > 0 ? eta + Math.log1p(Math.exp(-eta)) : Math.log1p(Math.exp(eta));
+        return softplus - y * eta;
+    }
+
+    private static double penalty(DVector w, int p, int unpenalized) {
+        double sum = 0;
+        for (int i = 0; i < w.size(); i++) {
+            if (i % p != unpenalized) {
+                sum += w.get(i) * w.get(i);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Lazily maps each frame into a batch objective, the mapping being applied again at each epoch.
+     *
+     * @param frames source of frames
+     * @param fun    function which builds the batch objective from a frame
+     * @return source of mini batches
+     */
+    public static Iterable<StochasticSolver.Batch> map(Iterable<Frame> frames, Function<Frame, StochasticSolver.Batch> fun) {
+        return () -> new Iterator<>() {
+            private final Iterator<Frame> it = frames.iterator();
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public StochasticSolver.Batch next() {
+                return fun.apply(it.next());
+            }
+        };
+    }
+
+    /**
+     * Splits a frame into mini batches of a given size. Rows are shuffled at each epoch, thus
+     * this can be used to fit a model stochastically on a frame which fits in memory.
+     *
+     * @param df        source frame
+     * @param batchSize number of rows in a batch, the last batch of an epoch can be smaller
+     * @param random    random number generator used to shuffle rows
+     * @return source of frames which are views over the rows of the source frame
+     */
+    public static Iterable<Frame> miniBatches(Frame df, int batchSize, Random random) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive, batch size: %d.".formatted(batchSize));
+        }
+        return () -> new Iterator<>() {
+            private final int[] rows = IntArrays.shuffle(IntArrays.newSeq(df.rowCount()), random);
+            private int start = 0;
+
+            @Override
+            public boolean hasNext() {
+                return start < rows.length;
+            }
+
+            @Override
+            public Frame next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int end = Math.min(rows.length, start + batchSize);
+                Frame batch = df.mapRows(Arrays.copyOfRange(rows, start, end));
+                start = end;
+                return batch;
+            }
+        };
+    }
+}
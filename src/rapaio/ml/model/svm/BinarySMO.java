@@ -139,6 +139,8 @@ public class BinarySMO extends ClassifierModel<BinarySMO, ClassifierResult, RunI
         int iUp; // indices for bLow and bUp
 
         double[] fCache; // The current set of errors for all non-bound examples.
+        double[] k1; // buffers for kernel rows of the two updated examples
+        double[] k2;
 
         /* The five different sets used by the algorithm. */
         BitSet I0; // i: 0 < alpha[i] < c
@@ -407,6 +409,8 @@ public class BinarySMO extends ClassifierModel<BinarySMO, ClassifierResult, RunI
 
         // Initialize error cache
         s.fCache = new double[n];
+        s.k1 = new double[n];
+        s.k2 = new double[n];
         s.fCache[s.iLow] = 1;
         s.fCache[s.iUp] = -1;
 
@@ -452,8 +456,11 @@ public class BinarySMO extends ClassifierModel<BinarySMO, ClassifierResult, RunI
                 }
             }
         } else {
-            for (int i = supportVectors.nextSetBit(0); i != -1; i = supportVectors.nextSetBit(i + 1)) {
-                result += y[i] * alpha[i] * kernel.get().compute(train, i, df, row);
+            int[] rows = supportVectors.stream().toArray();
+            double[] values = new double[rows.length];
+            kernel.get().computeRow(df, row, train, rows, values);
+            for (int k = 0; k < rows.length; k++) {
+                result += y[rows[k]] * alpha[rows[k]] * values[k];
             }
         }
         return result;
@@ -637,12 +644,11 @@ public class BinarySMO extends ClassifierModel<BinarySMO, ClassifierResult, RunI
         }
 
         // Update error cache using new Lagrange multipliers
-        for (int j = s.I0.nextSetBit(0); j != -1; j = s.I0.nextSetBit(j + 1)) {
-            if ((j != i1) && (j != i2)) {
-                s.fCache[j] +=
-                        y1 * (a1 - alpha1) * kernel.get().compute(train, i1, train, j) +
-                                y2 * (a2 - alpha2) * kernel.get().compute(train, i2, train, j);
-            }
+        int[] rows = s.I0.stream().filter(j -> (j != i1) && (j != i2)).toArray();
+        kernel.get().computeRow(train, i1, train, rows, s.k1);
+        kernel.get().computeRow(train, i2, train, rows, s.k2);
+        for (int k = 0; k < rows.length; k++) {
+            s.fCache[rows[k]] += y1 * (a1 - alpha1) * s.k1[k] + y2 * (a2 - alpha2) * s.k2[k];
         }
 
         // Update error cache for i1 and i2
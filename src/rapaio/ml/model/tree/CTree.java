@@ -23,6 +23,7 @@ package rapaio.ml.model.tree;
 
 import java.io.Serial;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -33,6 +34,7 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 
 import rapaio.core.tools.DensityVector;
 import rapaio.data.Frame;
+import rapaio.data.Mapping;
 import rapaio.data.Var;
 import rapaio.data.VarType;
 import rapaio.ml.common.Capabilities;
@@ -180,6 +182,7 @@ public class CTree extends ClassifierModel<CTree, ClassifierResult, RunInfo<CTre
     public final ValueParam<Frame, CTree> pruningDf = new ValueParam<>(this, null, "pruningDf", x -> true);
 
     private Node root;
+    private transient CompiledTree compiled;
 
     public Node getRoot() {
         return root;
@@ -212,15 +215,23 @@ public class CTree extends ClassifierModel<CTree, ClassifierResult, RunInfo<CTre
 
         // create the root node
         int id = 1;
+        compiled = null;
         root = new Node(null, id++, 0, "root", RowPredicate.all());
 
+        // numeric variables are sorted only once, children nodes reuse the sorted rows of their parents
+        String[] presortedNames = Arrays.stream(inputNames())
+                .filter(name -> searchMap.get().get(df.type(name)) == Search.NumericBinary)
+                .toArray(String[]::new);
+
         Queue<QueueNode> queue = new ConcurrentLinkedQueue<>();
-        queue.add(new QueueNode(root, df, weights));
+        queue.add(new QueueNode(root, RowPartition.from(df, weights), PresortedIndex.from(df, presortedNames)));
 
         while (!queue.isEmpty()) {
             var last = queue.poll();
+            Frame nodeDf = last.range.frame();
+            Var nodeWeights = last.range.weights();
 
-            learnNode(last.node, last.df, last.weight, nodeVarSelector, random);
+            learnNode(last.node, nodeDf, nodeWeights, last.index, nodeVarSelector, random);
 
             if (last.node.leaf) {
                 continue;
@@ -228,16 +239,16 @@ public class CTree extends ClassifierModel<CTree, ClassifierResult, RunInfo<CTre
             Candidate bestCandidate = last.node.bestCandidate;
 
             // now that we have a best candidate, do the effective split
-            Pair<List<Frame>, List<Var>> frames = splitter.get().performSplit(last.df, last.weight,
+            Pair<List<Mapping>, List<Var>> split = splitter.get().performSplitMapping(nodeDf, nodeWeights,
                     bestCandidate.groupPredicates(), random);
+            RowPartition.Range[] ranges = last.range.split(split.v1, split.v2);
 
             for (RowPredicate predicate : bestCandidate.groupPredicates()) {
                 var child = new Node(last.node, id++, last.node.depth + 1, predicate.toString(), predicate);
                 last.node.children.add(child);
             }
             for (int i = 0; i < last.node.children.size(); i++) {
-                var child = last.node.children.get(i);
-                queue.add(new QueueNode(child, frames.v1.get(i), frames.v2.get(i)));
+                queue.add(new QueueNode(last.node.children.get(i), ranges[i], last.index.child(split.v1.get(i))));
             }
         }
 
@@ -245,9 +256,9 @@ public class CTree extends ClassifierModel<CTree, ClassifierResult, RunInfo<CTre
         return true;
     }
 
-    record QueueNode(Node node, Frame df, Var weight){}
+    record QueueNode(Node node, RowPartition.Range range, PresortedIndex index) {}
 
-    private void learnNode(Node node, Frame df, Var weights, VarSelector nodeVarSelector, Random random) {
+    private void learnNode(Node node, Frame df, Var weights, PresortedIndex index, VarSelector nodeVarSelector, Random random) {
         node.density = DensityVector.fromLevelWeights(false, df.rvar(firstTargetName()), weights);
         node.counter = DensityVector.fromLevelCounts(false, df.rvar(firstTargetName()));
         node.bestLabel = node.density.findBestLabel();
@@ -276,7 +287,7 @@ public class CTree extends ClassifierModel<CTree, ClassifierResult, RunInfo<CTre
                 throw new IllegalArgumentException("No test for given variable type: " + testCol + " [" + df.type(testCol).name() + "]");
             }
             var test = searchMap.get().get(df.type(testCol));
-            var candidate = test.computeCandidate(this, df, weights, testCol, firstTargetName(), purity.get(), random);
+            var candidate = test.computeCandidate(this, df, weights, testCol, firstTargetName(), purity.get(), random, index);
             if (candidate != null) {
                 candidateList.add(candidate);
                 m--;
@@ -301,27 +312,50 @@ public class CTree extends ClassifierModel<CTree, ClassifierResult, RunInfo<CTre
 
     public void prune(Frame df, boolean all) {
         pruning.get().prune(this, df, all);
+        compiled = null;
     }
 
     @Override
     protected ClassifierResult corePredict(Frame df, boolean withClasses, boolean withDensities) {
         ClassifierResult prediction = ClassifierResult.build(this, df, withClasses, withDensities);
+        CompiledTree.Binding binding = compiled().bind(df);
+        double[] density = new double[firstTargetLevels().size()];
         for (int i = 0; i < df.rowCount(); i++) {
-            Pair<String, DensityVector<String>> res = predictPoint(this, root, i, df);
-            String label = res.v1;
-            var dv = res.v2;
+            int best = binding.density(i, density);
             if (withClasses) {
-                prediction.firstClasses().setLabel(i, label);
+                prediction.firstClasses().setLabel(i, firstTargetLevel(best));
             }
             if (withDensities) {
-                for (int j = 1; j < firstTargetLevels().size(); j++) {
-                    prediction.firstDensity().setDouble(i, j, dv.get(firstTargetLevel(j)));
+                for (int j = 1; j < density.length; j++) {
+                    prediction.firstDensity().setDouble(i, j, density[j]);
                 }
             }
         }
         return prediction;
     }
 
+    /**
+     * Flat array form of the tree used for prediction, built at first use after the tree is fitted or pruned.
+     */
+    private CompiledTree compiled() {
+        CompiledTree tree = compiled;
+        if (tree == null) {
+            List<String> levels = firstTargetLevels();
+            tree = CompiledTree.compile(root, node -> node.leaf ? List.of() : node.children, node -> node.predicate, node -> node.density.sum(),
+                    node -> {
+                        DensityVector<String> dv = node.density.copy().normalize();
+                        double[] values = new double[levels.size()];
+                        for (int j = 1; j < levels.size(); j++) {
+                            values[j] = dv.get(levels.get(j));
+                        }
+                        return values;
+                    },
+                    node -> levels.indexOf(node.bestLabel));
+            compiled = tree;
+        }
+        return tree;
+    }
+
     protected Pair<String, DensityVector<String>> predictPoint(CTree tree, Node node, int row, Frame df) {
         if (node.leaf) {
             return Pair.from(node.bestLabel, node.density.copy().normalize());
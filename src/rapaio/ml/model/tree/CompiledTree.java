@@ -0,0 +1,455 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package rapaio.ml.model.tree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+
+import rapaio.data.Frame;
+import rapaio.data.Var;
+import rapaio.data.VarType;
+import rapaio.ml.model.tree.rowpredicate.All;
+import rapaio.ml.model.tree.rowpredicate.BinaryEqual;
+import rapaio.ml.model.tree.rowpredicate.BinaryNotEqual;
+import rapaio.ml.model.tree.rowpredicate.NominalEqual;
+import rapaio.ml.model.tree.rowpredicate.NominalInSet;
+import rapaio.ml.model.tree.rowpredicate.NominalNotEqual;
+import rapaio.ml.model.tree.rowpredicate.NominalNotInSet;
+import rapaio.ml.model.tree.rowpredicate.NumGreater;
+import rapaio.ml.model.tree.rowpredicate.NumGreaterEqual;
+import rapaio.ml.model.tree.rowpredicate.NumLess;
+import rapaio.ml.model.tree.rowpredicate.NumLessEqual;
+
+/**
+ * Flat array form of a fitted tree used for fast inference.
+ * <p>
+ * Nodes are stored in breadth first order, such that the children of a node are consecutive.
+ * Each node keeps the encoded predicate which routes rows to it, the weight used to combine
+ * children predictions when no child accepts a row, and the leaf values.
+ * <p>
+ * Before predicting a batch of rows the tree is bound to the frame. The binding resolves the
+ * variables by name and the nominal tests to masks over the levels of the nominal variables,
+ * once for all rows. Predicates which are not known are evaluated directly on the frame.
+ */
+final class CompiledTree {
+
+    private static final byte OP_ALL = 0;
+    private static final byte OP_NUM_LESS_EQUAL = 1;
+    private static final byte OP_NUM_LESS = 2;
+    private static final byte OP_NUM_GREATER_EQUAL = 3;
+    private static final byte OP_NUM_GREATER = 4;
+    private static final byte OP_BIN_EQUAL = 5;
+    private static final byte OP_BIN_NOT_EQUAL = 6;
+    private static final byte OP_NOM_EQUAL = 7;
+    private static final byte OP_NOM_NOT_EQUAL = 8;
+    private static final byte OP_NOM_IN_SET = 9;
+    private static final byte OP_NOM_NOT_IN_SET = 10;
+    private static final byte OP_GENERIC = 11;
+
+    private final int[] firstChild;
+    private final int[] childCount;
+    private final byte[] op;
+    private final int[] slot;
+    private final double[] threshold;
+    private final Object[] operand;
+    private final RowPredicate[] predicates;
+    private final String[] varNames;
+
+    private final double[] weight;
+    private final double[][] values;
+    private final int[] label;
+    private final int maxDepth;
+    private final int maxChildren;
+
+    /**
+     * Compiles a tree given by its root node.
+     *
+     * @param root      root node
+     * @param children  function which gives the children of a node
+     * @param predicate function which gives the predicate of a node
+     * @param weight    function which gives the weight of a node
+     * @param values    function which gives the values of a leaf node
+     * @param label     function which gives the label index of a leaf node
+     * @param <N>       node type
+     */
+    static <N> CompiledTree compile(N root, Function<N, List<N>> children, Function<N, RowPredicate> predicate,
+            ToDoubleFunction<N> weight, Function<N, double[]> values, ToIntFunction<N> label) {
+
+        // breadth first order, children of a node are numbered when the node is visited
+        List<N> nodes = new ArrayList<>();
+        List<Integer> depths = new ArrayList<>();
+        nodes.add(root);
+        depths.add(0);
+        int[] first = new int[1];
+        int[] count = new int[1];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(0);
+        while (!queue.isEmpty()) {
+            int index = queue.poll();
+            List<N> nodeChildren = children.apply(nodes.get(index));
+            if (first.length < nodes.size()) {
+                first = Arrays.copyOf(first, nodes.size() * 2);
+                count = Arrays.copyOf(count, nodes.size() * 2);
+            }
+            first[index] = nodes.size();
+            count[index] = nodeChildren.size();
+            for (N child : nodeChildren) {
+                queue.add(nodes.size());
+                nodes.add(child);
+                depths.add(depths.get(index) + 1);
+            }
+        }
+        return new CompiledTree(nodes, depths, Arrays.copyOf(first, nodes.size()), Arrays.copyOf(count, nodes.size()),
+                predicate, weight, values, label);
+    }
+
+    private <N> CompiledTree(List<N> nodes, List<Integer> depths, int[] firstChild, int[] childCount,
+            Function<N, RowPredicate> predicate, ToDoubleFunction<N> weight, Function<N, double[]> values, ToIntFunction<N> label) {
+        int n = nodes.size();
+        this.firstChild = firstChild;
+        this.childCount = childCount;
+        this.op = new byte[n];
+        this.slot = new int[n];
+        this.threshold = new double[n];
+        this.operand = new Object[n];
+        this.predicates = new RowPredicate[n];
+        this.weight = new double[n];
+        this.values = new double[n][];
+        this.label = new int[n];
+
+        Map<String, Integer> slots = new HashMap<>();
+        int depth = 0;
+        int children = 0;
+        for (int i = 0; i < n; i++) {
+            N node = nodes.get(i);
+            RowPredicate p = predicate.apply(node);
+            predicates[i] = p;
+            encode(i, p, slots);
+            this.weight[i] = weight.applyAsDouble(node);
+            if (childCount[i] == 0) {
+                this.values[i] = values.apply(node);
+                this.label[i] = label.applyAsInt(node);
+            }
+            depth = Math.max(depth, depths.get(i));
+            children = Math.max(children, childCount[i]);
+        }
+        this.maxDepth = depth;
+        this.maxChildren = children;
+        this.varNames = new String[slots.size()];
+        slots.forEach((name, index) -> varNames[index] = name);
+    }
+
+    private void encode(int i, RowPredicate p, Map<String, Integer> slots) {
+        String name;
+        if (p instanceof All) {
+            op[i] = OP_ALL;
+            return;
+        } else if (p instanceof NumLessEqual t) {
+            op[i] = OP_NUM_LESS_EQUAL;
+            name = t.testName();
+            threshold[i] = t.testValue();
+        } else if (p instanceof NumLess t) {
+            op[i] = OP_NUM_LESS;
+            name = t.testName();
+            threshold[i] = t.testValue();
+        } else if (p instanceof NumGreaterEqual t) {
+            op[i] = OP_NUM_GREATER_EQUAL;
+            name = t.testName();
+            threshold[i] = t.testValue();
+        } else if (p instanceof NumGreater t) {
+            op[i] = OP_NUM_GREATER;
+            name = t.testName();
+            threshold[i] = t.testValue();
+        } else if (p instanceof BinaryEqual t) {
+            op[i] = OP_BIN_EQUAL;
+            name = t.testName();
+            threshold[i] = t.testValue() ? 1 : 0;
+        } else if (p instanceof BinaryNotEqual t) {
+            op[i] = OP_BIN_NOT_EQUAL;
+            name = t.testName();
+            threshold[i] = t.testValue() ? 1 : 0;
+        } else if (p instanceof NominalEqual t) {
+            op[i] = OP_NOM_EQUAL;
+            name = t.testName();
+            operand[i] = t.testValue();
+        } else if (p instanceof NominalNotEqual t) {
+            op[i] = OP_NOM_NOT_EQUAL;
+            name = t.testName();
+            operand[i] = t.testValue();
+        } else if (p instanceof NominalInSet t) {
+            op[i] = OP_NOM_IN_SET;
+            name = t.testName();
+            operand[i] = t.testValues();
+        } else if (p instanceof NominalNotInSet t) {
+            op[i] = OP_NOM_NOT_IN_SET;
+            name = t.testName();
+            operand[i] = t.testValues();
+        } else {
+            op[i] = OP_GENERIC;
+            return;
+        }
+        slot[i] = slots.computeIfAbsent(name, key -> slots.size());
+    }
+
+    /**
+     * Binds the tree to a frame for predicting its rows. A binding is not thread safe.
+     */
+    Binding bind(Frame df) {
+        return new Binding(df);
+    }
+
+    final class Binding {
+
+        private final Frame df;
+        private final Var[] vars;
+        private final byte[] ops;
+        private final boolean[][] masks;
+        private final double[][] scratch;
+        private final double[][] blendValues;
+        private final double[][] blendWeights;
+
+        private Binding(Frame df) {
+            this.df = df;
+            Set<String> names = Set.of(df.varNames());
+            this.vars = new Var[varNames.length];
+            for (int i = 0; i < varNames.length; i++) {
+                vars[i] = names.contains(varNames[i]) ? df.rvar(varNames[i]) : null;
+            }
+            this.ops = Arrays.copyOf(op, op.length);
+            this.masks = new boolean[op.length][];
+            for (int i = 0; i < ops.length; i++) {
+                if (ops[i] == OP_ALL || ops[i] == OP_GENERIC) {
+                    continue;
+                }
+                Var var = vars[slot[i]];
+                if (var == null) {
+                    // evaluated on frame to fail the same way if the variable is needed
+                    ops[i] = OP_GENERIC;
+                    continue;
+                }
+                if (ops[i] >= OP_NOM_EQUAL) {
+                    if (var.type() != VarType.NOMINAL) {
+                        ops[i] = OP_GENERIC;
+                        continue;
+                    }
+                    List<String> levels = var.levels();
+                    masks[i] = new boolean[levels.size()];
+                    for (int j = 0; j < levels.size(); j++) {
+                        masks[i][j] = acceptLevel(i, levels.get(j));
+                    }
+                }
+            }
+            this.scratch = new double[maxDepth + 2][];
+            this.blendValues = new double[maxDepth + 2][maxChildren];
+            this.blendWeights = new double[maxDepth + 2][maxChildren];
+        }
+
+        private boolean acceptLevel(int node, String level) {
+            return switch (ops[node]) {
+                case OP_NOM_EQUAL -> operand[node].equals(level);
+                case OP_NOM_NOT_EQUAL -> !operand[node].equals(level);
+                case OP_NOM_IN_SET -> ((Set<?>) operand[node]).contains(level);
+                default -> !((Set<?>) operand[node]).contains(level);
+            };
+        }
+
+        private boolean test(int node, int row) {
+            switch (ops[node]) {
+                case OP_ALL:
+                    return true;
+                case OP_NUM_LESS_EQUAL:
+                    return vars[slot[node]].getDouble(row) <= threshold[node];
+                case OP_NUM_LESS: {
+                    Var var = vars[slot[node]];
+                    return !var.isMissing(row) && var.getDouble(row) < threshold[node];
+                }
+                case OP_NUM_GREATER_EQUAL: {
+                    Var var = vars[slot[node]];
+                    return !var.isMissing(row) && var.getDouble(row) >= threshold[node];
+                }
+                case OP_NUM_GREATER: {
+                    Var var = vars[slot[node]];
+                    return !var.isMissing(row) && var.getDouble(row) > threshold[node];
+                }
+                case OP_BIN_EQUAL: {
+                    Var var = vars[slot[node]];
+                    return !var.isMissing(row) && var.getInt(row) == threshold[node];
+                }
+                case OP_BIN_NOT_EQUAL: {
+                    Var var = vars[slot[node]];
+                    return !var.isMissing(row) && var.getInt(row) != threshold[node];
+                }
+                case OP_NOM_EQUAL:
+                case OP_NOM_NOT_EQUAL:
+                case OP_NOM_IN_SET:
+                case OP_NOM_NOT_IN_SET:
+                    return masks[node][vars[slot[node]].getInt(row)];
+                default:
+                    return predicates[node].test(row, df);
+            }
+        }
+
+        /**
+         * Computes the density of a row. Leaf densities are used directly. If no child accepts the row,
+         * the densities of all children are combined using children weights.
+         *
+         * @param row row number
+         * @param out array of leaf values size where the density is stored
+         * @return index of the label with the highest density
+         */
+        int density(int row, double[] out) {
+            return density(0, row, out, 0);
+        }
+
+        private int density(int node, int row, double[] out, int depth) {
+            if (childCount[node] == 0) {
+                System.arraycopy(values[node], 0, out, 0, out.length);
+                return label[node];
+            }
+            int start = firstChild[node];
+            int end = start + childCount[node];
+            for (int child = start; child < end; child++) {
+                if (test(child, row)) {
+                    return density(child, row, out, depth + 1);
+                }
+            }
+            if (scratch[depth + 1] == null) {
+                scratch[depth + 1] = new double[out.length];
+            }
+            double[] tmp = scratch[depth + 1];
+            Arrays.fill(out, 0);
+            double w = 0;
+            for (int child = start; child < end; child++) {
+                density(child, row, tmp, depth + 1);
+                double wc = weight[child];
+                for (int i = 0; i < out.length; i++) {
+                    out[i] += tmp[i] * wc;
+                }
+                w += wc;
+            }
+            int best = 1;
+            for (int i = 1; i < out.length; i++) {
+                out[i] /= w;
+                if (out[best] < out[i]) {
+                    best = i;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Computes the value of a row. If no child accepts the row, the value is the weighted mean of
+         * the children values and the weight is the mean of the children weights.
+         *
+         * @param row       row number
+         * @param weightOut array where the weight of the prediction is stored
+         * @return predicted value
+         */
+        double value(int row, double[] weightOut) {
+            return value(0, row, weightOut, 0);
+        }
+
+        private double value(int node, int row, double[] weightOut, int depth) {
+            if (childCount[node] == 0) {
+                weightOut[0] = weight[node];
+                return values[node][0];
+            }
+            int start = firstChild[node];
+            int end = start + childCount[node];
+            for (int child = start; child < end; child++) {
+                if (test(child, row)) {
+                    return value(child, row, weightOut, depth + 1);
+                }
+            }
+            double[] v = blendValues[depth + 1];
+            double[] w = blendWeights[depth + 1];
+            int len = end - start;
+            for (int k = 0; k < len; k++) {
+                v[k] = value(start + k, row, weightOut, depth + 1);
+                w[k] = weightOut[0];
+            }
+            weightOut[0] = mean(w, len);
+            return weightedMean(v, w, len);
+        }
+    }
+
+    // same computation as WeightedMean, skipping missing values
+    private static double weightedMean(double[] v, double[] w, int len) {
+        double total = 0;
+        int count = 0;
+        double sum = 0;
+        for (int i = 0; i < len; i++) {
+            if (Double.isNaN(v[i]) || Double.isNaN(w[i])) {
+                continue;
+            }
+            total += w[i];
+            count++;
+        }
+        if (count == 0 || total == 0) {
+            return Double.NaN;
+        }
+        for (int i = 0; i < len; i++) {
+            if (!Double.isNaN(v[i]) && !Double.isNaN(w[i])) {
+                sum += w[i] * v[i];
+            }
+        }
+        double avg = sum / total;
+        double residual = 0;
+        for (int i = 0; i < len; i++) {
+            if (!Double.isNaN(v[i]) && !Double.isNaN(w[i])) {
+                residual += w[i] * (v[i] - avg);
+            }
+        }
+        return avg + residual / total;
+    }
+
+    // same computation as Mean, skipping missing values
+    private static double mean(double[] w, int len) {
+        double sum = 0;
+        int count = 0;
+        for (int i = 0; i < len; i++) {
+            if (!Double.isNaN(w[i])) {
+                sum += w[i];
+                count++;
+            }
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        double mean = sum / count;
+        double residual = 0;
+        for (int i = 0; i < len; i++) {
+            if (!Double.isNaN(w[i])) {
+                residual += w[i] - mean;
+            }
+        }
+        return mean + residual / count;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package rapaio.ml.model.tree;
+
+import java.util.Arrays;
+
+import rapaio.data.Frame;
+import rapaio.data.Mapping;
+import rapaio.util.collection.DoubleArrays;
+
+/**
+ * Sorted order of rows for numeric test variables, used by tree models to search for
+ * numeric binary splits without sorting the node instances for each node.
+ * <p>
+ * The rows are sorted only once, at the root of the tree. The sorted rows for a child node
+ * are obtained by filtering the sorted rows of the parent node with the child node mapping,
+ * which preserves the order and requires linear time. Rows with missing values on a variable
+ * are not contained in the sorted rows of that variable.
+ * <p>
+ * The sorted rows of a child node are computed only when they are requested for the first time,
+ * thus children which becomes leaves without any search do not pay any price.
+ *
+ * @author <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>
+ */
+public final class PresortedIndex {
+
+    /**
+     * Builds an index for a data frame which contains sorted rows for the given variables.
+     *
+     * @param df       data frame
+     * @param varNames names of numeric variables to be indexed
+     * @return new index
+     */
+    public static PresortedIndex from(Frame df, String... varNames) {
+        int[][] sorted = new int[df.varCount()][];
+        for (String varName : varNames) {
+            int varIndex = df.varIndex(varName);
+            sorted[varIndex] = sortRows(df, varIndex);
+        }
+        return new PresortedIndex(sorted, null, null);
+    }
+
+    /**
+     * Computes the rows with non-missing values of a variable in ascending order of values.
+     *
+     * @param df       data frame
+     * @param varIndex index of the variable
+     * @return array with sorted rows
+     */
+    public static int[] sortRows(Frame df, int varIndex) {
+        int[] rows = new int[df.rowCount()];
+        double[] values = new double[df.rowCount()];
+        int len = 0;
+        for (int i = 0; i < df.rowCount(); i++) {
+            if (df.isMissing(i, varIndex)) {
+                continue;
+            }
+            rows[len++] = i;
+            values[i] = df.getDouble(i, varIndex);
+        }
+        DoubleArrays.quickSortIndirect(rows, values, 0, len);
+        return len == rows.length ? rows : Arrays.copyOf(rows, len);
+    }
+
+    private int[][] sorted;
+    private PresortedIndex parent;
+    private Mapping mapping;
+
+    private PresortedIndex(int[][] sorted, PresortedIndex parent, Mapping mapping) {
+        this.sorted = sorted;
+        this.parent = parent;
+        this.mapping = mapping;
+    }
+
+    /**
+     * Builds the index of a child node. The mapping contains the rows of the child node
+     * as positions in the current node. A row can appear at most once in a mapping.
+     *
+     * @param mapping rows of the child node
+     * @return index for the child node
+     */
+    public PresortedIndex child(Mapping mapping) {
+        return new PresortedIndex(null, this, mapping);
+    }
+
+    /**
+     * Returns the rows of the current node with non-missing values on the given variable,
+     * sorted ascending by the variable values.
+     *
+     * @param varIndex variable index
+     * @return sorted rows or null if the variable is not indexed
+     */
+    public int[] sortedRows(int varIndex) {
+        return materialize()[varIndex];
+    }
+
+    private synchronized int[][] materialize() {
+        if (sorted != null) {
+            return sorted;
+        }
+        int[][] parentSorted = parent.materialize();
+
+        int parentRows = 0;
+        for (int i = 0; i < mapping.size(); i++) {
+            parentRows = Math.max(parentRows, mapping.get(i) + 1);
+        }
+        int[] positions = new int[parentRows];
+        Arrays.fill(positions, -1);
+        for (int i = 0; i < mapping.size(); i++) {
+            positions[mapping.get(i)] = i;
+        }
+
+        int[][] childSorted = new int[parentSorted.length][];
+        int[] buffer = new int[mapping.size()];
+        for (int j = 0; j < parentSorted.length; j++) {
+            if (parentSorted[j] == null) {
+                continue;
+            }
+            int len = 0;
+            for (int row : parentSorted[j]) {
+                if (row < parentRows && positions[row] >= 0) {
+                    buffer[len++] = positions[row];
+                }
+            }
+            childSorted[j] = Arrays.copyOf(buffer, len);
+        }
+
+        sorted = childSorted;
+        // release the parent, it is not needed anymore
+        parent = null;
+        mapping = null;
+        return sorted;
+    }
+}
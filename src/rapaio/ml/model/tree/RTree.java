@@ -34,13 +34,10 @@ import java.util.Random;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.stream.Stream;
 
-import rapaio.core.stat.Mean;
 import rapaio.core.stat.Sum;
-import rapaio.core.stat.WeightedMean;
 import rapaio.data.Frame;
 import rapaio.data.Mapping;
 import rapaio.data.Var;
-import rapaio.data.VarDouble;
 import rapaio.data.VarType;
 import rapaio.ml.common.Capabilities;
 import rapaio.ml.common.VarSelector;
@@ -57,7 +54,7 @@ import rapaio.ml.model.tree.rtree.Search;
 import rapaio.ml.model.tree.rtree.Splitter;
 import rapaio.printer.Printer;
 import rapaio.printer.opt.POption;
-import rapaio.util.DoublePair;
+import rapaio.util.collection.IntArrays;
 
 /**
  * Implements a regression decision tree.
@@ -156,6 +153,7 @@ public class RTree extends GBTRtree<RTree, RegressionResult, RunInfo<RTree>> {
     // tree root node
 
     private Node root;
+    private transient CompiledTree compiled;
 
     private RTree() {
     }
@@ -190,18 +188,26 @@ public class RTree extends GBTRtree<RTree, RegressionResult, RunInfo<RTree>> {
         int id = 1;
 
         this.varSelector.get().withVarNames(inputNames());
+        compiled = null;
         root = new Node(null, id++, "root", (row, frame) -> true, 1);
 
         VarSelector nodeVarSelector = this.varSelector.get().withVarNames(inputNames);
 
         // make queue and initialize it
 
+        // numeric variables are sorted only once, children nodes reuse the sorted rows of their parents
+        String[] presortedNames = Arrays.stream(inputNames)
+                .filter(name -> test.get().get(df.type(name)) == Search.NumericBinary)
+                .toArray(String[]::new);
+
         Queue<QueueNode> queue = new ConcurrentLinkedQueue<>();
-        queue.add(new QueueNode(root, df, weights));
+        queue.add(new QueueNode(root, RowPartition.from(df, weights), PresortedIndex.from(df, presortedNames)));
 
         while (!queue.isEmpty()) {
             QueueNode last = queue.poll();
-            learnNode(last.node, last.df, last.weight, nodeVarSelector, random);
+            Frame nodeDf = last.range.frame();
+            Var nodeWeights = last.range.weights();
+            learnNode(last.node, nodeDf, nodeWeights, last.index, nodeVarSelector, random);
 
             if (last.node.leaf) {
                 continue;
@@ -209,21 +215,22 @@ public class RTree extends GBTRtree<RTree, RegressionResult, RunInfo<RTree>> {
             // now that we have a best candidate,do the effective split
 
             List<RowPredicate> predicates = last.node.bestCandidate.getGroupPredicates();
-            List<Mapping> mappings = splitter.get().performSplitMapping(last.df, last.weight, predicates, random);
+            List<Mapping> mappings = splitter.get().performSplitMapping(nodeDf, nodeWeights, predicates, random);
+            RowPartition.Range[] ranges = last.range.split(mappings, mappings.stream().<Var>map(nodeWeights::mapRows).toList());
 
             for (int i = 0; i < predicates.size(); i++) {
                 RowPredicate predicate = predicates.get(i);
                 Node child = new Node(last.node, id++, predicate.toString(), predicate, last.node.depth + 1);
                 last.node.children.add(child);
-                queue.add(new QueueNode(child, last.df.mapRows(mappings.get(i)), last.weight.mapRows(mappings.get(i))));
+                queue.add(new QueueNode(child, ranges[i], last.index.child(mappings.get(i))));
             }
         }
         return true;
     }
 
-    record QueueNode(Node node, Frame df, Var weight) {}
+    record QueueNode(Node node, RowPartition.Range range, PresortedIndex index) {}
 
-    private void learnNode(Node node, Frame df, Var weights, VarSelector nodeVarSelector, Random random) {
+    private void learnNode(Node node, Frame df, Var weights, PresortedIndex index, VarSelector nodeVarSelector, Random random) {
 
         node.leaf = true;
         node.value = loss.get().scalarMinimizer(df.rvar(firstTargetName()), weights);
@@ -245,7 +252,7 @@ public class RTree extends GBTRtree<RTree, RegressionResult, RunInfo<RTree>> {
 
         List<Candidate> candidates = stream
                 .map(testCol -> test.get(df.type(testCol))
-                        .computeCandidate(this, df, weights, testCol, firstTargetName(), random)
+                        .computeCandidate(this, df, weights, testCol, firstTargetName(), random, index)
                         .orElse(null))
                 .filter(Objects::nonNull)
                 .toList();
@@ -270,39 +277,26 @@ public class RTree extends GBTRtree<RTree, RegressionResult, RunInfo<RTree>> {
     protected RegressionResult corePredict(Frame df, boolean withResiduals, final double... quantiles) {
         RegressionResult prediction = RegressionResult.build(this, df, withResiduals, quantiles);
 
+        CompiledTree.Binding binding = compiled().bind(df);
+        double[] weight = new double[1];
         for (int i = 0; i < df.rowCount(); i++) {
-            DoublePair result = predict(i, df, root);
-            prediction.prediction(firstTargetName()).setDouble(i, result.v1);
+            prediction.prediction(firstTargetName()).setDouble(i, binding.value(i, weight));
         }
         prediction.buildComplete();
         return prediction;
     }
 
-    private DoublePair predict(int row, Frame df, Node node) {
-
-        // if we are at a leaf node we simply return what we found there
-        if (node.leaf) {
-            return DoublePair.of(node.value, node.weight);
-        }
-
-        // if is an interior node, we check to see if there is a child
-        // which can handle the instance
-        for (Node child : node.children) {
-            if (child.predicate.test(row, df)) {
-                return predict(row, df, child);
-            }
-        }
-
-        // so is a missing value for the current test feature
-
-        VarDouble values = VarDouble.empty();
-        VarDouble weights = VarDouble.empty();
-        for (Node child : node.children) {
-            DoublePair prediction = predict(row, df, child);
-            values.addDouble(prediction.v1);
-            weights.addDouble(prediction.v2);
+    /**
+     * Flat array form of the tree used for prediction, built at first use after the tree is fitted or boosted.
+     */
+    private CompiledTree compiled() {
+        CompiledTree tree = compiled;
+        if (tree == null) {
+            tree = CompiledTree.compile(root, node -> node.leaf ? List.of() : node.children, node -> node.predicate,
+                    node -> node.weight, node -> new double[] {node.value}, node -> 0);
+            compiled = tree;
         }
-        return DoublePair.of(WeightedMean.of(values, weights).value(), Mean.of(weights).value());
+        return tree;
     }
 
     @Override
@@ -367,5 +361,40 @@ public class RTree extends GBTRtree<RTree, RegressionResult, RunInfo<RTree>> {
      */
     public void boostUpdate(Frame x, Var y, Var fx, Loss lossFunction) {
         root.boostUpdate(x, y, fx, lossFunction, splitter.get(), getRandom());
+        compiled = null;
+    }
+
+    /**
+     * Updates leaf values as {@link #boostUpdate(Frame, Var, Var, Loss)} and returns the predictions of the
+     * updated tree for the rows of {@code x}. Rows are routed through the tree only once: the leaf reached
+     * by a row during the update gives its prediction, only the rows which do not reach a leaf through
+     * node predicates are predicted separately.
+     *
+     * @param x            input features
+     * @param y            target features
+     * @param fx           current fitted function
+     * @param lossFunction loss function used to compute additive gradient
+     * @return predictions of the updated tree for each row of x
+     */
+    public double[] boostUpdateFitted(Frame x, Var y, Var fx, Loss lossFunction) {
+        int n = x.rowCount();
+        Node[] leaves = new Node[n];
+        root.boostUpdate(x, y, fx, lossFunction, splitter.get(), getRandom(), IntArrays.newSeq(n), leaves);
+        compiled = null;
+
+        double[] fitted = new double[n];
+        CompiledTree.Binding binding = null;
+        double[] weight = new double[1];
+        for (int i = 0; i < n; i++) {
+            if (leaves[i] != null) {
+                fitted[i] = leaves[i].value;
+            } else {
+                if (binding == null) {
+                    binding = compiled().bind(x);
+                }
+                fitted[i] = binding.value(i, weight);
+            }
+        }
+        return fitted;
     }
 }
@@ -0,0 +1,160 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package rapaio.ml.model.tree;
+
+import java.util.List;
+
+import rapaio.data.Frame;
+import rapaio.data.Mapping;
+import rapaio.data.Var;
+import rapaio.data.VarDouble;
+
+/**
+ * Rows and weights of the instances used to grow a tree, stored as a single permutation
+ * of the rows of the initial data frame. Each tree node owns a contiguous range
+ * {@code [start, end)} of the permutation.
+ * <p>
+ * When a node is split, the ranges of the children are written in place over the range of the
+ * node, one child after another. Frames of the nodes are always built from the initial data frame,
+ * thus the lookup of a value does not depend on node depth.
+ * <p>
+ * Frames and weights of ranges are views over the arrays of the partition, thus they are
+ * valid only until the range is split.
+ * <p>
+ * If a splitter distributes the same instance to multiple children, as it happens for
+ * missing values with weighted splitting, the children could not fit into the node range and
+ * they are stored into a new partition.
+ *
+ * @author <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>
+ */
+public final class RowPartition {
+
+    /**
+     * Range of rows from a partition which belongs to a tree node.
+     */
+    public record Range(RowPartition partition, int start, int end) {
+
+        public int size() {
+            return end - start;
+        }
+
+        /**
+         * @return mapped frame with the instances from range, as a view over the rows of the partition
+         */
+        public Frame frame() {
+            return partition.df.mapRows(Mapping.slice(partition.rows, start, end));
+        }
+
+        /**
+         * @return weights of the instances from range, as a view over the weights of the partition
+         */
+        public Var weights() {
+            return partition.weightsVar.mapRows(Mapping.range(start, end));
+        }
+
+        /**
+         * Splits the range into child ranges.
+         *
+         * @param mappings positions of children instances, relative to the current range
+         * @param weights  weights of the children instances
+         * @return list of ranges, one for each child
+         */
+        public Range[] split(List<Mapping> mappings, List<Var> weights) {
+            return partition.split(this, mappings, weights);
+        }
+    }
+
+    /**
+     * Builds a partition which contains all the rows of a data frame.
+     *
+     * @param df      data frame
+     * @param weights instance weights
+     * @return range with all the rows
+     */
+    public static Range from(Frame df, Var weights) {
+        int n = df.rowCount();
+        int[] rows = new int[n];
+        double[] w = new double[n];
+        for (int i = 0; i < n; i++) {
+            rows[i] = i;
+            w[i] = weights.getDouble(i);
+        }
+        return new Range(new RowPartition(df, rows, w), 0, n);
+    }
+
+    private final Frame df;
+    private final int[] rows;
+    private final double[] weights;
+    private final VarDouble weightsVar;
+    private final int[] bufferRows;
+    private final double[] bufferWeights;
+
+    private RowPartition(Frame df, int[] rows, double[] weights) {
+        this.df = df;
+        this.rows = rows;
+        this.weights = weights;
+        this.weightsVar = VarDouble.wrapArray(weights.length, weights);
+        this.bufferRows = new int[rows.length];
+        this.bufferWeights = new double[rows.length];
+    }
+
+    private Range[] split(Range range, List<Mapping> mappings, List<Var> childWeights) {
+        int total = 0;
+        for (Mapping mapping : mappings) {
+            total += mapping.size();
+        }
+
+        RowPartition target = this;
+        int offset = range.start;
+        if (total > range.size()) {
+            // children does not fit into parent range, they go to a new partition
+            target = new RowPartition(df, new int[total], new double[total]);
+            offset = 0;
+        }
+
+        // children are written from a copy of the parent range since they overwrite it,
+        // child weights could be views over the parent range, thus they are read before writing
+        System.arraycopy(rows, range.start, bufferRows, range.start, range.size());
+        double[] w = target == this ? bufferWeights : target.weights;
+        int pos = offset;
+        for (int i = 0; i < mappings.size(); i++) {
+            Var childWeight = childWeights.get(i);
+            for (int j = 0; j < mappings.get(i).size(); j++) {
+                w[pos++] = childWeight.getDouble(j);
+            }
+        }
+        if (target == this) {
+            System.arraycopy(bufferWeights, offset, weights, offset, total);
+        }
+
+        Range[] ranges = new Range[mappings.size()];
+        for (int i = 0; i < mappings.size(); i++) {
+            Mapping mapping = mappings.get(i);
+            for (int j = 0; j < mapping.size(); j++) {
+                target.rows[offset + j] = bufferRows[range.start + mapping.get(j)];
+            }
+            ranges[i] = new Range(target, offset, offset + mapping.size());
+            offset += mapping.size();
+        }
+        return ranges;
+    }
+}
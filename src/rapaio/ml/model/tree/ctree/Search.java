@@ -31,6 +31,7 @@ import rapaio.core.tools.DensityTable;
 import rapaio.data.Frame;
 import rapaio.data.Var;
 import rapaio.ml.model.tree.CTree;
+import rapaio.ml.model.tree.PresortedIndex;
 import rapaio.ml.model.tree.RowPredicate;
 import rapaio.util.collection.DoubleArrays;
 import rapaio.util.collection.IntArrays;
@@ -86,42 +87,45 @@ public enum Search implements Serializable {
     NumericBinary {
         @Override
         public Candidate computeCandidate(CTree c, Frame df, Var weights, String testName, String targetName, Purity function, Random random) {
+            return computeCandidate(c, df, weights, testName, targetName, function, random, null);
+        }
+
+        @Override
+        public Candidate computeCandidate(CTree c, Frame df, Var weights, String testName, String targetName, Purity function,
+                Random random, PresortedIndex index) {
 
             int testIndex = df.varIndex(testName);
             int targetIndex = df.varIndex(targetName);
             var dt = DensityTable.empty(false, DensityTable.NUMERIC_DEFAULT_LABELS, df.levels(targetName));
 
-            int[] rows = new int[df.rowCount()];
-            double missingWeight = 0;
-            int len = 0;
-            for (int i = 0; i < df.rowCount(); i++) {
-                if (df.isMissing(i, testIndex)) {
-                    missingWeight += weights.getDouble(i);
-                    continue;
-                }
-                rows[len++] = i;
-                dt.inc(1, dt.colIndex().getIndex(df, targetName, i), weights.getDouble(i));
+            int[] rows = (index != null) ? index.sortedRows(testIndex) : null;
+            if (rows == null) {
+                rows = PresortedIndex.sortRows(df, testIndex);
             }
+            int len = rows.length;
 
-            double[] values = df.rvar(testIndex).stream().mapToDouble().toArray();
-            IntArrays.quickSort(rows, 0, len, (i, j) -> Double.compare(values[i], values[j]));
+            double[] values = new double[len];
+            for (int i = 0; i < len; i++) {
+                values[i] = df.getDouble(rows[i], testIndex);
+                dt.inc(1, df.getInt(rows[i], targetIndex) - 1, weights.getDouble(rows[i]));
+            }
 
             double bestScore = Double.NaN;
             double bestTestValue = Double.NaN;
 
             for (int i = 0; i < len; i++) {
 
-                int index = df.getInt(rows[i], targetIndex) - 1;
+                int level = df.getInt(rows[i], targetIndex) - 1;
 
                 double w = weights.getDouble(rows[i]);
-                dt.inc(0, index, +w);
-                dt.inc(1, index, -w);
+                dt.inc(0, level, +w);
+                dt.inc(1, level, -w);
 
-                if (i >= c.minCount.get() && i < len - c.minCount.get() && values[rows[i]] < values[rows[i + 1]]) {
+                if (i >= c.minCount.get() && i < len - c.minCount.get() && values[i] < values[i + 1]) {
                     double currentScore = function.compute(dt);
                     if (Double.isNaN(bestScore) || bestScore < currentScore) {
                         bestScore = currentScore;
-                        bestTestValue = (values[rows[i]] + values[rows[i + 1]]) / 2.0;
+                        bestTestValue = (values[i] + values[i + 1]) / 2.0;
                     }
                 }
             }
@@ -131,6 +135,12 @@ public enum Search implements Serializable {
             }
 
             if (c.missingPenalty.get()) {
+                double missingWeight = 0;
+                for (int i = 0; i < df.rowCount(); i++) {
+                    if (df.isMissing(i, testIndex)) {
+                        missingWeight += weights.getDouble(i);
+                    }
+                }
                 double sum = weights.dv().nansum();
                 bestScore = bestScore * (sum - missingWeight) / sum;
             }
@@ -300,4 +310,15 @@ public enum Search implements Serializable {
 
     public abstract Candidate computeCandidate(CTree c, Frame df, Var w, String testName, String targetName, Purity function,
             Random random);
+
+    /**
+     * Computes the best candidate using the sorted rows of the current node, if the search
+     * can make use of them. The default implementation ignores the index.
+     *
+     * @param index sorted rows of the current node, can be null
+     */
+    public Candidate computeCandidate(CTree c, Frame df, Var w, String testName, String targetName, Purity function,
+            Random random, PresortedIndex index) {
+        return computeCandidate(c, df, w, testName, targetName, function, random);
+    }
 }
@@ -65,8 +65,28 @@ public class Node implements Serializable {
     }
 
     public void boostUpdate(Frame x, Var y, Var fx, Loss loss, Splitter splitter, Random random) {
+        boostUpdate(x, y, fx, loss, splitter, random, null, null);
+    }
+
+    /**
+     * Updates leaf values and collects the leaf reached by each row. Rows are identified by
+     * their index in {@code leaves}, given for each row of {@code x} in {@code rows}. A row is
+     * collected only if it reached the leaf through node predicates, a row assigned to a child
+     * by the splitter because it does not match any predicate has index {@code -1}.
+     *
+     * @param rows   index of each row from {@code x} in {@code leaves}, or -1
+     * @param leaves array where the leaf reached by each row is stored, null if leaves are not collected
+     */
+    public void boostUpdate(Frame x, Var y, Var fx, Loss loss, Splitter splitter, Random random, int[] rows, Node[] leaves) {
         if (leaf) {
             value = loss.additiveScalarMinimizer(y, fx);
+            if (leaves != null) {
+                for (int row : rows) {
+                    if (row >= 0) {
+                        leaves[row] = this;
+                    }
+                }
+            }
             return;
         }
 
@@ -78,11 +98,19 @@ public class Node implements Serializable {
         List<Mapping> mappings = splitter.performSplitMapping(x, VarDouble.fill(x.rowCount(), 1), groupPredicates, random);
 
         for (int i = 0; i < children.size(); i++) {
-            children.get(i).boostUpdate(
-                    x.mapRows(mappings.get(i)),
-                    y.mapRows(mappings.get(i)),
-                    fx.mapRows(mappings.get(i)),
-                    loss, splitter, random);
+            Node child = children.get(i);
+            Mapping mapping = mappings.get(i);
+            int[] childRows = null;
+            if (leaves != null) {
+                childRows = new int[mapping.size()];
+                for (int j = 0; j < childRows.length; j++) {
+                    int local = mapping.get(j);
+                    // splitters assign a row to the first matching predicate, if any
+                    boolean matched = splitter == Splitter.Ignore || child.predicate.test(local, x);
+                    childRows[j] = matched ? rows[local] : -1;
+                }
+            }
+            child.boostUpdate(x.mapRows(mapping), y.mapRows(mapping), fx.mapRows(mapping), loss, splitter, random, childRows, leaves);
         }
     }
 }
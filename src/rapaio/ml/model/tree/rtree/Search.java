@@ -30,6 +30,7 @@ import java.util.stream.IntStream;
 import rapaio.core.stat.WeightedOnlineStat;
 import rapaio.data.Frame;
 import rapaio.data.Var;
+import rapaio.ml.model.tree.PresortedIndex;
 import rapaio.ml.model.tree.RTree;
 import rapaio.ml.model.tree.RowPredicate;
 
@@ -61,12 +62,23 @@ public enum Search implements Serializable {
     NumericBinary {
         @Override
         public Optional<Candidate> computeCandidate(RTree c, Frame df, Var weights, String testName, String targetName, Random random) {
+            return computeCandidate(c, df, weights, testName, targetName, random, null);
+        }
+
+        @Override
+        public Optional<Candidate> computeCandidate(RTree c, Frame df, Var weights, String testName, String targetName, Random random,
+                PresortedIndex index) {
 
             int testIndex = df.varIndex(testName);
             int targetIndex = df.varIndex(targetName);
 
-            int[] rows = df.rvar(testIndex).rowsComplete();
-            df.rvar(testIndex).dv().sortIndexes(rows);
+            int[] rows = (index != null) ? index.sortedRows(testIndex) : null;
+            if (rows == null) {
+                rows = PresortedIndex.sortRows(df, testIndex);
+            }
+            if (rows.length == 0) {
+                return Optional.empty();
+            }
 
             double[] leftWeight = new double[rows.length];
             double[] leftVar = new double[rows.length];
@@ -285,4 +297,21 @@ public enum Search implements Serializable {
      */
     public abstract Optional<Candidate> computeCandidate(RTree tree, Frame df, Var w, String testVarName, String targetVarName,
             Random random);
+
+    /**
+     * Computes the best candidate using the sorted rows of the current node, if the search
+     * can make use of them. The default implementation ignores the index.
+     *
+     * @param tree          tree model
+     * @param df            instances from the current node
+     * @param w             weights of the instances from the current node
+     * @param testVarName   test variable name
+     * @param targetVarName target variable name
+     * @param index         sorted rows of the current node, can be null
+     * @return the best candidate
+     */
+    public Optional<Candidate> computeCandidate(RTree tree, Frame df, Var w, String testVarName, String targetVarName,
+            Random random, PresortedIndex index) {
+        return computeCandidate(tree, df, w, testVarName, targetVarName, random);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,184 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package rapaio.util.collection;
+
+import static rapaio.util.hash.Murmur3.*;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from primitive long keys to primitive int values.
+ * <p>
+ * Keys and values are stored in parallel arrays with a power of two capacity and linear probing.
+ * Any long value can be used as key. The value {@link #MISSING} is reserved to mark empty slots
+ * and it is also returned when a key is not found, thus it can't be used as value.
+ */
+public class Long2IntOpenHashMap implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = -4406376512392405215L;
+
+    public static final int MISSING = Integer.MIN_VALUE;
+    public static final int DEFAULT_ALLOCATION = 16;
+    public static final double DEFAULT_LOAD_FACTOR = 0.75;
+
+    private final double loadFactor;
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int threshold;
+
+    public Long2IntOpenHashMap() {
+        this(DEFAULT_ALLOCATION, DEFAULT_LOAD_FACTOR);
+    }
+
+    public Long2IntOpenHashMap(int expected) {
+        this(expected, DEFAULT_LOAD_FACTOR);
+    }
+
+    public Long2IntOpenHashMap(int expected, double loadFactor) {
+        if (loadFactor <= 0 || loadFactor >= 1) {
+            throw new IllegalArgumentException("Load factor must be in interval (0,1), value: %f.".formatted(loadFactor));
+        }
+        this.loadFactor = loadFactor;
+        allocate(capacity(Math.max(expected, 1), loadFactor));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != MISSING;
+    }
+
+    /**
+     * @param key key to look for
+     * @return value associated with the key or {@link #MISSING} if the key is not found
+     */
+    public int get(long key) {
+        int pos = (int) fmix64(key) & mask;
+        while (values[pos] != MISSING) {
+            if (keys[pos] == key) {
+                return values[pos];
+            }
+            pos = (pos + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    /**
+     * Associates a value with a key, replacing the previous value if the key is already present.
+     *
+     * @param key   key
+     * @param value value
+     */
+    public void put(long key, int value) {
+        checkValue(value);
+        int pos = (int) fmix64(key) & mask;
+        while (values[pos] != MISSING) {
+            if (keys[pos] == key) {
+                values[pos] = value;
+                return;
+            }
+            pos = (pos + 1) & mask;
+        }
+        insert(pos, key, value);
+    }
+
+    /**
+     * Associates a value with a key only if the key is not already present.
+     *
+     * @param key   key
+     * @param value value to associate if the key is not found
+     * @return the value already associated with the key or {@link #MISSING} if the given value was inserted
+     */
+    public int putIfAbsent(long key, int value) {
+        checkValue(value);
+        int pos = (int) fmix64(key) & mask;
+        while (values[pos] != MISSING) {
+            if (keys[pos] == key) {
+                return values[pos];
+            }
+            pos = (pos + 1) & mask;
+        }
+        insert(pos, key, value);
+        return MISSING;
+    }
+
+    public void clear() {
+        Arrays.fill(values, MISSING);
+        size = 0;
+    }
+
+    private void checkValue(int value) {
+        if (value == MISSING) {
+            throw new IllegalArgumentException("Value %d is reserved for empty slots.".formatted(MISSING));
+        }
+    }
+
+    private void insert(int pos, long key, int value) {
+        keys[pos] = key;
+        values[pos] = value;
+        if (++size > threshold) {
+            rehash();
+        }
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(keys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != MISSING) {
+                int pos = (int) fmix64(oldKeys[i]) & mask;
+                while (values[pos] != MISSING) {
+                    pos = (pos + 1) & mask;
+                }
+                keys[pos] = oldKeys[i];
+                values[pos] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = IntArrays.newFill(capacity, MISSING);
+        mask = capacity - 1;
+        threshold = (int) Math.min(capacity - 1, Math.ceil(capacity * loadFactor));
+    }
+
+    private static int capacity(int expected, double loadFactor) {
+        long needed = (long) Math.ceil(expected / loadFactor) + 1;
+        if (needed > (1 << 30)) {
+            return 1 << 30;
+        }
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+}
@@ -306,7 +306,10 @@ public final class Murmur3 {
         return h;
     }
 
-    private static long fmix64(long k) {
+    /**
+     * Finalization mix of MurmurHash3 which spreads the bits of a 64 bit value.
+     */
+    public static long fmix64(long k) {
         k ^= k >>> 33;
         k *= 0xff51afd7ed558ccdL;
         k ^= k >>> 33;
@@ -311,4 +311,19 @@ public class BoundFrameTest {
         var ex = assertThrows(IllegalStateException.class, () -> BoundFrame.byVars(df).clearRows());
         assertEquals("This operation is not available for bound frames.", ex.getMessage());
     }
+
+    @Test
+    void testCompact() {
+        Frame df = df1;
+        for (int i = 0; i < 20; i++) {
+            df = df.bindRows(df2);
+        }
+        assertTrue(df instanceof BoundFrame);
+        assertEquals(44, df.rowCount());
+
+        SolidFrame compact = ((BoundFrame) df).compact();
+        assertTrue(compact.deepEquals(df));
+        assertEquals(5, compact.getDouble(4, "x"), TOL);
+        assertEquals(1 / 6., compact.getDouble(43, "1/x"), TOL);
+    }
 }
@@ -29,6 +29,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -252,4 +253,73 @@ public class BoundVarTest {
         assertEquals("b", x.levels().get(2));
         assertEquals(3, x.levels().size());
     }
+
+    @Test
+    void testDeepBindChain() {
+        // bind many partitions one by one, including empty ones
+        Var x = VarDouble.seq(0, 9);
+        for (int i = 1; i < 50; i++) {
+            x = x.bindRows(VarDouble.seq(i * 10, i * 10 + 9));
+            x = x.bindRows(VarDouble.empty());
+        }
+        assertTrue(x instanceof BoundVar);
+        assertEquals(500, x.size());
+
+        // sequential, backward and random access
+        for (int i = 0; i < x.size(); i++) {
+            assertEquals(i, x.getDouble(i));
+        }
+        for (int i = x.size() - 1; i >= 0; i--) {
+            assertEquals(i, x.getInt(i));
+        }
+        for (int i = 0; i < x.size(); i++) {
+            int row = (i * 37) % x.size();
+            assertEquals(row, x.getDouble(row));
+        }
+
+        double[] sum = new double[1];
+        x.forEachDouble(v -> sum[0] += v);
+        assertEquals(499 * 500 / 2., sum[0]);
+        assertTrue(x.dvNew().deepEquals(VarDouble.seq(0, 499).dv()));
+
+        Var compact = ((BoundVar) x).compact();
+        assertTrue(compact instanceof VarDouble);
+        assertTrue(compact.deepEquals(VarDouble.seq(0, 499).name(x.name())));
+    }
+
+    @Test
+    void testCountsSmallerThanVariables() {
+        List<Integer> counts = new ArrayList<>();
+        counts.add(2);
+        counts.add(3);
+        List<Var> vars = new ArrayList<>();
+        vars.add(VarInt.wrap(1, 2, 100));
+        vars.add(VarInt.wrap(3, 4, 5, 100));
+
+        Var x = BoundVar.from(counts, vars);
+        assertEquals(5, x.size());
+        assertTrue(VarInt.wrap(1, 2, 3, 4, 5).deepEquals(((BoundVar) x).compact()));
+
+        // bound variable truncated by count
+        Var y = BoundVar.from(List.of(4, 1), List.of(x, VarInt.wrap(6)));
+        assertEquals(5, y.size());
+        assertTrue(VarInt.wrap(1, 2, 3, 4, 6).deepEquals(((BoundVar) y).compact()));
+    }
+
+    @Test
+    void testParallelReads() {
+        Var x = VarDouble.seq(0, 99);
+        for (int i = 1; i < 50; i++) {
+            x = x.bindRows(VarDouble.seq(i * 100, i * 100 + 99));
+        }
+        Var bound = x;
+        // rows are read in random order from many threads, each read must find its own segment
+        for (int run = 0; run < 10; run++) {
+            assertTrue(IntStream.range(0, 50_000).parallel()
+                    .allMatch(i -> {
+                        int row = (int) ((i * 7919L) % bound.size());
+                        return bound.getDouble(row) == row;
+                    }));
+        }
+    }
 }
@@ -0,0 +1,206 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package rapaio.data;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import rapaio.data.stream.VSpot;
+
+public class JoinTest {
+
+    private Random random;
+    private Frame df1;
+    private Frame df2;
+
+    @BeforeEach
+    void beforeEach() {
+        random = new Random(42);
+        df1 = SolidFrame.byVars(
+                VarNominal.copy("a", "b", "c", "a", "b").name("id"),
+                VarInt.copy(20, 20, 40, 30, 40).name("age"),
+                VarDouble.wrap(1, 2, 3, 0, 0).name("children")
+        );
+        df2 = SolidFrame.byVars(
+                VarNominal.copy("a", "c", "d", "a", "d").name("id"),
+                VarNominal.copy("Iasi", "Iasi", "Bucharest", "Bucharest", "Constanta").name("city")
+        );
+    }
+
+    @Test
+    void testJoinTypes() {
+        Frame inner = Join.inner(df1, df2);
+        assertArrayEquals(new String[] {"id", "age", "children", "city"}, inner.varNames());
+        assertEquals(List.of("a", "a", "c", "a", "a"), labels(inner, "id"));
+        assertEquals(List.of("20", "20", "40", "30", "30"), labels(inner, "age"));
+        assertEquals(List.of("Iasi", "Bucharest", "Iasi", "Iasi", "Bucharest"), labels(inner, "city"));
+
+        Frame left = Join.left(df1, df2, "id");
+        assertEquals(List.of("a", "a", "b", "c", "a", "a", "b"), labels(left, "id"));
+        assertEquals(List.of("1.0", "1.0", "2.0", "3.0", "0.0", "0.0", "0.0"), labels(left, "children"));
+        assertEquals(List.of("Iasi", "Bucharest", "?", "Iasi", "Iasi", "Bucharest", "?"), labels(left, "city"));
+
+        Frame right = Join.right(df1, df2);
+        assertEquals(List.of("a", "a", "c", "d", "a", "a", "d"), labels(right, "id"));
+        assertEquals(List.of("20", "30", "40", "?", "20", "30", "?"), labels(right, "age"));
+        assertEquals(List.of("Iasi", "Iasi", "Iasi", "Bucharest", "Bucharest", "Bucharest", "Constanta"), labels(right, "city"));
+
+        Frame outer = Join.outer(df1, df2);
+        assertEquals(9, outer.rowCount());
+        assertEquals("d", outer.getLabel(7, "id"));
+        assertEquals("Bucharest", outer.getLabel(7, "city"));
+        assertEquals("d", outer.getLabel(8, "id"));
+        assertTrue(outer.isMissing(8, "age"));
+
+        Frame semi = Join.semi(df1, df2);
+        assertInstanceOf(MappedFrame.class, semi);
+        assertArrayEquals(df1.varNames(), semi.varNames());
+        assertEquals(List.of("a", "c", "a"), labels(semi, "id"));
+        assertEquals(List.of("b", "b"), labels(Join.anti(df1, df2), "id"));
+    }
+
+    @Test
+    void testDuplicateNamesAndErrors() {
+        Frame left = SolidFrame.byVars(VarInt.copy(1, 2).name("k"), VarDouble.wrap(1, 2).name("x"));
+        Frame right = SolidFrame.byVars(VarInt.copy(2, 1).name("key"), VarDouble.wrap(3, 4).name("x"));
+
+        Frame joined = Join.from(left, right, VarRange.of("k"), VarRange.of("key"), Join.Type.INNER);
+        assertArrayEquals(new String[] {"k", "x", "x" + Join.RIGHT_SUFFIX}, joined.varNames());
+        assertEquals(4, joined.getDouble(0, "x_right"));
+        assertEquals(3, joined.getDouble(1, "x_right"));
+
+        var ex = assertThrows(IllegalArgumentException.class,
+                () -> Join.from(left, right, VarRange.of("k"), VarRange.of("x"), Join.Type.INNER));
+        assertEquals("Variable types differ; left: k [ INT ], right: x [ DOUBLE ]", ex.getMessage());
+        ex = assertThrows(IllegalArgumentException.class,
+                () -> Join.from(left, right, VarRange.of("k", "x"), VarRange.of("key"), Join.Type.INNER));
+        assertEquals("Number of keys differ; left: 2, right: 1.", ex.getMessage());
+    }
+
+    @Test
+    void testSignedZeroDoubleKeys() {
+        Frame left = SolidFrame.byVars(VarDouble.wrap(-0.0, 1, 0.0).name("k"), VarInt.copy(1, 2, 3).name("x"));
+        Frame right = SolidFrame.byVars(VarDouble.wrap(0.0, 2).name("k"), VarInt.copy(4, 5).name("y"));
+
+        Frame inner = Join.inner(left, right, "k");
+        assertEquals(2, inner.rowCount());
+        assertEquals(1, inner.getInt(0, "x"));
+        assertEquals(4, inner.getInt(0, "y"));
+        assertEquals(3, inner.getInt(1, "x"));
+        assertEquals(4, inner.getInt(1, "y"));
+    }
+
+    @Test
+    void testAgainstReference() {
+        final int N = 40_000;
+        String[] leftLevels = new String[] {"a", "b", "c", "d"};
+        String[] rightLevels = new String[] {"e", "d", "c", "b"};
+        Frame left = SolidFrame.byVars(
+                VarInt.from(N, row -> random.nextInt(50) == 0 ? VarInt.MISSING_VALUE : random.nextInt(300)).name("k1"),
+                VarNominal.from(N, row -> leftLevels[random.nextInt(leftLevels.length)], leftLevels).name("k2"),
+                VarDouble.from(N, row -> (double) row).name("x"));
+        Frame right = SolidFrame.byVars(
+                VarNominal.from(N / 2, row -> rightLevels[random.nextInt(rightLevels.length)], rightLevels).name("k2"),
+                VarInt.from(N / 2, row -> random.nextInt(50) == 0 ? VarInt.MISSING_VALUE : random.nextInt(400)).name("k1"),
+                VarDouble.from(N / 2, row -> (double) row).name("y"));
+
+        // reference matches built with string keys
+        Map<String, List<Integer>> rightIndex = new HashMap<>();
+        for (int i = 0; i < right.rowCount(); i++) {
+            rightIndex.computeIfAbsent(key(right, i), k -> new ArrayList<>()).add(i);
+        }
+        List<int[]> pairs = new ArrayList<>();
+        boolean[] rightMatched = new boolean[right.rowCount()];
+        for (int i = 0; i < left.rowCount(); i++) {
+            List<Integer> matches = rightIndex.getOrDefault(key(left, i), List.of());
+            for (int j : matches) {
+                pairs.add(new int[] {i, j});
+                rightMatched[j] = true;
+            }
+            if (matches.isEmpty()) {
+                pairs.add(new int[] {i, -1});
+            }
+        }
+
+        VarRange keys = VarRange.of("k1", "k2");
+        for (int poolSize : new int[] {0, 4}) {
+            Frame inner = Join.from(left, right, keys, keys, Join.Type.INNER, poolSize);
+            assertPairs(pairs.stream().filter(p -> p[1] >= 0).toList(), inner);
+
+            Frame leftJoin = Join.from(left, right, keys, keys, Join.Type.LEFT, poolSize);
+            assertPairs(pairs, leftJoin);
+
+            List<int[]> outerPairs = new ArrayList<>(pairs);
+            for (int j = 0; j < right.rowCount(); j++) {
+                if (!rightMatched[j]) {
+                    outerPairs.add(new int[] {-1, j});
+                }
+            }
+            Frame outer = Join.from(left, right, keys, keys, Join.Type.OUTER, poolSize);
+            assertPairs(outerPairs, outer);
+            for (int i = 0; i < outer.rowCount(); i++) {
+                int row = outerPairs.get(i)[0] >= 0 ? outerPairs.get(i)[0] : -1;
+                int other = outerPairs.get(i)[1];
+                String expected = row >= 0 ? key(left, row) : key(right, other);
+                assertEquals(expected, key(outer, i));
+            }
+
+            Frame semi = Join.from(left, right, keys, keys, Join.Type.SEMI, poolSize);
+            Frame anti = Join.from(left, right, keys, keys, Join.Type.ANTI, poolSize);
+            assertEquals(left.rowCount(), semi.rowCount() + anti.rowCount());
+            assertEquals(pairs.stream().filter(p -> p[1] >= 0).mapToInt(p -> p[0]).distinct().count(), semi.rowCount());
+        }
+    }
+
+    private static List<String> labels(Frame df, String varName) {
+        return df.rvar(varName).stream().map(VSpot::getLabel).toList();
+    }
+
+    private static String key(Frame df, int row) {
+        return df.getLabel(row, "k1") + "," + df.getLabel(row, "k2");
+    }
+
+    private static void assertPairs(List<int[]> pairs, Frame df) {
+        assertEquals(pairs.size(), df.rowCount());
+        for (int i = 0; i < pairs.size(); i++) {
+            int[] pair = pairs.get(i);
+            if (pair[0] >= 0) {
+                assertEquals(pair[0], df.getDouble(i, "x"));
+            } else {
+                assertTrue(df.isMissing(i, "x"));
+            }
+            if (pair[1] >= 0) {
+                assertEquals(pair[1], df.getDouble(i, "y"));
+            } else {
+                assertTrue(df.isMissing(i, "y"));
+            }
+        }
+    }
+}
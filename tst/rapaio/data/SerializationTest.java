@@ -44,6 +44,17 @@ public class SerializationTest {
         testFrame(Datasets.loadRandom(new Random()));
     }
 
+    @Test
+    void testBoundVar() throws IOException, ClassNotFoundException {
+        Var x = VarDouble.seq(0, 9).bindRows(VarDouble.seq(10, 19)).bindRows(VarDouble.seq(20, 29));
+        File tmp = File.createTempFile("test-", "ser");
+        JavaIO.storeToFile(x, tmp);
+        Var restore = (Var) JavaIO.restoreFromFile(tmp);
+        assertTrue(restore instanceof BoundVar);
+        assertTrue(x.deepEquals(restore));
+        assertEquals(25, restore.getDouble(25));
+    }
+
     void testFrame(Frame df) throws IOException, ClassNotFoundException {
         File tmp = File.createTempFile("test-", "ser");
         JavaIO.storeToFile(df, tmp);
@@ -28,6 +28,7 @@ import static rapaio.data.Group.*;
 import static rapaio.sys.With.*;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
@@ -35,11 +36,18 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import rapaio.core.stat.OnlineStat;
 import rapaio.data.Frame;
 import rapaio.data.Group;
+import rapaio.data.Mapping;
 import rapaio.data.SolidFrame;
+import rapaio.data.Unique;
+import rapaio.data.Var;
+import rapaio.data.VarDouble;
+import rapaio.data.VarInt;
 import rapaio.data.VarNominal;
 import rapaio.data.VarRange;
+import rapaio.data.group.function.DefaultSingleGroupFun;
 import rapaio.datasets.Datasets;
 import rapaio.sys.WS;
 import rapaio.util.StringBag;
@@ -49,6 +57,8 @@ import rapaio.util.StringBag;
  */
 public class GroupTest {
 
+    private static final double TOL = 1e-12;
+
     private Frame iris;
     private Frame play;
     private int textWidth = 0;
@@ -274,4 +284,206 @@ public class GroupTest {
             assertEquals((int) counts.get(sb), count);
         }
     }
+
+    @Test
+    void testMultipleKeys() {
+        final int N = 2_000;
+        VarNominal k1 = VarNominal.from(N, row -> random.nextInt(10) == 0 ? "?" : "n" + random.nextInt(5)).name("k1");
+        VarInt k2 = VarInt.from(N, row -> random.nextInt(10) == 0 ? VarInt.MISSING_VALUE : random.nextInt(7) - 3).name("k2");
+        VarDouble k3 = VarDouble.from(N, row -> random.nextInt(10) == 0 ? Double.NaN : random.nextInt(3) / 2.0).name("k3");
+        VarDouble x = VarDouble.from(N, row -> random.nextInt(20) == 0 ? Double.NaN : random.nextDouble()).name("x");
+        Frame df = SolidFrame.byVars(k1, k2, k3, x);
+
+        Group group = Group.from(df, "k1", "k2", "k3");
+        Frame agg = group.aggregate(count("x"), sum("x"), mean("x"), min("x"), max("x"), std("x"), nunique("k3"),
+                sum(1, "x")).toFrame();
+
+        // reference values computed with string keys
+        Map<String, Mapping> rows = new HashMap<>();
+        for (int i = 0; i < N; i++) {
+            String key = df.getLabel(i, "k1") + "," + df.getLabel(i, "k2") + "," + df.getLabel(i, "k3");
+            rows.computeIfAbsent(key, k -> Mapping.empty()).add(i);
+        }
+        assertEquals(rows.size(), group.getNumberOfGroups());
+        assertEquals(rows.size(), agg.rowCount());
+
+        Map<String, Double> parentSums = new HashMap<>();
+        for (int i = 0; i < agg.rowCount(); i++) {
+            String parent = agg.getLabel(i, "k1") + "," + agg.getLabel(i, "k2");
+            if (!agg.isMissing(i, "x_sum")) {
+                parentSums.merge(parent, agg.getDouble(i, "x_sum"), Double::sum);
+            }
+        }
+
+        for (int i = 0; i < agg.rowCount(); i++) {
+            String key = agg.getLabel(i, "k1") + "," + agg.getLabel(i, "k2") + "," + agg.getLabel(i, "k3");
+            Mapping groupRows = rows.get(key);
+            assertNotNull(groupRows);
+            assertArrayEquals(groupRows.elements(), group.getRowsForGroupId(i).elements());
+
+            Var values = x.mapRows(groupRows);
+            OnlineStat os = OnlineStat.empty();
+            values.stream().complete().forEach(s -> os.update(s.getDouble()));
+            assertEquals(groupRows.size(), agg.getInt(i, "x_count"));
+            if (os.n() == 0) {
+                assertTrue(agg.isMissing(i, "x_sum"));
+                assertTrue(agg.isMissing(i, "x_mean"));
+                continue;
+            }
+            assertEquals(os.sum(), agg.getDouble(i, "x_sum"), TOL);
+            assertEquals(os.mean(), agg.getDouble(i, "x_mean"), TOL);
+            assertEquals(os.min(), agg.getDouble(i, "x_min"), TOL);
+            assertEquals(os.max(), agg.getDouble(i, "x_max"), TOL);
+            assertEquals(os.sd(), agg.getDouble(i, "x_std"), TOL);
+            assertEquals(Unique.of(df.rvar("k3").mapRows(groupRows)).uniqueCount() - (agg.isMissing(i, "k3") ? 1 : 0),
+                    agg.getInt(i, "k3_nunique"));
+
+            String parent = agg.getLabel(i, "k1") + "," + agg.getLabel(i, "k2");
+            assertEquals(os.sum() / parentSums.get(parent), agg.getDouble(i, "x_sum_N1"), TOL);
+        }
+
+        // groups are in sorted order of keys, missing values first for labels and integers
+        for (int i = 1; i < agg.rowCount(); i++) {
+            int comp = compareLabels(agg.getLabel(i - 1, "k1"), agg.getLabel(i, "k1"));
+            if (comp == 0) {
+                comp = Integer.compare(agg.getInt(i - 1, "k2"), agg.getInt(i, "k2"));
+            }
+            if (comp == 0) {
+                comp = Double.compare(agg.getDouble(i - 1, "k3"), agg.getDouble(i, "k3"));
+            }
+            assertTrue(comp < 0);
+        }
+    }
+
+    @Test
+    void testParallelAggregate() {
+        final int N = 100_000;
+        VarInt k1 = VarInt.from(N, row -> random.nextInt(20)).name("k1");
+        VarNominal k2 = VarNominal.from(N, row -> "n" + random.nextInt(3)).name("k2");
+        VarDouble x = VarDouble.from(N, row -> random.nextInt(50) == 0 ? Double.NaN : random.nextGaussian() * 10).name("x");
+        VarInt y = VarInt.from(N, row -> random.nextInt(50) == 0 ? VarInt.MISSING_VALUE : random.nextInt(1000)).name("y");
+        Frame df = SolidFrame.byVars(k1, k2, x, y);
+
+        Group group = Group.from(df, "k1", "k2");
+        GroupFun[] funs = new GroupFun[] {count("x"), sum("x", "y"), mean("x"), std("x"), skewness("x"), kurtosis("x"),
+                min("x", "y", "k2"), max("x", "y", "k2"), nunique("y"), mean(1, "x")};
+        Frame sequential = group.aggregate(funs).toFrame();
+        Frame parallel = group.aggregate(4, funs).toFrame();
+
+        assertArrayEquals(sequential.varNames(), parallel.varNames());
+        assertEquals(60, parallel.rowCount());
+        for (String varName : sequential.varNames()) {
+            for (int i = 0; i < sequential.rowCount(); i++) {
+                if (sequential.type(varName).isNumeric()) {
+                    assertEquals(sequential.getDouble(i, varName), parallel.getDouble(i, varName), 1e-9, varName);
+                } else {
+                    assertEquals(sequential.getLabel(i, varName), parallel.getLabel(i, varName));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testParallelAggregateSequentialFunction() {
+        final int N = 50_000;
+        VarInt k = VarInt.from(N, row -> random.nextInt(5)).name("k");
+        VarDouble x = VarDouble.from(N, row -> random.nextGaussian()).name("x");
+        Group group = Group.from(SolidFrame.byVars(k, x), "k");
+
+        // function which implements only the sequential update
+        GroupFun last = new DefaultSingleGroupFun("last", -1, List.of("x")) {
+            @Override
+            public Var buildVar(Group group, String varName) {
+                return VarDouble.empty(group.getNumberOfGroups()).name(varName + SEPARATOR + name);
+            }
+
+            @Override
+            public void update(Var aggregate, Group group, Var var) {
+                for (int i = 0; i < var.size(); i++) {
+                    aggregate.setDouble(group.getGroupId(i), var.getDouble(i));
+                }
+            }
+        };
+        Frame sequential = group.aggregate(last, sum("x")).toFrame();
+        Frame parallel = group.aggregate(4, last, sum("x")).toFrame();
+        assertEquals(5, parallel.rowCount());
+        assertTrue(sequential.rvar("x_last").deepEquals(parallel.rvar("x_last")));
+    }
+
+    @Test
+    void testSignedZeroAndNaNKeys() {
+        double otherNaN = Double.longBitsToDouble(0x7ff8000000000001L);
+        VarDouble k = VarDouble.wrap(-0.0, 0.0, 1, Double.NaN, otherNaN, -0.0).name("k");
+        VarDouble x = VarDouble.wrap(1, 2, 3, 4, 5, 6).name("x");
+        Group group = Group.from(SolidFrame.byVars(k, x), "k");
+
+        assertEquals(3, group.getNumberOfGroups());
+        assertEquals(group.getGroupId(0), group.getGroupId(1));
+        assertEquals(group.getGroupId(0), group.getGroupId(5));
+        assertEquals(group.getGroupId(3), group.getGroupId(4));
+        Frame df = group.aggregate(sum("x")).toFrame();
+        assertEquals(3, df.rowCount());
+        assertEquals(9, df.getDouble(group.getGroupId(0), "x_sum"));
+    }
+
+    @Test
+    void testLegacySingleGroupFunction() {
+        final int N = 50_000;
+        VarInt k = VarInt.from(N, row -> random.nextInt(5)).name("k");
+        VarDouble x = VarDouble.from(N, row -> random.nextGaussian()).name("x");
+        Group group = Group.from(SolidFrame.byVars(k, x), "k");
+
+        // function written against the per group update
+        GroupFun legacySum = new DefaultSingleGroupFun("legacySum", -1, List.of("x")) {
+            @Override
+            public Var buildVar(Group group, String varName) {
+                return VarDouble.empty(group.getNumberOfGroups()).name(varName + SEPARATOR + name);
+            }
+
+            @Override
+            @SuppressWarnings("deprecation")
+            public void updateSingle(Var aggregate, int aggregateRow, Frame df, int varIndex, Mapping rows) {
+                double sum = 0;
+                for (int row : rows) {
+                    sum += df.getDouble(row, varIndex);
+                }
+                aggregate.setDouble(aggregateRow, sum);
+            }
+        };
+        for (int threads : new int[] {1, 4}) {
+            Frame df = group.aggregate(threads, legacySum, sum("x")).toFrame();
+            assertTrue(df.rvar("x_sum").deepEquals(df.rvar("x_legacySum").copy().name("x_sum"), 1e-9));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void testIndexNodes() {
+        final int N = 1_000;
+        VarInt k1 = VarInt.from(N, row -> random.nextInt(4)).name("k1");
+        VarNominal k2 = VarNominal.from(N, row -> "n" + random.nextInt(3)).name("k2");
+        Group group = Group.from(SolidFrame.byVars(k1, k2), "k1", "k2");
+
+        Map<Integer, Group.IndexNode> nodes = group.getGroupIdToLastLevelIndex();
+        assertSame(nodes, group.getGroupIdToLastLevelIndex());
+        assertEquals(group.getNumberOfGroups(), nodes.size());
+        for (int groupId = 0; groupId < group.getNumberOfGroups(); groupId++) {
+            Group.IndexNode node = nodes.get(groupId);
+            assertEquals(groupId, node.getGroupId());
+            assertEquals(group.getGroupLevelValues(groupId), node.getLevelValues());
+            assertArrayEquals(group.getRowsForGroupId(groupId).stream().toArray(), node.getRows().stream().toArray());
+            assertSame(node.getParent(), node.getParent().getChildNode(node.getLevelIds(new int[3])[2]).getParent());
+            assertNull(node.getParent().getParent().getParent());
+        }
+    }
+
+    private static int compareLabels(String v1, String v2) {
+        if (v1.equals(v2)) {
+            return 0;
+        }
+        if ("?".equals(v1) || "?".equals(v2)) {
+            return "?".equals(v1) ? -1 : 1;
+        }
+        return v1.compareTo(v2);
+    }
 }
@@ -0,0 +1,72 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package rapaio.data.mapping;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import rapaio.data.Mapping;
+import rapaio.data.VarInt;
+import rapaio.util.IntIterator;
+
+public class SliceMappingTest {
+
+    @Test
+    void testView() {
+        int[] array = new int[] {5, 6, 7, 8, 9};
+        Mapping mapping = Mapping.slice(array, 1, 4);
+        assertEquals(3, mapping.size());
+        assertArrayEquals(new int[] {6, 7, 8}, mapping.stream().toArray());
+        assertArrayEquals(new int[] {6, 7, 8}, mapping.elements());
+
+        IntIterator it = mapping.iterator();
+        for (int i = 0; i < mapping.size(); i++) {
+            assertEquals(mapping.get(i), it.nextInt());
+        }
+
+        // changes of the array are visible
+        array[2] = 17;
+        assertEquals(17, mapping.get(1));
+    }
+
+    @Test
+    void testCopyOnChange() {
+        int[] array = new int[] {5, 6, 7, 8, 9};
+        Mapping mapping = Mapping.slice(array, 1, 4);
+
+        mapping.add(10);
+        mapping.addAll(VarInt.wrap(11, 12).iterator());
+        mapping.remove(0);
+        assertArrayEquals(new int[] {7, 8, 10, 11, 12}, mapping.stream().toArray());
+
+        // array is not modified and further changes of the array are not visible
+        assertArrayEquals(new int[] {5, 6, 7, 8, 9}, array);
+        array[2] = 17;
+        assertEquals(7, mapping.get(0));
+
+        mapping.clear();
+        assertEquals(0, mapping.size());
+    }
+}
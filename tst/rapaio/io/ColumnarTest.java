@@ -0,0 +1,145 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package rapaio.io;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import rapaio.data.Frame;
+import rapaio.data.Mapping;
+import rapaio.data.SolidFrame;
+import rapaio.data.VarBinary;
+import rapaio.data.VarDouble;
+import rapaio.data.VarInstant;
+import rapaio.data.VarInt;
+import rapaio.data.VarLong;
+import rapaio.data.VarNominal;
+import rapaio.data.VarString;
+import rapaio.datasets.Datasets;
+
+public class ColumnarTest {
+
+    @TempDir
+    Path dir;
+
+    private Random random;
+    private Frame df;
+
+    @BeforeEach
+    void beforeEach() {
+        random = new Random(42);
+        int n = 1_000;
+        df = SolidFrame.byVars(
+                VarDouble.from(n, row -> row % 7 == 0 ? Double.NaN : random.nextGaussian()).name("double"),
+                VarInt.from(n, row -> random.nextInt(100)).name("int"),
+                VarLong.from(n, row -> random.nextLong()).name("long"),
+                VarBinary.from(n, row -> row % 5 == 0 ? null : random.nextBoolean()).name("binary"),
+                VarNominal.from(n, row -> row % 11 == 0 ? "?" : "level" + random.nextInt(5)).name("nominal"),
+                VarInstant.from(n, row -> row % 13 == 0 ? null : Instant.ofEpochSecond(random.nextInt(), random.nextInt(1_000_000_000)))
+                        .name("instant"),
+                VarString.from(n, row -> row % 3 == 0 ? "?" : "text ăîș " + random.nextInt()).name("string"));
+        df.rvar("int").setMissing(10);
+        df.rvar("long").setMissing(20);
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        for (boolean compress : new boolean[] {false, true}) {
+            for (int chunkSize : new int[] {1, 64, 1_000, 10_000}) {
+                File file = dir.resolve("df-" + compress + "-" + chunkSize + ".rcf").toFile();
+                Columnar.instance().compress.set(compress).chunkSize.set(chunkSize).write(df, file);
+                Frame copy = Columnar.instance().read(file);
+                assertTrue(df.deepEquals(copy));
+            }
+        }
+    }
+
+    @Test
+    void testSubsets() throws IOException {
+        File file = dir.resolve("df.rcf").toFile();
+        Columnar.instance().compress.set(true).chunkSize.set(64).write(df, file);
+
+        Frame vars = Columnar.instance().varNames.set("string", "double").read(file);
+        assertTrue(df.mapVars("string,double").deepEquals(vars));
+
+        Frame rows = Columnar.instance().startRow.set(100).endRow.set(300).read(file);
+        assertTrue(df.mapRows(Mapping.range(100, 300)).deepEquals(rows));
+
+        Frame both = Columnar.instance().varNames.set("nominal", "instant").startRow.set(63).endRow.set(65).read(file);
+        assertTrue(df.mapVars("nominal,instant").mapRows(Mapping.range(63, 65)).deepEquals(both));
+        assertEquals(df.rvar("nominal").levels(), both.rvar("nominal").levels());
+
+        Frame tail = Columnar.instance().startRow.set(990).read(file);
+        assertEquals(10, tail.rowCount());
+
+        Frame empty = Columnar.instance().startRow.set(5_000).read(file);
+        assertEquals(0, empty.rowCount());
+        assertEquals(df.varCount(), empty.varCount());
+
+        var ex = assertThrows(IllegalArgumentException.class, () -> Columnar.instance().varNames.set("x").read(file));
+        assertEquals("Variable x not found.", ex.getMessage());
+    }
+
+    @Test
+    void testLargeDictionary() throws IOException {
+        // close to the largest dictionary a nominal variable can hold
+        int n = 32_000;
+        Frame large = SolidFrame.byVars(VarNominal.from(n, row -> row % 100 == 0 ? "?" : "level" + row).name("nominal"));
+        File file = dir.resolve("large.rcf").toFile();
+        Columnar.instance().chunkSize.set(8_192).write(large, file);
+        Frame copy = Columnar.instance().read(file);
+        assertTrue(large.deepEquals(copy));
+        assertEquals("level31999", copy.getLabel(n - 1, "nominal"));
+
+        Frame rows = Columnar.instance().startRow.set(30_000).endRow.set(30_010).read(file);
+        assertTrue(large.mapRows(Mapping.range(30_000, 30_010)).deepEquals(rows));
+    }
+
+    @Test
+    void testDataset() throws IOException {
+        Frame iris = Datasets.loadIrisDataset();
+        File file = dir.resolve("iris.rcf").toFile();
+        Columnar.instance().write(iris, file);
+        assertTrue(iris.deepEquals(Columnar.instance().read(file)));
+
+        Frame mapped = iris.mapRows(Mapping.range(10, 20));
+        Columnar.instance().write(mapped, file);
+        assertTrue(mapped.deepEquals(Columnar.instance().read(file)));
+    }
+
+    @Test
+    void testInvalidFile() throws IOException {
+        File file = dir.resolve("invalid.rcf").toFile();
+        Files.writeString(file.toPath(), "this is not a columnar frame file");
+        assertThrows(IOException.class, () -> Columnar.instance().read(file));
+    }
+}
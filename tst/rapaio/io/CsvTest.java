@@ -28,6 +28,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -249,4 +250,106 @@ public class CsvTest {
         Frame na4 = Csv.instance().naValues.set("virginica", "5").types.add(VarType.NOMINAL, "sepal-length").read(Datasets.class, "iris-r.csv");
         assertEquals(89, na4.stream().complete().count());
     }
+
+    @Test
+    void testParallelChunks() throws IOException {
+        // small chunks detect different default types which are reconciled at merge
+        for (int chunkSize : new int[] {1, 2, 3, 100}) {
+            Csv csv = Csv.instance()
+                    .quotes.set(true)
+                    .defaultTypes.set(VarType.BINARY, VarType.INT, VarType.DOUBLE, VarType.NOMINAL);
+            Frame expected = csv.read(this.getClass().getResourceAsStream("defaults-test.csv"));
+            Frame actual = csv.poolSize.set(3).chunkSize.set(chunkSize)
+                    .read(this.getClass().getResourceAsStream("defaults-test.csv"));
+            assertTrue(expected.deepEquals(actual));
+        }
+
+        Frame iris = Csv.instance().read(Datasets.class, "iris-r.csv");
+        assertTrue(iris.deepEquals(Csv.instance().poolSize.set(-1).chunkSize.set(7).read(Datasets.class, "iris-r.csv")));
+
+        Frame r1 = Csv.instance().startRow.set(50).endRow.set(100).skipRows.set(row -> row % 2 == 0)
+                .read(Datasets.class, "iris-r.csv");
+        Frame r2 = Csv.instance().startRow.set(50).endRow.set(100).skipRows.set(row -> row % 2 == 0)
+                .poolSize.set(2).chunkSize.set(10).read(Datasets.class, "iris-r.csv");
+        assertTrue(r1.deepEquals(r2));
+
+        Frame t1 = Csv.instance().types.add(VarType.NOMINAL, "sepal-length").read(Datasets.class, "iris-r.csv");
+        Frame t2 = Csv.instance().template.set(t1).poolSize.set(2).chunkSize.set(16).read(Datasets.class, "iris-r.csv");
+        assertTrue(t1.deepEquals(t2));
+
+
+        // many more chunks than parsing threads, with typed and predefined fields
+        StringBuilder sb = new StringBuilder("b,i,l,d,n\n");
+        for (int i = 0; i < 10_000; i++) {
+            sb.append(i % 2).append(',').append(i % 97 == 0 ? "?" : i).append(',').append(i * 1_000_000_000L)
+                    .append(',').append(i / 7.0).append(',').append("n").append(i % 13).append('\n');
+        }
+        byte[] bytes = sb.toString().getBytes();
+        Csv typed = Csv.instance().types.add(VarType.LONG, "l")
+                .defaultTypes.set(VarType.BINARY, VarType.INT, VarType.DOUBLE, VarType.NOMINAL);
+        Frame s1 = typed.read(new ByteArrayInputStream(bytes));
+        Frame s2 = typed.poolSize.set(2).chunkSize.set(100).read(new ByteArrayInputStream(bytes));
+        assertArrayEquals(new VarType[] {VarType.BINARY, VarType.INT, VarType.LONG, VarType.DOUBLE, VarType.NOMINAL},
+                s2.varStream().map(Var::type).toArray());
+        assertTrue(s1.deepEquals(s2));
+    }
+
+    @Test
+    void testTypeInference() throws IOException {
+        Csv csv = Csv.instance()
+                .quotes.set(true)
+                .defaultTypes.set(VarType.BINARY, VarType.INT, VarType.DOUBLE, VarType.NOMINAL);
+        Frame full = csv.read(this.getClass().getResourceAsStream("defaults-test.csv"));
+        Frame sample = csv.typeInferenceRows.set(2).read(this.getClass().getResourceAsStream("defaults-test.csv"));
+
+        // values after sample rows upgrades the types by conversion
+        for (String name : new String[] {"x1", "x2", "x3", "x4"}) {
+            assertEquals(full.rvar(name).type(), sample.rvar(name).type());
+        }
+        assertTrue(full.mapVars("x1,x2,x3").deepEquals(sample.mapVars("x1,x2,x3")));
+        // binary values converted to nominal keep their original text
+        assertEquals("false", sample.getLabel(2, "x4"));
+        assertEquals("other", sample.getLabel(3, "x4"));
+        assertTrue(full.deepEquals(sample));
+
+        String text = """
+                a,b,c,d,e
+                1,+3,2147483648,1e5,1.5.2
+                0,-7,-2, 2.5 ,x
+                ?,12,3,-Inf,?
+                """;
+        Frame df = Csv.instance()
+                .defaultTypes.set(VarType.BINARY, VarType.INT, VarType.LONG, VarType.DOUBLE, VarType.NOMINAL)
+                .stripSpaces.set(false)
+                .read(new ByteArrayInputStream(text.getBytes()));
+        assertArrayEquals(new VarType[] {VarType.BINARY, VarType.INT, VarType.LONG, VarType.DOUBLE, VarType.NOMINAL},
+                df.varStream().map(Var::type).toArray());
+        assertEquals(3, df.getInt(0, "b"));
+        assertEquals(2147483648L, df.getLong(0, "c"));
+        assertEquals(1e5, df.getDouble(0, "d"));
+        assertEquals(2.5, df.getDouble(1, "d"));
+        assertEquals(Double.NEGATIVE_INFINITY, df.getDouble(2, "d"));
+        assertEquals("1.5.2", df.getLabel(0, "e"));
+
+        // values parsed before an upgrade keep their original text
+        text = """
+                a,b,c,d
+                007,1.50,true,1
+                +3,7,False,2.5
+                12,1e3,1,3
+                -0,2.25,0,1e-5
+                x,y,z,2020-01-01T10:00:00Z
+                """;
+        for (int pool : new int[] {0, 2}) {
+            Frame upgraded = Csv.instance()
+                    .defaultTypes.set(VarType.BINARY, VarType.INT, VarType.DOUBLE, VarType.NOMINAL)
+                    .typeInferenceRows.set(1).poolSize.set(pool).chunkSize.set(2)
+                    .read(new ByteArrayInputStream(text.getBytes()));
+            assertEquals(List.of("007", "+3", "12", "-0", "x"), upgraded.rvar("a").stream().map(s -> s.getLabel()).toList());
+            assertEquals(List.of("1.50", "7", "1e3", "2.25", "y"), upgraded.rvar("b").stream().map(s -> s.getLabel()).toList());
+            assertEquals(List.of("true", "False", "1", "0", "z"), upgraded.rvar("c").stream().map(s -> s.getLabel()).toList());
+            assertEquals(List.of("1", "2.5", "3", "1e-5", "2020-01-01T10:00:00Z"),
+                    upgraded.rvar("d").stream().map(s -> s.getLabel()).toList());
+        }
+    }
 }
@@ -0,0 +1,72 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package rapaio.math.linear.dense;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import rapaio.math.linear.DMatrix;
+
+public class DMatrixExprTest {
+
+    private static final double TOL = 1e-12;
+
+    private Random random;
+
+    @BeforeEach
+    void beforeEach() {
+        random = new Random(42);
+    }
+
+    @Test
+    void testElementWise() {
+        DMatrix a = DMatrixDenseC.random(random, 37, 11);
+        DMatrix b = DMatrixDenseR.fill(37, 11, (r, c) -> random.nextGaussian());
+
+        DMatrix expected = a.copy().add(b).mul(a).add(1).apply(Math::tanh);
+        DMatrix result = a.expr().add(b).mul(a).add(1).tanh().eval();
+        assertTrue(expected.deepEquals(result, TOL));
+
+        expected = a.copy().apply(Math::exp).sub(b).div(2).apply(v -> Math.max(0, Math.min(1, v)));
+        result = a.expr().exp().sub(b).div(2).cut(0, 1).eval();
+        assertTrue(expected.deepEquals(result, TOL));
+
+        assertEquals(a.copy().mul(b).sum(), a.expr().mul(b).sum(), 1e-10);
+        assertEquals(a.copy().mul(b).sum() / (37 * 11), a.expr().mul(b).mean(), 1e-10);
+
+        // evaluate into a row major operand
+        DMatrix bb = b.copy();
+        a.expr().sqr().add(bb).evalTo(bb);
+        assertTrue(a.copy().apply(v -> v * v).add(b).deepEquals(bb, TOL));
+    }
+
+    @Test
+    void testNonConform() {
+        var ex = assertThrows(IllegalArgumentException.class, () -> DMatrix.empty(2, 3).expr().add(DMatrix.empty(3, 2)));
+        assertEquals("Matrices are not conform with this operation.", ex.getMessage());
+    }
+}
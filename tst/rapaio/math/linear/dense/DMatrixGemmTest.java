@@ -0,0 +1,115 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package rapaio.math.linear.dense;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import rapaio.math.linear.DMatrix;
+import rapaio.math.linear.decomposition.MatrixMultiplication;
+import rapaio.util.collection.IntArrays;
+
+public class DMatrixGemmTest {
+
+    private static final double TOL = 1e-9;
+
+    private Random random;
+
+    @BeforeEach
+    void beforeEach() {
+        random = new Random(42);
+    }
+
+    @Test
+    void testOddShapes() {
+        int[][] shapes = new int[][] {
+                {1, 1, 1}, {3, 5, 7}, {17, 1, 9}, {1, 33, 2}, {130, 129, 131}, {7, 300, 5}, {260, 3, 270}
+        };
+        for (int[] shape : shapes) {
+            DMatrix a = DMatrixDenseC.random(random, shape[0], shape[1]);
+            DMatrix b = DMatrixDenseC.random(random, shape[2], shape[1]).t();
+            DMatrix expected = MatrixMultiplication.jama(a, b);
+
+            assertTrue(expected.deepEquals(DMatrixGemm.dot(a, b), TOL));
+            assertTrue(expected.deepEquals(a.dot(b), TOL));
+            assertTrue(expected.t().deepEquals(b.t().dot(a.t()), TOL));
+        }
+    }
+
+    @Test
+    void testViews() {
+        DMatrix a = DMatrixDenseC.random(random, 90, 70).t();
+        DMatrix b = DMatrixDenseC.random(random, 90, 60);
+
+        // strided range views
+        DMatrix ar = a.rangeRows(5, 50).rangeCols(10, 80);
+        DMatrix br = b.rangeRows(10, 80).rangeCols(3, 41);
+        assertTrue(MatrixMultiplication.jama(ar, br).deepEquals(ar.dot(br), TOL));
+
+        // mapped views which are not backed by a dense layout
+        DMatrix am = a.mapRows(1, 3, 5, 7, 11, 13);
+        DMatrix bm = b.mapCols(2, 4, 8, 16, 32);
+        assertTrue(MatrixMultiplication.jama(am, bm).deepEquals(am.dot(bm), TOL));
+    }
+
+    @Test
+    void testAlphaBeta() {
+        DMatrix a = DMatrixDenseC.random(random, 40, 30);
+        DMatrix b = DMatrixDenseC.random(random, 30, 20);
+        DMatrix c = DMatrixDenseC.random(random, 20, 40).t();
+
+        DMatrix expected = MatrixMultiplication.jama(a, b).mul(2.5).add(c.mulNew(-0.5));
+        assertTrue(expected.deepEquals(c.copy().gemm(2.5, a, b, -0.5), TOL));
+
+        // beta zero overwrites previous values, even if they are not numbers
+        DMatrix nan = DMatrixDenseC.fill(40, 20, Double.NaN);
+        assertTrue(MatrixMultiplication.jama(a, b).deepEquals(nan.gemm(1, a, b, 0), TOL));
+
+        // alpha zero only scales
+        assertTrue(c.mulNew(3).deepEquals(c.copy().gemm(0, a, b, 3), TOL));
+
+        // result which is not a dense matrix
+        DMatrix map = DMatrixDenseC.random(random, 80, 20).mapRows(IntArrays.newFrom(IntArrays.newSeq(0, 40), 0, 40, i -> 2 * i));
+        DMatrix mapExpected = MatrixMultiplication.jama(a, b).add(map.copy());
+        assertTrue(mapExpected.deepEquals(map.gemm(1, a, b, 1), TOL));
+    }
+
+    @Test
+    void testLargeInnerDimension() {
+        // inner dimension spans multiple packed panels
+        DMatrix a = DMatrixDenseC.random(random, 33, 600);
+        DMatrix b = DMatrixDenseC.random(random, 600, 35);
+        assertTrue(MatrixMultiplication.jama(a, b).deepEquals(a.dot(b), TOL));
+    }
+
+    @Test
+    void testNonConform() {
+        assertThrows(IllegalArgumentException.class, () -> DMatrixGemm.dot(DMatrixDenseC.empty(2, 3), DMatrixDenseC.empty(2, 3)));
+        assertThrows(IllegalArgumentException.class,
+                () -> DMatrixDenseC.empty(3, 3).gemm(1, DMatrixDenseC.empty(2, 3), DMatrixDenseC.empty(3, 3), 1));
+    }
+}
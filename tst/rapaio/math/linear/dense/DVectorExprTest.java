@@ -0,0 +1,103 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package rapaio.math.linear.dense;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import rapaio.math.MathTools;
+import rapaio.math.linear.DMatrix;
+import rapaio.math.linear.DVector;
+
+public class DVectorExprTest {
+
+    private static final double TOL = 1e-12;
+
+    private Random random;
+
+    @BeforeEach
+    void beforeEach() {
+        random = new Random(42);
+    }
+
+    @Test
+    void testElementWise() {
+        // sizes which are not multiple of blocks or lanes
+        for (int n : new int[] {1, 7, 1023, 1024, 2500}) {
+            DVector x = DVector.random(random, n).abs().add(0.1);
+            DVector y = DVector.random(random, n);
+            DVector base = new DVectorDense(3, n, DVector.random(random, n + 5).denseCopy().array());
+            DVector stride = new DVectorStride(1, 2, n, DVector.random(random, 2 * n + 1).denseCopy().array());
+
+            assertTrue(x.logNew().deepEquals(x.expr().log().eval(), TOL));
+            assertTrue(y.expNew().mul(2).sub(1).deepEquals(y.expr().exp().mul(2).sub(1).eval(), TOL));
+            assertTrue(x.sqrNew().div(x.sqrtNew()).deepEquals(x.expr().sqr().div(x.expr().sqrt()).eval(), TOL));
+            assertTrue(y.addNew(base).mulNew(stride).deepEquals(y.expr().add(base).mul(stride).eval(), TOL));
+            assertTrue(y.subNew(base).divNew(x).deepEquals(y.expr().sub(base).div(x).eval(), TOL));
+            assertTrue(y.negNew().add(3).div(4).deepEquals(y.expr().neg().add(3).div(4).eval(), TOL));
+            assertTrue(y.applyNew(MathTools::logistic).deepEquals(y.expr().apply(MathTools::logistic).eval(), TOL));
+            assertTrue(y.copy().apply(v -> Math.max(-0.5, Math.min(0.5, v)))
+                    .deepEquals(y.expr().cut(-0.5, 0.5).eval(), TOL));
+            assertTrue(y.copy().apply(v -> Math.max(-0.5, v)).deepEquals(y.expr().cut(-0.5, Double.NaN).eval(), TOL));
+
+            // reductions
+            assertEquals(y.sum(), y.expr().sum(), 1e-9);
+            assertEquals(y.mean(), y.expr().mean(), 1e-9);
+            assertEquals(x.dot(y), x.expr().dot(y), 1e-9);
+            assertEquals(x.logNew().dot(y), x.expr().log().dot(y), 1e-9);
+        }
+    }
+
+    @Test
+    void testEvalTo() {
+        DVector p = DVector.random(random, 3000).apply(MathTools::logistic);
+        DVector np = p.applyNew(v -> 1 - v);
+        DVector expected = p.mulNew(np).cut(1e-6, Double.NaN);
+
+        // destination is an operand
+        DVector pp = p.copy();
+        assertSame(pp, pp.expr().mul(np).cut(1e-6, Double.NaN).evalTo(pp));
+        assertTrue(expected.deepEquals(pp, TOL));
+
+        // destination is not dense
+        DVector to = DMatrix.empty(2, 3000).mapRow(1);
+        p.expr().mul(np).cut(1e-6, Double.NaN).evalTo(to);
+        assertTrue(expected.deepEquals(to, TOL));
+
+        // the same expression used twice as operand
+        var e = p.expr().mul(2);
+        assertTrue(p.mulNew(2).sqr().deepEquals(e.mul(e).eval(), TOL));
+    }
+
+    @Test
+    void testNonConform() {
+        var ex = assertThrows(IllegalArgumentException.class, () -> DVector.ones(3).expr().add(DVector.ones(4)));
+        assertEquals("Vectors are not conform for operation: [3] vs [4]", ex.getMessage());
+        ex = assertThrows(IllegalArgumentException.class, () -> DVector.ones(3).expr().evalTo(DVector.ones(4)));
+        assertEquals("Vectors are not conform for operation: [3] vs [4]", ex.getMessage());
+    }
+}
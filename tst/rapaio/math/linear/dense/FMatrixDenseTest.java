@@ -0,0 +1,96 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package rapaio.math.linear.dense;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import rapaio.data.Frame;
+import rapaio.datasets.Datasets;
+import rapaio.math.linear.DMatrix;
+import rapaio.math.linear.FMatrix;
+
+public class FMatrixDenseTest {
+
+    private static final float TOL = 1e-4f;
+
+    private Random random;
+
+    @BeforeEach
+    void beforeEach() {
+        random = new Random(42);
+    }
+
+    @Test
+    void testConversions() {
+        DMatrix m = DMatrixDenseC.random(random, 13, 9);
+        FMatrixDenseR fm = FMatrix.copy(m);
+        assertTrue(m.deepEquals(fm.dm(), TOL));
+
+        // transposed views share the values
+        FMatrixDenseC t = fm.t();
+        assertEquals(9, t.rows());
+        assertEquals(13, t.cols());
+        assertTrue(m.t().deepEquals(t.dm(), TOL));
+        assertTrue(fm.deepEquals(t.t(), 0));
+        t.set(2, 3, 100);
+        assertEquals(100, fm.get(3, 2));
+        assertTrue(fm.copy().deepEquals(t.copy().t(), 0));
+
+        Frame iris = Datasets.loadIrisDataset().removeVars("class");
+        FMatrix fi = FMatrix.copy(iris);
+        assertTrue(DMatrix.copy(iris).deepEquals(fi.dm(), TOL));
+        Frame back = fi.toFrame(iris.varNames());
+        assertTrue(DMatrix.copy(iris).deepEquals(DMatrix.copy(back), TOL));
+        assertEquals("V1", fi.toFrame().varName(0));
+    }
+
+    @Test
+    void testKernels() {
+        DMatrix x = DMatrixDenseC.random(random, 20, 37);
+        DMatrix y = DMatrixDenseC.random(random, 11, 37);
+        FMatrix fx = FMatrix.copy(x);
+        // column major storage uses the same kernels
+        FMatrix fy = FMatrix.copy(y.t()).t();
+        assertTrue(fy instanceof FMatrixDenseC);
+
+        FMatrix sq = fx.sqDistances(fy);
+        FMatrix dots = fx.dotT(fy);
+        for (int i = 0; i < x.rows(); i++) {
+            for (int j = 0; j < y.rows(); j++) {
+                double d = x.mapRow(i).subNew(y.mapRow(j)).norm(2);
+                assertEquals(d * d, sq.get(i, j), 1e-3);
+                assertEquals(x.mapRow(i).dot(y.mapRow(j)), dots.get(i, j), 1e-3);
+            }
+        }
+        assertTrue(x.dot(y.mapRow(0)).deepEquals(fx.dot(fy.mapRowNew(0)).dv(), 1e-3));
+        assertTrue(y.mapCol(3).deepEquals(fy.mapColNew(3).dv(), TOL));
+
+        var ex = assertThrows(IllegalArgumentException.class, () -> fx.sqDistances(FMatrix.empty(2, 3)));
+        assertEquals("Matrices are not conform with this operation.", ex.getMessage());
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package rapaio.math.linear.dense;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import rapaio.math.linear.DVector;
+import rapaio.math.linear.FVector;
+
+public class FVectorDenseTest {
+
+    private static final float TOL = 1e-4f;
+
+    private Random random;
+
+    @BeforeEach
+    void beforeEach() {
+        random = new Random(42);
+    }
+
+    @Test
+    void testOperations() {
+        // sizes which are not multiple of lanes, with an offset
+        for (int n : new int[] {1, 7, 33, 1000}) {
+            DVector a = DVector.random(random, n);
+            DVector b = DVector.random(random, n);
+            float[] array = new float[n + 3];
+            FVectorDense fa = new FVectorDense(3, n, array);
+            for (int i = 0; i < n; i++) {
+                fa.set(i, (float) a.get(i));
+            }
+            FVectorDense fb = FVector.copy(b);
+
+            assertTrue(fa.dv().deepEquals(FVector.copy(a).dv()));
+            assertEquals(a.dot(b), fa.dot(fb), TOL * n);
+            assertEquals(a.sum(), fa.sum(), TOL * n);
+            assertEquals(a.norm(2), fa.norm2(), TOL * n);
+            assertEquals(a.subNew(b).norm(2) * a.subNew(b).norm(2), fa.sqDistance(fb), TOL * n);
+            assertEquals(a.subNew(b).norm(1), fa.l1Distance(fb), TOL * n);
+
+            assertTrue(FVector.copy(a.addNew(b)).deepEquals(fa.copy().add(fb), TOL));
+            assertTrue(FVector.copy(a.subNew(b)).deepEquals(fa.copy().sub(fb), TOL));
+            assertTrue(FVector.copy(a.mulNew(b)).deepEquals(fa.copy().mul(fb), TOL));
+            assertTrue(FVector.copy(a.addNew(2)).deepEquals(fa.copy().add(2), TOL));
+            assertTrue(FVector.copy(a.subNew(2)).deepEquals(fa.copy().sub(2), TOL));
+            assertTrue(FVector.copy(a.mulNew(2)).deepEquals(fa.copy().mul(2), TOL));
+            assertTrue(FVector.copy(a.fmaNew(0.5, b)).deepEquals(fa.copy().fma(0.5f, fb), TOL));
+        }
+    }
+
+    @Test
+    void testNonConform() {
+        var ex = assertThrows(IllegalArgumentException.class, () -> FVector.zeros(3).dot(FVector.zeros(4)));
+        assertEquals("Vectors are not conform for operation: [3] vs [4]", ex.getMessage());
+    }
+}
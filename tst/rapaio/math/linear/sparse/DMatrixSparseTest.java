@@ -0,0 +1,182 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package rapaio.math.linear.sparse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import rapaio.data.SolidFrame;
+import rapaio.data.VarDouble;
+import rapaio.math.linear.DMatrix;
+import rapaio.math.linear.DVector;
+
+public class DMatrixSparseTest {
+
+    private static final double TOL = 1e-12;
+
+    private Random random;
+
+    @BeforeEach
+    void beforeEach() {
+        random = new Random(42);
+    }
+
+    private DMatrix randomDense(int rows, int cols, double density) {
+        return DMatrix.fill(rows, cols, (r, c) -> random.nextDouble() < density ? random.nextGaussian() : 0);
+    }
+
+    @Test
+    void testBuildAndAccess() {
+        DMatrix dense = randomDense(30, 20, 0.1);
+        DMatrixSparseR csr = DMatrixSparseR.copy(dense);
+        DMatrixSparseC csc = DMatrixSparseC.copy(dense);
+
+        assertTrue(dense.deepEquals(csr, TOL));
+        assertTrue(dense.deepEquals(csc, TOL));
+        assertEquals(csr.nnz(), csc.nnz());
+        assertTrue(dense.deepEquals(DMatrixSparseC.copy(csr), TOL));
+        assertTrue(dense.deepEquals(DMatrixSparseR.copy(csc), TOL));
+        assertTrue(dense.t().deepEquals(csr.t(), TOL));
+        assertTrue(dense.t().deepEquals(csc.t(), TOL));
+
+        for (int i = 0; i < dense.rows(); i++) {
+            assertTrue(dense.mapRow(i).deepEquals(csr.mapRow(i), TOL));
+            assertTrue(dense.mapRow(i).deepEquals(csc.mapRow(i), TOL));
+        }
+        for (int j = 0; j < dense.cols(); j++) {
+            assertTrue(dense.mapCol(j).deepEquals(csr.mapCol(j), TOL));
+            assertTrue(dense.mapCol(j).deepEquals(csc.mapCol(j), TOL));
+        }
+
+        // iteration over non-zero values of a row
+        DVectorSparse row = csr.mapRow(3);
+        for (int p = csr.rowPointers()[3], k = 0; p < csr.rowPointers()[4]; p++, k++) {
+            assertEquals(csr.colIndexes()[p], row.indexes()[k]);
+            assertEquals(csr.values()[p], row.values()[k]);
+        }
+    }
+
+    @Test
+    void testSetAndInc() {
+        DMatrixSparseR csr = DMatrixSparseR.empty(5, 5);
+        DMatrixSparseC csc = DMatrixSparseC.empty(5, 5);
+        DMatrix dense = DMatrix.empty(5, 5);
+        for (DMatrix m : new DMatrix[] {csr, csc, dense}) {
+            m.set(3, 2, 1);
+            m.set(0, 4, 2);
+            m.set(4, 0, 3);
+            m.inc(3, 2, 1);
+            m.inc(1, 1, 5);
+            m.set(2, 2, 0);
+        }
+        assertTrue(dense.deepEquals(csr));
+        assertTrue(dense.deepEquals(csc));
+        assertEquals(4, csr.nnz());
+        assertEquals(4, csc.nnz());
+    }
+
+    @Test
+    void testMutateAfterTranspose() {
+        DMatrix dense = randomDense(12, 9, 0.2);
+        for (AbstractDMatrixSparse m : new AbstractDMatrixSparse[] {DMatrixSparseR.copy(dense), DMatrixSparseC.copy(dense)}) {
+            DMatrix expected = dense.copy();
+            DMatrix t = m.t();
+            // insertions in both matrices, enough to reallocate the storage
+            for (int i = 0; i < 9; i++) {
+                m.set(i, i, 10 + i);
+                expected.set(i, i, 10 + i);
+                t.inc(i, (i + 3) % 12, 1);
+            }
+            DMatrix expectedT = dense.t().copy();
+            for (int i = 0; i < 9; i++) {
+                expectedT.inc(i, (i + 3) % 12, 1);
+            }
+            assertTrue(expected.deepEquals(m, TOL));
+            assertTrue(expectedT.deepEquals(t, TOL));
+        }
+    }
+
+    @Test
+    void testSelections() {
+        DMatrix dense = randomDense(25, 15, 0.2);
+        int[] rows = new int[] {7, 1, 1, 20, 3};
+        int[] cols = new int[] {14, 0, 5, 5};
+        for (DMatrix m : new DMatrix[] {DMatrixSparseR.copy(dense), DMatrixSparseC.copy(dense)}) {
+            assertTrue(dense.mapRowsNew(rows).deepEquals(m.mapRows(rows), TOL));
+            assertTrue(dense.mapColsNew(cols).deepEquals(m.mapCols(cols), TOL));
+            assertTrue(dense.rangeRowsNew(2, 9).deepEquals(m.rangeRows(2, 9), TOL));
+            assertTrue(dense.rangeColsNew(2, 9).deepEquals(m.rangeColsNew(2, 9), TOL));
+            assertTrue(dense.copy().mul(3).deepEquals(m.copy().mul(3), TOL));
+            assertTrue(dense.copy().apply(Math::abs).deepEquals(m.copy().apply(Math::abs), TOL));
+            assertEquals(dense.sum(), m.sum(), TOL);
+        }
+    }
+
+    @Test
+    void testDot() {
+        DMatrix a = randomDense(40, 30, 0.1);
+        DMatrix b = randomDense(30, 35, 0.1);
+        DVector v = DVector.random(random, 30);
+        DMatrix ab = a.dot(b);
+
+        DMatrix[] as = new DMatrix[] {DMatrixSparseR.copy(a), DMatrixSparseC.copy(a)};
+        DMatrix[] bs = new DMatrix[] {DMatrixSparseR.copy(b), DMatrixSparseC.copy(b)};
+        for (DMatrix sa : as) {
+            assertTrue(a.dot(v).deepEquals(sa.dot(v), TOL));
+            assertTrue(ab.deepEquals(sa.dot(b), TOL));
+            assertTrue(a.t().dot(a).deepEquals(a.t().dot(sa), TOL));
+            for (DMatrix sb : bs) {
+                assertTrue(ab.deepEquals(sa.dot(sb), TOL));
+            }
+            // transpose free products
+            assertTrue(a.t().dot(a).deepEquals(sa.t().dot(a), TOL));
+            assertTrue(a.t().dot(a).deepEquals(sa.t().dot(sa), TOL));
+            assertTrue(a.t().dot(ab).deepEquals(sa.t().dot(ab), TOL));
+        }
+        for (DMatrix sb : bs) {
+            assertTrue(ab.deepEquals(a.dot(sb), TOL));
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> as[0].dot(as[1]));
+        assertThrows(IllegalArgumentException.class, () -> as[1].dot(DVector.zeros(3)));
+    }
+
+    @Test
+    void testFrame() {
+        VarDouble x = VarDouble.wrap(0, 0, 1, 0, 2).name("x");
+        VarDouble y = VarDouble.wrap(3, 0, 0, 0, 0).name("y");
+        SolidFrame df = SolidFrame.byVars(x, y);
+
+        DMatrixSparseR csr = DMatrixSparseR.copy(df);
+        DMatrixSparseC csc = DMatrixSparseC.copy(df);
+        assertEquals(3, csr.nnz());
+        assertEquals(3, csc.nnz());
+        assertTrue(DMatrix.copy(df).deepEquals(csr));
+        assertTrue(DMatrix.copy(df).deepEquals(csc));
+    }
+}
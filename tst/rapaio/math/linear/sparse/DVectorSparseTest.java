@@ -0,0 +1,81 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package rapaio.math.linear.sparse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import rapaio.math.linear.DVector;
+import rapaio.math.linear.StandardDVectorTest;
+
+public class DVectorSparseTest extends StandardDVectorTest {
+
+    @Override
+    public DVector generateCopy(double[] values) {
+        return DVectorSparse.copy(DVector.wrap(values));
+    }
+
+    @Override
+    public DVector generateSeq(int end) {
+        return DVectorSparse.copy(DVector.from(end, i -> i));
+    }
+
+    @Override
+    public DVector generateFill(int size, double fill) {
+        return DVectorSparse.empty(size).fill(fill);
+    }
+
+    @Override
+    public String className() {
+        return DVectorSparse.class.getSimpleName();
+    }
+
+    @Test
+    void sparseStorageTest() {
+        DVectorSparse v = DVectorSparse.empty(100);
+        v.set(50, 0);
+        assertEquals(0, v.nnz());
+
+        v.set(70, 7);
+        v.set(10, 1);
+        v.inc(30, 3);
+        v.inc(10, 1);
+        assertEquals(3, v.nnz());
+        assertEquals(2, v.get(10));
+        assertEquals(3, v.get(30));
+        assertEquals(7, v.get(70));
+        assertEquals(0, v.get(71));
+        assertEquals(12, v.sum());
+
+        DVectorSparse w = DVectorSparse.empty(100);
+        w.set(30, 2);
+        w.set(71, 5);
+        assertEquals(6, v.dot(w));
+        assertEquals(6, w.dot(v));
+        assertEquals(6, v.denseCopy().dot(w));
+        assertEquals(6, w.dot(v.denseCopy()));
+
+        assertTrue(v.copy().mul(2).deepEquals(v.denseCopy().mul(2)));
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package rapaio.math.optimization;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import rapaio.math.linear.DVector;
+import rapaio.math.optimization.linesearch.BacktrackLineSearch;
+
+public class StochasticSolverTest {
+
+    private static final double TOL = 1e-12;
+
+    private static List<StochasticSolver.Batch> quadraticBatches(DVector... centers) {
+        List<StochasticSolver.Batch> batches = new ArrayList<>();
+        for (DVector center : centers) {
+            batches.add(new StochasticSolver.Batch(
+                    x -> x.subNew(center).norm(2) * x.subNew(center).norm(2) / 2,
+                    x -> x.subNew(center)));
+        }
+        return batches;
+    }
+
+    @Test
+    void testSchedules() {
+        assertEquals(0.1, LearningRateSchedule.constant(0.1).rate(100), TOL);
+        assertEquals(0.5, LearningRateSchedule.inverseScaling(1, 1).rate(1), TOL);
+        assertEquals(0.25, LearningRateSchedule.inverseScaling(0.5, 0.5).rate(3), TOL);
+        assertEquals(0.25, LearningRateSchedule.exponential(1, 0.5).rate(2), TOL);
+
+        var ex = assertThrows(IllegalArgumentException.class, () -> LearningRateSchedule.constant(0));
+        assertEquals("Learning rate must have a finite positive value, rate: 0.0.", ex.getMessage());
+        ex = assertThrows(IllegalArgumentException.class, () -> LearningRateSchedule.inverseScaling(1, -1));
+        assertEquals("Power must have a finite non negative value, power: -1.0.", ex.getMessage());
+        ex = assertThrows(IllegalArgumentException.class, () -> LearningRateSchedule.exponential(1, 2));
+        assertEquals("Decay must have a value in interval (0,1], decay: 2.0.", ex.getMessage());
+    }
+
+    @Test
+    void testMethods() {
+        List<StochasticSolver.Batch> batches = quadraticBatches(
+                DVector.wrap(1, 2), DVector.wrap(3, -2), DVector.wrap(2, 4), DVector.wrap(6, 0));
+        DVector mean = DVector.wrap(3, 1);
+
+        // with rate 1/(1+t) plain updates compute the running mean of the centers
+        StochasticSolver sgd = StochasticSolver.newSolver()
+                .method.set(StochasticSolver.Method.SGD)
+                .schedule.set(LearningRateSchedule.inverseScaling(1, 1))
+                .batches.set(batches)
+                .x0.set(DVector.zeros(2))
+                .maxIt.set(1)
+                .compute();
+        assertTrue(mean.deepEquals(sgd.solution(), TOL));
+        assertEquals(2, sgd.solutions().size());
+        assertEquals(1, sgd.errors().size());
+        assertFalse(sgd.hasConverged());
+
+        for (StochasticSolver.Method method : new StochasticSolver.Method[] {StochasticSolver.Method.SGD, StochasticSolver.Method.MOMENTUM}) {
+            StochasticSolver solver = StochasticSolver.newSolver()
+                    .method.set(method)
+                    .schedule.set(LearningRateSchedule.inverseScaling(0.1, 0.5))
+                    .batches.set(batches)
+                    .x0.set(DVector.wrap(-10, 10))
+                    .maxIt.set(2_000)
+                    .compute();
+            assertTrue(mean.deepEquals(solver.solution(), 0.05), "method: " + method);
+            assertEquals(solver.errors().size() + 1, solver.solutions().size());
+        }
+
+        // Adam on the average of all objectives
+        StochasticSolver.Batch average = new StochasticSolver.Batch(
+                x -> batches.stream().mapToDouble(b -> b.f().apply(x)).sum() / 4,
+                x -> x.subNew(mean));
+        StochasticSolver adam = StochasticSolver.newSolver()
+                .method.set(StochasticSolver.Method.ADAM)
+                .schedule.set(LearningRateSchedule.exponential(0.5, 0.99))
+                .batches.set(List.of(average))
+                .x0.set(DVector.wrap(-10, 10))
+                .maxIt.set(2_000)
+                .tol.set(1e-14)
+                .compute();
+        assertTrue(adam.hasConverged());
+        assertTrue(mean.deepEquals(adam.solution(), 1e-3));
+    }
+
+    @Test
+    void testLineSearch() {
+        List<StochasticSolver.Batch> batches = quadraticBatches(DVector.wrap(1, 2));
+
+        StochasticSolver solver = StochasticSolver.newSolver()
+                .method.set(StochasticSolver.Method.SGD)
+                .schedule.set(LearningRateSchedule.constant(10))
+                .lineSearch.set(BacktrackLineSearch.newSearch())
+                .batches.set(batches)
+                .x0.set(DVector.zeros(2))
+                .tol.set(1e-16)
+                .compute();
+        assertTrue(solver.hasConverged());
+        assertTrue(DVector.wrap(1, 2).deepEquals(solver.solution(), 1e-6));
+
+        var ex = assertThrows(IllegalArgumentException.class, () -> StochasticSolver.newSolver()
+                .batches.set(List.of())
+                .x0.set(DVector.zeros(2))
+                .compute());
+        assertEquals("Stochastic solver requires at least one batch.", ex.getMessage());
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package rapaio.ml.common.kernel;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import rapaio.data.Frame;
+import rapaio.data.SolidFrame;
+import rapaio.data.VarDouble;
+import rapaio.math.linear.DMatrix;
+import rapaio.math.linear.DVector;
+import rapaio.math.linear.FMatrix;
+
+public class AbstractKernelTest {
+
+    private static final double TOL = 1e-12;
+
+    private Random random;
+    private Frame train;
+    private Frame test;
+
+    @BeforeEach
+    void beforeEach() {
+        random = new Random(42);
+        train = SolidFrame.byVars(
+                VarDouble.from(50, row -> random.nextDouble()).name("x"),
+                VarDouble.from(50, row -> random.nextDouble()).name("y"));
+        // same variables in a different order, with an additional one
+        test = SolidFrame.byVars(
+                VarDouble.from(10, row -> random.nextDouble()).name("z"),
+                VarDouble.from(10, row -> random.nextDouble()).name("y"),
+                VarDouble.from(10, row -> random.nextDouble()).name("x"));
+    }
+
+    @Test
+    void testFrameAndVectorAgree() {
+        List<AbstractKernel> kernels = List.of(new RBFKernel(0.5), new PolyKernel(2), new CauchyKernel(1), new WaveletKernel(1));
+        for (AbstractKernel kernel : kernels) {
+            kernel.buildKernelCache(new String[] {"x", "y"}, train);
+            for (int i = 0; i < test.rowCount(); i++) {
+                DVector u = DVector.wrap(test.getDouble(i, "x"), test.getDouble(i, "y"));
+                for (int j = 0; j < train.rowCount(); j++) {
+                    DVector v = DVector.wrap(train.getDouble(j, "x"), train.getDouble(j, "y"));
+                    assertEquals(kernel.compute(u, v), kernel.compute(test, i, train, j), TOL);
+                    assertEquals(kernel.compute(v, u), kernel.eval(train, j, test, i), TOL);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testComputeRow() {
+        RBFKernel kernel = new RBFKernel(0.5);
+        kernel.buildKernelCache(new String[] {"x", "y"}, train);
+
+        int[] rows = new int[] {3, 0, 17, 3, 49};
+        double[] values = new double[rows.length];
+
+        kernel.computeRow(train, 5, train, rows, values);
+        for (int i = 0; i < rows.length; i++) {
+            assertEquals(kernel.eval(train, 5, train, rows[i]), values[i], TOL);
+        }
+
+        kernel.computeRow(test, 2, train, rows, values);
+        for (int i = 0; i < rows.length; i++) {
+            assertEquals(kernel.eval(test, 2, train, rows[i]), values[i], TOL);
+        }
+
+        kernel.computeRow(train, 7, test, new int[] {0, 9}, values);
+        assertEquals(kernel.eval(train, 7, test, 0), values[0], TOL);
+        assertEquals(kernel.eval(train, 7, test, 9), values[1], TOL);
+    }
+
+    @Test
+    void testWideRows() {
+        // more variables than vector lanes, with a tail
+        int p = 37;
+        VarDouble[] vars = new VarDouble[p];
+        String[] names = new String[p];
+        for (int j = 0; j < p; j++) {
+            names[j] = "v" + j;
+            vars[j] = VarDouble.from(20, row -> random.nextGaussian()).name(names[j]);
+        }
+        Frame wide = SolidFrame.byVars(vars);
+        List<AbstractKernel> kernels = List.of(new RBFKernel(0.05), new CauchyKernel(10));
+        for (AbstractKernel kernel : kernels) {
+            kernel.buildKernelCache(names, wide);
+            int[] rows = new int[] {0, 5, 19};
+            double[] values = new double[rows.length];
+            kernel.computeRow(wide, 3, wide, rows, values);
+            for (int k = 0; k < rows.length; k++) {
+                double delta = 0;
+                for (int j = 0; j < p; j++) {
+                    double d = wide.getDouble(3, j) - wide.getDouble(rows[k], j);
+                    delta += d * d;
+                }
+                double expected = kernel instanceof RBFKernel ? Math.exp(-0.05 * delta) : 1 / (1 + (delta / 10) * (delta / 10));
+                assertEquals(expected, values[k], 1e-12);
+            }
+        }
+    }
+
+    @Test
+    void testNotBuilt() {
+        var ex = assertThrows(IllegalArgumentException.class, () -> new RBFKernel(1).eval(train, 0, train, 1));
+        assertEquals("This kernel is not build with var names", ex.getMessage());
+    }
+
+    @Test
+    void testFloatKernelMatrix() {
+        FMatrix x = FMatrix.copy(test.mapVars("x,y"));
+        FMatrix y = FMatrix.copy(train.mapVars("x,y"));
+        DMatrix dx = x.dm();
+        DMatrix dy = y.dm();
+        // radial, dot product and coordinate wise kernels
+        List<Kernel> kernels = List.of(new RBFKernel(0.5), new LinearKernel(1), new PolyKernel(2), new CauchyKernel(1),
+                new MultiQuadricKernel(1), new SigmoidKernel(0.1, 0.5), new MinKernel());
+        for (Kernel kernel : kernels) {
+            FMatrix k = kernel.compute(x, y);
+            assertEquals(x.rows(), k.rows());
+            assertEquals(y.rows(), k.cols());
+            for (int i = 0; i < x.rows(); i++) {
+                for (int j = 0; j < y.rows(); j++) {
+                    double expected = kernel.compute(dx.mapRow(i), dy.mapRow(j));
+                    assertEquals(expected, k.get(i, j), 1e-5 * Math.max(1, Math.abs(expected)));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package rapaio.ml.common.kernel.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import rapaio.data.Frame;
+import rapaio.data.SolidFrame;
+import rapaio.data.VarDouble;
+import rapaio.ml.common.kernel.RBFKernel;
+
+public class LRUKernelCacheTest {
+
+    private Random random;
+
+    @BeforeEach
+    void beforeEach() {
+        random = new Random(42);
+    }
+
+    @Test
+    void testStoreRetrieve() {
+        Frame df = SolidFrame.byVars(VarDouble.from(100, row -> random.nextDouble()).name("x"));
+        Frame other = df.copy();
+
+        LRUKernelCache cache = new LRUKernelCache(df);
+        assertEquals(100, cache.maxRows());
+        assertTrue(Double.isNaN(cache.retrieve(df, 1, df, 2)));
+
+        cache.store(df, 1, df, 2, 0.5);
+        assertEquals(0.5, cache.retrieve(df, 1, df, 2));
+        // symmetric lookup
+        assertEquals(0.5, cache.retrieve(df, 2, df, 1));
+
+        // values from other frames are not cached
+        cache.store(df, 1, other, 3, 0.7);
+        assertTrue(Double.isNaN(cache.retrieve(df, 1, other, 3)));
+        assertTrue(Double.isNaN(cache.retrieve(df, 1, df, 3)));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertTrue(Double.isNaN(cache.retrieve(df, 1, df, 2)));
+    }
+
+    @Test
+    void testEviction() {
+        Frame df = SolidFrame.byVars(VarDouble.from(1_000, row -> random.nextDouble()).name("x"));
+
+        // budget for 3 rows
+        LRUKernelCache cache = new LRUKernelCache(df, 3 * 8 * 1_000);
+        assertEquals(3, cache.maxRows());
+
+        cache.store(df, 0, df, 10, 1);
+        cache.store(df, 1, df, 11, 2);
+        cache.store(df, 2, df, 12, 3);
+        assertEquals(3, cache.size());
+
+        // touch row 0, thus row 1 becomes the least recently used
+        assertEquals(1, cache.retrieve(df, 0, df, 10));
+        cache.store(df, 3, df, 13, 4);
+        assertEquals(3, cache.size());
+
+        assertEquals(1, cache.retrieve(df, 0, df, 10));
+        assertTrue(Double.isNaN(cache.retrieve(df, 1, df, 11)));
+        assertEquals(3, cache.retrieve(df, 2, df, 12));
+        assertEquals(4, cache.retrieve(df, 3, df, 13));
+    }
+
+    @Test
+    void testConcurrentKernel() {
+        Frame df = SolidFrame.byVars(
+                VarDouble.from(500, row -> random.nextDouble()).name("x"),
+                VarDouble.from(500, row -> random.nextDouble()).name("y"));
+        RBFKernel kernel = new RBFKernel(1);
+        RBFKernel reference = new RBFKernel(1);
+        kernel.buildKernelCache(df.varNames(), df);
+        reference.buildKernelCache(df.varNames(), df);
+
+        IntStream.range(0, 10_000).parallel().forEach(s -> {
+            int i = s % 500;
+            int j = (s * 31) % 500;
+            assertEquals(reference.eval(df, i, df, j), kernel.compute(df, i, df, j));
+        });
+    }
+}
@@ -22,14 +22,24 @@
 package rapaio.ml.model.boost;
 
 import org.junit.jupiter.api.Test;
+import rapaio.core.SamplingTools;
+import rapaio.data.Frame;
+import rapaio.data.VarNominal;
 import rapaio.datasets.Datasets;
 import rapaio.ml.common.VarSelector;
 import rapaio.ml.model.tree.CTree;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class AdaBoostTest {
 
@@ -68,4 +78,74 @@ public class AdaBoostTest {
         assertEquals(model.toContent(), copy.toContent());
         assertEquals(model.toFullContent(), copy.toFullContent());
     }
+
+    @Test
+    void stagedPredictTest() {
+        var iris = Datasets.loadIrisDataset();
+        var model = AdaBoost.newModel()
+                .model.set(CTree.newCART().maxDepth.set(2))
+                .runs.set(10)
+                .seed.set(42L)
+                .fit(iris, "class");
+
+        var staged = model.predictStaged(iris, true, true);
+        assertEquals(model.getLearners().size(), staged.size());
+
+        var last = staged.get(staged.size() - 1);
+        var result = model.predict(iris, true, true);
+        assertTrue(result.firstClasses().deepEquals(last.firstClasses()));
+        assertTrue(result.firstDensity().deepEquals(last.firstDensity()));
+    }
+
+    @Test
+    void earlyStoppingTest() throws IOException {
+        Frame[] split = SamplingTools.randomSampleSlices(new Random(42), Datasets.loadSpamBase(), 0.5, 0.5);
+        var model = AdaBoost.newModel()
+                .model.set(CTree.newCART().maxDepth.set(3))
+                .runs.set(100)
+                .validationDf.set(split[1])
+                .earlyStopRounds.set(5)
+                .seed.set(42L)
+                .fit(split[0], "spam");
+
+        var scores = model.getValidationScores();
+        int rounds = model.getLearners().size();
+        assertEquals(rounds, model.getAlphas().size());
+        assertEquals(rounds, scores.size());
+        for (double score : scores) {
+            assertTrue(scores.get(rounds - 1) <= score);
+        }
+    }
+
+    @Test
+    void validationLevelOrderTest() throws IOException {
+        Frame[] split = SamplingTools.randomSampleSlices(new Random(42), Datasets.loadSpamBase(), 0.5, 0.5);
+        Frame reversed = reverseLevels(split[1], "spam");
+        assertNotEquals(split[1].rvar("spam").levels(), reversed.rvar("spam").levels());
+
+        var model = AdaBoost.newModel()
+                .model.set(CTree.newCART().maxDepth.set(3).seed.set(7L))
+                .runs.set(10)
+                .validationDf.set(split[1])
+                .seed.set(42L);
+        var scores = model.fit(split[0], "spam").getValidationScores();
+        var reversedScores = model.newInstance().validationDf.set(reversed).fit(split[0], "spam").getValidationScores();
+        assertEquals(scores, reversedScores);
+
+        Frame unknown = split[1].copy();
+        unknown.setLabel(0, "spam", "other");
+        var ex = assertThrows(IllegalArgumentException.class,
+                () -> model.newInstance().validationDf.set(unknown).fit(split[0], "spam"));
+        assertEquals("Label other of target spam is not a level used at learning time.", ex.getMessage());
+    }
+
+    private static Frame reverseLevels(Frame df, String name) {
+        List<String> levels = new ArrayList<>(df.rvar(name).levels().subList(1, df.rvar(name).levels().size()));
+        Collections.reverse(levels);
+        VarNominal target = VarNominal.empty(0, levels).name(name);
+        for (int i = 0; i < df.rowCount(); i++) {
+            target.addLabel(df.getLabel(i, name));
+        }
+        return df.removeVars(name).bindVars(target);
+    }
 }
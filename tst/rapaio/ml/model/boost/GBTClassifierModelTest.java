@@ -24,13 +24,20 @@ package rapaio.ml.model.boost;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Random;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import rapaio.core.SamplingTools;
+import rapaio.data.Frame;
+import rapaio.data.VarNominal;
 import rapaio.datasets.Datasets;
 import rapaio.ml.common.VarSelector;
+import rapaio.ml.eval.metric.Confusion;
 import rapaio.ml.model.tree.RTree;
 
 /**
@@ -85,4 +92,98 @@ public class GBTClassifierModelTest {
         assertEquals(model.toContent(), copy.toContent());
         assertEquals(model.toFullContent(), copy.toFullContent());
     }
+
+    @Test
+    void parallelTest() {
+        var iris = Datasets.loadIrisDataset();
+        var model = GBTClassifierModel.newModel()
+                .model.set(RTree.newCART().maxDepth.set(2).minCount.set(5).varSelector.set(VarSelector.fixed(2)).seed.set(7L))
+                .shrinkage.set(0.5)
+                .runs.set(20)
+                .seed.set(133L);
+
+        var sequential = model.newInstance().fit(iris, "class").predict(iris, true, true);
+        var parallel = model.newInstance().poolSize.set(3).fit(iris, "class").predict(iris, true, true);
+
+        assertTrue(sequential.firstClasses().deepEquals(parallel.firstClasses()));
+        assertTrue(sequential.firstDensity().deepEquals(parallel.firstDensity()));
+        assertTrue(Confusion.from(iris.rvar("class"), sequential.firstClasses()).accuracy() > 0.8);
+    }
+
+    @Test
+    void stagedPredictTest() {
+        var iris = Datasets.loadIrisDataset();
+        var model = GBTClassifierModel.newModel()
+                .model.set(RTree.newCART().maxDepth.set(2).minCount.set(5).seed.set(7L))
+                .shrinkage.set(0.5)
+                .runs.set(10)
+                .seed.set(133L)
+                .fit(iris, "class");
+
+        var staged = model.predictStaged(iris, true, true);
+        assertEquals(10, staged.size());
+
+        var last = staged.get(staged.size() - 1);
+        var result = model.predict(iris, true, true);
+        assertTrue(result.firstClasses().deepEquals(last.firstClasses()));
+        assertTrue(result.firstDensity().deepEquals(last.firstDensity()));
+    }
+
+    @Test
+    void earlyStoppingTest() {
+        Frame[] split = SamplingTools.randomSampleSlices(random, Datasets.loadIrisDataset(), 0.6, 0.4);
+        var model = GBTClassifierModel.newModel()
+                .model.set(RTree.newCART().maxDepth.set(4).minCount.set(1).seed.set(7L))
+                .shrinkage.set(1.0)
+                .runs.set(200)
+                .validationDf.set(split[1])
+                .earlyStopRounds.set(5)
+                .seed.set(133L)
+                .fit(split[0], "class");
+
+        var scores = model.getValidationScores();
+        int rounds = model.getTrees().get(0).size();
+        assertTrue(rounds < 200);
+        assertEquals(rounds, scores.size());
+        for (var classTrees : model.getTrees()) {
+            assertEquals(rounds, classTrees.size());
+        }
+        // the kept rounds end at the best validation score
+        for (int i = 0; i < scores.size(); i++) {
+            assertTrue(scores.get(rounds - 1) <= scores.get(i));
+        }
+    }
+
+    @Test
+    void validationLevelOrderTest() {
+        Frame[] split = SamplingTools.randomSampleSlices(random, Datasets.loadIrisDataset(), 0.6, 0.4);
+        Frame reversed = reverseLevels(split[1], "class");
+        assertNotEquals(split[1].rvar("class").levels(), reversed.rvar("class").levels());
+
+        var model = GBTClassifierModel.newModel()
+                .model.set(RTree.newCART().maxDepth.set(4).minCount.set(1).seed.set(7L))
+                .shrinkage.set(1.0)
+                .runs.set(20)
+                .validationDf.set(split[1])
+                .seed.set(133L);
+        var scores = model.fit(split[0], "class").getValidationScores();
+        var reversedScores = model.newInstance().validationDf.set(reversed).fit(split[0], "class").getValidationScores();
+        assertEquals(scores, reversedScores);
+
+        Frame unknown = split[1].copy();
+        unknown.setLabel(0, "class", "other");
+        var ex = assertThrows(IllegalArgumentException.class,
+                () -> model.newInstance().validationDf.set(unknown).fit(split[0], "class"));
+        assertEquals("Label other of target class is not a level used at learning time.", ex.getMessage());
+    }
+
+    private static Frame reverseLevels(Frame df, String name) {
+        List<String> levels = new ArrayList<>(df.rvar(name).levels().subList(1, df.rvar(name).levels().size()));
+        Collections.reverse(levels);
+        VarNominal target = VarNominal.empty(0, levels).name(name);
+        for (int i = 0; i < df.rowCount(); i++) {
+            target.addLabel(df.getLabel(i, name));
+        }
+        return df.removeVars(name).bindVars(target);
+    }
 }
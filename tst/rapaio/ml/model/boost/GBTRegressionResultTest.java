@@ -28,6 +28,8 @@ import java.util.Random;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import rapaio.core.SamplingTools;
+import rapaio.data.Frame;
 import rapaio.data.Var;
 import rapaio.data.VarDouble;
 import rapaio.datasets.Datasets;
@@ -156,4 +158,47 @@ public class GBTRegressionResultTest {
 
         assertEquals(model.toString(), copy.toString());
     }
+
+    @Test
+    void stagedPredictTest() {
+        var advertise = Datasets.loadISLAdvertising().removeVars("ID");
+        var model = GBTRegressionModel.newModel()
+                .runs.set(20)
+                .shrinkage.set(0.3)
+                .model.set(RTree.newCART().maxDepth.set(3))
+                .seed.set(1234L)
+                .fit(advertise, "Sales");
+
+        var staged = model.predictStaged(advertise, true);
+        assertEquals(model.getTrees().size(), staged.size());
+        assertTrue(model.predict(advertise, true).firstPrediction()
+                .deepEquals(staged.get(staged.size() - 1).firstPrediction()));
+        // training error decreases with each stage
+        for (int i = 1; i < staged.size(); i++) {
+            assertTrue(staged.get(i).firstRss() <= staged.get(i - 1).firstRss());
+        }
+    }
+
+    @Test
+    void earlyStoppingTest() {
+        Frame[] split = SamplingTools.randomSampleSlices(random, Datasets.loadISLAdvertising().removeVars("ID"), 0.6, 0.4);
+        var loss = new L2Loss();
+        var model = GBTRegressionModel.newModel()
+                .runs.set(500)
+                .shrinkage.set(0.8)
+                .eps.set(1e-20)
+                .model.set(RTree.newCART().maxDepth.set(4))
+                .validationDf.set(split[1])
+                .earlyStopRounds.set(10)
+                .seed.set(1234L)
+                .fit(split[0], "Sales");
+
+        var scores = model.getValidationScores();
+        assertEquals(model.getTrees().size(), scores.size());
+        for (double score : scores) {
+            assertTrue(scores.get(scores.size() - 1) <= score);
+        }
+        assertEquals(scores.get(scores.size() - 1),
+                loss.errorScore(split[1].rvar("Sales"), model.predict(split[1]).firstPrediction()), 1e-10);
+    }
 }
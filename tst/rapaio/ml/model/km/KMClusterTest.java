@@ -23,14 +23,18 @@ package rapaio.ml.model.km;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.Random;
 import java.util.function.BiFunction;
 
 import org.junit.jupiter.api.Test;
 
+import rapaio.core.distributions.Normal;
 import rapaio.data.Frame;
+import rapaio.data.Mapping;
 import rapaio.data.SolidFrame;
 import rapaio.data.VarDouble;
 import rapaio.data.VarInt;
+import rapaio.data.sample.RowSampler;
 import rapaio.datasets.Datasets;
 import rapaio.math.linear.DMatrix;
 import rapaio.math.linear.DVector;
@@ -234,4 +238,110 @@ public class KMClusterTest {
         assertEquals(result.toSummary(), result.toContent());
         assertEquals(result.toSummary(), result.toFullContent());
     }
+
+    @Test
+    void acceleratedParallelTest() {
+        Random random = new Random(42);
+        Normal normal = Normal.std();
+        int n = 20_000;
+        Frame df = SolidFrame.byVars(
+                VarDouble.from(n, row -> (row % 5) * 3 + normal.sampleNext(random)).name("x"),
+                VarDouble.from(n, row -> (row % 3) * 2 + normal.sampleNext(random)).name("y"),
+                VarDouble.from(n, row -> normal.sampleNext(random)).name("z"));
+
+        for (KMCluster.Method method : new KMCluster.Method[] {KMCluster.KMeans, KMCluster.KMedians}) {
+            KMCluster reference = new KMCluster().method.set(method).k.set(7).nstart.set(4)
+                    .init.set(KMClusterInit.PlusPlus).runs.set(20).seed.set(42L).accelerated.set(false);
+            reference.fit(df);
+
+            // bounds do not change the assignment nor the errors
+            KMCluster accelerated = reference.newInstance().accelerated.set(true);
+            accelerated.fit(df);
+            assertTrue(reference.getErrors().deepEquals(accelerated.getErrors()));
+            assertTrue(reference.getCentroidsMatrix().deepEquals(accelerated.getCentroidsMatrix()));
+
+            // parallel execution differs only in the order of summation
+            KMCluster parallel = reference.newInstance().accelerated.set(true).poolSize.set(4);
+            parallel.fit(df);
+            assertEquals(reference.getErrors().size(), parallel.getErrors().size());
+            for (int i = 0; i < reference.getErrors().size(); i++) {
+                assertEquals(reference.getErrors().getDouble(i), parallel.getErrors().getDouble(i), 1e-6);
+            }
+            assertTrue(reference.getCentroidsMatrix().deepEquals(parallel.getCentroidsMatrix(), 1e-9));
+            assertTrue(reference.predict(df).assignment().deepEquals(parallel.predict(df).assignment()));
+        }
+    }
+
+    @Test
+    void floatPrecisionTest() {
+        Random random = new Random(42);
+        Normal normal = Normal.std();
+        int n = 5_000;
+        Frame df = SolidFrame.byVars(
+                VarDouble.from(n, row -> (row % 5) * 3 + normal.sampleNext(random)).name("x"),
+                VarDouble.from(n, row -> (row % 3) * 2 + normal.sampleNext(random)).name("y"));
+
+        for (KMCluster.Method method : new KMCluster.Method[] {KMCluster.KMeans, KMCluster.KMedians}) {
+            KMCluster reference = new KMCluster().method.set(method).k.set(5).init.set(KMClusterInit.PlusPlus)
+                    .runs.set(20).seed.set(42L);
+            reference.fit(df);
+            KMCluster single = reference.newInstance().floatPrecision.set(true);
+            single.fit(df);
+
+            // single precision changes only the rounding of distances
+            int last = reference.getErrors().size() - 1;
+            assertEquals(reference.getErrors().getDouble(last), single.getErrors().getDouble(single.getErrors().size() - 1),
+                    1e-4 * reference.getErrors().getDouble(last));
+            assertTrue(reference.getCentroidsMatrix().deepEquals(single.getCentroidsMatrix(), 1e-3));
+        }
+    }
+
+    @Test
+    void miniBatchTest() {
+        Random random = new Random(42);
+        Normal normal = Normal.std();
+        int n = 30_000;
+        Frame df = SolidFrame.byVars(
+                VarDouble.from(n, row -> (row % 3) * 10 + normal.sampleNext(random)).name("x"),
+                VarDouble.from(n, row -> (row % 3) * 5 + normal.sampleNext(random)).name("y"));
+
+        KMCluster full = KMCluster.newKMeans().k.set(3).init.set(KMClusterInit.PlusPlus).seed.set(42L).fit(df);
+        DMatrix expected = DMatrix.copy(full.getCentroids().refSort("x"));
+
+        KMCluster batch = KMCluster.newKMeans().k.set(3).nstart.set(10).init.set(KMClusterInit.PlusPlus).seed.set(42L)
+                .batchSampler.set(RowSampler.subsampler(0.01)).runs.set(100).fit(df);
+        assertEquals(100, batch.getErrors().size());
+        assertTrue(expected.deepEquals(DMatrix.copy(batch.getCentroids().refSort("x")), 0.1));
+
+        // mini batch updates stop when centroids move less than eps
+        KMCluster converged = KMCluster.newKMeans().k.set(3).nstart.set(10).init.set(KMClusterInit.PlusPlus).seed.set(42L)
+                .batchSampler.set(RowSampler.subsampler(0.01)).runs.set(100).eps.set(0.01).fit(df);
+        assertTrue(converged.getErrors().size() < 100);
+        assertTrue(expected.deepEquals(DMatrix.copy(converged.getCentroids().refSort("x")), 0.1));
+
+        // stream of frames
+        KMCluster stream = KMCluster.newKMeans().k.set(3).nstart.set(10).init.set(KMClusterInit.PlusPlus).seed.set(42L);
+        for (int i = 0; i < 10; i++) {
+            stream.partialFit(df.mapRows(Mapping.range(i * 3_000, (i + 1) * 3_000)));
+        }
+        assertTrue(stream.hasLearned());
+        assertEquals(10, stream.getErrors().size());
+        assertTrue(expected.deepEquals(DMatrix.copy(stream.getCentroids().refSort("x")), 0.1));
+        assertEquals(n, stream.predict(df).assignment().size());
+
+        // weights scale the step of each instance, instances without weight are ignored
+        KMCluster weighted = KMCluster.newKMeans().k.set(1).seed.set(42L)
+                .partialFit(SolidFrame.byVars(VarDouble.wrap(0, 10, 100).name("x")), VarDouble.wrap(3, 1, 0));
+        assertEquals(2.5, weighted.getCentroidsMatrix().get(0, 0), 1e-12);
+
+        // further updates after a full batch fit keep the centroids
+        full.partialFit(df.mapRows(Mapping.range(0, 3_000)));
+        assertTrue(expected.deepEquals(DMatrix.copy(full.getCentroids().refSort("x")), 0.1));
+
+        var ex = assertThrows(IllegalArgumentException.class, () -> KMCluster.newKMedians().k.set(3).partialFit(df));
+        assertEquals("Mini batch updates are available only for KMeans method, method: KMedians.", ex.getMessage());
+        ex = assertThrows(IllegalArgumentException.class, () -> KMCluster.newKMeans().k.set(3)
+                .partialFit(df.mapRows(Mapping.range(0, 2))));
+        assertEquals("Cannot initialize 3 centroids from a batch of 2 instances.", ex.getMessage());
+    }
 }
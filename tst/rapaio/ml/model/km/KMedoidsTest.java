@@ -273,4 +273,102 @@ public class KMedoidsTest {
 
         assertEquals(1, km.peekNextCentroid(x, Set.of(4), dv, cache));
     }
+
+    @Test
+    void testDistanceCacheBudget() {
+        assertEquals(100, KMedoids.DistanceCache.cachedRows(100, Long.MAX_VALUE));
+        // 10 rows need 45 values, without the diagonal
+        assertEquals(10, KMedoids.DistanceCache.cachedRows(100, 45 * 8));
+        assertEquals(9, KMedoids.DistanceCache.cachedRows(100, 45 * 8 - 1));
+        // the first row has no values below the diagonal
+        assertEquals(1, KMedoids.DistanceCache.cachedRows(100, 0));
+        // the default budget is not allocated for small inputs
+        assertEquals(20, KMedoids.DistanceCache.cachedRows(20, 1L << 30));
+
+        DMatrix x = DMatrix.copy(VarDouble.from(20, () -> Normal.std().sampleNext(random)));
+        KMedoids.DistanceCache full = new KMedoids.DistanceCache(x.rows(), new Manhattan());
+        KMedoids.DistanceCache partial = new KMedoids.DistanceCache(x.rows(), new Manhattan(), 45 * 8);
+        assertEquals(20, full.cachedRows());
+        assertEquals(10, partial.cachedRows());
+        for (int i = 0; i < x.rows(); i++) {
+            for (int j = 0; j < x.rows(); j++) {
+                double expected = abs(x.get(i, 0) - x.get(j, 0));
+                assertEquals(expected, full.get(i, j, x.mapRow(i), x.mapRow(j)));
+                assertEquals(expected, full.get(j, i, x.mapRow(j), x.mapRow(i)));
+                assertEquals(expected, partial.get(i, j, x.mapRow(i), x.mapRow(j)));
+            }
+        }
+    }
+
+    @Test
+    void testFastPAM() {
+        Frame df = Datasets.loadIrisDataset().mapVars(VarRange.onlyTypes(VarType.DOUBLE));
+        DMatrix x = DMatrix.copy(df);
+
+        KMedoids pam = KMedoids.newPAMModel(3).seed.set(42L);
+        pam.fit(df);
+        KMedoids fast = KMedoids.newFastPAMModel(3).seed.set(42L);
+        fast.fit(df);
+        KMedoids parallel = KMedoids.newFastPAMModel(3).seed.set(42L).poolSize.set(4);
+        parallel.fit(df);
+
+        double pamError = errorOf(pam, x);
+        double fastError = errorOf(fast, x);
+        assertTrue(fastError <= pamError + 1e-9);
+        assertTrue(fast.getCentroidsMatrix().deepEquals(parallel.getCentroidsMatrix()));
+
+        // no single swap improves the fast PAM solution
+        int[] medoids = medoidIndexes(fast, x);
+        for (int m = 0; m < medoids.length; m++) {
+            for (int h = 0; h < x.rows(); h++) {
+                int[] next = medoids.clone();
+                next[m] = h;
+                assertTrue(fast.evaluate(x, next) >= fastError - 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void testClara() {
+        VarDouble x1 = VarDouble.empty().name("x1");
+        VarDouble x2 = VarDouble.empty().name("x2");
+        Var target = VarInt.empty();
+        double[] m1 = new double[] {0, 10, 0};
+        double[] m2 = new double[] {0, 10, 10};
+        Normal normal = Normal.std();
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 2_000; j++) {
+                x1.addDouble(m1[i] + normal.sampleNext(random));
+                x2.addDouble(m2[i] + normal.sampleNext(random));
+                target.addInt(i);
+            }
+        }
+        Frame df = SolidFrame.byVars(x1, x2);
+
+        KMedoids clara = KMedoids.newFastPAMModel(3).sampleSize.set(100).samples.set(3).seed.set(42L).poolSize.set(2);
+        ClusteringResult<KMedoids> result = clara.fit(df).predict(df);
+        assertEquals(1.0, RandIndex.from(target, result.assignment()).getRandIndex(), 1e-2);
+
+        var ex = assertThrows(IllegalArgumentException.class,
+                () -> KMedoids.newPAMModel(3).sampleSize.set(2).fit(df));
+        assertEquals("Sample size 2 is smaller than number of clusters 3.", ex.getMessage());
+    }
+
+    private static int[] medoidIndexes(KMedoids model, DMatrix x) {
+        DMatrix c = model.getCentroidsMatrix();
+        int[] indexes = new int[c.rows()];
+        for (int i = 0; i < c.rows(); i++) {
+            for (int j = 0; j < x.rows(); j++) {
+                if (x.mapRow(j).deepEquals(c.mapRow(i))) {
+                    indexes[i] = j;
+                    break;
+                }
+            }
+        }
+        return indexes;
+    }
+
+    private static double errorOf(KMedoids model, DMatrix x) {
+        return model.evaluate(x, medoidIndexes(model, x));
+    }
 }
@@ -31,8 +31,11 @@ import org.junit.jupiter.api.Test;
 import rapaio.core.distributions.Normal;
 import rapaio.data.SolidFrame;
 import rapaio.data.VarDouble;
+import rapaio.ml.common.distance.Distance;
 import rapaio.ml.common.distance.EuclideanDistance;
+import rapaio.ml.common.distance.Manhattan;
 import rapaio.ml.model.RegressionResult;
+import rapaio.util.collection.IntArrays;
 
 public class KnnRegressionTest {
 
@@ -81,4 +84,56 @@ public class KnnRegressionTest {
             }
         }
     }
+
+    @Test
+    void spatialIndexTest() {
+        Normal normal = Normal.std();
+        VarDouble x1 = VarDouble.from(2_000, row -> normal.sampleNext(random)).name("x1");
+        VarDouble x2 = VarDouble.from(2_000, row -> normal.sampleNext(random)).name("x2");
+        VarDouble y = VarDouble.from(2_000, row -> x1.getDouble(row) * x2.getDouble(row) + normal.sampleNext(random)).name("y");
+        var train = SolidFrame.byVars(x1, x2, y);
+        var test = SolidFrame.byVars(
+                VarDouble.from(500, row -> normal.sampleNext(random)).name("x1"),
+                VarDouble.from(500, row -> normal.sampleNext(random)).name("x2"));
+
+        for (var distance : new Distance[] {new EuclideanDistance(), new Manhattan()}) {
+            for (int k : new int[] {1, 5, 20}) {
+                KnnRegression indexed = KnnRegression.newModel().k.set(k).distance.set(distance)
+                        .kernel.set(KnnRegression.Kernel.EPANECHNIKOV).spatialIndex.set(true);
+                KnnRegression brute = indexed.newInstance().spatialIndex.set(false);
+
+                var p1 = indexed.fit(train, "y").predict(test).firstPrediction();
+                var p2 = brute.fit(train, "y").predict(test).firstPrediction();
+                for (int i = 0; i < test.rowCount(); i++) {
+                    assertEquals(p2.getDouble(i), p1.getDouble(i), 1e-12);
+                }
+            }
+        }
+    }
+
+    @Test
+    void topKTest() {
+        TopK top = new TopK(5);
+        assertEquals(Double.POSITIVE_INFINITY, top.worst());
+
+        double[] values = new double[100];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(20);
+            top.add(values[i], i);
+        }
+        assertEquals(5, top.size());
+
+        double[] distances = new double[5];
+        int[] indexes = new int[5];
+        top.drainSorted(distances, indexes);
+        assertEquals(0, top.size());
+
+        // brute force selection, ties broken by index
+        int[] expected = IntArrays.newSeq(0, values.length);
+        IntArrays.quickSort(expected, (i, j) -> values[i] == values[j] ? Integer.compare(i, j) : Double.compare(values[i], values[j]));
+        for (int i = 0; i < 5; i++) {
+            assertEquals(expected[i], indexes[i]);
+            assertEquals(values[expected[i]], distances[i]);
+        }
+    }
 }
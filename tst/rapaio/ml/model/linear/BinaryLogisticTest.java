@@ -23,6 +23,7 @@ package rapaio.ml.model.linear;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.List;
 import java.util.Random;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -36,9 +37,14 @@ import rapaio.data.VarDouble;
 import rapaio.data.VarNominal;
 import rapaio.data.VarType;
 import rapaio.datasets.Datasets;
+import rapaio.math.MathTools;
+import rapaio.math.linear.DVector;
+import rapaio.math.optimization.LearningRateSchedule;
+import rapaio.math.optimization.StochasticSolver;
 import rapaio.ml.common.Capabilities;
 import rapaio.ml.eval.metric.Confusion;
 import rapaio.ml.model.ClassifierResult;
+import rapaio.ml.model.linear.impl.StochasticLinear;
 
 /**
  * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a> on 3/22/20.
@@ -148,6 +154,73 @@ public class BinaryLogisticTest {
         assertTrue(Confusion.from(clazz, result.firstClasses()).accuracy() > 0.8);
     }
 
+    @Test
+    void testCoordinateDescent() {
+        Frame iris = Datasets.loadIrisDataset()
+                .stream().filter(s -> !s.getLabel("class").equals("virginica")).toMappedFrame();
+        VarNominal clazz = VarNominal.from(iris.rowCount(), row -> iris.rvar("class").getLabel(row)).name("clazz");
+        Frame df = iris.removeVars("class").bindVars(clazz).copy();
+
+        var model = BinaryLogistic.newModel()
+                .solver.set(BinaryLogistic.Method.CD)
+                .l1penalty.set(5.0)
+                .runs.set(100);
+        var result = model.fit(df, "clazz").predict(df, true, true);
+        assertTrue(model.isConverged());
+        assertTrue(Confusion.from(clazz, result.firstClasses()).accuracy() > 0.95);
+        // iterations are the solutions along the regularization path
+        assertEquals(10, model.iterationWeights().size());
+        // L1 penalty selects only some of the inputs
+        DVector w = model.iterationWeights().get(9);
+        assertTrue(w.valueStream().skip(1).filter(v -> v == 0).count() > 0);
+
+        var ex = assertThrows(IllegalArgumentException.class,
+                () -> model.newInstance().solver.set(BinaryLogistic.Method.IRLS).fit(df, "clazz"));
+        assertEquals("L1 penalty is available only for CD solver, solver: IRLS.", ex.getMessage());
+    }
+
+    @Test
+    void testStochasticFit() {
+        int n = 500;
+        Normal normal = Normal.std();
+        VarDouble x1 = VarDouble.from(n, () -> normal.sampleNext(random)).name("x1");
+        VarDouble x2 = VarDouble.from(n, () -> normal.sampleNext(random)).name("x2");
+        VarBinary y = VarBinary.from(n, row -> random.nextDouble() < MathTools.logistic(1 - 2 * x1.getDouble(row) + x2.getDouble(row)))
+                .name("y");
+        Frame df = SolidFrame.byVars(x1, x2, y);
+
+        BinaryLogistic irls = BinaryLogistic.newModel().runs.set(100);
+        irls.fit(df, "y");
+        DVector expected = irls.iterationWeights().get(irls.iterationWeights().size() - 1);
+
+        // a single batch with all instances converges to the same solution
+        BinaryLogistic adam = BinaryLogistic.newModel().fitStream(List.of(df),
+                StochasticSolver.newSolver()
+                        .schedule.set(LearningRateSchedule.constant(0.05))
+                        .maxIt.set(5_000)
+                        .tol.set(1e-15), "y");
+        assertTrue(adam.isConverged());
+        assertTrue(expected.deepEquals(adam.iterationWeights().get(adam.iterationWeights().size() - 1), 1e-4));
+        assertEquals(adam.iterationLoss().size() + 1, adam.iterationWeights().size());
+
+        // shuffled mini batches with momentum and decaying learning rate
+        BinaryLogistic sgd = BinaryLogistic.newModel().fitStream(StochasticLinear.miniBatches(df, 50, random),
+                StochasticSolver.newSolver()
+                        .method.set(StochasticSolver.Method.MOMENTUM)
+                        .schedule.set(LearningRateSchedule.inverseScaling(0.5, 0.5))
+                        .maxIt.set(100), "y");
+        DVector w = sgd.iterationWeights().get(sgd.iterationWeights().size() - 1);
+        assertTrue(expected.deepEquals(w, 0.1));
+
+        ClassifierResult expectedResult = irls.predict(df);
+        ClassifierResult result = sgd.predict(df);
+        assertTrue(Confusion.from(expectedResult.firstClasses(), result.firstClasses()).accuracy() > 0.95);
+
+        var ex = assertThrows(IllegalArgumentException.class, () -> BinaryLogistic.newModel().l1penalty.set(1.0)
+                .fitStream(List.of(df), StochasticSolver.newSolver(), "y"));
+        assertEquals("L1 penalty is not available for stochastic fit.", ex.getMessage());
+    }
+
     @Test
     void singleInputTest() {
         int n = 20;
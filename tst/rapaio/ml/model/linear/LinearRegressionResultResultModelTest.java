@@ -24,6 +24,7 @@ package rapaio.ml.model.linear;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Random;
 
 import org.junit.jupiter.api.Test;
@@ -36,6 +37,9 @@ import rapaio.data.VarRange;
 import rapaio.datasets.Datasets;
 import rapaio.math.linear.DMatrix;
 import rapaio.math.linear.DVector;
+import rapaio.math.optimization.LearningRateSchedule;
+import rapaio.math.optimization.StochasticSolver;
+import rapaio.ml.model.linear.impl.StochasticLinear;
 
 /**
  * Test for linear regression.
@@ -275,4 +279,35 @@ public class LinearRegressionResultResultModelTest {
             assertEquals(betas.get(i, 1), secondBetas.get(i), TOL);
         }
     }
+
+    @Test
+    void testStochasticFit() {
+        Random random = new Random(123);
+        Normal normal = Normal.std();
+        VarDouble x1 = VarDouble.from(400, () -> normal.sampleNext(random)).name("x1");
+        VarDouble x2 = VarDouble.from(400, () -> normal.sampleNext(random)).name("x2");
+        VarDouble y1 = VarDouble.from(400, row -> 1 + 2 * x1.getDouble(row) - x2.getDouble(row) + normal.sampleNext(random) / 10).name("y1");
+        VarDouble y2 = VarDouble.from(400, row -> -x1.getDouble(row) + normal.sampleNext(random) / 10).name("y2");
+        Frame df = BoundFrame.byVars(x1, x2, y1, y2);
+
+        DMatrix expected = LinearRegressionModel.newModel().fit(df, "y1,y2").getAllCoefficients();
+
+        LinearRegressionModel lm = LinearRegressionModel.newModel().fitStream(List.of(df),
+                StochasticSolver.newSolver().schedule.set(LearningRateSchedule.constant(0.05)).maxIt.set(5_000).tol.set(1e-16),
+                "y1,y2");
+        assertTrue(lm.isFitted());
+        assertTrue(expected.deepEquals(lm.getAllCoefficients(), 1e-6));
+        assertEquals("LinearRegression{}, fitted on: 3 IVs [(Intercept),x1,x2], 2 DVs [y1,y2].", lm.toString());
+
+        LinearRegressionModel sgd = LinearRegressionModel.newModel().fitStream(StochasticLinear.miniBatches(df, 16, random),
+                StochasticSolver.newSolver()
+                        .method.set(StochasticSolver.Method.SGD)
+                        .schedule.set(LearningRateSchedule.inverseScaling(0.1, 0.5))
+                        .maxIt.set(20),
+                "y1,y2");
+        assertTrue(expected.deepEquals(sgd.getAllCoefficients(), 0.05));
+
+        var prediction = sgd.predict(df, true);
+        assertTrue(prediction.firstResidual().dv().norm(2) / Math.sqrt(df.rowCount()) < 0.2);
+    }
 }
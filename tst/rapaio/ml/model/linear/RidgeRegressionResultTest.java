@@ -28,12 +28,17 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.List;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import rapaio.data.Frame;
 import rapaio.datasets.Datasets;
+import rapaio.math.linear.DMatrix;
 import rapaio.math.linear.DVector;
+import rapaio.math.optimization.LearningRateSchedule;
+import rapaio.math.optimization.StochasticSolver;
 
 /**
  * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a> on 2/1/18.
@@ -206,4 +211,33 @@ public class RidgeRegressionResultTest {
 
                 """, model2.fit(df, "Sales").toSummary());
     }
+
+    @Test
+    void testStochasticFit() {
+        Frame scaled = df.mapVars("TV,Radio,Newspaper,Sales").copy();
+        for (int i = 0; i < scaled.varCount(); i++) {
+            DVector v = scaled.rvar(i).dv();
+            double mean = v.mean();
+            double sd = Math.sqrt(v.variance());
+            scaled.rvar(i).dv().apply(x -> (x - mean) / sd);
+        }
+
+        StochasticSolver solver = StochasticSolver.newSolver()
+                .schedule.set(LearningRateSchedule.constant(0.05))
+                .maxIt.set(5_000)
+                .tol.set(1e-16);
+        DVector free = RidgeRegressionModel.newModel(0).fitStream(List.of(scaled), solver, "Sales").firstCoefficients();
+        DVector ridge = RidgeRegressionModel.newModel(1).fitStream(List.of(scaled), solver, "Sales").firstCoefficients();
+
+        // intercept is not penalized, the other coefficients are shrunk
+        assertEquals(0, ridge.get(0), 1e-6);
+        assertTrue(ridge.range(1, 4).norm(2) < free.range(1, 4).norm(2));
+
+        // with average loss, penalized normal equations are (X^tX/n + lambda I) b = X^ty/n
+        DMatrix x = DMatrix.copy(scaled.mapVars("TV,Radio,Newspaper"));
+        DVector y = scaled.rvar("Sales").dv();
+        int n = scaled.rowCount();
+        DVector expected = x.t().dot(x).div(n).add(DMatrix.eye(3)).qr().solve(x.t().dot(y).div(n));
+        assertTrue(expected.deepEquals(ridge.range(1, 4), 1e-6));
+    }
 }
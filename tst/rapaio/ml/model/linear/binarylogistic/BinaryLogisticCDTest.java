@@ -0,0 +1,166 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package rapaio.ml.model.linear.binarylogistic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import rapaio.core.distributions.Normal;
+import rapaio.math.MathTools;
+import rapaio.math.linear.DMatrix;
+import rapaio.math.linear.DVector;
+import rapaio.math.linear.sparse.DMatrixSparseC;
+
+public class BinaryLogisticCDTest {
+
+    private static final double TOL = 1e-6;
+
+    private Random random;
+
+    @BeforeEach
+    void beforeEach() {
+        random = new Random(123);
+    }
+
+    @Test
+    void testDefaults() {
+        var optimizer = new BinaryLogisticCD();
+        assertEquals(1e-10, optimizer.eps.get());
+        assertEquals(100, optimizer.maxIter.get());
+        assertEquals(0, optimizer.l1.get());
+        assertEquals(0, optimizer.l2.get());
+        assertEquals(10, optimizer.pathSize.get());
+        assertFalse(optimizer.intercept.get());
+    }
+
+    @Test
+    void testSymmetricAroundZeroNotSeparable() {
+        var x = DMatrix.copy(10, 1, -5, -4, -3, 2, -1, 1, -2, 3, 4, 5);
+        var y = DVector.wrap(1, 1, 1, 1, 1, 0, 0, 0, 0, 0);
+
+        var result = new BinaryLogisticCD().xp.set(x).yp.set(y).w0.set(DVector.zeros(1)).fit();
+        assertTrue(result.converged());
+        // maximum likelihood solution, IRLS stops close to it
+        assertEquals(-0.5596617875361513, result.w().get(0), TOL);
+        assertEquals(1, result.ws().size());
+        assertEquals(result.nll(), result.nlls().get(0));
+    }
+
+    @Test
+    void testL2SameAsIRLS() {
+        DMatrix x = randomMatrix(200, 5);
+        DVector y = randomTarget(x, DVector.wrap(1, -2, 0, 0.5, 0));
+
+        DVector irls = new BinaryLogisticIRLS().xp.set(x).yp.set(y).w0.set(DVector.zeros(5))
+                .lambdap.set(2.0).maxIter.set(100).eps.set(1e-14).fit().w();
+        var cd = new BinaryLogisticCD().xp.set(x).yp.set(y).w0.set(DVector.zeros(5)).l2.set(2.0).fit();
+        assertTrue(cd.converged());
+        assertTrue(irls.deepEquals(cd.w(), TOL));
+    }
+
+    @Test
+    void testL1Path() {
+        int p = 50;
+        DMatrix x = randomMatrix(500, p);
+        for (int i = 0; i < x.rows(); i++) {
+            x.set(i, 0, 1);
+        }
+        DVector coefficients = DVector.zeros(p);
+        coefficients.set(1, 2);
+        coefficients.set(2, -2);
+        coefficients.set(3, 1);
+        DVector y = randomTarget(x, coefficients);
+
+        double l1 = 10;
+        double l2 = 0.5;
+        var result = new BinaryLogisticCD().xp.set(x).yp.set(y).w0.set(DVector.zeros(p))
+                .l1.set(l1).l2.set(l2).intercept.set(true).pathSize.set(5).fit();
+        assertTrue(result.converged());
+        assertEquals(5, result.lambdas().size());
+        assertEquals(5, result.ws().size());
+        assertEquals(l1, result.lambdas().get(4));
+        for (int i = 1; i < 5; i++) {
+            assertTrue(result.lambdas().get(i - 1) > result.lambdas().get(i));
+        }
+
+        // first penalty of the path leaves all penalized coefficients zero
+        for (int j = 1; j < p; j++) {
+            assertEquals(0, result.ws().get(0).get(j), 1e-10);
+        }
+
+        // informative coefficients are selected and the solution is sparse
+        DVector w = result.w();
+        assertTrue(w.get(1) > 0);
+        assertTrue(w.get(2) < 0);
+        assertTrue(w.get(3) > 0);
+        int nonZero = 0;
+        for (int j = 1; j < p; j++) {
+            if (w.get(j) != 0) {
+                nonZero++;
+            }
+        }
+        assertTrue(nonZero < 15);
+
+        // optimality conditions
+        DVector residual = y.copy().sub(x.dot(w).apply(MathTools::logistic));
+        DVector gradient = x.t().dot(residual);
+        assertEquals(0, gradient.get(0), 1e-4);
+        for (int j = 1; j < p; j++) {
+            double g = gradient.get(j) - l2 * w.get(j);
+            if (w.get(j) == 0) {
+                assertTrue(Math.abs(g) <= l1 + 1e-4);
+            } else {
+                assertEquals(l1 * Math.signum(w.get(j)), g, 1e-3);
+            }
+        }
+
+        // sparse input gives the same solution
+        var sparse = new BinaryLogisticCD().xp.set(DMatrixSparseC.copy(x)).yp.set(y).w0.set(DVector.zeros(p))
+                .l1.set(l1).l2.set(l2).intercept.set(true).pathSize.set(5).fit();
+        assertTrue(w.deepEquals(sparse.w(), 1e-10));
+    }
+
+    private DMatrix randomMatrix(int n, int p) {
+        Normal normal = Normal.std();
+        DMatrix x = DMatrix.empty(n, p);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < p; j++) {
+                x.set(i, j, normal.sampleNext(random));
+            }
+        }
+        return x;
+    }
+
+    private DVector randomTarget(DMatrix x, DVector coefficients) {
+        DVector eta = x.dot(coefficients);
+        DVector y = DVector.zeros(x.rows());
+        for (int i = 0; i < x.rows(); i++) {
+            y.set(i, random.nextDouble() < MathTools.logistic(eta.get(i)) ? 1 : 0);
+        }
+        return y;
+    }
+}
@@ -34,6 +34,7 @@ import rapaio.data.VarDouble;
 import rapaio.math.MathTools;
 import rapaio.math.linear.DMatrix;
 import rapaio.math.linear.DVector;
+import rapaio.math.linear.dense.DMatrixDenseR;
 
 /**
  * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a> on 3/21/20.
@@ -207,4 +208,44 @@ public class BinaryLogisticIRLSTest {
         assertTrue(accuracy < 0.2);
     }
 
+    @Test
+    void testWorkspaceKernel() {
+        int n = 700;
+        Normal normal = Normal.std();
+        DMatrixDenseR xr = DMatrixDenseR.fill(n, 3, (i, j) -> j == 0 ? 1 : normal.sampleNext(random));
+        DMatrix x = DMatrix.fill(n, 3, xr::get);
+        DVector y = DVector.from(n, row -> 1.5 * x.get(row, 1) - x.get(row, 2) + normal.sampleNext(random) > 0 ? 1 : 0);
+        double lambda = 0.5;
+
+        BinaryLogisticIRLS.Result result = new BinaryLogisticIRLS()
+                .xp.set(x)
+                .yp.set(y)
+                .w0.set(DVector.zeros(3))
+                .lambdap.set(lambda)
+                .maxIter.set(100)
+                .eps.set(1e-15)
+                .fit();
+        assertTrue(result.converged());
+
+        // gradient of the penalized likelihood vanishes at solution
+        DVector p = x.dot(result.w()).apply(MathTools::logistic);
+        DVector grad = x.t().dot(y.subNew(p)).sub(result.w().mulNew(lambda));
+        assertEquals(0, grad.norm(2), 1e-8);
+
+        // generic matrix implementation and dropped iterations produce the same solution
+        BinaryLogisticIRLS.Result last = new BinaryLogisticIRLS()
+                .xp.set(xr)
+                .yp.set(y)
+                .w0.set(DVector.zeros(3))
+                .lambdap.set(lambda)
+                .maxIter.set(100)
+                .eps.set(1e-15)
+                .keepIterations.set(false)
+                .fit();
+        assertTrue(last.converged());
+        assertEquals(1, last.ws().size());
+        assertEquals(result.nlls().size(), last.nlls().size());
+        assertTrue(result.w().deepEquals(last.w(), 1e-12));
+        assertEquals(result.nll(), last.nll(), 1e-12);
+    }
 }
@@ -0,0 +1,146 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package rapaio.ml.model.tree;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import rapaio.core.stat.Mean;
+import rapaio.core.stat.WeightedMean;
+import rapaio.data.Frame;
+import rapaio.data.VarDouble;
+import rapaio.datasets.Datasets;
+import rapaio.ml.model.ClassifierResult;
+import rapaio.ml.model.RegressionResult;
+import rapaio.ml.model.tree.ctree.Pruning;
+import rapaio.ml.model.tree.rtree.Node;
+import rapaio.util.DoublePair;
+
+public class CompiledTreeTest {
+
+    private Random random;
+
+    @BeforeEach
+    void beforeEach() {
+        random = new Random(42);
+    }
+
+    /**
+     * Copy of a frame with some values set to missing, such that predictions combine children.
+     */
+    private Frame withMissing(Frame df, String target) {
+        Frame copy = df.copy();
+        for (int i = 0; i < copy.rowCount(); i++) {
+            for (int j = 0; j < copy.varCount(); j++) {
+                if (!copy.rvar(j).name().equals(target) && random.nextDouble() < 0.1) {
+                    copy.setMissing(i, j);
+                }
+            }
+        }
+        return copy;
+    }
+
+    @Test
+    void testCTree() {
+        Frame iris = Datasets.loadIrisDataset();
+        Frame mushrooms = Datasets.loadMushrooms();
+        CTree[] trees = new CTree[] {
+                CTree.newCART().fit(iris, "class"),
+                CTree.newC45().fit(iris, "class"),
+                CTree.newCART().fit(mushrooms, "classes"),
+                CTree.newC45().fit(mushrooms, "classes"),
+                CTree.newID3().fit(mushrooms.mapVars("classes,cap-shape,odor,stalk-root,habitat"), "classes")
+        };
+        Frame[] frames = new Frame[] {iris, iris, mushrooms, mushrooms, mushrooms};
+
+        for (int t = 0; t < trees.length; t++) {
+            CTree tree = trees[t];
+            Frame test = withMissing(frames[t], tree.firstTargetName());
+            ClassifierResult result = tree.predict(test, true, true);
+            for (int i = 0; i < test.rowCount(); i++) {
+                var expected = tree.predictPoint(tree, tree.getRoot(), i, test);
+                assertEquals(expected.v1, result.firstClasses().getLabel(i));
+                for (int j = 1; j < tree.firstTargetLevels().size(); j++) {
+                    assertEquals(expected.v2.get(tree.firstTargetLevel(j)), result.firstDensity().getDouble(i, j));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testRTree() {
+        Frame df = Datasets.loadISLAdvertising();
+        RTree[] trees = new RTree[] {
+                RTree.newCART().fit(df, "Sales"),
+                RTree.newC45().fit(df, "Sales"),
+                RTree.newDecisionStump().fit(df, "Sales")
+        };
+        for (RTree tree : trees) {
+            Frame test = withMissing(df, "Sales");
+            RegressionResult result = tree.predict(test);
+            for (int i = 0; i < test.rowCount(); i++) {
+                assertEquals(predict(i, test, tree.root()).v1, result.firstPrediction().getDouble(i));
+            }
+        }
+    }
+
+    @Test
+    void testCompiledAfterPrune() {
+        Frame iris = Datasets.loadIrisDataset();
+        CTree tree = CTree.newCART().fit(iris, "class");
+        Frame test = withMissing(iris, "class");
+        tree.predict(test, true, true);
+
+        // pruning changes the tree structure, the compiled form must follow
+        int nodes = tree.countNodes(false);
+        tree.pruning.set(Pruning.ReducedError).prune(test, true);
+        assertTrue(tree.countNodes(false) < nodes);
+        ClassifierResult result = tree.predict(test, true, true);
+        for (int i = 0; i < test.rowCount(); i++) {
+            assertEquals(tree.predictPoint(tree, tree.getRoot(), i, test).v1, result.firstClasses().getLabel(i));
+        }
+    }
+
+    // recursive prediction over node objects used as reference
+    private DoublePair predict(int row, Frame df, Node node) {
+        if (node.leaf) {
+            return DoublePair.of(node.value, node.weight);
+        }
+        for (Node child : node.children) {
+            if (child.predicate.test(row, df)) {
+                return predict(row, df, child);
+            }
+        }
+        VarDouble values = VarDouble.empty();
+        VarDouble weights = VarDouble.empty();
+        for (Node child : node.children) {
+            DoublePair prediction = predict(row, df, child);
+            values.addDouble(prediction.v1);
+            weights.addDouble(prediction.v2);
+        }
+        return DoublePair.of(WeightedMean.of(values, weights).value(), Mean.of(weights).value());
+    }
+}
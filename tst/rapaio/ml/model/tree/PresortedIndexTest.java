@@ -0,0 +1,124 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package rapaio.ml.model.tree;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import rapaio.core.SamplingTools;
+import rapaio.data.Frame;
+import rapaio.data.Mapping;
+import rapaio.data.SolidFrame;
+import rapaio.data.VarDouble;
+import rapaio.data.VarInt;
+import rapaio.data.VarNominal;
+import rapaio.datasets.Datasets;
+import rapaio.ml.model.tree.ctree.Purity;
+import rapaio.ml.model.tree.ctree.Search;
+
+public class PresortedIndexTest {
+
+    private Random random;
+
+    @BeforeEach
+    void beforeEach() {
+        random = new Random(42);
+    }
+
+    @Test
+    void testRootSortedRows() {
+        Frame df = SolidFrame.byVars(
+                VarDouble.from(100, row -> random.nextGaussian()).name("x"),
+                VarInt.from(100, row -> random.nextInt(10)).name("y"),
+                VarNominal.from(100, row -> random.nextBoolean() ? "a" : "b").name("z"));
+        for (int row : SamplingTools.sampleWOR(random, 100, 10)) {
+            df.setMissing(row, "x");
+        }
+
+        PresortedIndex index = PresortedIndex.from(df, "x", "y");
+
+        assertSorted(df, 0, index.sortedRows(0));
+        assertEquals(90, index.sortedRows(0).length);
+        assertSorted(df, 1, index.sortedRows(1));
+        assertEquals(100, index.sortedRows(1).length);
+        assertNull(index.sortedRows(2));
+    }
+
+    @Test
+    void testChildSortedRows() {
+        Frame df = SolidFrame.byVars(
+                VarDouble.from(200, row -> random.nextGaussian()).name("x"),
+                VarDouble.from(200, row -> random.nextDouble()).name("y"));
+        for (int row : SamplingTools.sampleWOR(random, 200, 20)) {
+            df.setMissing(row, "y");
+        }
+
+        PresortedIndex index = PresortedIndex.from(df, "x", "y");
+
+        // split twice, with mappings in random order
+        Mapping first = Mapping.wrap(SamplingTools.sampleWOR(random, 200, 120));
+        Frame firstDf = df.mapRows(first);
+        PresortedIndex firstIndex = index.child(first);
+
+        Mapping second = Mapping.wrap(SamplingTools.sampleWOR(random, 120, 50));
+        Frame secondDf = firstDf.mapRows(second);
+        PresortedIndex secondIndex = firstIndex.child(second);
+
+        for (int j = 0; j < 2; j++) {
+            assertSorted(secondDf, j, secondIndex.sortedRows(j));
+            assertEquals(secondDf.rvar(j).rowsComplete().length, secondIndex.sortedRows(j).length);
+            assertSorted(firstDf, j, firstIndex.sortedRows(j));
+            assertEquals(firstDf.rvar(j).rowsComplete().length, firstIndex.sortedRows(j).length);
+        }
+    }
+
+    @Test
+    void testSameCandidateWithIndex() {
+        Frame df = Datasets.loadIrisDataset();
+        CTree tree = CTree.newCART();
+
+        Mapping mapping = Mapping.wrap(SamplingTools.sampleWOR(random, df.rowCount(), 100));
+        Frame child = df.mapRows(mapping);
+        VarDouble weights = VarDouble.fill(child.rowCount(), 1);
+        String[] testNames = new String[] {"sepal-length", "sepal-width", "petal-length", "petal-width"};
+        PresortedIndex index = PresortedIndex.from(df, testNames).child(mapping);
+
+        for (String testName : testNames) {
+            var expected = Search.NumericBinary.computeCandidate(tree, child, weights, testName, "class", Purity.GiniGain, random);
+            var actual = Search.NumericBinary.computeCandidate(tree, child, weights, testName, "class", Purity.GiniGain, random, index);
+            assertEquals(expected, actual);
+        }
+    }
+
+    private void assertSorted(Frame df, int varIndex, int[] rows) {
+        for (int i = 0; i < rows.length; i++) {
+            assertFalse(df.isMissing(rows[i], varIndex));
+            if (i > 0) {
+                assertTrue(df.getDouble(rows[i - 1], varIndex) <= df.getDouble(rows[i], varIndex));
+            }
+        }
+    }
+}
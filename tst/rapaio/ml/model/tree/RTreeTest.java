@@ -268,4 +268,30 @@ public class RTreeTest {
 
         assertTrue(dsRSquare < treeRSquare);
     }
+
+    @Test
+    void testBoostUpdateFitted() {
+        int n = 300;
+        VarDouble x1 = VarDouble.from(n, row -> random.nextDouble() < 0.1 ? Double.NaN : random.nextGaussian()).name("x1");
+        VarNominal x2 = VarNominal.from(n, row -> random.nextDouble() < 0.1 ? "?" : (random.nextBoolean() ? "a" : "b")).name("x2");
+        VarDouble y = VarDouble.from(n, row -> (x1.isMissing(row) ? 0 : x1.getDouble(row))
+                + (x2.getLabel(row).equals("a") ? 1 : 0) + random.nextGaussian() / 10).name("y");
+        VarDouble fx = VarDouble.from(n, row -> random.nextGaussian() / 10).name("fx");
+        Frame df = SolidFrame.byVars(x1, x2, y);
+
+        for (Splitter splitter : Splitter.values()) {
+            RTree tree1 = RTree.newCART().maxDepth.set(4).splitter.set(splitter).seed.set(42L).fit(df, "y");
+            RTree tree2 = tree1.newInstance().fit(df, "y");
+
+            double[] fitted = tree1.boostUpdateFitted(df, y, fx, new L2Loss());
+            tree2.boostUpdate(df, y, fx, new L2Loss());
+            RegressionResult prediction = tree2.predict(df, false);
+
+            for (int i = 0; i < n; i++) {
+                assertEquals(prediction.firstPrediction().getDouble(i), fitted[i], TOL, "splitter: " + splitter);
+            }
+            RegressionResult updated = tree1.predict(df, false);
+            assertTrue(updated.firstPrediction().deepEquals(prediction.firstPrediction()));
+        }
+    }
 }
@@ -0,0 +1,139 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package rapaio.ml.model.tree;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import rapaio.data.Frame;
+import rapaio.data.Mapping;
+import rapaio.data.SolidFrame;
+import rapaio.data.Var;
+import rapaio.data.VarDouble;
+
+public class RowPartitionTest {
+
+    private static final double TOL = 1e-12;
+
+    @Test
+    void testSplitInPlace() {
+        Frame df = SolidFrame.byVars(VarDouble.from(10, row -> row * 10.0).name("x"));
+        Var weights = VarDouble.from(10, row -> (double) row);
+
+        RowPartition.Range root = RowPartition.from(df, weights);
+        assertEquals(10, root.size());
+
+        // odd rows to the first child, even rows to the second, except row 0 which is dropped
+        Mapping odd = Mapping.wrap(1, 3, 5, 7, 9);
+        Mapping even = Mapping.wrap(2, 4, 6, 8);
+        RowPartition.Range[] children = root.split(List.of(odd, even), List.of(weights.mapRows(odd), weights.mapRows(even)));
+
+        assertEquals(2, children.length);
+        assertSame(root.partition(), children[0].partition());
+        assertEquals(0, children[0].start());
+        assertEquals(5, children[0].end());
+        assertEquals(5, children[1].start());
+        assertEquals(9, children[1].end());
+
+        Frame oddDf = children[0].frame();
+        Var oddWeights = children[0].weights();
+        for (int i = 0; i < 5; i++) {
+            assertEquals((2 * i + 1) * 10, oddDf.getDouble(i, "x"), TOL);
+            assertEquals(2 * i + 1, oddWeights.getDouble(i), TOL);
+        }
+
+        // split again the second child, positions are relative to the child
+        Mapping first = Mapping.wrap(3, 0);
+        Mapping second = Mapping.wrap(1, 2);
+        Var evenWeights = children[1].weights();
+        RowPartition.Range[] grandChildren = children[1].split(List.of(first, second),
+                List.of(evenWeights.mapRows(first), evenWeights.mapRows(second)));
+
+        assertEquals(5, grandChildren[0].start());
+        assertEquals(9, grandChildren[1].end());
+        assertEquals(80, grandChildren[0].frame().getDouble(0, "x"), TOL);
+        assertEquals(20, grandChildren[0].frame().getDouble(1, "x"), TOL);
+        assertEquals(40, grandChildren[1].frame().getDouble(0, "x"), TOL);
+        assertEquals(60, grandChildren[1].frame().getDouble(1, "x"), TOL);
+
+        // the sibling range is not touched
+        for (int i = 0; i < 5; i++) {
+            assertEquals((2 * i + 1) * 10, children[0].frame().getDouble(i, "x"), TOL);
+        }
+    }
+
+    @Test
+    void testRangeViews() {
+        Frame df = SolidFrame.byVars(VarDouble.from(6, row -> row * 10.0).name("x"));
+        Var weights = VarDouble.from(6, row -> (double) row);
+        RowPartition.Range root = RowPartition.from(df, weights);
+
+        Mapping left = Mapping.wrap(4, 5);
+        Mapping right = Mapping.wrap(0, 1, 2, 3);
+        RowPartition.Range[] children = root.split(List.of(left, right), List.of(weights.mapRows(left), weights.mapRows(right)));
+
+        // frame and weights of a range read the arrays of the partition, no values are copied
+        Frame rightDf = children[1].frame();
+        Var rightWeights = children[1].weights();
+        assertEquals(4, rightDf.rowCount());
+        assertEquals(4, rightWeights.size());
+
+        // children weights given as views over the parent range are read before they are overwritten
+        Mapping first = Mapping.wrap(3, 2);
+        Mapping second = Mapping.wrap(1, 0);
+        RowPartition.Range[] grandChildren = children[1].split(List.of(first, second),
+                List.of(rightWeights.mapRows(first), rightWeights.mapRows(second)));
+        assertEquals(30, rightDf.getDouble(0, "x"), TOL);
+        double[] expected = new double[] {3, 2, 1, 0};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], rightWeights.getDouble(i), TOL);
+            assertEquals(expected[i] * 10, rightDf.getDouble(i, "x"), TOL);
+        }
+        assertEquals(2, grandChildren[0].weights().getDouble(1), TOL);
+        assertEquals(0, grandChildren[1].weights().getDouble(1), TOL);
+    }
+
+    @Test
+    void testSplitWithDuplicates() {
+        Frame df = SolidFrame.byVars(VarDouble.from(4, row -> (double) row).name("x"));
+        Var weights = VarDouble.fill(4, 1);
+
+        RowPartition.Range root = RowPartition.from(df, weights);
+
+        // row 3 goes to both children with half weight
+        Mapping left = Mapping.wrap(0, 1, 3);
+        Mapping right = Mapping.wrap(2, 3);
+        RowPartition.Range[] children = root.split(List.of(left, right),
+                List.of(VarDouble.wrap(1, 1, 0.5), VarDouble.wrap(1, 0.5)));
+
+        assertNotSame(root.partition(), children[0].partition());
+        assertEquals(3, children[0].size());
+        assertEquals(2, children[1].size());
+        assertEquals(3, children[0].frame().getDouble(2, "x"), TOL);
+        assertEquals(3, children[1].frame().getDouble(1, "x"), TOL);
+        assertEquals(0.5, children[0].weights().getDouble(2), TOL);
+        assertEquals(0.5, children[1].weights().getDouble(1), TOL);
+    }
+}
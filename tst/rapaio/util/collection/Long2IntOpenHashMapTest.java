@@ -0,0 +1,74 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ * Copyright 2013 - 2022 Aurelian Tutuianu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package rapaio.util.collection;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class Long2IntOpenHashMapTest {
+
+    private Random random;
+
+    @BeforeEach
+    void beforeEach() {
+        random = new Random(42);
+    }
+
+    @Test
+    void testAgainstHashMap() {
+        Long2IntOpenHashMap map = new Long2IntOpenHashMap();
+        HashMap<Long, Integer> reference = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(3) == 0 ? random.nextLong() : random.nextInt(1_000) * 0x1_0000_0000L;
+            int value = random.nextInt(1_000_000);
+            if (random.nextBoolean()) {
+                map.put(key, value);
+                reference.put(key, value);
+            } else {
+                Integer previous = reference.putIfAbsent(key, value);
+                assertEquals(previous == null ? Long2IntOpenHashMap.MISSING : previous, map.putIfAbsent(key, value));
+            }
+        }
+        assertEquals(reference.size(), map.size());
+        for (var e : reference.entrySet()) {
+            assertTrue(map.containsKey(e.getKey()));
+            assertEquals(e.getValue(), map.get(e.getKey()));
+        }
+        assertEquals(Long2IntOpenHashMap.MISSING, map.get(Long.MIN_VALUE + 1));
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(reference.keySet().iterator().next()));
+    }
+
+    @Test
+    void testInvalid() {
+        var ex = assertThrows(IllegalArgumentException.class, () -> new Long2IntOpenHashMap().put(1, Long2IntOpenHashMap.MISSING));
+        assertEquals("Value -2147483648 is reserved for empty slots.", ex.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> new Long2IntOpenHashMap(10, 1.5));
+    }
+}